@@ -32,6 +32,9 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private ProductionBatchRepository productionBatchRepository;
 
+    @Autowired
+    private ProductionLineRepository productionLineRepository;
+
     @Autowired
     private ProductionStepRepository productionStepRepository;
 
@@ -51,6 +54,7 @@ public class DataInitializer implements CommandLineRunner {
         initializeQualityTraces();
         initializeSuppliers();
         initializeFranchises();
+        initializeProductionLines();
         initializeProductionOrders();
         initializeProductionSchedules();
         initializeProductionBatches();
@@ -385,6 +389,44 @@ public class DataInitializer implements CommandLineRunner {
         }
     }
 
+    private void initializeProductionLines() {
+        if (productionLineRepository.count() == 0) {
+            ProductionLine[] lines = {
+                ProductionLine.builder()
+                    .code("LINE-A")
+                    .name("生产线A")
+                    .capacityPerHour(120)
+                    .maxBatchQuantity(200)
+                    .sortOrder(1)
+                    .status(ProductionLine.LineStatus.ACTIVE)
+                    .build(),
+
+                ProductionLine.builder()
+                    .code("LINE-B")
+                    .name("生产线B")
+                    .capacityPerHour(120)
+                    .maxBatchQuantity(200)
+                    .sortOrder(2)
+                    .status(ProductionLine.LineStatus.ACTIVE)
+                    .build(),
+
+                ProductionLine.builder()
+                    .code("LINE-C")
+                    .name("生产线C")
+                    .capacityPerHour(120)
+                    .maxBatchQuantity(200)
+                    .sortOrder(3)
+                    .status(ProductionLine.LineStatus.ACTIVE)
+                    .build()
+            };
+
+            for (ProductionLine line : lines) {
+                productionLineRepository.save(line);
+            }
+            System.out.println("✅ 生产线数据初始化完成");
+        }
+    }
+
     private void initializeProductionSchedules() {
         if (productionScheduleRepository.count() == 0) {
             LocalDateTime today = LocalDateTime.now().withHour(9).withMinute(0); // 今天早上9点
@@ -0,0 +1,19 @@
+package com.ckm;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * 请求过载异常，响应429并通过Retry-After告知客户端重试间隔
+ */
+public class TooManyRequestsException extends BusinessException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message, HttpStatus.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
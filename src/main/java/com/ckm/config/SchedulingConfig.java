@@ -0,0 +1,15 @@
+package com.ckm.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置：步骤计数对账、工时统计快照等，ckm.scheduling.enabled=false时整体关闭
+ * 库存预警的定时任务另由ckm.inventory-alerts下的cron开启，默认不执行
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "ckm.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
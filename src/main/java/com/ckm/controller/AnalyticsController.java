@@ -1,11 +1,16 @@
 package com.ckm.controller;
 
+import com.ckm.dto.CostRollupDTO;
+import com.ckm.repository.BatchCostJdbcRepository;
 import com.ckm.service.AnalyticsService;
+import com.ckm.service.BatchCostService;
 import com.ckm.service.InventoryAlertService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,6 +24,9 @@ public class AnalyticsController {
     @Autowired
     private InventoryAlertService inventoryAlertService;
 
+    @Autowired
+    private BatchCostService batchCostService;
+
     /**
      * 获取运营概览仪表板数据
      */
@@ -46,6 +54,15 @@ public class AnalyticsController {
         return ResponseEntity.ok(costAnalysis);
     }
 
+    /**
+     * 获取按日、生产标准或加盟店汇总的批次成本
+     */
+    @GetMapping("/cost-rollups")
+    public ResponseEntity<List<CostRollupDTO>> getCostRollups(@RequestParam String startDate, @RequestParam String endDate,
+                                                              @RequestParam(defaultValue = "DAY") BatchCostJdbcRepository.Dimension dimension) {
+        return ResponseEntity.ok(batchCostService.getRollups(LocalDate.parse(startDate), LocalDate.parse(endDate), dimension));
+    }
+
     /**
      * 获取质量指标分析
      */
@@ -1,12 +1,53 @@
 package com.ckm.controller;
 
+import com.ckm.BusinessException;
+import com.ckm.dto.BulkOrderRequestDTO;
+import com.ckm.dto.BulkTransitionResultDTO;
+import com.ckm.dto.ConsolidationResultDTO;
+import com.ckm.dto.CursorPageDTO;
+import com.ckm.dto.EquipmentUtilizationDTO;
+import com.ckm.dto.LineUtilizationDTO;
+import com.ckm.dto.MaterialUsageDTO;
+import com.ckm.dto.OrderImportResultDTO;
+import com.ckm.dto.OrderIntakeTicketDTO;
+import com.ckm.dto.OrderSummaryDTO;
+import com.ckm.dto.ScheduleConflictDTO;
+import com.ckm.dto.ScheduleSimulationDTO;
+import com.ckm.dto.ScheduleSummaryDTO;
+import com.ckm.dto.StaffAssignmentResultDTO;
+import com.ckm.dto.StepDurationStatsDTO;
+import com.ckm.dto.StepJournalRequestDTO;
+import com.ckm.dto.StepJournalResultDTO;
+import com.ckm.dto.TransitionResultDTO;
 import com.ckm.entity.*;
+import com.ckm.service.BatchCostService;
+import com.ckm.service.EquipmentTimelineService;
+import com.ckm.service.FloorEventStream;
+import com.ckm.service.IdempotencyService;
+import com.ckm.service.OrderImportReader;
+import com.ckm.service.OrderImportService;
+import com.ckm.service.OrderIntakeService;
+import com.ckm.service.ProductionBatchService;
+import com.ckm.service.ProductionLineService;
 import com.ckm.service.ProductionOrderService;
+import com.ckm.service.ProductionResourceService;
 import com.ckm.service.ProductionScheduleService;
+import com.ckm.service.ProductionSchedulingService;
+import com.ckm.service.ProductionStepService;
+import com.ckm.service.StepDurationStatsService;
+import com.ckm.service.StepJournalService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -16,12 +57,57 @@ import java.util.Map;
 @CrossOrigin(origins = "http://localhost:3000")
 public class ProductionManagementController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
     @Autowired
     private ProductionOrderService productionOrderService;
 
     @Autowired
     private ProductionScheduleService productionScheduleService;
 
+    @Autowired
+    private ProductionSchedulingService productionSchedulingService;
+
+    @Autowired
+    private ProductionLineService productionLineService;
+
+    @Autowired
+    private ProductionBatchService productionBatchService;
+
+    @Autowired
+    private ProductionStepService productionStepService;
+
+    @Autowired
+    private ProductionResourceService productionResourceService;
+
+    @Autowired
+    private OrderIntakeService orderIntakeService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderImportService orderImportService;
+
+    @Autowired
+    private FloorEventStream floorEventStream;
+
+    @Autowired
+    private StepJournalService stepJournalService;
+
+    @Autowired
+    private BatchCostService batchCostService;
+
+    @Autowired
+    private StepDurationStatsService stepDurationStatsService;
+
+    @Autowired
+    private EquipmentTimelineService equipmentTimelineService;
+
     // ==================== 生产订单管理 ====================
 
     @GetMapping("/orders")
@@ -29,6 +115,14 @@ public class ProductionManagementController {
         return ResponseEntity.ok(productionOrderService.findAll());
     }
 
+    @GetMapping("/orders/page")
+    public ResponseEntity<CursorPageDTO<OrderSummaryDTO>> getOrderPage(@RequestParam(required = false) String cursor,
+                                                                       @RequestParam(required = false) Integer limit,
+                                                                       @RequestParam(required = false) ProductionOrder.OrderStatus status,
+                                                                       @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(productionOrderService.findOrderPage(cursor, limit, status, withTotal));
+    }
+
     @GetMapping("/orders/{id}")
     public ResponseEntity<ProductionOrder> getOrderById(@PathVariable Long id) {
         return productionOrderService.findById(id)
@@ -37,8 +131,54 @@ public class ProductionManagementController {
     }
 
     @PostMapping("/orders")
-    public ResponseEntity<ProductionOrder> createOrder(@RequestBody ProductionOrder order) {
-        return ResponseEntity.ok(productionOrderService.save(order));
+    public ResponseEntity<ProductionOrder> createOrder(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                       @RequestBody ProductionOrder order) {
+        IdempotencyService.Outcome<ProductionOrder> outcome = idempotencyService.execute("orders", idempotencyKey, order,
+                () -> productionOrderService.save(order),
+                saved -> String.valueOf(saved.getId()),
+                id -> productionOrderService.findById(Long.valueOf(id)).orElseThrow(() -> new RuntimeException("生产订单不存在")));
+        return ResponseEntity.ok()
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.replayed()))
+                .body(outcome.value());
+    }
+
+    /**
+     * 异步受理订单，返回202和受理凭据；队列已满时返回429和Retry-After
+     */
+    @PostMapping("/orders/intake")
+    public ResponseEntity<OrderIntakeTicketDTO> submitOrders(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                             @RequestParam String submittedBy,
+                                                             @RequestBody List<ProductionOrder> orders) {
+        IdempotencyService.Outcome<OrderIntakeTicketDTO> outcome = idempotencyService.execute("intake", idempotencyKey, orders,
+                () -> orderIntakeService.submit(orders, submittedBy),
+                OrderIntakeTicketDTO::getTicketId,
+                ticketId -> orderIntakeService.findTicket(ticketId).orElseThrow(() ->
+                        new BusinessException("受理凭据已过期，请按订单号查询受理结果", HttpStatus.GONE)));
+        OrderIntakeTicketDTO ticket = outcome.value();
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/production/orders/intake/" + ticket.getTicketId()))
+                .header(IDEMPOTENT_REPLAYED, String.valueOf(outcome.replayed()))
+                .body(ticket);
+    }
+
+    @GetMapping("/orders/intake/{ticketId}")
+    public ResponseEntity<OrderIntakeTicketDTO> getIntakeTicket(@PathVariable String ticketId) {
+        return orderIntakeService.findTicket(ticketId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 从CSV或NDJSON文件导入订单，format为空时按文件名后缀判断；返回逐行错误报告
+     */
+    @PostMapping(value = "/orders/import", consumes = "multipart/form-data")
+    public ResponseEntity<OrderImportResultDTO> importOrders(@RequestParam("file") MultipartFile file,
+                                                             @RequestParam(required = false) String format,
+                                                             @RequestParam String importedBy) throws IOException {
+        OrderImportReader.Format resolved = OrderImportService.formatOf(format, file.getOriginalFilename());
+        try (InputStream input = file.getInputStream()) {
+            return ResponseEntity.ok(orderImportService.importOrders(input, resolved, importedBy));
+        }
     }
 
     @PutMapping("/orders/{id}")
@@ -70,21 +210,54 @@ public class ProductionManagementController {
     }
 
     @PostMapping("/orders/{id}/approve")
-    public ResponseEntity<ProductionOrder> approveOrder(@PathVariable Long id, @RequestParam String approvedBy) {
-        return ResponseEntity.ok(productionOrderService.approveOrder(id, approvedBy));
+    public ResponseEntity<ProductionOrder> approveOrder(@PathVariable Long id, @RequestParam String approvedBy,
+                                                        @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionOrderService.approveOrder(id, version, approvedBy));
     }
 
     @PostMapping("/orders/{id}/schedule")
     public ResponseEntity<ProductionOrder> scheduleOrder(@PathVariable Long id,
                                                          @RequestParam String scheduledBy,
+                                                         @RequestParam(required = false) Long version,
                                                          @RequestBody Map<String, String> payload) {
         LocalDateTime scheduledDate = LocalDateTime.parse(payload.get("scheduledDate"));
-        return ResponseEntity.ok(productionOrderService.scheduleOrder(id, scheduledDate, scheduledBy));
+        return ResponseEntity.ok(productionOrderService.scheduleOrder(id, version, scheduledDate, scheduledBy));
     }
 
     @PostMapping("/orders/{id}/complete")
-    public ResponseEntity<ProductionOrder> completeOrder(@PathVariable Long id, @RequestParam String completedBy) {
-        return ResponseEntity.ok(productionOrderService.completeOrder(id, completedBy));
+    public ResponseEntity<ProductionOrder> completeOrder(@PathVariable Long id, @RequestParam String completedBy,
+                                                         @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionOrderService.completeOrder(id, version, completedBy));
+    }
+
+    @PostMapping("/orders/{id}/cancel")
+    public ResponseEntity<ProductionOrder> cancelOrder(@PathVariable Long id, @RequestParam String cancelledBy,
+                                                       @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionOrderService.cancelOrder(id, version, cancelledBy));
+    }
+
+    @PostMapping("/orders/bulk/approve")
+    public ResponseEntity<BulkTransitionResultDTO> bulkApproveOrders(@RequestParam String approvedBy,
+                                                                     @RequestBody BulkOrderRequestDTO request) {
+        return ResponseEntity.ok(productionOrderService.bulkApprove(request, approvedBy));
+    }
+
+    @PostMapping("/orders/bulk/schedule")
+    public ResponseEntity<BulkTransitionResultDTO> bulkScheduleOrders(@RequestParam String scheduledBy,
+                                                                      @RequestBody BulkOrderRequestDTO request) {
+        return ResponseEntity.ok(productionOrderService.bulkSchedule(request, scheduledBy));
+    }
+
+    @PostMapping("/orders/bulk/cancel")
+    public ResponseEntity<BulkTransitionResultDTO> bulkCancelOrders(@RequestParam String cancelledBy,
+                                                                    @RequestBody BulkOrderRequestDTO request) {
+        return ResponseEntity.ok(productionOrderService.bulkCancel(request, cancelledBy));
+    }
+
+    @PostMapping("/orders/consolidate")
+    public ResponseEntity<ConsolidationResultDTO> consolidateOrders(@RequestParam String consolidatedBy,
+                                                                    @RequestBody List<Long> orderIds) {
+        return ResponseEntity.ok(productionSchedulingService.consolidateOrders(orderIds, consolidatedBy));
     }
 
     // ==================== 生产排程管理 ====================
@@ -94,6 +267,13 @@ public class ProductionManagementController {
         return ResponseEntity.ok(productionScheduleService.findAll());
     }
 
+    @GetMapping("/schedules/page")
+    public ResponseEntity<CursorPageDTO<ScheduleSummaryDTO>> getSchedulePage(@RequestParam(required = false) String cursor,
+                                                                             @RequestParam(required = false) Integer limit,
+                                                                             @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(productionScheduleService.findSchedulePage(cursor, limit, withTotal));
+    }
+
     @GetMapping("/schedules/{id}")
     public ResponseEntity<ProductionSchedule> getScheduleById(@PathVariable Long id) {
         return productionScheduleService.findById(id)
@@ -136,19 +316,277 @@ public class ProductionManagementController {
         return ResponseEntity.ok(productionScheduleService.findByProductionLineAndDate(line, scheduledDate));
     }
 
+    @GetMapping("/schedules/conflicts")
+    public ResponseEntity<List<ScheduleConflictDTO>> getScheduleConflicts(@RequestParam String startDate, @RequestParam String endDate) {
+        LocalDateTime start = LocalDateTime.parse(startDate);
+        LocalDateTime end = LocalDateTime.parse(endDate);
+        return ResponseEntity.ok(productionSchedulingService.getScheduleConflicts(start, end));
+    }
+
+    @GetMapping("/schedules/simulation")
+    public ResponseEntity<List<ScheduleSimulationDTO>> simulateSchedules(@RequestParam String startDate,
+                                                                         @RequestParam(required = false) List<String> strategies) {
+        return ResponseEntity.ok(productionSchedulingService.simulateSchedules(LocalDateTime.parse(startDate), strategies));
+    }
+
     @PostMapping("/schedules/{id}/confirm")
-    public ResponseEntity<ProductionSchedule> confirmSchedule(@PathVariable Long id, @RequestParam String confirmedBy) {
-        return ResponseEntity.ok(productionScheduleService.confirmSchedule(id, confirmedBy));
+    public ResponseEntity<ProductionSchedule> confirmSchedule(@PathVariable Long id, @RequestParam String confirmedBy,
+                                                              @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionScheduleService.confirmSchedule(id, version, confirmedBy));
     }
 
     @PostMapping("/schedules/{id}/start")
-    public ResponseEntity<ProductionSchedule> startSchedule(@PathVariable Long id, @RequestParam String startedBy) {
-        return ResponseEntity.ok(productionScheduleService.startSchedule(id, startedBy));
+    public ResponseEntity<ProductionSchedule> startSchedule(@PathVariable Long id, @RequestParam String startedBy,
+                                                            @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionScheduleService.startSchedule(id, version, startedBy));
     }
 
     @PostMapping("/schedules/{id}/complete")
-    public ResponseEntity<ProductionSchedule> completeSchedule(@PathVariable Long id, @RequestParam String completedBy) {
-        return ResponseEntity.ok(productionScheduleService.completeSchedule(id, completedBy));
+    public ResponseEntity<ProductionSchedule> completeSchedule(@PathVariable Long id, @RequestParam String completedBy,
+                                                               @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionScheduleService.completeSchedule(id, version, completedBy));
+    }
+
+    // ==================== 生产批次与步骤 ====================
+
+    /**
+     * 立即对账批次步骤计数，返回修正的批次数
+     */
+    @PostMapping("/batches/step-counters/reconcile")
+    public ResponseEntity<Map<String, Integer>> reconcileStepCounters() {
+        return ResponseEntity.ok(Map.of("repairedBatches", productionBatchService.reconcileStepCounters()));
+    }
+
+    /**
+     * 登记批次领料，按供应商合同价计入批次食材成本
+     */
+    @PostMapping("/batches/{id}/materials")
+    public ResponseEntity<MaterialUsageDTO> recordMaterialUsage(@PathVariable Long id, @RequestBody MaterialUsageDTO usage,
+                                                                @RequestParam String recordedBy) {
+        return ResponseEntity.ok(batchCostService.recordMaterialUsage(id, usage, recordedBy));
+    }
+
+    @PostMapping("/batches/{id}/start")
+    public ResponseEntity<TransitionResultDTO> startBatch(@PathVariable Long id, @RequestParam String startedBy,
+                                                          @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionBatchService.startBatch(id, version, startedBy));
+    }
+
+    @PostMapping("/batches/{id}/complete")
+    public ResponseEntity<TransitionResultDTO> completeBatch(@PathVariable Long id, @RequestParam String completedBy,
+                                                             @RequestParam Integer actualQuantity,
+                                                             @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionBatchService.completeBatch(id, version, actualQuantity, completedBy));
+    }
+
+    @PostMapping("/batches/{id}/pause")
+    public ResponseEntity<TransitionResultDTO> pauseBatch(@PathVariable Long id, @RequestParam String pausedBy,
+                                                          @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionBatchService.pauseBatch(id, version, pausedBy));
+    }
+
+    @PostMapping("/batches/{id}/resume")
+    public ResponseEntity<TransitionResultDTO> resumeBatch(@PathVariable Long id, @RequestParam String resumedBy,
+                                                           @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionBatchService.resumeBatch(id, version, resumedBy));
+    }
+
+    @PostMapping("/batches/{id}/reject")
+    public ResponseEntity<TransitionResultDTO> rejectBatch(@PathVariable Long id, @RequestParam String rejectedBy,
+                                                           @RequestParam String reason,
+                                                           @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionBatchService.rejectBatch(id, version, rejectedBy, reason));
+    }
+
+    @PostMapping("/steps/assign-staff")
+    public ResponseEntity<StaffAssignmentResultDTO> assignStepStaff(@RequestParam String date,
+                                                                    @RequestParam String assignedBy) {
+        return ResponseEntity.ok(productionStepService.autoAssignStaff(LocalDate.parse(date), assignedBy));
+    }
+
+    /**
+     * 同步现场平板离线记录的步骤事件，按提交顺序逐个返回处理结果
+     */
+    @PostMapping("/steps/journal/sync")
+    public ResponseEntity<StepJournalResultDTO> syncStepJournal(@RequestBody StepJournalRequestDTO request,
+                                                                @RequestParam String syncedBy) {
+        return ResponseEntity.ok(stepJournalService.sync(request, syncedBy));
+    }
+
+    /**
+     * 生产标准各步骤的实际工时分位数（p50/p90/p99）
+     */
+    @GetMapping("/steps/duration-stats")
+    public ResponseEntity<List<StepDurationStatsDTO>> getStepDurationStats(@RequestParam Long standardId) {
+        return ResponseEntity.ok(stepDurationStatsService.getStandardStats(standardId));
+    }
+
+    @GetMapping("/steps/duration-stats/equipment")
+    public ResponseEntity<StepDurationStatsDTO> getEquipmentDurationStats(@RequestParam String equipment) {
+        return stepDurationStatsService.getEquipmentStats(equipment)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 从全部已完成步骤重建工时统计，返回重建的草图数
+     */
+    @PostMapping("/steps/duration-stats/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildStepDurationStats() {
+        return ResponseEntity.ok(Map.of("sketches", stepDurationStatsService.rebuild()));
+    }
+
+    @PostMapping("/steps/{id}/start")
+    public ResponseEntity<TransitionResultDTO> startStep(@PathVariable Long id, @RequestParam String startedBy,
+                                                         @RequestParam(required = false) String assignedStaff,
+                                                         @RequestParam(required = false) String equipment,
+                                                         @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionStepService.startStep(id, version, assignedStaff, equipment, startedBy));
+    }
+
+    @PostMapping("/steps/{id}/complete")
+    public ResponseEntity<TransitionResultDTO> completeStep(@PathVariable Long id, @RequestParam String completedBy,
+                                                            @RequestParam(required = false) Integer actualDuration,
+                                                            @RequestParam(required = false) ProductionStep.QualityResult qualityResult,
+                                                            @RequestParam(required = false) String notes,
+                                                            @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionStepService.completeStep(id, version, actualDuration, qualityResult, notes, completedBy));
+    }
+
+    @PostMapping("/steps/{id}/skip")
+    public ResponseEntity<TransitionResultDTO> skipStep(@PathVariable Long id, @RequestParam String skippedBy,
+                                                        @RequestParam String reason,
+                                                        @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionStepService.skipStep(id, version, reason, skippedBy));
+    }
+
+    @PostMapping("/steps/{id}/fail")
+    public ResponseEntity<TransitionResultDTO> failStep(@PathVariable Long id, @RequestParam String failedBy,
+                                                        @RequestParam String reason,
+                                                        @RequestParam(required = false) Long version) {
+        return ResponseEntity.ok(productionStepService.failStep(id, version, reason, failedBy));
+    }
+
+    /**
+     * 现场看板事件流，断线重连时浏览器自动带上Last-Event-ID续传
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFloorEvents(@RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId) {
+        return floorEventStream.subscribe(lastEventId);
+    }
+
+    // ==================== 生产线管理 ====================
+
+    @GetMapping("/lines")
+    public ResponseEntity<List<ProductionLine>> getAllLines() {
+        return ResponseEntity.ok(productionLineService.findAll());
+    }
+
+    @GetMapping("/lines/{id}")
+    public ResponseEntity<ProductionLine> getLineById(@PathVariable Long id) {
+        return productionLineService.findById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/lines")
+    public ResponseEntity<ProductionLine> createLine(@RequestBody ProductionLine line) {
+        return ResponseEntity.ok(productionLineService.save(line));
+    }
+
+    @PutMapping("/lines/{id}")
+    public ResponseEntity<ProductionLine> updateLine(@PathVariable Long id, @RequestBody ProductionLine line) {
+        if (!productionLineService.findById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        line.setId(id);
+        return ResponseEntity.ok(productionLineService.save(line));
+    }
+
+    @DeleteMapping("/lines/{id}")
+    public ResponseEntity<Void> deleteLine(@PathVariable Long id) {
+        if (!productionLineService.findById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        productionLineService.deleteById(id);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/lines/{id}/status")
+    public ResponseEntity<ProductionLine> updateLineStatus(@PathVariable Long id, @RequestParam ProductionLine.LineStatus status) {
+        return ResponseEntity.ok(productionLineService.updateStatus(id, status));
+    }
+
+    // ==================== 生产资源 ====================
+
+    @GetMapping("/equipment-units")
+    public ResponseEntity<List<EquipmentUnit>> getAllEquipmentUnits() {
+        return ResponseEntity.ok(productionResourceService.findAllEquipmentUnits());
+    }
+
+    @GetMapping("/equipment-units/{id}")
+    public ResponseEntity<EquipmentUnit> getEquipmentUnitById(@PathVariable Long id) {
+        return productionResourceService.findEquipmentUnitById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/equipment-units")
+    public ResponseEntity<EquipmentUnit> createEquipmentUnit(@RequestBody EquipmentUnit unit) {
+        return ResponseEntity.ok(productionResourceService.saveEquipmentUnit(unit));
+    }
+
+    @PutMapping("/equipment-units/{id}")
+    public ResponseEntity<EquipmentUnit> updateEquipmentUnit(@PathVariable Long id, @RequestBody EquipmentUnit unit) {
+        if (!productionResourceService.findEquipmentUnitById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        unit.setId(id);
+        return ResponseEntity.ok(productionResourceService.saveEquipmentUnit(unit));
+    }
+
+    @DeleteMapping("/equipment-units/{id}")
+    public ResponseEntity<Void> deleteEquipmentUnit(@PathVariable Long id) {
+        if (!productionResourceService.findEquipmentUnitById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        productionResourceService.deleteEquipmentUnit(id);
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/staff")
+    public ResponseEntity<List<KitchenStaff>> getAllStaff() {
+        return ResponseEntity.ok(productionResourceService.findAllStaff());
+    }
+
+    @GetMapping("/staff/{id}")
+    public ResponseEntity<KitchenStaff> getStaffById(@PathVariable Long id) {
+        return productionResourceService.findStaffById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/staff")
+    public ResponseEntity<KitchenStaff> createStaff(@RequestBody KitchenStaff staff) {
+        return ResponseEntity.ok(productionResourceService.saveStaff(staff));
+    }
+
+    @PutMapping("/staff/{id}")
+    public ResponseEntity<KitchenStaff> updateStaff(@PathVariable Long id, @RequestBody KitchenStaff staff) {
+        if (!productionResourceService.findStaffById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        staff.setId(id);
+        return ResponseEntity.ok(productionResourceService.saveStaff(staff));
+    }
+
+    @DeleteMapping("/staff/{id}")
+    public ResponseEntity<Void> deleteStaff(@PathVariable Long id) {
+        if (!productionResourceService.findStaffById(id).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        productionResourceService.deleteStaff(id);
+        return ResponseEntity.ok().build();
     }
 
     // ==================== 统计和分析 ====================
@@ -179,4 +617,18 @@ public class ProductionManagementController {
 
         return ResponseEntity.ok(stats);
     }
+
+    @GetMapping("/stats/utilization")
+    public ResponseEntity<List<LineUtilizationDTO>> getLineUtilization(@RequestParam String startDate, @RequestParam String endDate) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        return ResponseEntity.ok(productionSchedulingService.getLineUtilizationReport(start, end));
+    }
+
+    @GetMapping("/stats/equipment-utilization")
+    public ResponseEntity<List<EquipmentUtilizationDTO>> getEquipmentUtilization(@RequestParam String startDate, @RequestParam String endDate) {
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        return ResponseEntity.ok(equipmentTimelineService.getTimelines(start, end));
+    }
 }
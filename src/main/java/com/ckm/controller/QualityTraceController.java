@@ -1,5 +1,7 @@
 package com.ckm.controller;
 
+import com.ckm.dto.CursorPageDTO;
+import com.ckm.dto.QualityTraceSummaryDTO;
 import com.ckm.entity.QualityTrace;
 import com.ckm.service.QualityTraceService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +25,13 @@ public class QualityTraceController {
         return ResponseEntity.ok(traces);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDTO<QualityTraceSummaryDTO>> getQualityTracePage(@RequestParam(required = false) String cursor,
+                                                                                     @RequestParam(required = false) Integer limit,
+                                                                                     @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(qualityTraceService.findTracePage(cursor, limit, withTotal));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<QualityTrace> getQualityTraceById(@PathVariable Long id) {
         Optional<QualityTrace> trace = qualityTraceService.findById(id);
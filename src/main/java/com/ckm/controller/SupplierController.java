@@ -1,5 +1,7 @@
 package com.ckm.controller;
 
+import com.ckm.dto.CursorPageDTO;
+import com.ckm.dto.SupplierSummaryDTO;
 import com.ckm.entity.Supplier;
 import com.ckm.service.SupplierService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +25,13 @@ public class SupplierController {
         return ResponseEntity.ok(suppliers);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDTO<SupplierSummaryDTO>> getSupplierPage(@RequestParam(required = false) String cursor,
+                                                                             @RequestParam(required = false) Integer limit,
+                                                                             @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(supplierService.findSupplierPage(cursor, limit, withTotal));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Supplier> getSupplierById(@PathVariable Long id) {
         Optional<Supplier> supplier = supplierService.findById(id);
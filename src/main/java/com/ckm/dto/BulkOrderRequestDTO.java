@@ -0,0 +1,43 @@
+package com.ckm.dto;
+
+import com.ckm.entity.ProductionOrder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量订单操作请求
+ * 指定ids时只处理这些订单，否则按筛选条件查出订单；versions按订单ID给出期望版本，版本不符的订单不做流转
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderRequestDTO {
+
+    private List<Long> ids;
+
+    // 期望版本，未给出版本的订单只校验状态
+    private Map<Long, Long> versions;
+
+    // 筛选条件，均可为空
+    private ProductionOrder.OrderStatus status;
+
+    private Long franchiseId;
+
+    private LocalDateTime requiredDateFrom;
+
+    private LocalDateTime requiredDateTo;
+
+    // 批量排程时使用
+    private LocalDateTime scheduledDate;
+
+    public boolean hasCriteria() {
+        return status != null || franchiseId != null || requiredDateFrom != null || requiredDateTo != null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量状态流转结果，按订单逐条给出成功或失败原因
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransitionResultDTO {
+
+    private int requested;
+
+    private int succeeded;
+
+    private int failed;
+
+    private List<Outcome> outcomes;
+
+    public static BulkTransitionResultDTO of(List<Outcome> outcomes) {
+        int succeeded = (int) outcomes.stream().filter(Outcome::success).count();
+        return new BulkTransitionResultDTO(outcomes.size(), succeeded, outcomes.size() - succeeded, outcomes);
+    }
+
+    /**
+     * 单个订单的处理结果，status为处理后的状态，订单不存在时为空
+     */
+    public record Outcome(Long id, boolean success, String status, String message) {
+    }
+}
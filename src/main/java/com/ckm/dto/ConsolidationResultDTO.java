@@ -0,0 +1,35 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单合并结果
+ * skippedOrderIds为未参与合并的订单：非已批准状态、已分配过批次或没有可用生产线
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsolidationResultDTO {
+
+    private int orderCount;
+
+    private int batchCount;
+
+    private List<Long> skippedOrderIds;
+
+    private List<Batch> batches;
+
+    public record Batch(Long batchId, String batchNumber, Long productionStandardId, String dishName,
+                        int quantity, LocalDateTime requiredDate, String priority, List<Allocation> allocations) {
+    }
+
+    public record Allocation(Long orderId, String orderNumber, int quantity) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 成本汇总，key为日期、生产标准ID或加盟店ID
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CostRollupDTO {
+
+    private String dimension;
+
+    private String key;
+
+    private BigDecimal materialCost;
+
+    private BigDecimal laborCost;
+
+    private BigDecimal overheadCost;
+
+    private BigDecimal totalCost;
+}
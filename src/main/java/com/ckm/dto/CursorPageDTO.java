@@ -0,0 +1,89 @@
+package com.ckm.dto;
+
+import com.ckm.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ * next为下一页游标，没有更多数据时为空；total只在请求统计总数时返回
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    public static final int DEFAULT_LIMIT = 50;
+
+    public static final int MAX_LIMIT = 500;
+
+    private static final String SEPARATOR = "|";
+
+    private List<T> items;
+
+    private String next;
+
+    private boolean hasMore;
+
+    private Long total;
+
+    /**
+     * 由多查询一条的结果组装分页，rows最多为limit + 1条
+     */
+    public static <T> CursorPageDTO<T> of(List<T> rows, int limit, Function<T, String> cursorOf, Long total) {
+        boolean hasMore = rows.size() > limit;
+        List<T> items = hasMore ? rows.subList(0, limit) : rows;
+        String next = hasMore ? cursorOf.apply(items.get(items.size() - 1)) : null;
+        return new CursorPageDTO<>(items, next, hasMore, total);
+    }
+
+    /**
+     * 校验并规范每页条数
+     */
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BusinessException("每页条数须在1到" + MAX_LIMIT + "之间");
+        }
+        return limit;
+    }
+
+    /**
+     * 将排序键编码为不透明的游标
+     */
+    public static String encodeCursor(Object... keys) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(keys[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，parser把编码时的各个排序键转换为查询参数
+     */
+    public static <K> K decodeCursor(String cursor, int keyCount, Function<String[], K> parser) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] keys = raw.split("\\|", keyCount);
+            if (keys.length != keyCount) {
+                throw new BusinessException("无效的分页游标");
+            }
+            return parser.apply(keys);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 设备在时间范围内按步骤实际时间统计的占用情况
+ * 百分比均以班次分钟数为基数；设备组（同类型多台）的忙碌分钟数为至少一台在用的分钟数
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EquipmentUtilizationDTO {
+
+    // 归一化后的设备标识：设备编码，设备组为类型名，未登记的为归一化后的原文
+    private String equipment;
+
+    private String name;
+
+    private String productionLine;
+
+    // 是否对应到登记的设备单元或设备类型
+    private boolean registered;
+
+    // 可同时使用的台数
+    private int capacity;
+
+    private long stepCount;
+
+    private long shiftMinutes;
+
+    // 班次内有步骤占用的分钟数
+    private long busyMinutes;
+
+    private long idleMinutes;
+
+    // 班次外有步骤占用的分钟数
+    private long offShiftMinutes;
+
+    // 同时占用超过容量的分钟数
+    private long overlapMinutes;
+
+    private double busyPercent;
+
+    private long violationCount;
+
+    // 超出容量的占用，最多返回配置的条数
+    private List<Violation> violations;
+
+    private List<Shift> shifts;
+
+    /**
+     * 单个开工时段的占用
+     */
+    public record Shift(LocalDateTime start, LocalDateTime end, long shiftMinutes, long busyMinutes, long idleMinutes,
+                        double busyPercent, int violationCount, List<Window> idleWindows) {
+    }
+
+    public record Window(LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * 步骤开始时设备已被占满，conflictingStepId为仍在占用、结束最晚的步骤
+     */
+    public record Violation(Long stepId, Long conflictingStepId, LocalDateTime start, LocalDateTime end) {
+    }
+}
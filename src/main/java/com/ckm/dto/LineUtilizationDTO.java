@@ -0,0 +1,44 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 生产线单日利用率
+ * 百分比均以当天班次分钟数为基数
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LineUtilizationDTO {
+
+    private String productionLine;
+
+    private LocalDate date;
+
+    // 班次内可用分钟数
+    private int shiftMinutes;
+
+    // 班次内有排程占用的分钟数
+    private int busyMinutes;
+
+    // 班次内无排程占用的分钟数
+    private int idleMinutes;
+
+    // 班次内两个及以上排程同时占用的分钟数
+    private int overlapMinutes;
+
+    // 班次外有排程占用的分钟数
+    private int offShiftMinutes;
+
+    private double busyPercent;
+
+    private double idlePercent;
+
+    private double overlapPercent;
+}
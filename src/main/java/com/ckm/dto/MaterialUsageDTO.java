@@ -0,0 +1,41 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 批次领料记录
+ * 提交时填写supplierId、quantity，可选qualityTraceId（领用的食材批次）、ingredientName和usedAt；
+ * 单价取领用时供应商的合同价，返回时回填单价和金额
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaterialUsageDTO {
+
+    private Long id;
+
+    private Long batchId;
+
+    private Long supplierId;
+
+    private Long qualityTraceId;
+
+    private String lotNumber;
+
+    private String ingredientName;
+
+    private BigDecimal quantity;
+
+    private BigDecimal unitPrice;
+
+    private BigDecimal cost;
+
+    private LocalDateTime usedAt;
+}
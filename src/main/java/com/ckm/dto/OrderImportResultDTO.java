@@ -0,0 +1,32 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 订单文件导入结果
+ * errors按行号列出未导入的行及原因，超过上限时只保留前面的部分并置errorsTruncated，failedCount始终为全部失败行数
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderImportResultDTO {
+
+    private int totalLines;
+
+    private int importedCount;
+
+    private int failedCount;
+
+    private List<LineError> errors;
+
+    private boolean errorsTruncated;
+
+    public record LineError(int line, String message) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单受理凭据
+ * status为QUEUED（排队中）、COMPLETED（已写入）或FAILED（写入失败，message为原因）；
+ * 写入成功后orderIds和orderNumbers与提交顺序一致
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderIntakeTicketDTO {
+
+    private String ticketId;
+
+    private String status;
+
+    private int orderCount;
+
+    private List<Long> orderIds;
+
+    private List<String> orderNumbers;
+
+    private String message;
+
+    private LocalDateTime submittedAt;
+
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,41 @@
+package com.ckm.dto;
+
+import com.ckm.entity.ProductionOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 生产订单列表项
+ * 按下单时间倒序游标分页返回，不加载批次集合
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryDTO {
+
+    private Long id;
+
+    private String orderNumber;
+
+    private String franchiseName;
+
+    private String dishName;
+
+    private Integer quantity;
+
+    private ProductionOrder.Priority priority;
+
+    private ProductionOrder.OrderStatus status;
+
+    private LocalDateTime orderDate;
+
+    private LocalDateTime requiredDate;
+
+    private LocalDateTime scheduledDate;
+
+    private BigDecimal totalAmount;
+}
@@ -0,0 +1,34 @@
+package com.ckm.dto;
+
+import com.ckm.entity.QualityTrace;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 质量追溯列表项
+ * 按生产日期倒序游标分页返回，不含质检记录全文
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QualityTraceSummaryDTO {
+
+    private Long id;
+
+    private String batchNumber;
+
+    private String ingredientName;
+
+    private LocalDate productionDate;
+
+    private LocalDate expiryDate;
+
+    private String supplierInfo;
+
+    private QualityTrace.QualityStatus status;
+
+    private String inspector;
+}
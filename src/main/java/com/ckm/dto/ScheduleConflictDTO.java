@@ -0,0 +1,36 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 排程冲突记录
+ * 同一生产线上连续重叠的一组排程
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleConflictDTO {
+
+    private String productionLine;
+
+    private List<Long> scheduleIds;
+
+    private List<String> scheduleNumbers;
+
+    private LocalDateTime overlapStart;
+
+    private LocalDateTime overlapEnd;
+
+    // 至少两个排程同时占用生产线的总分钟数
+    private long overlapMinutes;
+
+    // 冲突区间内同时占用的最大排程数
+    private int maxConcurrent;
+}
@@ -0,0 +1,51 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 排程模拟方案
+ * 按score从小到大排名，只用于比较，不写入排程
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleSimulationDTO {
+
+    private int rank;
+
+    private String strategy;
+
+    private String description;
+
+    // 开始时间到最后一单完工的分钟数
+    private long makespanMinutes;
+
+    // 超过要求完成时间的分钟数合计
+    private long totalLatenessMinutes;
+
+    private int lateOrders;
+
+    // 同一生产线相邻两单之间的空档分钟数（含换线间隔）
+    private long idleMinutes;
+
+    private int changeovers;
+
+    private int scheduledOrders;
+
+    private int unscheduledOrders;
+
+    private long score;
+
+    private List<Assignment> assignments;
+
+    public record Assignment(Long orderId, String orderNumber, String productionLine,
+                             LocalDateTime startTime, LocalDateTime endTime, LocalDateTime requiredDate) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.ckm.dto;
+
+import com.ckm.entity.ProductionSchedule;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 生产排程列表项
+ * 按排程日期、开始时间顺序游标分页返回
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleSummaryDTO {
+
+    private Long id;
+
+    private String scheduleNumber;
+
+    private Long productionOrderId;
+
+    private String productionLine;
+
+    private LocalDateTime scheduledDate;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+
+    private ProductionSchedule.ScheduleStatus status;
+}
@@ -0,0 +1,38 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 步骤人员自动分配结果
+ * unassignedStepIds为没有具备技能且在班空闲员工的步骤，staffLoadMinutes为各员工ID当天分配的工时
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StaffAssignmentResultDTO {
+
+    private LocalDate date;
+
+    private int stepCount;
+
+    private int assignedCount;
+
+    private int updatedCount;
+
+    private List<Long> unassignedStepIds;
+
+    private Map<Long, Integer> staffLoadMinutes;
+
+    private List<Assignment> assignments;
+
+    public record Assignment(Long stepId, String stepName, Long staffId, String staffName) {
+    }
+}
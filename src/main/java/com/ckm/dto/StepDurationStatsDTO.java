@@ -0,0 +1,30 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 步骤实际工时分位数（分钟），key为"生产标准ID:步骤序号"或设备
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StepDurationStatsDTO {
+
+    private String dimension;
+
+    private String key;
+
+    private long sampleCount;
+
+    private Double meanMinutes;
+
+    private Integer p50;
+
+    private Integer p90;
+
+    private Integer p99;
+}
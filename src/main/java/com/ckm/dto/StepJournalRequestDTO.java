@@ -0,0 +1,38 @@
+package com.ckm.dto;
+
+import com.ckm.entity.ProductionStep;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 现场平板离线期间记录的步骤事件，按记录顺序一次提交
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StepJournalRequestDTO {
+
+    private String deviceId;
+
+    private List<Event> events;
+
+    public enum Action {
+        START, COMPLETE, SKIP, FAIL
+    }
+
+    /**
+     * 单个步骤事件
+     * eventId由客户端生成，重复提交时据此去重；clientTime为事件在平板上发生的时间；
+     * version不为空时按期望版本校验，operator为空时使用同步人
+     */
+    public record Event(String eventId, Long stepId, Action action, LocalDateTime clientTime, Long version,
+                        String assignedStaff, String equipment, Integer actualDuration,
+                        ProductionStep.QualityResult qualityResult, String notes, String reason, String operator) {
+    }
+}
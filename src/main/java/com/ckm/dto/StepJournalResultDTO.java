@@ -0,0 +1,53 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 步骤事件同步结果，按提交顺序逐个给出处理结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StepJournalResultDTO {
+
+    public static final String APPLIED = "APPLIED";
+
+    public static final String DUPLICATE = "DUPLICATE";
+
+    public static final String REJECTED = "REJECTED";
+
+    private int requested;
+
+    private int applied;
+
+    private int duplicates;
+
+    private int rejected;
+
+    private List<Outcome> outcomes;
+
+    public static StepJournalResultDTO of(List<Outcome> outcomes) {
+        int applied = 0;
+        int duplicates = 0;
+        for (Outcome outcome : outcomes) {
+            if (APPLIED.equals(outcome.result())) {
+                applied++;
+            } else if (DUPLICATE.equals(outcome.result())) {
+                duplicates++;
+            }
+        }
+        return new StepJournalResultDTO(outcomes.size(), applied, duplicates, outcomes.size() - applied - duplicates, outcomes);
+    }
+
+    /**
+     * 单个事件的处理结果，status和version为处理后步骤的状态和版本，重复事件为步骤当前的状态和版本，步骤不存在时为空
+     */
+    public record Outcome(String eventId, Long stepId, String result, String status, Long version, String message) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.ckm.dto;
+
+import com.ckm.entity.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * 供应商列表项
+ * 按名称顺序游标分页返回
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupplierSummaryDTO {
+
+    private Long id;
+
+    private String name;
+
+    private String category;
+
+    private String qualityGrade;
+
+    private Supplier.SupplierStatus status;
+
+    private Double rating;
+
+    private LocalDate lastDeliveryDate;
+}
@@ -0,0 +1,31 @@
+package com.ckm.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 状态流转结果
+ * 版本为流转语句执行后数据行上的实际版本，客户端下次流转时作为期望版本传入
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransitionResultDTO {
+
+    private Long id;
+
+    private String status;
+
+    private Long version;
+
+    private LocalDateTime updatedAt;
+
+    public static TransitionResultDTO of(Long id, Enum<?> status, Long version, LocalDateTime updatedAt) {
+        return new TransitionResultDTO(id, status.name(), version, updatedAt);
+    }
+}
@@ -0,0 +1,89 @@
+package com.ckm.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 设备单元（如万能蒸烤箱、急冻柜、夹层锅），排程时按台占用
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "equipment_units")
+public class EquipmentUnit {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 50)
+    private String code;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(nullable = false, length = 50)
+    private String equipmentType; // 设备类型，与生产标准的所需设备对应
+
+    @Column(length = 100)
+    private String productionLine; // 固定所在的生产线，为空表示各生产线共用
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal hourlyRate; // 小时折旧和能耗费率，为空时使用默认设备费率
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private UnitStatus status;
+
+    @Column(length = 500)
+    private String notes;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public enum UnitStatus {
+        ACTIVE("可用"),
+        MAINTENANCE("维修中"),
+        INACTIVE("停用");
+
+        private final String description;
+
+        UnitStatus(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) {
+            status = UnitStatus.ACTIVE;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // 业务方法
+    public boolean isAvailableOn(String line) {
+        return productionLine == null || productionLine.isBlank() || productionLine.equals(line);
+    }
+}
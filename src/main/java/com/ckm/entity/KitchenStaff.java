@@ -0,0 +1,93 @@
+package com.ckm.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 厨房员工，技能为可操作的设备类型
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "kitchen_staff")
+public class KitchenStaff {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 50)
+    private String employeeNumber;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(length = 500)
+    private String skills; // 可操作的设备类型，逗号分隔
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal hourlyRate; // 小时费率，为空时使用默认人工费率
+
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "kitchen_staff_shifts", joinColumns = @JoinColumn(name = "kitchen_staff_id"))
+    @OrderBy("dayOfWeek ASC, startTime ASC")
+    @Builder.Default
+    private List<ShiftWindow> shifts = new ArrayList<>(); // 出勤班次，为空表示全天可排
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StaffStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public enum StaffStatus {
+        ACTIVE("在岗"),
+        ON_LEAVE("休假"),
+        INACTIVE("离职");
+
+        private final String description;
+
+        StaffStatus(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) {
+            status = StaffStatus.ACTIVE;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // 业务方法
+    public Set<String> getSkillSet() {
+        return skills == null ? Set.of() : ProductionLine.splitEquipment(skills).collect(Collectors.toSet());
+    }
+}
@@ -43,21 +43,45 @@ public class ProductionBatch {
     @Column(precision = 5, scale = 2)
     private Double yieldRate; // 产出率
 
-    @Column(precision = 10, scale = 2)
+    // 成本只由领料和步骤完成时的增量更新语句维护，保存批次时不写回，避免覆盖并发的成本累加
+    @Column(precision = 10, scale = 2, updatable = false)
     private BigDecimal materialCost;
 
-    @Column(precision = 10, scale = 2)
+    @Column(precision = 10, scale = 2, updatable = false)
     private BigDecimal laborCost;
 
-    @Column(precision = 10, scale = 2)
+    @Column(precision = 10, scale = 2, updatable = false)
     private BigDecimal overheadCost;
 
-    @Column(precision = 10, scale = 2)
+    @Column(precision = 10, scale = 2, updatable = false)
     private BigDecimal totalCost;
 
     @OneToMany(mappedBy = "productionBatch", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ProductionStep> steps = new ArrayList<>();
 
+    // 合并批次对应的来源订单及数量，productionOrder为其中最早要求完成的订单
+    @OneToMany(mappedBy = "productionBatch", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    private List<BatchAllocation> allocations = new ArrayList<>();
+
+    // 步骤计数只由步骤流转的更新语句和对账任务维护，保存批次时不写回，避免覆盖并发的计数更新
+    @Column(nullable = false, updatable = false)
+    private Integer stepTotal = 0;
+
+    @Column(nullable = false, updatable = false)
+    private Integer stepsInProgress = 0;
+
+    @Column(nullable = false, updatable = false)
+    private Integer stepsCompleted = 0;
+
+    @Column(nullable = false, updatable = false)
+    private Integer stepsSkipped = 0;
+
+    @Column(nullable = false, updatable = false)
+    private Integer stepsFailed = 0;
+
+    @Column(nullable = false, updatable = false)
+    private Integer stepsQualityFailed = 0;
+
     @Column(length = 500)
     private String qualityNotes;
 
@@ -76,6 +100,9 @@ public class ProductionBatch {
     @Column(length = 100)
     private String updatedBy;
 
+    @Version
+    private Long version;
+
     public enum BatchStatus {
         PLANNED("已规划"),
         PREPARING("准备中"),
@@ -119,6 +146,14 @@ public class ProductionBatch {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getBatchNumber() {
         return batchNumber;
     }
@@ -231,6 +266,62 @@ public class ProductionBatch {
         this.steps = steps;
     }
 
+    public List<BatchAllocation> getAllocations() {
+        return allocations;
+    }
+
+    public void setAllocations(List<BatchAllocation> allocations) {
+        this.allocations = allocations;
+    }
+
+    public Integer getStepTotal() {
+        return stepTotal;
+    }
+
+    public void setStepTotal(Integer stepTotal) {
+        this.stepTotal = stepTotal;
+    }
+
+    public Integer getStepsInProgress() {
+        return stepsInProgress;
+    }
+
+    public void setStepsInProgress(Integer stepsInProgress) {
+        this.stepsInProgress = stepsInProgress;
+    }
+
+    public Integer getStepsCompleted() {
+        return stepsCompleted;
+    }
+
+    public void setStepsCompleted(Integer stepsCompleted) {
+        this.stepsCompleted = stepsCompleted;
+    }
+
+    public Integer getStepsSkipped() {
+        return stepsSkipped;
+    }
+
+    public void setStepsSkipped(Integer stepsSkipped) {
+        this.stepsSkipped = stepsSkipped;
+    }
+
+    public Integer getStepsFailed() {
+        return stepsFailed;
+    }
+
+    public void setStepsFailed(Integer stepsFailed) {
+        this.stepsFailed = stepsFailed;
+    }
+
+    public Integer getStepsQualityFailed() {
+        return stepsQualityFailed;
+    }
+
+    public void setStepsQualityFailed(Integer stepsQualityFailed) {
+        this.stepsQualityFailed = stepsQualityFailed;
+    }
+
     public String getQualityNotes() {
         return qualityNotes;
     }
@@ -308,4 +399,98 @@ public class ProductionBatch {
         }
         return (double) actualQuantity / plannedQuantity * 100.0;
     }
+
+    public StepCounters getStepCounters() {
+        return new StepCounters(stepTotal, stepsInProgress, stepsCompleted, stepsSkipped, stepsFailed, stepsQualityFailed);
+    }
+
+    /**
+     * 批次的步骤计数，也用作单个步骤状态变化引起的计数增量
+     */
+    public record StepCounters(int total, int inProgress, int completed, int skipped, int failed, int qualityFailed) {
+
+        public static final StepCounters ZERO = new StepCounters(0, 0, 0, 0, 0, 0);
+
+        /**
+         * 一个处于给定状态和质检结果的步骤对各计数的贡献
+         */
+        public static StepCounters of(ProductionStep.StepStatus status, ProductionStep.QualityResult qualityResult) {
+            return new StepCounters(1,
+                    status == ProductionStep.StepStatus.IN_PROGRESS ? 1 : 0,
+                    status == ProductionStep.StepStatus.COMPLETED ? 1 : 0,
+                    status == ProductionStep.StepStatus.SKIPPED ? 1 : 0,
+                    status == ProductionStep.StepStatus.FAILED ? 1 : 0,
+                    qualityResult == ProductionStep.QualityResult.FAIL ? 1 : 0);
+        }
+
+        public StepCounters plus(StepCounters other) {
+            return new StepCounters(total + other.total, inProgress + other.inProgress, completed + other.completed,
+                    skipped + other.skipped, failed + other.failed, qualityFailed + other.qualityFailed);
+        }
+
+        public StepCounters minus(StepCounters other) {
+            return new StepCounters(total - other.total, inProgress - other.inProgress, completed - other.completed,
+                    skipped - other.skipped, failed - other.failed, qualityFailed - other.qualityFailed);
+        }
+
+        public boolean isZero() {
+            return equals(ZERO);
+        }
+
+        /**
+         * 已完成或跳过的步骤占比（百分比），没有步骤时为0
+         */
+        public double progress() {
+            return total == 0 ? 0.0 : (double) (completed + skipped) / total * 100.0;
+        }
+
+        public boolean isFinished() {
+            return completed + skipped == total;
+        }
+
+        public boolean isUntouched() {
+            return inProgress + completed + skipped + failed == 0;
+        }
+    }
+
+    /**
+     * 批次成本构成，也用作一次领料或一个步骤完成引起的成本增量，金额保留两位小数
+     */
+    public record CostBreakdown(BigDecimal material, BigDecimal labor, BigDecimal overhead) {
+
+        public static final CostBreakdown ZERO = new CostBreakdown(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        public static CostBreakdown ofMaterial(BigDecimal material) {
+            return new CostBreakdown(material, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+
+        public CostBreakdown plus(CostBreakdown other) {
+            return new CostBreakdown(material.add(other.material), labor.add(other.labor), overhead.add(other.overhead));
+        }
+
+        public CostBreakdown minus(CostBreakdown other) {
+            return new CostBreakdown(material.subtract(other.material), labor.subtract(other.labor),
+                    overhead.subtract(other.overhead));
+        }
+
+        /**
+         * 按part/whole的比例分摊
+         */
+        public CostBreakdown share(long part, long whole) {
+            BigDecimal ratio = BigDecimal.valueOf(part);
+            BigDecimal divisor = BigDecimal.valueOf(whole);
+            return new CostBreakdown(
+                    material.multiply(ratio).divide(divisor, 2, java.math.RoundingMode.HALF_UP),
+                    labor.multiply(ratio).divide(divisor, 2, java.math.RoundingMode.HALF_UP),
+                    overhead.multiply(ratio).divide(divisor, 2, java.math.RoundingMode.HALF_UP));
+        }
+
+        public BigDecimal total() {
+            return material.add(labor).add(overhead);
+        }
+
+        public boolean isZero() {
+            return material.signum() == 0 && labor.signum() == 0 && overhead.signum() == 0;
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package com.ckm.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "production_lines")
+public class ProductionLine {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 50)
+    private String code;
+
+    @Column(nullable = false, unique = true, length = 100)
+    private String name; // 与排程中的productionLine对应
+
+    @Column(nullable = false)
+    private Integer capacityPerHour; // 每小时产能（份）
+
+    @Column(length = 500)
+    private String supportedEquipment; // 支持的设备，逗号分隔，为空表示不限
+
+    private Integer maxBatchQuantity; // 单批次最大产量（份），为空表示不限
+
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "production_line_shifts", joinColumns = @JoinColumn(name = "production_line_id"))
+    @OrderBy("dayOfWeek ASC, startTime ASC")
+    @Builder.Default
+    private List<ShiftWindow> shifts = new ArrayList<>(); // 班次日历，为空表示全天可用
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer sortOrder = 0;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private LineStatus status;
+
+    @Column(length = 500)
+    private String notes;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public enum LineStatus {
+        ACTIVE("启用"),
+        MAINTENANCE("维护中"),
+        INACTIVE("停用");
+
+        private final String description;
+
+        LineStatus(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) {
+            status = LineStatus.ACTIVE;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // 业务方法
+    public boolean isActive() {
+        return status == LineStatus.ACTIVE;
+    }
+
+    /**
+     * 检查生产线是否具备配方所需的全部设备
+     */
+    public boolean supportsEquipment(String equipmentRequired) {
+        if (supportedEquipment == null || supportedEquipment.isBlank()
+                || equipmentRequired == null || equipmentRequired.isBlank()) {
+            return true;
+        }
+        Set<String> supported = splitEquipment(supportedEquipment).collect(Collectors.toSet());
+        return splitEquipment(equipmentRequired).allMatch(supported::contains);
+    }
+
+    /**
+     * 按产能计算生产指定数量所需分钟数
+     */
+    public int processingMinutes(int quantity) {
+        if (capacityPerHour == null || capacityPerHour <= 0) {
+            return 0;
+        }
+        return (int) Math.ceil(quantity * 60.0 / capacityPerHour);
+    }
+
+    public static java.util.stream.Stream<String> splitEquipment(String equipment) {
+        return Arrays.stream(equipment.split("[,，、]"))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty());
+    }
+}
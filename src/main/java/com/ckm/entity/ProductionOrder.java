@@ -74,6 +74,9 @@ public class ProductionOrder {
     @Column(length = 100)
     private String updatedBy;
 
+    @Version
+    private Long version;
+
     public enum Priority {
         LOW("低优先级"),
         NORMAL("正常优先级"),
@@ -139,6 +142,14 @@ public class ProductionOrder {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getOrderNumber() {
         return orderNumber;
     }
@@ -25,6 +25,10 @@ public class ProductionSchedule {
     @Column(nullable = false, unique = true)
     private String scheduleNumber;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "production_order_id")
+    private ProductionOrder productionOrder;
+
     @Column(nullable = false)
     private LocalDateTime scheduledDate;
 
@@ -37,12 +41,19 @@ public class ProductionSchedule {
     @Column(nullable = false)
     private String productionLine;
 
+    private Long productionLineId; // 所属生产线，生产线改名时据此同步productionLine
+
     @Column(length = 100)
     private String equipment;
 
     @Column(length = 100)
     private String assignedStaff;
 
+    @Column(length = 200)
+    private String equipmentUnits; // 占用的设备单元编码，逗号分隔
+
+    private Long staffId; // 负责员工
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private ScheduleStatus status;
@@ -69,6 +80,9 @@ public class ProductionSchedule {
     @Column(length = 100)
     private String updatedBy;
 
+    @Version
+    private Long version;
+
     public enum ScheduleStatus {
         PLANNED("已规划"),
         CONFIRMED("已确认"),
@@ -1,5 +1,6 @@
 package com.ckm.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -50,6 +51,10 @@ public class ProductionStandard {
     @Column(name = "updated_at")
     private java.time.LocalDateTime updatedAt;
 
+    @Transient
+    @JsonIgnore
+    private Integer planningMinutes; // 按历史实际工时估算的生产时长，只在排程时设置，不落库
+
     // Constructors
     public ProductionStandard() {}
 
@@ -146,6 +151,17 @@ public class ProductionStandard {
         this.createdAt = createdAt;
     }
 
+    /**
+     * 排程用的生产时长，未按工时统计估算时为标准烹饪时间
+     */
+    public Integer getPlanningMinutes() {
+        return planningMinutes != null ? planningMinutes : cookingTime;
+    }
+
+    public void setPlanningMinutes(Integer planningMinutes) {
+        this.planningMinutes = planningMinutes;
+    }
+
     public java.time.LocalDateTime getUpdatedAt() {
         return updatedAt;
     }
@@ -52,6 +52,8 @@ public class ProductionStep {
     @Column(length = 100)
     private String assignedStaff;
 
+    private Long staffId; // 负责员工，手工填写的姓名无法对应到员工时为空
+
     @Column(length = 100)
     private String equipment;
 
@@ -79,6 +81,9 @@ public class ProductionStep {
     @Column(length = 100)
     private String updatedBy;
 
+    @Version
+    private Long version;
+
     public enum StepStatus {
         PENDING("待开始"),
         IN_PROGRESS("进行中"),
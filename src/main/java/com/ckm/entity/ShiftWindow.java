@@ -0,0 +1,40 @@
+package com.ckm.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * 班次时段，用于生产线开工时间和员工出勤时间
+ * dayOfWeek为空表示每天生效；结束时间不晚于开始时间表示跨夜班次
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class ShiftWindow {
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private DayOfWeek dayOfWeek;
+
+    @Column(nullable = false)
+    private LocalTime startTime;
+
+    @Column(nullable = false)
+    private LocalTime endTime;
+
+    public boolean appliesTo(DayOfWeek day) {
+        return dayOfWeek == null || dayOfWeek == day;
+    }
+
+    public boolean isOvernight() {
+        return !endTime.isAfter(startTime);
+    }
+}
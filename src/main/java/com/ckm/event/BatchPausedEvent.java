@@ -0,0 +1,9 @@
+package com.ckm.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 生产批次暂停事件
+ */
+public record BatchPausedEvent(Long batchId, LocalDateTime pausedAt) {
+}
@@ -0,0 +1,16 @@
+package com.ckm.event;
+
+import com.ckm.dto.TransitionResultDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * 现场看板事件：批次、步骤和排程的状态流转，提交后推送给订阅的现场客户端
+ * type如BATCH_STARTED、STEP_COMPLETED、SCHEDULE_CONFIRMED，entityId为对应批次、步骤或排程的ID
+ */
+public record FloorEvent(String type, Long entityId, String status, Long version, String actor, LocalDateTime occurredAt) {
+
+    public static FloorEvent of(String type, TransitionResultDTO result, String actor) {
+        return new FloorEvent(type, result.getId(), result.getStatus(), result.getVersion(), actor, result.getUpdatedAt());
+    }
+}
@@ -0,0 +1,10 @@
+package com.ckm.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 生产订单取消事件
+ */
+public record OrdersCancelledEvent(List<Long> orderIds, LocalDateTime cancelledAt) {
+}
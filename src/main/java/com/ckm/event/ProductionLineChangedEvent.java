@@ -0,0 +1,7 @@
+package com.ckm.event;
+
+/**
+ * 生产线配置变更事件
+ */
+public record ProductionLineChangedEvent(Long productionLineId) {
+}
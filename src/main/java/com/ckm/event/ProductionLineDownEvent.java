@@ -0,0 +1,9 @@
+package com.ckm.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 生产线停机事件（转为维护中或停用）
+ */
+public record ProductionLineDownEvent(String productionLine, LocalDateTime downAt) {
+}
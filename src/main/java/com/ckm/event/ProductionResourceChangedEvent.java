@@ -0,0 +1,7 @@
+package com.ckm.event;
+
+/**
+ * 设备单元或厨房员工变更事件
+ */
+public record ProductionResourceChangedEvent(String resourceType, Long resourceId) {
+}
@@ -0,0 +1,20 @@
+package com.ckm.repository;
+
+import com.ckm.entity.BatchAllocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BatchAllocationRepository extends JpaRepository<BatchAllocation, Long> {
+
+    List<BatchAllocation> findByProductionBatchId(Long productionBatchId);
+
+    List<BatchAllocation> findByProductionOrderId(Long productionOrderId);
+
+    @Query("SELECT DISTINCT ba.productionOrder.id FROM BatchAllocation ba WHERE ba.productionOrder.id IN :orderIds")
+    List<Long> findAllocatedOrderIds(@Param("orderIds") List<Long> orderIds);
+}
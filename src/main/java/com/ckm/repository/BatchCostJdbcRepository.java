@@ -0,0 +1,254 @@
+package com.ckm.repository;
+
+import com.ckm.entity.ProductionBatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批次成本的读取和增量更新
+ * 批次成本列和按日、生产标准、加盟店的汇总表都以加减增量的方式更新，不在报表查询时重新计算
+ */
+@Repository
+public class BatchCostJdbcRepository {
+
+    // 人工费率按负责员工ID匹配，重名未能关联员工的步骤按默认费率；设备费率按设备编码或设备类型匹配
+    private static final String STEP_COST_SQL = "SELECT ps.id, ps.production_batch_id, ps.actual_duration_minutes, " +
+            "ps.completed_time, ps.equipment, " +
+            "(SELECT ks.hourly_rate FROM kitchen_staff ks WHERE ks.id = ps.staff_id) AS staff_rate, " +
+            "(SELECT MAX(eu.hourly_rate) FROM equipment_units eu WHERE eu.code = ps.equipment OR eu.equipment_type = ps.equipment) AS equipment_rate " +
+            "FROM production_steps ps WHERE ps.id IN (%s) AND ps.status = 'COMPLETED'";
+
+    private static final String BATCH_ORIGIN_SQL = "SELECT b.id, o.production_standard_id, o.franchise_id " +
+            "FROM production_batches b JOIN production_orders o ON o.id = b.production_order_id WHERE b.id IN (%s)";
+
+    private static final String ALLOCATION_SQL = "SELECT a.production_batch_id, o.franchise_id, SUM(a.quantity) AS quantity " +
+            "FROM batch_allocations a JOIN production_orders o ON o.id = a.production_order_id " +
+            "WHERE a.production_batch_id IN (%s) GROUP BY a.production_batch_id, o.franchise_id ORDER BY a.production_batch_id, o.franchise_id";
+
+    private static final String INSERT_USAGE_SQL = "INSERT INTO batch_material_usages " +
+            "(production_batch_id, supplier_id, quality_trace_id, lot_number, ingredient_name, quantity, unit_price, cost, used_at, created_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ADJUST_BATCH_SQL = "UPDATE production_batches SET " +
+            "material_cost = COALESCE(material_cost, 0) + ?, labor_cost = COALESCE(labor_cost, 0) + ?, " +
+            "overhead_cost = COALESCE(overhead_cost, 0) + ?, total_cost = COALESCE(total_cost, 0) + ? WHERE id = ?";
+
+    private static final String ADJUST_ROLLUP_SQL = "UPDATE cost_rollups SET material_cost = material_cost + ?, " +
+            "labor_cost = labor_cost + ?, overhead_cost = overhead_cost + ?, total_cost = total_cost + ?, updated_at = ? " +
+            "WHERE cost_date = ? AND production_standard_id = ? AND franchise_id = ?";
+
+    private static final String INSERT_ROLLUP_SQL = "INSERT INTO cost_rollups " +
+            "(cost_date, production_standard_id, franchise_id, material_cost, labor_cost, overhead_cost, total_cost, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SUMMARY_SQL = "SELECT %1$s AS group_key, SUM(material_cost) AS material_cost, " +
+            "SUM(labor_cost) AS labor_cost, SUM(overhead_cost) AS overhead_cost, SUM(total_cost) AS total_cost " +
+            "FROM cost_rollups WHERE cost_date BETWEEN ? AND ? GROUP BY %1$s ORDER BY %1$s";
+
+    private static final String MATERIAL_BY_CATEGORY_SQL = "SELECT s.category, SUM(u.cost) AS cost " +
+            "FROM batch_material_usages u JOIN suppliers s ON s.id = u.supplier_id " +
+            "WHERE u.used_at >= ? AND u.used_at < ? GROUP BY s.category";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 读取已完成步骤计算成本所需的工时和费率，未完成的步骤不返回
+     */
+    public List<StepCost> findCompletedStepCosts(Collection<Long> stepIds) {
+        if (stepIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(String.format(STEP_COST_SQL, placeholders(stepIds.size())), (rs, rowNum) -> {
+            Timestamp completedTime = rs.getTimestamp("completed_time");
+            return new StepCost(rs.getLong("id"), rs.getLong("production_batch_id"),
+                    rs.getObject("actual_duration_minutes", Integer.class),
+                    completedTime != null ? completedTime.toLocalDateTime() : null,
+                    rs.getString("equipment"), rs.getBigDecimal("staff_rate"), rs.getBigDecimal("equipment_rate"));
+        }, stepIds.toArray());
+    }
+
+    /**
+     * 批次所属的生产标准和加盟店（合并批次为主订单的）
+     */
+    public Map<Long, BatchOrigin> findOrigins(Collection<Long> batchIds) {
+        Map<Long, BatchOrigin> origins = new HashMap<>();
+        if (batchIds.isEmpty()) {
+            return origins;
+        }
+        jdbcTemplate.query(String.format(BATCH_ORIGIN_SQL, placeholders(batchIds.size())), rs -> {
+            origins.put(rs.getLong("id"), new BatchOrigin(rs.getLong("production_standard_id"), rs.getLong("franchise_id")));
+        }, batchIds.toArray());
+        return origins;
+    }
+
+    /**
+     * 合并批次按加盟店汇总的分配数量，未合并的批次不在其中
+     *
+     * @return 批次ID到（加盟店ID到数量）的映射
+     */
+    public Map<Long, Map<Long, Integer>> findAllocationQuantities(Collection<Long> batchIds) {
+        Map<Long, Map<Long, Integer>> allocations = new HashMap<>();
+        if (batchIds.isEmpty()) {
+            return allocations;
+        }
+        jdbcTemplate.query(String.format(ALLOCATION_SQL, placeholders(batchIds.size())), rs -> {
+            allocations.computeIfAbsent(rs.getLong("production_batch_id"), id -> new LinkedHashMap<>())
+                    .put(rs.getLong("franchise_id"), rs.getInt("quantity"));
+        }, batchIds.toArray());
+        return allocations;
+    }
+
+    /**
+     * 记录一次领料并回填生成的主键
+     */
+    public Long insertMaterialUsage(MaterialUsage usage) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_USAGE_SQL, new String[]{"id"})) {
+                ps.setLong(1, usage.batchId());
+                ps.setLong(2, usage.supplierId());
+                ps.setObject(3, usage.qualityTraceId());
+                ps.setString(4, usage.lotNumber());
+                ps.setString(5, usage.ingredientName());
+                ps.setBigDecimal(6, usage.quantity());
+                ps.setBigDecimal(7, usage.unitPrice());
+                ps.setBigDecimal(8, usage.cost());
+                ps.setTimestamp(9, Timestamp.valueOf(usage.usedAt()));
+                ps.setString(10, usage.createdBy());
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    return keys.next() ? keys.getLong(1) : null;
+                }
+            }
+        });
+    }
+
+    /**
+     * 按批次累加成本
+     *
+     * @param deltas 批次ID到成本增量的映射
+     */
+    public void adjustBatchCosts(Map<Long, ProductionBatch.CostBreakdown> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((batchId, delta) -> {
+            if (!delta.isZero()) {
+                args.add(new Object[]{delta.material(), delta.labor(), delta.overhead(), delta.total(), batchId});
+            }
+        });
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADJUST_BATCH_SQL, args);
+        }
+    }
+
+    /**
+     * 累加汇总行，不存在时插入
+     * 调用方按键排序传入，并发事务以相同顺序加锁；汇总行数量少，逐行更新以取得准确的更新行数
+     */
+    public void adjustRollups(Map<RollupKey, ProductionBatch.CostBreakdown> deltas) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        deltas.forEach((key, delta) -> {
+            if (delta.isZero()) {
+                return;
+            }
+            Date costDate = Date.valueOf(key.costDate());
+            int updated = jdbcTemplate.update(ADJUST_ROLLUP_SQL, delta.material(), delta.labor(), delta.overhead(),
+                    delta.total(), now, costDate, key.standardId(), key.franchiseId());
+            if (updated == 0) {
+                try {
+                    jdbcTemplate.update(INSERT_ROLLUP_SQL, costDate, key.standardId(), key.franchiseId(),
+                            delta.material(), delta.labor(), delta.overhead(), delta.total(), now);
+                } catch (DuplicateKeyException e) {
+                    // 并发事务已插入该汇总行，改为更新
+                    jdbcTemplate.update(ADJUST_ROLLUP_SQL, delta.material(), delta.labor(), delta.overhead(),
+                            delta.total(), now, costDate, key.standardId(), key.franchiseId());
+                }
+            }
+        });
+    }
+
+    /**
+     * 按维度汇总日期范围内的成本
+     */
+    public List<Summary> summarize(LocalDate from, LocalDate to, Dimension dimension) {
+        return jdbcTemplate.query(String.format(SUMMARY_SQL, dimension.column), (rs, rowNum) -> new Summary(
+                rs.getString("group_key"), rs.getBigDecimal("material_cost"), rs.getBigDecimal("labor_cost"),
+                rs.getBigDecimal("overhead_cost"), rs.getBigDecimal("total_cost")), Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * 按供应商分类汇总日期范围内的领料成本
+     */
+    public Map<String, BigDecimal> sumMaterialCostByCategory(LocalDate from, LocalDate to) {
+        Map<String, BigDecimal> costs = new LinkedHashMap<>();
+        jdbcTemplate.query(MATERIAL_BY_CATEGORY_SQL, rs -> {
+            costs.put(rs.getString("category"), rs.getBigDecimal("cost"));
+        }, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        return costs;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 汇总维度，column只取自这里的常量
+     */
+    public enum Dimension {
+        DAY("cost_date"), STANDARD("production_standard_id"), FRANCHISE("franchise_id");
+
+        private final String column;
+
+        Dimension(String column) {
+            this.column = column;
+        }
+    }
+
+    public record StepCost(Long stepId, Long batchId, Integer durationMinutes, LocalDateTime completedTime,
+                           String equipment, BigDecimal staffRate, BigDecimal equipmentRate) {
+    }
+
+    public record BatchOrigin(Long standardId, Long franchiseId) {
+    }
+
+    public record MaterialUsage(Long batchId, Long supplierId, Long qualityTraceId, String lotNumber, String ingredientName,
+                                BigDecimal quantity, BigDecimal unitPrice, BigDecimal cost, LocalDateTime usedAt,
+                                String createdBy) {
+    }
+
+    /**
+     * 汇总行的键，按日期、生产标准、加盟店排序
+     */
+    public record RollupKey(LocalDate costDate, Long standardId, Long franchiseId) implements Comparable<RollupKey> {
+
+        @Override
+        public int compareTo(RollupKey other) {
+            int result = costDate.compareTo(other.costDate);
+            if (result == 0) {
+                result = standardId.compareTo(other.standardId);
+            }
+            return result != 0 ? result : franchiseId.compareTo(other.franchiseId);
+        }
+    }
+
+    public record Summary(String groupKey, BigDecimal materialCost, BigDecimal laborCost, BigDecimal overheadCost,
+                          BigDecimal totalCost) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.ckm.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * 按实际开始时间读取步骤的设备占用
+ * 月度报表涉及的步骤很多，一次范围查询逐行回调，不在内存中组装列表
+ */
+@Repository
+public class EquipmentTimelineJdbcRepository {
+
+    private static final String USAGE_SQL = "SELECT id, equipment, status, actual_start_time, completed_time, " +
+            "actual_duration_minutes FROM production_steps " +
+            "WHERE equipment IS NOT NULL AND actual_start_time >= ? AND actual_start_time < ? " +
+            "ORDER BY actual_start_time, id";
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 按实际开始时间升序逐行回调[from, to)内开始的、填写了设备的步骤
+     */
+    public void forEachUsage(LocalDateTime from, LocalDateTime to, Consumer<StepUsage> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(USAGE_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL驱动只有在fetchSize为Integer.MIN_VALUE时才逐行读取，否则一次取回全部结果
+            boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+            ps.setFetchSize(mysql ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(from));
+            ps.setTimestamp(2, Timestamp.valueOf(to));
+            return ps;
+        }, rs -> {
+            Timestamp completed = rs.getTimestamp("completed_time");
+            consumer.accept(new StepUsage(rs.getLong("id"), rs.getString("equipment"), rs.getString("status"),
+                    rs.getTimestamp("actual_start_time").toLocalDateTime(),
+                    completed != null ? completed.toLocalDateTime() : null,
+                    rs.getObject("actual_duration_minutes", Integer.class)));
+        });
+    }
+
+    /**
+     * 步骤的设备占用，完成时间和实际工时可能为空
+     */
+    public record StepUsage(Long stepId, String equipment, String status, LocalDateTime startTime,
+                            LocalDateTime completedTime, Integer actualDurationMinutes) {
+
+        /**
+         * 占用结束时间：完成时间，其次按实际工时推算，进行中的步骤到now为止，都没有时返回null
+         */
+        public LocalDateTime endTime(LocalDateTime now) {
+            if (completedTime != null) {
+                return completedTime;
+            }
+            if (actualDurationMinutes != null) {
+                return startTime.plusMinutes(actualDurationMinutes);
+            }
+            return "IN_PROGRESS".equals(status) ? now : null;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ckm.repository;
+
+import com.ckm.entity.EquipmentUnit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EquipmentUnitRepository extends JpaRepository<EquipmentUnit, Long> {
+
+    List<EquipmentUnit> findByStatusOrderByCodeAsc(EquipmentUnit.UnitStatus status);
+
+    boolean existsByCode(String code);
+
+    @Modifying
+    @Query("UPDATE EquipmentUnit eu SET eu.productionLine = :name WHERE eu.productionLine = :previousName")
+    int renameProductionLine(@Param("previousName") String previousName, @Param("name") String name);
+}
@@ -0,0 +1,27 @@
+package com.ckm.repository;
+
+import com.ckm.entity.KitchenStaff;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface KitchenStaffRepository extends JpaRepository<KitchenStaff, Long> {
+
+    List<KitchenStaff> findByStatusOrderByEmployeeNumberAsc(KitchenStaff.StaffStatus status);
+
+    @Query("SELECT ks.id FROM KitchenStaff ks WHERE ks.name = :name")
+    List<Long> findIdsByName(@Param("name") String name);
+
+    @Query("SELECT ks.name, ks.id FROM KitchenStaff ks WHERE ks.name IN :names")
+    List<Object[]> findIdsByNameIn(@Param("names") Collection<String> names);
+
+    boolean existsByEmployeeNumber(String employeeNumber);
+
+    @Query("SELECT DISTINCT ks FROM KitchenStaff ks LEFT JOIN FETCH ks.shifts WHERE ks.status = :status ORDER BY ks.employeeNumber ASC")
+    List<KitchenStaff> findWithShiftsByStatus(@Param("status") KitchenStaff.StaffStatus status);
+}
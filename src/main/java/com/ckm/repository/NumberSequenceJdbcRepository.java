@@ -0,0 +1,47 @@
+package com.ckm.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 编号序列表访问
+ * 每行保存一个序列键的下一个未分配值，预留号段通过行级更新完成，多节点并发时由数据库行锁串行化
+ */
+@Repository
+public class NumberSequenceJdbcRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 为序列键预留size个连续号码，在独立事务中提交，调用方事务回滚不会归还号段
+     *
+     * @return 号段的第一个值，号段为[返回值, 返回值 + size)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserve(String sequenceKey, int size) {
+        int updated = jdbcTemplate.update(
+                "UPDATE number_sequences SET next_value = next_value + ?, updated_at = CURRENT_TIMESTAMP WHERE sequence_key = ?",
+                size, sequenceKey);
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update(
+                        "INSERT INTO number_sequences (sequence_key, next_value, updated_at) VALUES (?, ?, CURRENT_TIMESTAMP)",
+                        sequenceKey, 1L + size);
+                return 1L;
+            } catch (DuplicateKeyException e) {
+                // 其他节点已创建该序列，改为更新
+                jdbcTemplate.update(
+                        "UPDATE number_sequences SET next_value = next_value + ?, updated_at = CURRENT_TIMESTAMP WHERE sequence_key = ?",
+                        size, sequenceKey);
+            }
+        }
+        Long next = jdbcTemplate.queryForObject(
+                "SELECT next_value FROM number_sequences WHERE sequence_key = ?", Long.class, sequenceKey);
+        return next - size;
+    }
+}
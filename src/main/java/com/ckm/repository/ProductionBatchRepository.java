@@ -1,17 +1,24 @@
 package com.ckm.repository;
 
 import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionSchedule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductionBatchRepository extends JpaRepository<ProductionBatch, Long> {
 
+    // 未结束的批次状态，供原生查询拼接
+    String ACTIVE_STATUSES = "'PLANNED', 'PREPARING', 'IN_PROGRESS', 'QUALITY_CHECK', 'ON_HOLD'";
+
     List<ProductionBatch> findByProductionOrderIdOrderByStartTimeAsc(Long productionOrderId);
 
     List<ProductionBatch> findByProductionScheduleIdOrderByStartTimeAsc(Long productionScheduleId);
@@ -39,8 +46,132 @@ public interface ProductionBatchRepository extends JpaRepository<ProductionBatch
                                             @Param("startDate") LocalDateTime startDate,
                                             @Param("endDate") LocalDateTime endDate);
 
+    @Query("SELECT SUM(pb.actualQuantity) FROM ProductionBatch pb WHERE pb.status = :status AND pb.endTime BETWEEN :startDate AND :endDate")
+    Long getActualQuantityByStatusAndDateRange(@Param("status") ProductionBatch.BatchStatus status,
+                                               @Param("startDate") LocalDateTime startDate,
+                                               @Param("endDate") LocalDateTime endDate);
+
     boolean existsByBatchNumber(String batchNumber);
 
     @Query("SELECT pb FROM ProductionBatch pb WHERE pb.productionOrder.productionStandard.id = :standardId AND pb.status = :status")
     List<ProductionBatch> findByProductionStandardAndStatus(@Param("standardId") Long standardId, @Param("status") ProductionBatch.BatchStatus status);
+
+    @Query("SELECT DISTINCT pb.productionSchedule FROM ProductionBatch pb " +
+           "WHERE pb.id IN :batchIds AND pb.productionSchedule.staffId IS NOT NULL")
+    List<ProductionSchedule> findStaffedSchedulesByBatchIdIn(@Param("batchIds") Collection<Long> batchIds);
+
+    // 流转语句执行后读取行上的版本，行锁由本事务持有，读到的即本次流转写入的版本
+    @Query("SELECT pb.version FROM ProductionBatch pb WHERE pb.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // ==================== 状态流转（单条语句，按状态和版本守卫） ====================
+    // 流转语句只刷出、不清空持久化上下文；流转后的版本由findVersionById读取，不依赖已加载的批次实体
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductionBatch pb SET pb.status = :status, pb.startTime = :now, pb.updatedBy = :updatedBy, pb.updatedAt = :now, " +
+           "pb.version = pb.version + 1 " +
+           "WHERE pb.id = :id AND pb.status IN :fromStatuses AND (:version IS NULL OR pb.version = :version)")
+    int startBatch(@Param("id") Long id,
+                   @Param("fromStatuses") List<ProductionBatch.BatchStatus> fromStatuses,
+                   @Param("version") Long version,
+                   @Param("status") ProductionBatch.BatchStatus status,
+                   @Param("updatedBy") String updatedBy,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductionBatch pb SET pb.status = :status, pb.actualQuantity = :actualQuantity, pb.endTime = :now, " +
+           "pb.yieldRate = CASE WHEN pb.plannedQuantity > 0 THEN :actualQuantity * 100.0 / pb.plannedQuantity ELSE 0.0 END, " +
+           "pb.updatedBy = :updatedBy, pb.updatedAt = :now, pb.version = pb.version + 1 " +
+           "WHERE pb.id = :id AND pb.status IN :fromStatuses AND (:version IS NULL OR pb.version = :version)")
+    int completeBatch(@Param("id") Long id,
+                      @Param("fromStatuses") List<ProductionBatch.BatchStatus> fromStatuses,
+                      @Param("version") Long version,
+                      @Param("status") ProductionBatch.BatchStatus status,
+                      @Param("actualQuantity") Integer actualQuantity,
+                      @Param("updatedBy") String updatedBy,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductionBatch pb SET pb.status = :status, pb.issues = COALESCE(:issues, pb.issues), " +
+           "pb.endTime = COALESCE(:endTime, pb.endTime), pb.updatedBy = :updatedBy, pb.updatedAt = :now, pb.version = pb.version + 1 " +
+           "WHERE pb.id = :id AND pb.status IN :fromStatuses AND (:version IS NULL OR pb.version = :version)")
+    int transitionBatch(@Param("id") Long id,
+                        @Param("fromStatuses") List<ProductionBatch.BatchStatus> fromStatuses,
+                        @Param("version") Long version,
+                        @Param("status") ProductionBatch.BatchStatus status,
+                        @Param("issues") String issues,
+                        @Param("endTime") LocalDateTime endTime,
+                        @Param("updatedBy") String updatedBy,
+                        @Param("now") LocalDateTime now);
+
+    // ==================== 步骤计数 ====================
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE production_batches SET step_total = step_total + :total, steps_in_progress = steps_in_progress + :inProgress, " +
+           "steps_completed = steps_completed + :completed, steps_skipped = steps_skipped + :skipped, " +
+           "steps_failed = steps_failed + :failed, steps_quality_failed = steps_quality_failed + :qualityFailed " +
+           "WHERE id = (SELECT production_batch_id FROM production_steps WHERE id = :stepId)", nativeQuery = true)
+    int adjustStepCounters(@Param("stepId") Long stepId,
+                           @Param("total") int total,
+                           @Param("inProgress") int inProgress,
+                           @Param("completed") int completed,
+                           @Param("skipped") int skipped,
+                           @Param("failed") int failed,
+                           @Param("qualityFailed") int qualityFailed);
+
+    /**
+     * 按步骤状态变化引起的增量调整其所属批次的计数，只更新计数列，不改变批次版本
+     */
+    default int adjustStepCounters(Long stepId, ProductionBatch.StepCounters delta) {
+        if (delta.isZero()) {
+            return 0;
+        }
+        return adjustStepCounters(stepId, delta.total(), delta.inProgress(), delta.completed(), delta.skipped(),
+                delta.failed(), delta.qualityFailed());
+    }
+
+    /**
+     * 按现有步骤重新统计批次计数
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE production_batches SET " +
+           "step_total = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id), " +
+           "steps_in_progress = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.status = 'IN_PROGRESS'), " +
+           "steps_completed = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.status = 'COMPLETED'), " +
+           "steps_skipped = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.status = 'SKIPPED'), " +
+           "steps_failed = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.status = 'FAILED'), " +
+           "steps_quality_failed = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.quality_result = 'FAIL') " +
+           "WHERE id IN :batchIds", nativeQuery = true)
+    int recountStepCounters(@Param("batchIds") List<Long> batchIds);
+
+    /**
+     * 直接读取批次的步骤计数列，不经过持久化上下文，计数以原生语句累加后读到的也是最新值
+     */
+    @Query("SELECT b.stepTotal, b.stepsInProgress, b.stepsCompleted, b.stepsSkipped, b.stepsFailed, b.stepsQualityFailed " +
+           "FROM ProductionBatch b WHERE b.id = :id")
+    List<Object[]> findStepCounterRowsById(@Param("id") Long id);
+
+    default Optional<ProductionBatch.StepCounters> findStepCountersById(Long id) {
+        return findStepCounterRowsById(id).stream().findFirst().map(row -> new ProductionBatch.StepCounters(
+                (Integer) row[0], (Integer) row[1], (Integer) row[2], (Integer) row[3], (Integer) row[4], (Integer) row[5]));
+    }
+
+    /**
+     * 计数与步骤实际状态不一致的批次，只检查未结束或since之后更新过的批次，已结束的历史批次不再重复统计
+     */
+    @Query(value = "SELECT b.id FROM production_batches b LEFT JOIN (" +
+           "SELECT s.production_batch_id, COUNT(*) AS total, " +
+           "SUM(CASE WHEN s.status = 'IN_PROGRESS' THEN 1 ELSE 0 END) AS in_progress, " +
+           "SUM(CASE WHEN s.status = 'COMPLETED' THEN 1 ELSE 0 END) AS completed, " +
+           "SUM(CASE WHEN s.status = 'SKIPPED' THEN 1 ELSE 0 END) AS skipped, " +
+           "SUM(CASE WHEN s.status = 'FAILED' THEN 1 ELSE 0 END) AS failed, " +
+           "SUM(CASE WHEN s.quality_result = 'FAIL' THEN 1 ELSE 0 END) AS quality_failed " +
+           "FROM production_steps s JOIN production_batches sb ON sb.id = s.production_batch_id " +
+           "WHERE sb.status IN (" + ACTIVE_STATUSES + ") OR sb.updated_at >= :since " +
+           "GROUP BY s.production_batch_id) s ON s.production_batch_id = b.id " +
+           "WHERE (b.status IN (" + ACTIVE_STATUSES + ") OR b.updated_at >= :since) " +
+           "AND (b.step_total <> COALESCE(s.total, 0) OR b.steps_in_progress <> COALESCE(s.in_progress, 0) " +
+           "OR b.steps_completed <> COALESCE(s.completed, 0) OR b.steps_skipped <> COALESCE(s.skipped, 0) " +
+           "OR b.steps_failed <> COALESCE(s.failed, 0) OR b.steps_quality_failed <> COALESCE(s.quality_failed, 0))", nativeQuery = true)
+    List<Long> findBatchIdsWithStepCounterDrift(@Param("since") LocalDateTime since);
 }
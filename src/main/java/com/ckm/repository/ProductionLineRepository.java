@@ -0,0 +1,23 @@
+package com.ckm.repository;
+
+import com.ckm.entity.ProductionLine;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductionLineRepository extends JpaRepository<ProductionLine, Long> {
+
+    Optional<ProductionLine> findByCode(String code);
+
+    Optional<ProductionLine> findByName(String name);
+
+    boolean existsByCode(String code);
+
+    @Query("SELECT DISTINCT pl FROM ProductionLine pl LEFT JOIN FETCH pl.shifts WHERE pl.status = :status ORDER BY pl.sortOrder ASC, pl.code ASC")
+    List<ProductionLine> findWithShiftsByStatus(@Param("status") ProductionLine.LineStatus status);
+}
@@ -0,0 +1,161 @@
+package com.ckm.repository;
+
+import com.ckm.entity.ProductionOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 生产订单批量写入和状态更新
+ */
+@Repository
+public class ProductionOrderJdbcRepository {
+
+    private static final String MARK_SCHEDULED_SQL = "UPDATE production_orders " +
+            "SET status = 'SCHEDULED', scheduled_date = ?, updated_by = ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ? AND status = 'APPROVED'";
+
+    // 已合并到批次的订单不再单独排程，锁定后其他合并或排程须等待本事务结束
+    private static final String LOCK_UNALLOCATED_APPROVED_SQL = "SELECT id FROM production_orders " +
+            "WHERE id IN (%s) AND status = 'APPROVED' " +
+            "AND NOT EXISTS (SELECT 1 FROM batch_allocations a WHERE a.production_order_id = production_orders.id) FOR UPDATE";
+
+    // total_amount为生成列，不写入
+    private static final String INSERT_SQL = "INSERT INTO production_orders " +
+            "(order_number, franchise_id, production_standard_id, quantity, unit_price, priority, status, " +
+            "order_date, required_date, special_instructions, notes, created_at, updated_at, created_by, updated_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 单次executeBatch的最大行数，避免超大批次占用过多驱动内存
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 将已批准的订单批量标记为已排程
+     * 先按行锁定仍为已批准且未合并到批次的订单，再只更新锁定的订单，批量重写后驱动不返回逐行更新数也能确定哪些订单完成了流转
+     *
+     * @param scheduledDates 订单ID到排程时间的映射
+     * @return 实际更新的订单ID（已取消、状态已变化或已合并到批次的订单不会被更新）
+     */
+    public Set<Long> markScheduled(Map<Long, LocalDateTime> scheduledDates, String scheduledBy) {
+        if (scheduledDates.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> locked = lockUnallocatedApproved(scheduledDates.keySet());
+        if (locked.isEmpty()) {
+            return locked;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(locked.size());
+        scheduledDates.forEach((orderId, scheduledDate) -> {
+            if (locked.contains(orderId)) {
+                args.add(new Object[]{Timestamp.valueOf(scheduledDate), scheduledBy, now, orderId});
+            }
+        });
+        jdbcTemplate.batchUpdate(MARK_SCHEDULED_SQL, args);
+        return locked;
+    }
+
+    /**
+     * 按行锁定仍为已批准且未合并到批次的订单，锁持有到当前事务结束
+     */
+    public Set<Long> lockUnallocatedApproved(Collection<Long> orderIds) {
+        Set<Long> locked = new HashSet<>();
+        List<Long> ids = new ArrayList<>(orderIds);
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            String sql = String.format(LOCK_UNALLOCATED_APPROVED_SQL, String.join(", ", Collections.nCopies(chunk.size(), "?")));
+            locked.addAll(jdbcTemplate.queryForList(sql, Long.class, chunk.toArray()));
+        }
+        return locked;
+    }
+
+    /**
+     * 批量插入订单，补齐默认状态、优先级和时间，并将生成的主键回填到订单对象
+     */
+    public void insertAll(List<ProductionOrder> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"})) {
+                for (int from = 0; from < orders.size(); from += BATCH_SIZE) {
+                    List<ProductionOrder> chunk = orders.subList(from, Math.min(from + BATCH_SIZE, orders.size()));
+                    for (ProductionOrder order : chunk) {
+                        applyDefaults(order, now);
+                        bind(ps, order);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (ProductionOrder order : chunk) {
+                            if (keys.next()) {
+                                order.setId(keys.getLong(1));
+                            }
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void applyDefaults(ProductionOrder order, LocalDateTime now) {
+        if (order.getStatus() == null) {
+            order.setStatus(ProductionOrder.OrderStatus.PENDING);
+        }
+        if (order.getPriority() == null) {
+            order.setPriority(ProductionOrder.Priority.NORMAL);
+        }
+        if (order.getOrderDate() == null) {
+            order.setOrderDate(now);
+        }
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+    }
+
+    private void bind(PreparedStatement ps, ProductionOrder order) throws SQLException {
+        ps.setString(1, order.getOrderNumber());
+        if (order.getFranchise() != null) {
+            ps.setLong(2, order.getFranchise().getId());
+        } else {
+            ps.setNull(2, Types.BIGINT);
+        }
+        if (order.getProductionStandard() != null) {
+            ps.setLong(3, order.getProductionStandard().getId());
+        } else {
+            ps.setNull(3, Types.BIGINT);
+        }
+        ps.setInt(4, order.getQuantity());
+        ps.setBigDecimal(5, order.getUnitPrice());
+        ps.setString(6, order.getPriority().name());
+        ps.setString(7, order.getStatus().name());
+        ps.setTimestamp(8, Timestamp.valueOf(order.getOrderDate()));
+        ps.setTimestamp(9, Timestamp.valueOf(order.getRequiredDate()));
+        ps.setString(10, order.getSpecialInstructions());
+        ps.setString(11, order.getNotes());
+        ps.setTimestamp(12, Timestamp.valueOf(order.getCreatedAt()));
+        ps.setTimestamp(13, Timestamp.valueOf(order.getUpdatedAt()));
+        ps.setString(14, order.getCreatedBy());
+        ps.setString(15, order.getUpdatedBy());
+    }
+}
@@ -1,7 +1,10 @@
 package com.ckm.repository;
 
+import com.ckm.dto.OrderSummaryDTO;
 import com.ckm.entity.ProductionOrder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -34,5 +37,86 @@ public interface ProductionOrderRepository extends JpaRepository<ProductionOrder
                                               @Param("startDate") LocalDateTime startDate,
                                               @Param("endDate") LocalDateTime endDate);
 
+    // 已合并到批次的订单由批次生产，不再单独排程
+    @Query("SELECT po FROM ProductionOrder po LEFT JOIN FETCH po.productionStandard WHERE po.id IN :ids AND po.status = :status " +
+           "AND NOT EXISTS (SELECT ba.id FROM BatchAllocation ba WHERE ba.productionOrder = po)")
+    List<ProductionOrder> findUnallocatedWithStandardByIdInAndStatus(@Param("ids") List<Long> ids,
+                                                                     @Param("status") ProductionOrder.OrderStatus status);
+
+    @Query("SELECT po.id FROM ProductionOrder po WHERE po.status IN :statuses " +
+           "AND (:franchiseId IS NULL OR po.franchise.id = :franchiseId) " +
+           "AND (:requiredFrom IS NULL OR po.requiredDate >= :requiredFrom) " +
+           "AND (:requiredTo IS NULL OR po.requiredDate < :requiredTo) ORDER BY po.id ASC")
+    List<Long> findIdsByCriteria(@Param("statuses") List<ProductionOrder.OrderStatus> statuses,
+                                 @Param("franchiseId") Long franchiseId,
+                                 @Param("requiredFrom") LocalDateTime requiredFrom,
+                                 @Param("requiredTo") LocalDateTime requiredTo,
+                                 Pageable pageable);
+
+    // 批量流转前锁定订单行，读到的状态和版本在本事务提交前不会被并发修改
+    @Query(value = "SELECT id, status, version FROM production_orders WHERE id IN :ids FOR UPDATE", nativeQuery = true)
+    List<Object[]> findStatusForUpdate(@Param("ids") List<Long> ids);
+
+    @Query("SELECT po FROM ProductionOrder po LEFT JOIN FETCH po.productionStandard WHERE po.status = :status " +
+           "AND NOT EXISTS (SELECT ba.id FROM BatchAllocation ba WHERE ba.productionOrder = po)")
+    List<ProductionOrder> findUnallocatedWithStandardByStatus(@Param("status") ProductionOrder.OrderStatus status);
+
     boolean existsByOrderNumber(String orderNumber);
+
+    // ==================== 状态流转（单条语句，按状态和版本守卫） ====================
+    // 流转语句只刷出、不清空持久化上下文，调用方已加载的其他实体保持托管；单条流转后由服务刷新被修改的订单
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductionOrder po SET po.status = :status, " +
+           "po.scheduledDate = COALESCE(:scheduledDate, po.scheduledDate), po.completedDate = COALESCE(:completedDate, po.completedDate), " +
+           "po.updatedBy = :updatedBy, po.updatedAt = :now, po.version = po.version + 1 " +
+           "WHERE po.id = :id AND po.status IN :fromStatuses AND (:version IS NULL OR po.version = :version)")
+    int transitionOrder(@Param("id") Long id,
+                        @Param("fromStatuses") List<ProductionOrder.OrderStatus> fromStatuses,
+                        @Param("version") Long version,
+                        @Param("status") ProductionOrder.OrderStatus status,
+                        @Param("scheduledDate") LocalDateTime scheduledDate,
+                        @Param("completedDate") LocalDateTime completedDate,
+                        @Param("updatedBy") String updatedBy,
+                        @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductionOrder po SET po.status = :status, " +
+           "po.scheduledDate = COALESCE(:scheduledDate, po.scheduledDate), po.completedDate = COALESCE(:completedDate, po.completedDate), " +
+           "po.updatedBy = :updatedBy, po.updatedAt = :now, po.version = po.version + 1 " +
+           "WHERE po.id IN :ids AND po.status IN :fromStatuses")
+    int transitionOrders(@Param("ids") List<Long> ids,
+                         @Param("fromStatuses") List<ProductionOrder.OrderStatus> fromStatuses,
+                         @Param("status") ProductionOrder.OrderStatus status,
+                         @Param("scheduledDate") LocalDateTime scheduledDate,
+                         @Param("completedDate") LocalDateTime completedDate,
+                         @Param("updatedBy") String updatedBy,
+                         @Param("now") LocalDateTime now);
+
+    // ==================== 游标分页（按下单时间倒序） ====================
+
+    String ORDER_SUMMARY = "SELECT new com.ckm.dto.OrderSummaryDTO(po.id, po.orderNumber, f.name, ps.dishName, po.quantity, " +
+            "po.priority, po.status, po.orderDate, po.requiredDate, po.scheduledDate, po.totalAmount) " +
+            "FROM ProductionOrder po LEFT JOIN po.franchise f LEFT JOIN po.productionStandard ps ";
+
+    @Query(ORDER_SUMMARY + "ORDER BY po.orderDate DESC, po.id DESC")
+    List<OrderSummaryDTO> findOrderPage(Pageable pageable);
+
+    @Query(ORDER_SUMMARY + "WHERE po.orderDate < :orderDate OR (po.orderDate = :orderDate AND po.id < :id) " +
+           "ORDER BY po.orderDate DESC, po.id DESC")
+    List<OrderSummaryDTO> findOrderPageAfter(@Param("orderDate") LocalDateTime orderDate,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    @Query(ORDER_SUMMARY + "WHERE po.status = :status ORDER BY po.orderDate DESC, po.id DESC")
+    List<OrderSummaryDTO> findOrderPageByStatus(@Param("status") ProductionOrder.OrderStatus status, Pageable pageable);
+
+    @Query(ORDER_SUMMARY + "WHERE po.status = :status AND (po.orderDate < :orderDate OR (po.orderDate = :orderDate AND po.id < :id)) " +
+           "ORDER BY po.orderDate DESC, po.id DESC")
+    List<OrderSummaryDTO> findOrderPageByStatusAfter(@Param("status") ProductionOrder.OrderStatus status,
+                                                     @Param("orderDate") LocalDateTime orderDate,
+                                                     @Param("id") Long id,
+                                                     Pageable pageable);
+
+    long countByStatus(ProductionOrder.OrderStatus status);
 }
@@ -0,0 +1,103 @@
+package com.ckm.repository;
+
+import com.ckm.entity.ProductionSchedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 生产排程批量写入
+ * 排程主键为自增列，Hibernate无法对其批量插入，批量排程时改用JDBC批处理一次写入
+ */
+@Repository
+public class ProductionScheduleJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO production_schedules " +
+            "(schedule_number, production_order_id, scheduled_date, start_time, end_time, production_line, " +
+            "equipment, assigned_staff, equipment_units, staff_id, status, capacity_utilization, notes, " +
+            "created_at, updated_at, created_by, updated_by, production_line_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 单次executeBatch的最大行数，避免超大批次占用过多驱动内存
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量插入排程，并将生成的主键回填到排程对象
+     */
+    public void insertAll(List<ProductionSchedule> schedules) {
+        if (schedules.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"})) {
+                for (int from = 0; from < schedules.size(); from += BATCH_SIZE) {
+                    List<ProductionSchedule> chunk = schedules.subList(from, Math.min(from + BATCH_SIZE, schedules.size()));
+                    for (ProductionSchedule schedule : chunk) {
+                        schedule.setCreatedAt(now);
+                        schedule.setUpdatedAt(now);
+                        bind(ps, schedule);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (ProductionSchedule schedule : chunk) {
+                            if (keys.next()) {
+                                schedule.setId(keys.getLong(1));
+                            }
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void bind(PreparedStatement ps, ProductionSchedule schedule) throws java.sql.SQLException {
+        ps.setString(1, schedule.getScheduleNumber());
+        if (schedule.getProductionOrder() != null) {
+            ps.setLong(2, schedule.getProductionOrder().getId());
+        } else {
+            ps.setNull(2, Types.BIGINT);
+        }
+        ps.setTimestamp(3, Timestamp.valueOf(schedule.getScheduledDate()));
+        ps.setTimestamp(4, Timestamp.valueOf(schedule.getStartTime()));
+        ps.setTimestamp(5, Timestamp.valueOf(schedule.getEndTime()));
+        ps.setString(6, schedule.getProductionLine());
+        ps.setString(7, schedule.getEquipment());
+        ps.setString(8, schedule.getAssignedStaff());
+        ps.setString(9, schedule.getEquipmentUnits());
+        if (schedule.getStaffId() != null) {
+            ps.setLong(10, schedule.getStaffId());
+        } else {
+            ps.setNull(10, Types.BIGINT);
+        }
+        ps.setString(11, schedule.getStatus().name());
+        if (schedule.getCapacityUtilization() != null) {
+            ps.setDouble(12, schedule.getCapacityUtilization());
+        } else {
+            ps.setNull(12, Types.DECIMAL);
+        }
+        ps.setString(13, schedule.getNotes());
+        ps.setTimestamp(14, Timestamp.valueOf(schedule.getCreatedAt()));
+        ps.setTimestamp(15, Timestamp.valueOf(schedule.getUpdatedAt()));
+        ps.setString(16, schedule.getCreatedBy());
+        ps.setString(17, schedule.getUpdatedBy());
+        if (schedule.getProductionLineId() != null) {
+            ps.setLong(18, schedule.getProductionLineId());
+        } else {
+            ps.setNull(18, Types.BIGINT);
+        }
+    }
+}
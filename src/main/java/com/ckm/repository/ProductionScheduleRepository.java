@@ -1,12 +1,16 @@
 package com.ckm.repository;
 
+import com.ckm.dto.ScheduleSummaryDTO;
 import com.ckm.entity.ProductionSchedule;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -34,8 +38,80 @@ public interface ProductionScheduleRepository extends JpaRepository<ProductionSc
 
     boolean existsByScheduleNumber(String scheduleNumber);
 
+    boolean existsByStaffId(Long staffId);
+
+    boolean existsByProductionLineId(Long productionLineId);
+
+    @Modifying
+    @Query("UPDATE ProductionSchedule ps SET ps.productionLine = :name WHERE ps.productionLineId = :productionLineId")
+    int renameProductionLine(@Param("productionLineId") Long productionLineId, @Param("name") String name);
+
     @Query("SELECT AVG(ps.capacityUtilization) FROM ProductionSchedule ps WHERE ps.status = :status AND ps.scheduledDate BETWEEN :startDate AND :endDate")
     Double getAverageCapacityUtilization(@Param("status") ProductionSchedule.ScheduleStatus status,
                                          @Param("startDate") LocalDateTime startDate,
                                          @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT ps.productionLine, ps.startTime, ps.endTime FROM ProductionSchedule ps WHERE ps.startTime < :endTime AND ps.endTime > :startTime AND ps.status <> :excludedStatus")
+    List<Object[]> findOccupancyInRange(@Param("startTime") LocalDateTime startTime,
+                                        @Param("endTime") LocalDateTime endTime,
+                                        @Param("excludedStatus") ProductionSchedule.ScheduleStatus excludedStatus);
+
+    /**
+     * 与时间段相交的未取消排程占用（排程ID、生产线、开始、结束），包含窗口开始前已开工的排程
+     */
+    @Query("SELECT ps.id, ps.productionLine, ps.startTime, ps.endTime FROM ProductionSchedule ps " +
+           "WHERE ps.startTime < :endTime AND ps.endTime > :startTime AND ps.status <> :excludedStatus")
+    List<Object[]> findLineBookingsInRange(@Param("startTime") LocalDateTime startTime,
+                                           @Param("endTime") LocalDateTime endTime,
+                                           @Param("excludedStatus") ProductionSchedule.ScheduleStatus excludedStatus);
+
+    @Query("SELECT ps.id, ps.equipmentUnits, ps.staffId, ps.startTime, ps.endTime FROM ProductionSchedule ps " +
+           "WHERE ps.startTime < :endTime AND ps.endTime > :startTime AND ps.status <> :excludedStatus " +
+           "AND (ps.equipmentUnits IS NOT NULL OR ps.staffId IS NOT NULL)")
+    List<Object[]> findResourceBookingsInRange(@Param("startTime") LocalDateTime startTime,
+                                               @Param("endTime") LocalDateTime endTime,
+                                               @Param("excludedStatus") ProductionSchedule.ScheduleStatus excludedStatus);
+
+    List<ProductionSchedule> findByProductionOrderIdInAndStatusIn(Collection<Long> orderIds,
+                                                                  Collection<ProductionSchedule.ScheduleStatus> statuses);
+
+    /**
+     * 局部修复窗口：指定生产线在时间段内开始的排程，同时加载订单和生产标准
+     */
+    @Query("SELECT ps FROM ProductionSchedule ps LEFT JOIN FETCH ps.productionOrder po LEFT JOIN FETCH po.productionStandard " +
+           "WHERE ps.productionLine IN :lines AND ps.status IN :statuses AND ps.startTime >= :from AND ps.startTime < :to " +
+           "ORDER BY ps.startTime ASC")
+    List<ProductionSchedule> findRepairWindow(@Param("lines") Collection<String> lines,
+                                              @Param("statuses") Collection<ProductionSchedule.ScheduleStatus> statuses,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to);
+
+    // ==================== 状态流转（单条语句，按状态和版本守卫） ====================
+    // 流转语句只刷出、不清空持久化上下文，流转后由服务刷新被修改的排程
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductionSchedule ps SET ps.status = :status, ps.updatedBy = :updatedBy, ps.updatedAt = :now, ps.version = ps.version + 1 " +
+           "WHERE ps.id = :id AND ps.status IN :fromStatuses AND (:version IS NULL OR ps.version = :version)")
+    int transitionSchedule(@Param("id") Long id,
+                           @Param("fromStatuses") List<ProductionSchedule.ScheduleStatus> fromStatuses,
+                           @Param("version") Long version,
+                           @Param("status") ProductionSchedule.ScheduleStatus status,
+                           @Param("updatedBy") String updatedBy,
+                           @Param("now") LocalDateTime now);
+
+    // ==================== 游标分页（按排程日期、开始时间顺序） ====================
+
+    String SCHEDULE_SUMMARY = "SELECT new com.ckm.dto.ScheduleSummaryDTO(ps.id, ps.scheduleNumber, ps.productionOrder.id, " +
+            "ps.productionLine, ps.scheduledDate, ps.startTime, ps.endTime, ps.status) FROM ProductionSchedule ps ";
+
+    @Query(SCHEDULE_SUMMARY + "ORDER BY ps.scheduledDate ASC, ps.startTime ASC, ps.id ASC")
+    List<ScheduleSummaryDTO> findSchedulePage(Pageable pageable);
+
+    @Query(SCHEDULE_SUMMARY + "WHERE ps.scheduledDate > :scheduledDate OR (ps.scheduledDate = :scheduledDate AND " +
+           "(ps.startTime > :startTime OR (ps.startTime = :startTime AND ps.id > :id))) " +
+           "ORDER BY ps.scheduledDate ASC, ps.startTime ASC, ps.id ASC")
+    List<ScheduleSummaryDTO> findSchedulePageAfter(@Param("scheduledDate") LocalDateTime scheduledDate,
+                                                   @Param("startTime") LocalDateTime startTime,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
 }
@@ -0,0 +1,218 @@
+package com.ckm.repository;
+
+import com.ckm.entity.KitchenStaff;
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionStep;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 生产步骤批量写入和更新
+ * 步骤主键为自增列，Hibernate无法对其批量插入，按模板展开步骤时改用JDBC批处理一次写入；
+ * 离线事件同步时读取和写回步骤状态也在这里批量完成
+ */
+@Repository
+public class ProductionStepJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO production_steps " +
+            "(production_batch_id, step_number, step_name, instructions, planned_duration_minutes, planned_start_time, " +
+            "status, quality_result, equipment, quality_checkpoints, created_at, updated_at, created_by, updated_by, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String ADJUST_COUNTERS_SQL = "UPDATE production_batches SET step_total = step_total + ?, " +
+            "steps_in_progress = steps_in_progress + ?, steps_completed = steps_completed + ?, steps_skipped = steps_skipped + ?, " +
+            "steps_failed = steps_failed + ?, steps_quality_failed = steps_quality_failed + ? WHERE id = ?";
+
+    // 单次executeBatch的最大行数，避免超大批次占用过多驱动内存
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String FIND_FOR_SYNC_SQL = "SELECT id, production_batch_id, status, quality_result, version, " +
+            "assigned_staff, staff_id, equipment, actual_start_time, actual_duration_minutes, completed_time, notes, issues " +
+            "FROM production_steps WHERE id IN (%s)";
+
+    private static final String UPDATE_SYNCED_SQL = "UPDATE production_steps SET status = ?, quality_result = ?, " +
+            "assigned_staff = ?, staff_id = ?, equipment = ?, actual_start_time = ?, actual_duration_minutes = ?, completed_time = ?, " +
+            "notes = ?, issues = ?, updated_by = ?, updated_at = ?, version = ? WHERE id = ? AND version = ?";
+
+    private static final String ASSIGN_STAFF_SQL = "UPDATE production_steps " +
+            "SET assigned_staff = ?, staff_id = ?, updated_by = ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ? AND status = 'PENDING' AND staff_id IS NULL AND (assigned_staff IS NULL OR assigned_staff = '')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量插入步骤，并将生成的主键回填到步骤对象；所属批次的步骤计数在同一事务内一并累加
+     */
+    public void insertAll(List<ProductionStep> steps) {
+        if (steps.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, ProductionBatch.StepCounters> counters = new LinkedHashMap<>();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, new String[]{"id"})) {
+                for (int from = 0; from < steps.size(); from += BATCH_SIZE) {
+                    List<ProductionStep> chunk = steps.subList(from, Math.min(from + BATCH_SIZE, steps.size()));
+                    for (ProductionStep step : chunk) {
+                        step.setCreatedAt(now);
+                        step.setUpdatedAt(now);
+                        step.setVersion(0L);
+                        bind(ps, step);
+                        ps.addBatch();
+                        counters.merge(step.getProductionBatch().getId(),
+                                ProductionBatch.StepCounters.of(step.getStatus(), step.getQualityResult()),
+                                ProductionBatch.StepCounters::plus);
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (ProductionStep step : chunk) {
+                            if (keys.next()) {
+                                step.setId(keys.getLong(1));
+                            }
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        adjustCounters(counters);
+    }
+
+    /**
+     * 按ID读取步骤的状态相关字段，返回的步骤不受持久化上下文管理，所属批次只带ID
+     */
+    public List<ProductionStep> findDetachedByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String sql = String.format(FIND_FOR_SYNC_SQL, String.join(", ", Collections.nCopies(ids.size(), "?")));
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            ProductionBatch batch = new ProductionBatch();
+            batch.setId(rs.getLong("production_batch_id"));
+            String qualityResult = rs.getString("quality_result");
+            return ProductionStep.builder()
+                    .id(rs.getLong("id"))
+                    .productionBatch(batch)
+                    .status(ProductionStep.StepStatus.valueOf(rs.getString("status")))
+                    .qualityResult(qualityResult != null ? ProductionStep.QualityResult.valueOf(qualityResult) : null)
+                    .version(rs.getLong("version"))
+                    .assignedStaff(rs.getString("assigned_staff"))
+                    .staffId(rs.getObject("staff_id", Long.class))
+                    .equipment(rs.getString("equipment"))
+                    .actualStartTime(toLocalDateTime(rs.getTimestamp("actual_start_time")))
+                    .actualDurationMinutes(rs.getObject("actual_duration_minutes", Integer.class))
+                    .completedTime(toLocalDateTime(rs.getTimestamp("completed_time")))
+                    .notes(rs.getString("notes"))
+                    .issues(rs.getString("issues"))
+                    .build();
+        }, ids.toArray());
+    }
+
+    /**
+     * 批量写回步骤的状态相关字段，按读取时的版本守卫
+     *
+     * @param expectedVersions 步骤ID到读取时版本的映射
+     * @return 实际更新的步骤数，小于步骤数说明期间有并发修改
+     */
+    public int updateSynced(List<ProductionStep> steps, Map<Long, Long> expectedVersions) {
+        if (steps.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> args = new ArrayList<>(steps.size());
+        for (ProductionStep step : steps) {
+            args.add(new Object[]{step.getStatus().name(),
+                    step.getQualityResult() != null ? step.getQualityResult().name() : null,
+                    step.getAssignedStaff(), step.getStaffId(), step.getEquipment(), toTimestamp(step.getActualStartTime()),
+                    step.getActualDurationMinutes(), toTimestamp(step.getCompletedTime()), step.getNotes(), step.getIssues(),
+                    step.getUpdatedBy(), toTimestamp(step.getUpdatedAt()), step.getVersion(),
+                    step.getId(), expectedVersions.get(step.getId())});
+        }
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(UPDATE_SYNCED_SQL, args)) {
+            // 驱动开启批量重写时返回SUCCESS_NO_INFO，按成功计
+            updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        return updated;
+    }
+
+    /**
+     * 按批次累加步骤计数
+     *
+     * @param deltas 批次ID到计数增量的映射
+     */
+    public void adjustCounters(Map<Long, ProductionBatch.StepCounters> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((batchId, delta) -> {
+            if (!delta.isZero()) {
+                args.add(new Object[]{delta.total(), delta.inProgress(), delta.completed(),
+                        delta.skipped(), delta.failed(), delta.qualityFailed(), batchId});
+            }
+        });
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADJUST_COUNTERS_SQL, args);
+        }
+    }
+
+    /**
+     * 为待开始且未分配人员的步骤批量写入负责员工
+     *
+     * @param assignedStaff 步骤ID到员工的映射，写入员工ID和姓名
+     * @return 实际更新的步骤数（期间已开始或已手工分配的步骤不会被更新）
+     */
+    public int assignStaff(Map<Long, KitchenStaff> assignedStaff, String assignedBy) {
+        if (assignedStaff.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(assignedStaff.size());
+        assignedStaff.forEach((stepId, staff) -> args.add(new Object[]{staff.getName(), staff.getId(), assignedBy, now, stepId}));
+
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(ASSIGN_STAFF_SQL, args)) {
+            // 驱动开启批量重写时返回SUCCESS_NO_INFO，按成功计
+            updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        return updated;
+    }
+
+    private void bind(PreparedStatement ps, ProductionStep step) throws SQLException {
+        ps.setLong(1, step.getProductionBatch().getId());
+        ps.setInt(2, step.getStepNumber());
+        ps.setString(3, step.getStepName());
+        ps.setString(4, step.getInstructions());
+        ps.setInt(5, step.getPlannedDurationMinutes());
+        ps.setTimestamp(6, Timestamp.valueOf(step.getPlannedStartTime()));
+        ps.setString(7, step.getStatus().name());
+        ps.setString(8, step.getQualityResult() != null ? step.getQualityResult().name() : null);
+        ps.setString(9, step.getEquipment());
+        ps.setString(10, step.getQualityCheckpoints());
+        ps.setTimestamp(11, Timestamp.valueOf(step.getCreatedAt()));
+        ps.setTimestamp(12, Timestamp.valueOf(step.getUpdatedAt()));
+        ps.setString(13, step.getCreatedBy());
+        ps.setString(14, step.getUpdatedBy());
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp value) {
+        return value != null ? value.toLocalDateTime() : null;
+    }
+}
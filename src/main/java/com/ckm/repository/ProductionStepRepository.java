@@ -2,18 +2,23 @@ package com.ckm.repository;
 
 import com.ckm.entity.ProductionStep;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductionStepRepository extends JpaRepository<ProductionStep, Long> {
 
     List<ProductionStep> findByProductionBatchIdOrderByStepNumberAsc(Long productionBatchId);
 
+    List<ProductionStep> findByProductionBatchIdInOrderByStepNumberAsc(Collection<Long> productionBatchIds);
+
     List<ProductionStep> findByStatusOrderByPlannedStartTimeAsc(ProductionStep.StepStatus status);
 
     List<ProductionStep> findByAssignedStaffAndStatus(String assignedStaff, ProductionStep.StepStatus status);
@@ -46,4 +51,59 @@ public interface ProductionStepRepository extends JpaRepository<ProductionStep,
     List<ProductionStep> findStepsByEquipmentAndDateRange(@Param("equipment") String equipment,
                                                           @Param("startDate") LocalDateTime startDate,
                                                           @Param("endDate") LocalDateTime endDate);
+
+    // 完成步骤前锁定步骤行，读到的质检结果在本事务提交前不会被单独登记的质检结果改写
+    @Query(value = "SELECT quality_result FROM production_steps WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<String> findQualityResultForUpdate(@Param("id") Long id);
+
+    // 未指定期望版本时，流转语句执行后读取行上的版本，行锁由本事务持有，读到的即本次流转写入的版本
+    @Query("SELECT ps.version FROM ProductionStep ps WHERE ps.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // ==================== 状态流转（单条语句，按状态和版本守卫） ====================
+    // 流转语句只刷出、不清空持久化上下文；流转结果按期望版本或findVersionById返回，不读取已加载的步骤实体
+
+    @Modifying(flushAutomatically = true)
+    // 指定负责人时按姓名和解析出的员工ID一并改写，员工ID为空表示姓名对应不到唯一员工
+    @Query("UPDATE ProductionStep ps SET ps.status = :status, ps.assignedStaff = COALESCE(:assignedStaff, ps.assignedStaff), " +
+           "ps.staffId = CASE WHEN :assignedStaff IS NULL THEN ps.staffId ELSE :staffId END, ps.equipment = :equipment, " +
+           "ps.actualStartTime = :now, ps.updatedBy = :updatedBy, ps.updatedAt = :now, ps.version = ps.version + 1 " +
+           "WHERE ps.id = :id AND ps.status IN :fromStatuses AND (:version IS NULL OR ps.version = :version)")
+    int startStep(@Param("id") Long id,
+                  @Param("fromStatuses") List<ProductionStep.StepStatus> fromStatuses,
+                  @Param("version") Long version,
+                  @Param("status") ProductionStep.StepStatus status,
+                  @Param("assignedStaff") String assignedStaff,
+                  @Param("staffId") Long staffId,
+                  @Param("equipment") String equipment,
+                  @Param("updatedBy") String updatedBy,
+                  @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    // 未填写实际工时时在语句内按实际开始时间到完成时间计算，不再单独查询开始时间
+    @Query(value = "UPDATE production_steps SET status = 'COMPLETED', " +
+           "actual_duration_minutes = COALESCE(:actualDuration, GREATEST(TIMESTAMPDIFF(MINUTE, actual_start_time, :now), 0)), " +
+           "completed_time = :now, quality_result = :qualityResult, notes = :notes, updated_by = :updatedBy, updated_at = :now, " +
+           "version = version + 1 WHERE id = :id AND status = 'IN_PROGRESS' AND (:version IS NULL OR version = :version)",
+           nativeQuery = true)
+    int completeStep(@Param("id") Long id,
+                     @Param("version") Long version,
+                     @Param("actualDuration") Integer actualDuration,
+                     @Param("qualityResult") String qualityResult,
+                     @Param("notes") String notes,
+                     @Param("updatedBy") String updatedBy,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductionStep ps SET ps.status = :status, ps.notes = COALESCE(:notes, ps.notes), ps.issues = COALESCE(:issues, ps.issues), " +
+           "ps.updatedBy = :updatedBy, ps.updatedAt = :now, ps.version = ps.version + 1 " +
+           "WHERE ps.id = :id AND ps.status IN :fromStatuses AND (:version IS NULL OR ps.version = :version)")
+    int transitionStep(@Param("id") Long id,
+                       @Param("fromStatuses") List<ProductionStep.StepStatus> fromStatuses,
+                       @Param("version") Long version,
+                       @Param("status") ProductionStep.StepStatus status,
+                       @Param("notes") String notes,
+                       @Param("issues") String issues,
+                       @Param("updatedBy") String updatedBy,
+                       @Param("now") LocalDateTime now);
 }
@@ -1,6 +1,8 @@
 package com.ckm.repository;
 
+import com.ckm.dto.QualityTraceSummaryDTO;
 import com.ckm.entity.QualityTrace;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -70,4 +72,19 @@ public interface QualityTraceRepository extends JpaRepository<QualityTrace, Long
      * 根据质检员查找记录
      */
     List<QualityTrace> findByInspector(String inspector);
+
+    String TRACE_SUMMARY = "SELECT new com.ckm.dto.QualityTraceSummaryDTO(q.id, q.batchNumber, q.ingredientName, " +
+            "q.productionDate, q.expiryDate, q.supplierInfo, q.status, q.inspector) FROM QualityTrace q ";
+
+    /**
+     * 游标分页，按生产日期倒序
+     */
+    @Query(TRACE_SUMMARY + "ORDER BY q.productionDate DESC, q.id DESC")
+    List<QualityTraceSummaryDTO> findTracePage(Pageable pageable);
+
+    @Query(TRACE_SUMMARY + "WHERE q.productionDate < :productionDate OR (q.productionDate = :productionDate AND q.id < :id) " +
+           "ORDER BY q.productionDate DESC, q.id DESC")
+    List<QualityTraceSummaryDTO> findTracePageAfter(@Param("productionDate") LocalDate productionDate,
+                                                    @Param("id") Long id,
+                                                    Pageable pageable);
 }
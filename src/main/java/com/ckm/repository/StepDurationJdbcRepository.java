@@ -0,0 +1,146 @@
+package com.ckm.repository;
+
+import com.ckm.scheduling.DurationSketch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 步骤实际工时的读取和工时草图的持久化
+ */
+@Repository
+public class StepDurationJdbcRepository {
+
+    private static final String DURATION_COLUMNS = "SELECT ps.id, o.production_standard_id, ps.step_number, ps.equipment, " +
+            "ps.actual_duration_minutes FROM production_steps ps " +
+            "JOIN production_batches b ON b.id = ps.production_batch_id " +
+            "LEFT JOIN production_orders o ON o.id = b.production_order_id ";
+
+    private static final String COMPLETED_SQL = DURATION_COLUMNS +
+            "WHERE ps.id IN (%s) AND ps.status = 'COMPLETED' AND ps.actual_duration_minutes IS NOT NULL";
+
+    private static final String ALL_COMPLETED_SQL = DURATION_COLUMNS +
+            "WHERE ps.status = 'COMPLETED' AND ps.actual_duration_minutes IS NOT NULL";
+
+    private static final String FIND_ALL_SQL = "SELECT dimension, sketch_key, sketch FROM step_duration_sketches";
+
+    private static final String FIND_UPDATED_SINCE_SQL = FIND_ALL_SQL + " WHERE updated_at >= ?";
+
+    private static final String FIND_FOR_UPDATE_SQL = "SELECT sketch FROM step_duration_sketches " +
+            "WHERE dimension = ? AND sketch_key = ? FOR UPDATE";
+
+    private static final String UPDATE_SQL = "UPDATE step_duration_sketches SET sample_count = ?, sketch = ?, updated_at = ? " +
+            "WHERE dimension = ? AND sketch_key = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO step_duration_sketches " +
+            "(dimension, sketch_key, sample_count, sketch, updated_at) VALUES (?, ?, ?, ?, ?)";
+
+    // 历史数据一次可能很多，逐行回调并让驱动分批取回
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 读取已完成步骤的实际工时，未完成或未填写工时的步骤不返回
+     */
+    public List<StepDuration> findCompletedDurations(Collection<Long> stepIds) {
+        if (stepIds.isEmpty()) {
+            return List.of();
+        }
+        String sql = String.format(COMPLETED_SQL, String.join(", ", Collections.nCopies(stepIds.size(), "?")));
+        return jdbcTemplate.query(sql, (rs, rowNum) -> toDuration(rs), stepIds.toArray());
+    }
+
+    /**
+     * 逐行回调全部已完成步骤的实际工时，用于从历史重建草图
+     */
+    public void forEachCompletedDuration(Consumer<StepDuration> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ALL_COMPLETED_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL驱动只有在fetchSize为Integer.MIN_VALUE时才逐行读取，否则一次取回全部结果
+            boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+            ps.setFetchSize(mysql ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            consumer.accept(toDuration(rs));
+        });
+    }
+
+    public List<Snapshot> findAll() {
+        return jdbcTemplate.query(FIND_ALL_SQL, (rs, rowNum) -> toSnapshot(rs));
+    }
+
+    /**
+     * 读取since之后合并过的草图
+     */
+    public List<Snapshot> findUpdatedSince(LocalDateTime since) {
+        return jdbcTemplate.query(FIND_UPDATED_SINCE_SQL, (rs, rowNum) -> toSnapshot(rs), Timestamp.valueOf(since));
+    }
+
+    /**
+     * 把增量合并进已保存的草图并返回合并结果，不存在时插入
+     * 读取时加行锁，多个节点同时合并同一草图时依次进行
+     */
+    public DurationSketch merge(String dimension, String key, DurationSketch delta) {
+        DurationSketch merged = lockAndMerge(dimension, key, delta);
+        if (merged != null) {
+            return merged;
+        }
+        merged = delta.copy();
+        try {
+            jdbcTemplate.update(INSERT_SQL, dimension, key, merged.getCount(), merged.toBytes(),
+                    Timestamp.valueOf(LocalDateTime.now()));
+            return merged;
+        } catch (DuplicateKeyException e) {
+            // 并发节点已插入该草图，改为合并
+            return lockAndMerge(dimension, key, delta);
+        }
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("DELETE FROM step_duration_sketches");
+    }
+
+    private DurationSketch lockAndMerge(String dimension, String key, DurationSketch delta) {
+        List<byte[]> stored = jdbcTemplate.query(FIND_FOR_UPDATE_SQL, (rs, rowNum) -> rs.getBytes("sketch"), dimension, key);
+        if (stored.isEmpty()) {
+            return null;
+        }
+        DurationSketch merged = DurationSketch.fromBytes(stored.get(0));
+        merged.merge(delta);
+        jdbcTemplate.update(UPDATE_SQL, merged.getCount(), merged.toBytes(), Timestamp.valueOf(LocalDateTime.now()),
+                dimension, key);
+        return merged;
+    }
+
+    private static Snapshot toSnapshot(ResultSet rs) throws SQLException {
+        return new Snapshot(rs.getString("dimension"), rs.getString("sketch_key"), rs.getBytes("sketch"));
+    }
+
+    private static StepDuration toDuration(ResultSet rs) throws SQLException {
+        return new StepDuration(rs.getLong("id"), rs.getObject("production_standard_id", Long.class),
+                rs.getInt("step_number"), rs.getString("equipment"), rs.getInt("actual_duration_minutes"));
+    }
+
+    /**
+     * 已完成步骤的实际工时，批次没有关联订单时standardId为空
+     */
+    public record StepDuration(Long stepId, Long standardId, int stepNumber, String equipment, int minutes) {
+    }
+
+    public record Snapshot(String dimension, String key, byte[] sketch) {
+    }
+}
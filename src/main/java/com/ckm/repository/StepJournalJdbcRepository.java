@@ -0,0 +1,66 @@
+package com.ckm.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已同步的离线步骤事件
+ */
+@Repository
+public class StepJournalJdbcRepository {
+
+    private static final String FIND_RESULTS_SQL = "SELECT event_id, result FROM step_journal_events WHERE event_id IN (%s)";
+
+    private static final String INSERT_SQL = "INSERT INTO step_journal_events " +
+            "(event_id, device_id, production_step_id, action, result, client_time, synced_at, synced_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 查询已同步事件的处理结果
+     *
+     * @return 事件ID到处理结果的映射，未同步过的事件不在其中
+     */
+    public Map<String, String> findResults(Collection<String> eventIds) {
+        Map<String, String> results = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return results;
+        }
+        String sql = String.format(FIND_RESULTS_SQL, String.join(", ", Collections.nCopies(eventIds.size(), "?")));
+        jdbcTemplate.query(sql, rs -> {
+            results.put(rs.getString("event_id"), rs.getString("result"));
+        }, eventIds.toArray());
+        return results;
+    }
+
+    /**
+     * 批量记录本次同步处理过的事件，事件ID重复时违反主键约束，整个同步回滚
+     */
+    public void insertAll(String deviceId, List<Entry> entries, String syncedBy) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            args.add(new Object[]{entry.eventId(), deviceId, entry.stepId(), entry.action(), entry.result(),
+                    entry.clientTime() != null ? Timestamp.valueOf(entry.clientTime()) : null, now, syncedBy});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+    }
+
+    public record Entry(String eventId, Long stepId, String action, String result, LocalDateTime clientTime) {
+    }
+}
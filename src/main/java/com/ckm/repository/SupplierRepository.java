@@ -1,6 +1,8 @@
 package com.ckm.repository;
 
+import com.ckm.dto.SupplierSummaryDTO;
 import com.ckm.entity.Supplier;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -93,4 +95,18 @@ public interface SupplierRepository extends JpaRepository<Supplier, Long> {
      */
     @Query("SELECT s FROM Supplier s WHERE s.rating IS NOT NULL ORDER BY s.rating DESC")
     List<Supplier> findTopRatedSuppliers();
+
+    String SUPPLIER_SUMMARY = "SELECT new com.ckm.dto.SupplierSummaryDTO(s.id, s.name, s.category, s.qualityGrade, " +
+            "s.status, s.rating, s.lastDeliveryDate) FROM Supplier s ";
+
+    /**
+     * 游标分页，按名称排序
+     */
+    @Query(SUPPLIER_SUMMARY + "ORDER BY s.name ASC, s.id ASC")
+    List<SupplierSummaryDTO> findSupplierPage(Pageable pageable);
+
+    @Query(SUPPLIER_SUMMARY + "WHERE s.name > :name OR (s.name = :name AND s.id > :id) ORDER BY s.name ASC, s.id ASC")
+    List<SupplierSummaryDTO> findSupplierPageAfter(@Param("name") String name,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
 }
@@ -0,0 +1,57 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionOrder;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 减少换线：同一天交付的同一生产标准订单连续派工，各组按组内最早要求完成日期排序，
+ * 分配时优先沿用刚生产过同一标准的生产线。按交付日分组，避免为了少换线把后几天的订单提前
+ */
+@Component
+public class ChangeoverMinimizingStrategy implements SchedulingStrategy {
+
+    @Override
+    public String getName() {
+        return "CHANGEOVER";
+    }
+
+    @Override
+    public String getDescription() {
+        return "同类订单连续生产，减少换线";
+    }
+
+    @Override
+    public List<ProductionOrder> sequence(List<ProductionOrder> orders) {
+        // 先按交期排序，分组后每组内保持交期顺序，组的先后由组内第一单决定
+        Map<GroupKey, List<ProductionOrder>> groups = new LinkedHashMap<>();
+        List<ProductionOrder> ungrouped = new ArrayList<>();
+        for (ProductionOrder order : orders.stream().sorted(EarliestDueDateStrategy.DUE_DATE_ORDER).toList()) {
+            if (order.getProductionStandard() == null || order.getProductionStandard().getId() == null
+                    || order.getRequiredDate() == null) {
+                ungrouped.add(order);
+            } else {
+                GroupKey key = new GroupKey(order.getProductionStandard().getId(), order.getRequiredDate().toLocalDate());
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(order);
+            }
+        }
+
+        List<ProductionOrder> sequence = new ArrayList<>(orders.size());
+        groups.values().forEach(sequence::addAll);
+        sequence.addAll(ungrouped);
+        return sequence;
+    }
+
+    @Override
+    public boolean isChangeoverAware() {
+        return true;
+    }
+
+    private record GroupKey(Long productionStandardId, LocalDate requiredDay) {
+    }
+}
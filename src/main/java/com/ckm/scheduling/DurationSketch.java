@@ -0,0 +1,170 @@
+package com.ckm.scheduling;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * 工时分布的分位数草图
+ * 按分钟计的时长落入对数-线性分桶：64分钟以内每分钟一个桶，之后每个2的幂区间等分为32个桶，
+ * 分位数的相对误差不超过1/32。桶的划分固定，两个草图逐桶相加即可合并，合并结果与顺序无关。
+ * 非线程安全，由调用方加锁
+ */
+public final class DurationSketch {
+
+    // 超过一周的时长按一周计
+    public static final int MAX_MINUTES = 7 * 24 * 60;
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = index(MAX_MINUTES) + 1;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+
+    private long count;
+
+    private long sum;
+
+    private int min = Integer.MAX_VALUE;
+
+    private int max;
+
+    public void record(int minutes) {
+        if (minutes < 0) {
+            return;
+        }
+        int value = Math.min(minutes, MAX_MINUTES);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(DurationSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public Double getMean() {
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    /**
+     * 分位数（分钟），取所在桶的中点并限制在最小、最大值之间，草图为空时返回null
+     *
+     * @param quantile 0到1之间
+     */
+    public Integer quantile(double quantile) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(quantile, 0), 1) * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                int lower = lowerBound(i);
+                int middle = lower + (bucketWidth(i) - 1) / 2;
+                return Math.max(min, Math.min(max, middle));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 序列化为紧凑的字节数组，只写非空的桶
+     */
+    public byte[] toBytes() {
+        int buckets = 0;
+        for (long bucket : counts) {
+            if (bucket > 0) {
+                buckets++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 + 8 + 2 + buckets * (2 + 8));
+        buffer.put(FORMAT_VERSION).putInt(min).putInt(max).putLong(sum).putShort((short) buckets);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] > 0) {
+                buffer.putShort((short) i).putLong(counts[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static DurationSketch fromBytes(byte[] bytes) {
+        DurationSketch sketch = new DurationSketch();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.get() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("不支持的草图格式");
+            }
+            int min = buffer.getInt();
+            int max = buffer.getInt();
+            long sum = buffer.getLong();
+            int buckets = buffer.getShort();
+            for (int k = 0; k < buckets; k++) {
+                int index = buffer.getShort();
+                long bucket = buffer.getLong();
+                if (index < 0 || index >= BUCKET_COUNT || bucket < 0) {
+                    throw new IllegalArgumentException("草图数据损坏");
+                }
+                sketch.counts[index] += bucket;
+                sketch.count += bucket;
+            }
+            if (sketch.count > 0) {
+                sketch.min = min;
+                sketch.max = max;
+                sketch.sum = sum;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("草图数据不完整");
+        }
+        return sketch;
+    }
+
+    public DurationSketch copy() {
+        DurationSketch copy = new DurationSketch();
+        copy.merge(this);
+        return copy;
+    }
+
+    static int index(int value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return value;
+        }
+        int shift = 31 - Integer.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static int lowerBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    private static int bucketWidth(int index) {
+        return index < 2 * SUB_BUCKETS ? 1 : 1 << (index / SUB_BUCKETS - 1);
+    }
+}
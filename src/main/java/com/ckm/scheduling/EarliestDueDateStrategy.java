@@ -0,0 +1,33 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionOrder;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 最早交期优先（EDD）：按要求完成日期升序，同日期优先级高的在前
+ */
+@Component
+public class EarliestDueDateStrategy implements SchedulingStrategy {
+
+    static final Comparator<ProductionOrder> DUE_DATE_ORDER = Comparator
+            .comparing(ProductionOrder::getRequiredDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ProductionOrder::getPriority, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    @Override
+    public String getName() {
+        return "EDD";
+    }
+
+    @Override
+    public String getDescription() {
+        return "最早交期优先";
+    }
+
+    @Override
+    public List<ProductionOrder> sequence(List<ProductionOrder> orders) {
+        return orders.stream().sorted(DUE_DATE_ORDER).toList();
+    }
+}
@@ -0,0 +1,106 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.EquipmentUnit;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 设备标识归一化
+ * 步骤上的设备是自由文本，先统一全半角、大小写并去掉空白和连接符，再依次按设备编码、设备名称、设备类型对应到登记的设备单元。
+ * 只有一台的设备类型对应到该设备；有多台的类型作为一组，容量为可用台数；对应不上的保留原文，容量按一台计
+ */
+public final class EquipmentDirectory {
+
+    private final Map<String, Entry> byCode = new HashMap<>();
+
+    private final Map<String, Entry> byName = new HashMap<>();
+
+    private final Map<String, Entry> byType = new HashMap<>();
+
+    private EquipmentDirectory() {
+    }
+
+    /**
+     * @param units 全部设备单元，停用的设备仍参与对应，其历史步骤才能归到正确的设备上
+     */
+    public static EquipmentDirectory of(List<EquipmentUnit> units) {
+        EquipmentDirectory directory = new EquipmentDirectory();
+        Set<String> ambiguousNames = new HashSet<>();
+        Map<String, List<EquipmentUnit>> types = new LinkedHashMap<>();
+        for (EquipmentUnit unit : units) {
+            Entry entry = Entry.of(unit);
+            directory.byCode.put(normalize(unit.getCode()), entry);
+            String name = normalize(unit.getName());
+            if (!name.isEmpty() && directory.byName.putIfAbsent(name, entry) != null) {
+                ambiguousNames.add(name);
+            }
+            if (unit.getEquipmentType() != null) {
+                types.computeIfAbsent(normalize(unit.getEquipmentType()), type -> new ArrayList<>()).add(unit);
+            }
+        }
+        // 重名的设备无法区分，改按设备类型对应
+        ambiguousNames.forEach(directory.byName::remove);
+
+        types.forEach((type, members) -> {
+            if (members.size() == 1) {
+                directory.byType.put(type, Entry.of(members.get(0)));
+                return;
+            }
+            long active = members.stream().filter(unit -> unit.getStatus() == EquipmentUnit.UnitStatus.ACTIVE).count();
+            String name = members.get(0).getEquipmentType().trim();
+            directory.byType.put(type, new Entry(name, name, null, (int) Math.max(active, 1), true));
+        });
+        return directory;
+    }
+
+    public Entry resolve(String equipment) {
+        String key = normalize(equipment);
+        Entry entry = byCode.get(key);
+        if (entry == null) {
+            entry = byName.get(key);
+        }
+        if (entry == null) {
+            entry = byType.get(key);
+        }
+        if (entry == null) {
+            String label = Normalizer.normalize(equipment, Normalizer.Form.NFKC).trim().replaceAll("\\s+", " ");
+            entry = new Entry(key, label, null, 1, false);
+        }
+        return entry;
+    }
+
+    /**
+     * 归一化后的比较键：全角转半角、转大写，去掉空白和"-"、"_"、"#"、"."
+     */
+    public static String normalize(String equipment) {
+        if (equipment == null) {
+            return "";
+        }
+        return Normalizer.normalize(equipment, Normalizer.Form.NFKC)
+                .replaceAll("[\\s\\-_#.]", "")
+                .toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 归一化后的设备
+     *
+     * @param id             设备编码；设备组为类型名，未登记的为归一化后的原文
+     * @param productionLine 固定所在的生产线，为空表示共用或未知
+     * @param capacity       可同时使用的台数
+     * @param registered     是否对应到登记的设备单元或设备类型
+     */
+    public record Entry(String id, String name, String productionLine, int capacity, boolean registered) {
+
+        static Entry of(EquipmentUnit unit) {
+            return new Entry(unit.getCode(), unit.getName(), unit.getProductionLine(), 1, true);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.ckm.scheduling;
+
+import com.ckm.dto.EquipmentUtilizationDTO;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 单台设备（或同类型设备组）的占用时间轴
+ * 步骤占用须按开始时间升序加入：相互重叠的占用合并为忙碌区间，区间结束后立即分摊到各开工时段并记下空闲时段，
+ * 只保留仍在占用的步骤，内存与步骤数无关。步骤开始时在用的步骤已达到容量即记为超容量占用
+ */
+public class EquipmentTimeline {
+
+    private final EquipmentDirectory.Entry equipment;
+
+    private final int minIdleMinutes;
+
+    private final int maxViolations;
+
+    private final List<ShiftUsage> shifts = new ArrayList<>();
+
+    // 忙碌区间已分摊到的时段，之前的时段已结束
+    private int shiftIndex;
+
+    // 超容量占用按开始时间归属的时段
+    private int violationShiftIndex;
+
+    private final List<Active> active = new ArrayList<>();
+
+    private final List<EquipmentUtilizationDTO.Violation> violations = new ArrayList<>();
+
+    private LocalDateTime busyStart;
+
+    private LocalDateTime busyEnd;
+
+    private LocalDateTime overlapStart;
+
+    private LocalDateTime overlapEnd;
+
+    private LocalDateTime lastStart;
+
+    private long stepCount;
+
+    private long offShiftMinutes;
+
+    private long overlapMinutes;
+
+    private long violationCount;
+
+    /**
+     * @param windows        统计范围内的开工时段，按开始时间排序且互不重叠
+     * @param minIdleMinutes 短于此值的空闲不单独列出
+     * @param maxViolations  最多保留的超容量占用明细条数
+     */
+    public EquipmentTimeline(EquipmentDirectory.Entry equipment, List<ShiftCalendar.Window> windows,
+                             int minIdleMinutes, int maxViolations) {
+        this.equipment = equipment;
+        this.minIdleMinutes = Math.max(minIdleMinutes, 1);
+        this.maxViolations = maxViolations;
+        for (ShiftCalendar.Window window : windows) {
+            shifts.add(new ShiftUsage(truncate(window.start()), truncate(window.end())));
+        }
+    }
+
+    /**
+     * 加入一个步骤的占用，时间按分钟截断
+     *
+     * @throws IllegalArgumentException 开始时间早于上一次加入的步骤
+     */
+    public void add(Long stepId, LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime start = truncate(startTime);
+        LocalDateTime end = truncate(endTime);
+        if (lastStart != null && start.isBefore(lastStart)) {
+            throw new IllegalArgumentException("步骤占用须按开始时间升序加入");
+        }
+        lastStart = start;
+        if (!end.isAfter(start)) {
+            return;
+        }
+        stepCount++;
+
+        active.removeIf(occupied -> !occupied.end().isAfter(start));
+        if (active.size() >= equipment.capacity()) {
+            // 在用步骤中第capacity晚结束的那个结束后，同时占用才回到容量以内
+            List<Active> byEnd = new ArrayList<>(active);
+            byEnd.sort(Comparator.comparing(Active::end).reversed());
+            LocalDateTime until = min(end, byEnd.get(equipment.capacity() - 1).end());
+            recordViolation(stepId, byEnd.get(0).stepId(), start, until);
+        }
+        active.add(new Active(stepId, end));
+
+        if (busyEnd != null && !start.isAfter(busyEnd)) {
+            busyEnd = max(busyEnd, end);
+        } else {
+            flushBusy();
+            busyStart = start;
+            busyEnd = end;
+        }
+    }
+
+    public EquipmentUtilizationDTO finish() {
+        flushBusy();
+        flushOverlap();
+        while (shiftIndex < shifts.size()) {
+            shifts.get(shiftIndex++).close();
+        }
+
+        long shiftMinutes = 0;
+        long busyMinutes = 0;
+        List<EquipmentUtilizationDTO.Shift> shiftReports = new ArrayList<>(shifts.size());
+        for (ShiftUsage shift : shifts) {
+            long minutes = minutes(shift.start, shift.end);
+            shiftMinutes += minutes;
+            busyMinutes += shift.busyMinutes;
+            shiftReports.add(new EquipmentUtilizationDTO.Shift(shift.start, shift.end, minutes, shift.busyMinutes,
+                    minutes - shift.busyMinutes, percent(shift.busyMinutes, minutes), shift.violationCount,
+                    List.copyOf(shift.idleWindows)));
+        }
+
+        return EquipmentUtilizationDTO.builder()
+                .equipment(equipment.id())
+                .name(equipment.name())
+                .productionLine(equipment.productionLine())
+                .registered(equipment.registered())
+                .capacity(equipment.capacity())
+                .stepCount(stepCount)
+                .shiftMinutes(shiftMinutes)
+                .busyMinutes(busyMinutes)
+                .idleMinutes(shiftMinutes - busyMinutes)
+                .offShiftMinutes(offShiftMinutes)
+                .overlapMinutes(overlapMinutes)
+                .busyPercent(percent(busyMinutes, shiftMinutes))
+                .violationCount(violationCount)
+                .violations(List.copyOf(violations))
+                .shifts(shiftReports)
+                .build();
+    }
+
+    private void recordViolation(Long stepId, Long conflictingStepId, LocalDateTime start, LocalDateTime end) {
+        violationCount++;
+        if (violations.size() < maxViolations) {
+            violations.add(new EquipmentUtilizationDTO.Violation(stepId, conflictingStepId, start, end));
+        }
+        while (violationShiftIndex < shifts.size() && !shifts.get(violationShiftIndex).end.isAfter(start)) {
+            violationShiftIndex++;
+        }
+        if (violationShiftIndex < shifts.size() && !shifts.get(violationShiftIndex).start.isAfter(start)) {
+            shifts.get(violationShiftIndex).violationCount++;
+        }
+
+        if (overlapEnd != null && !start.isAfter(overlapEnd)) {
+            overlapEnd = max(overlapEnd, end);
+        } else {
+            flushOverlap();
+            overlapStart = start;
+            overlapEnd = end;
+        }
+    }
+
+    /**
+     * 把已结束的忙碌区间分摊到开工时段，落在时段外的部分计为班次外占用
+     */
+    private void flushBusy() {
+        if (busyStart == null) {
+            return;
+        }
+        long inShift = 0;
+        while (shiftIndex < shifts.size()) {
+            ShiftUsage shift = shifts.get(shiftIndex);
+            if (!shift.end.isAfter(busyStart)) {
+                shift.close();
+                shiftIndex++;
+                continue;
+            }
+            if (!shift.start.isBefore(busyEnd)) {
+                break;
+            }
+            LocalDateTime from = max(busyStart, shift.start);
+            LocalDateTime to = min(busyEnd, shift.end);
+            shift.occupy(from, to);
+            inShift += minutes(from, to);
+            if (shift.end.isAfter(busyEnd)) {
+                break;
+            }
+            shift.close();
+            shiftIndex++;
+        }
+        offShiftMinutes += minutes(busyStart, busyEnd) - inShift;
+        busyStart = null;
+        busyEnd = null;
+    }
+
+    private void flushOverlap() {
+        if (overlapStart != null) {
+            overlapMinutes += minutes(overlapStart, overlapEnd);
+            overlapStart = null;
+            overlapEnd = null;
+        }
+    }
+
+    private static double percent(long part, long base) {
+        return base == 0 ? 0.0 : Math.round(part * 10000.0 / base) / 100.0;
+    }
+
+    private static long minutes(LocalDateTime from, LocalDateTime to) {
+        return Duration.between(from, to).toMinutes();
+    }
+
+    private static LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private record Active(Long stepId, LocalDateTime end) {
+    }
+
+    /**
+     * 开工时段的累计占用，cursor之前的部分已统计
+     */
+    private final class ShiftUsage {
+
+        private final LocalDateTime start;
+
+        private final LocalDateTime end;
+
+        private LocalDateTime cursor;
+
+        private long busyMinutes;
+
+        private int violationCount;
+
+        private final List<EquipmentUtilizationDTO.Window> idleWindows = new ArrayList<>();
+
+        ShiftUsage(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+            this.cursor = start;
+        }
+
+        void occupy(LocalDateTime from, LocalDateTime to) {
+            idle(from);
+            busyMinutes += minutes(from, to);
+            cursor = to;
+        }
+
+        void close() {
+            idle(end);
+        }
+
+        private void idle(LocalDateTime until) {
+            if (minutes(cursor, until) >= minIdleMinutes) {
+                idleWindows.add(new EquipmentUtilizationDTO.Window(cursor, until));
+            }
+            cursor = until;
+        }
+    }
+}
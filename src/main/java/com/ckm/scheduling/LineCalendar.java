@@ -0,0 +1,307 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionSchedule;
+import com.ckm.event.ProductionLineChangedEvent;
+import com.ckm.repository.ProductionScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 生产线日历
+ * 在内存中维护各生产线未取消排程的占用区间，排程时一次加载，之后的空闲时段查找不再访问数据库。
+ * 每次加载返回独立的只读快照，排程在快照上计算；共享日历的窗口只扩展，并发的加载不会互相替换对方的窗口
+ */
+@Component
+public class LineCalendar {
+
+    @Autowired
+    private ProductionScheduleRepository productionScheduleRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, LineTimeline> timelines = new HashMap<>();
+
+    private LocalDateTime windowStart;
+
+    private LocalDateTime windowEnd;
+
+    // 每次修改共享日历递增，加载期间发生修改时不合并加载结果
+    private long modifications;
+
+    /**
+     * 从数据库加载时间窗口内的排程，返回本次调用专用的只读快照
+     * 共享日历只扩展不替换：为空或与加载窗口相交、相接时合并为更大的窗口，加载窗口内以新读取的排程为准；
+     * 读取期间共享日历发生过变更时不合并，避免以旧数据覆盖其他调用方刚同步的排程
+     */
+    public Snapshot load(LocalDateTime from, LocalDateTime to) {
+        long seen = modifications();
+        Snapshot loaded = read(from, to);
+        publish(loaded, seen);
+        return loaded;
+    }
+
+    /**
+     * 共享日历已覆盖时间窗口时直接复制其内容，否则从数据库加载
+     */
+    public Snapshot snapshot(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.toLocalDate().atStartOfDay();
+        lock.readLock().lock();
+        try {
+            if (windowStart != null && !start.isBefore(windowStart) && !to.isAfter(windowEnd)) {
+                return new Snapshot(start, to, timelines.values());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return load(from, to);
+    }
+
+    /**
+     * 从数据库读取与时间窗口相交的排程，只返回快照，不修改共享日历
+     * 按占用区间相交查询，窗口开始前已开工、仍占用生产线的排程也会加载
+     */
+    public Snapshot read(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.toLocalDate().atStartOfDay();
+        Map<String, LineTimeline> loaded = new HashMap<>();
+        for (Object[] row : productionScheduleRepository.findLineBookingsInRange(
+                start, to, ProductionSchedule.ScheduleStatus.CANCELLED)) {
+            loaded.computeIfAbsent((String) row[1], LineTimeline::new)
+                    .add((Long) row[0], (LocalDateTime) row[2], (LocalDateTime) row[3]);
+        }
+        return new Snapshot(start, to, loaded.values());
+    }
+
+    private void publish(Snapshot loaded, long seen) {
+        lock.writeLock().lock();
+        try {
+            if (modifications != seen) {
+                return;
+            }
+            if (windowStart != null) {
+                if (loaded.windowStart.isAfter(windowEnd) || loaded.windowEnd.isBefore(windowStart)) {
+                    return; // 与共享窗口之间有未加载的空档，保留原窗口
+                }
+                for (LineTimeline timeline : timelines.values()) {
+                    timeline.removeStartingBetween(loaded.windowStart, loaded.windowEnd);
+                }
+            }
+            for (LineTimeline timeline : loaded.timelines.values()) {
+                LineTimeline shared = timeline(timeline.getProductionLine());
+                for (LineTimeline.Interval interval : timeline.intervals()) {
+                    shared.add(interval.scheduleId(), interval.start(), interval.end());
+                }
+            }
+            windowStart = windowStart == null || loaded.windowStart.isBefore(windowStart) ? loaded.windowStart : windowStart;
+            windowEnd = windowEnd == null || loaded.windowEnd.isAfter(windowEnd) ? loaded.windowEnd : windowEnd;
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long modifications() {
+        lock.readLock().lock();
+        try {
+            return modifications;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 日历是否覆盖指定时间段
+     */
+    public boolean covers(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            return windowStart != null && !from.isBefore(windowStart) && !to.isAfter(windowEnd);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 清空日历，下次排程时重新加载
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            timelines.clear();
+            windowStart = null;
+            windowEnd = null;
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 日历按生产线名称组织，生产线改名后重新加载
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionLineChanged(ProductionLineChangedEvent event) {
+        invalidate();
+    }
+
+    /**
+     * 同步排程变更：已取消的排程移出日历，其余按最新时间段更新
+     */
+    public void upsert(ProductionSchedule schedule) {
+        upsertAll(List.of(schedule));
+    }
+
+    /**
+     * 批量同步排程变更，整批只加一次写锁
+     */
+    public void upsertAll(Collection<ProductionSchedule> schedules) {
+        lock.writeLock().lock();
+        try {
+            modifications++;
+            if (windowStart == null) {
+                return;
+            }
+            for (ProductionSchedule schedule : schedules) {
+                timelines.values().forEach(timeline -> timeline.remove(schedule.getId()));
+                if (schedule.getStatus() != ProductionSchedule.ScheduleStatus.CANCELLED
+                        && schedule.getEndTime().isAfter(windowStart)
+                        && schedule.getStartTime().isBefore(windowEnd)) {
+                    timeline(schedule.getProductionLine())
+                            .add(schedule.getId(), schedule.getStartTime(), schedule.getEndTime());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        invalidateOnRollback();
+    }
+
+    public void remove(Long scheduleId) {
+        lock.writeLock().lock();
+        try {
+            modifications++;
+            timelines.values().forEach(timeline -> timeline.remove(scheduleId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        invalidateOnRollback();
+    }
+
+    /**
+     * 检查生产线在时间段内是否空闲
+     */
+    public boolean isFree(String productionLine, LocalDateTime start, LocalDateTime end) {
+        lock.readLock().lock();
+        try {
+            LineTimeline timeline = timelines.get(productionLine);
+            return timeline == null || timeline.isFree(start, end);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 在给定生产线中查找after之后最早可容纳durationMinutes的空闲时段
+     * 多条生产线同时可用时按传入顺序优先
+     */
+    public Optional<Slot> findFirstFreeSlot(Collection<String> productionLines, LocalDateTime after, int durationMinutes) {
+        lock.readLock().lock();
+        try {
+            if (windowStart == null) {
+                return Optional.empty();
+            }
+            LocalDateTime latestStart = windowEnd.minusMinutes(durationMinutes);
+            Slot best = null;
+            for (String line : productionLines) {
+                LineTimeline timeline = timelines.get(line);
+                LocalDateTime start = timeline == null
+                        ? (after.isAfter(latestStart) ? null : after)
+                        : timeline.firstFit(after, durationMinutes, latestStart);
+                if (start != null && (best == null || start.isBefore(best.startTime()))) {
+                    best = new Slot(line, start, start.plusMinutes(durationMinutes));
+                }
+            }
+            return Optional.ofNullable(best);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private LineTimeline timeline(String productionLine) {
+        return timelines.computeIfAbsent(productionLine, LineTimeline::new);
+    }
+
+    /**
+     * 事务回滚时日历中的变更已失效，整体清空以便下次重新加载
+     */
+    private void invalidateOnRollback() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        invalidate();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 可用时段
+     */
+    public record Slot(String productionLine, LocalDateTime startTime, LocalDateTime endTime) {
+    }
+
+    /**
+     * 一次加载的只读快照，创建后不再随共享日历变化
+     * timelines每次返回副本，调用方在副本上试排不会影响快照本身
+     */
+    public static final class Snapshot {
+
+        private final LocalDateTime windowStart;
+
+        private final LocalDateTime windowEnd;
+
+        private final Map<String, LineTimeline> timelines = new HashMap<>();
+
+        public Snapshot(LocalDateTime windowStart, LocalDateTime windowEnd, Collection<LineTimeline> timelines) {
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            for (LineTimeline timeline : timelines) {
+                this.timelines.put(timeline.getProductionLine(), timeline.copy());
+            }
+        }
+
+        public LocalDateTime getWindowStart() {
+            return windowStart;
+        }
+
+        public LocalDateTime getWindowEnd() {
+            return windowEnd;
+        }
+
+        /**
+         * 指定生产线时间轴的副本，没有占用的生产线返回空时间轴
+         */
+        public Map<String, LineTimeline> timelines(Collection<String> productionLines) {
+            Map<String, LineTimeline> copies = new LinkedHashMap<>();
+            for (String line : productionLines) {
+                LineTimeline timeline = timelines.get(line);
+                copies.put(line, timeline != null ? timeline.copy() : new LineTimeline(line));
+            }
+            return copies;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.ckm.scheduling;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * 单条生产线的占用时间轴
+ * 按开始时间有序保存占用区间，冲突检查和空闲时段查找只扫描查询点附近的区间
+ */
+public class LineTimeline {
+
+    private static final Comparator<Interval> ORDER = Comparator
+            .comparing(Interval::start)
+            .thenComparingLong(Interval::key);
+
+    private final String productionLine;
+
+    private final TreeSet<Interval> intervals = new TreeSet<>(ORDER);
+
+    private final Map<Long, Interval> byKey = new HashMap<>();
+
+    // 已知最长区间时长，用于确定向前回溯的范围（历史数据中可能存在重叠区间）
+    private long maxDurationMinutes;
+
+    private long syntheticKey = -1;
+
+    public LineTimeline(String productionLine) {
+        this.productionLine = productionLine;
+    }
+
+    public String getProductionLine() {
+        return productionLine;
+    }
+
+    public int size() {
+        return intervals.size();
+    }
+
+    /**
+     * 添加或替换排程占用区间
+     */
+    public void add(Long scheduleId, LocalDateTime start, LocalDateTime end) {
+        if (scheduleId != null) {
+            remove(scheduleId);
+        }
+        long key = scheduleId != null ? scheduleId : syntheticKey--;
+        Interval interval = new Interval(key, scheduleId, start, end);
+        intervals.add(interval);
+        byKey.put(key, interval);
+        maxDurationMinutes = Math.max(maxDurationMinutes, Duration.between(start, end).toMinutes());
+    }
+
+    /**
+     * 添加未落库的临时占用区间（如批量排程中尚未写入的排程）
+     */
+    public void reserve(LocalDateTime start, LocalDateTime end) {
+        add(null, start, end);
+    }
+
+    public void remove(Long scheduleId) {
+        Interval existing = byKey.remove(scheduleId);
+        if (existing != null) {
+            intervals.remove(existing);
+        }
+    }
+
+    /**
+     * 移除开始时间在[from, to]内的排程占用，临时占用保留
+     */
+    public void removeStartingBetween(LocalDateTime from, LocalDateTime to) {
+        Interval lower = new Interval(Long.MIN_VALUE, null, from, from);
+        Interval upper = new Interval(Long.MAX_VALUE, null, to, to);
+        Iterator<Interval> iterator = intervals.subSet(lower, true, upper, true).iterator();
+        while (iterator.hasNext()) {
+            Interval interval = iterator.next();
+            if (interval.scheduleId() != null) {
+                iterator.remove();
+                byKey.remove(interval.key());
+            }
+        }
+    }
+
+    /**
+     * 按开始时间排序的全部占用区间（只读）
+     */
+    public Collection<Interval> intervals() {
+        return Collections.unmodifiableSet(intervals);
+    }
+
+    /**
+     * 检查时间段是否空闲
+     */
+    public boolean isFree(LocalDateTime start, LocalDateTime end) {
+        for (Interval interval : candidatesFrom(start)) {
+            if (!interval.start().isBefore(end)) {
+                return true;
+            }
+            if (interval.end().isAfter(start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 查找不早于after、时长为durationMinutes的第一个空闲时段
+     *
+     * @param latestStart 允许的最晚开始时间，超出返回null
+     */
+    public LocalDateTime firstFit(LocalDateTime after, int durationMinutes, LocalDateTime latestStart) {
+        LocalDateTime candidate = after;
+        for (Interval interval : candidatesFrom(after)) {
+            if (candidate.isAfter(latestStart)) {
+                return null;
+            }
+            if (!interval.start().isBefore(candidate.plusMinutes(durationMinutes))) {
+                return candidate;
+            }
+            if (interval.end().isAfter(candidate)) {
+                candidate = interval.end();
+            }
+        }
+        return candidate.isAfter(latestStart) ? null : candidate;
+    }
+
+    /**
+     * 复制时间轴，供模拟排程在不影响共享日历的情况下试算
+     */
+    public LineTimeline copy() {
+        LineTimeline copy = new LineTimeline(productionLine);
+        copy.intervals.addAll(intervals);
+        copy.byKey.putAll(byKey);
+        copy.maxDurationMinutes = maxDurationMinutes;
+        copy.syntheticKey = syntheticKey;
+        return copy;
+    }
+
+    private NavigableSet<Interval> candidatesFrom(LocalDateTime time) {
+        Interval probe = new Interval(Long.MIN_VALUE, null, time.minusMinutes(maxDurationMinutes), time);
+        return intervals.tailSet(probe, true);
+    }
+
+    /**
+     * 占用区间，key为排程ID或临时占用的负序号
+     */
+    public record Interval(long key, Long scheduleId, LocalDateTime start, LocalDateTime end) {
+    }
+}
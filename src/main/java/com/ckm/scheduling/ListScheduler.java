@@ -0,0 +1,197 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量列表排程
+ * 订单按优先级从高到低、同优先级按要求完成日期从早到晚依次排入，每个订单放到能最早完工的生产线上。
+ * 全程在日历快照上计算，不访问数据库
+ */
+@Component
+public class ListScheduler {
+
+    // 同一生产线相邻排程之间的换线间隔（分钟）
+    public static final int CHANGEOVER_MINUTES = 15;
+
+    /**
+     * 排程顺序：优先级高的在前，同优先级按要求完成日期升序
+     */
+    public static final Comparator<ProductionOrder> PRIORITY_ORDER = Comparator
+            .comparing(ProductionOrder::getPriority, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(ProductionOrder::getRequiredDate, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    /**
+     * 在日历快照上为订单分配生产线和时段
+     * 订单只排到具备所需设备的生产线，生产时长取配方烹饪时间（有工时统计时为估算时长）与按生产线产能计算时长中的较大者，
+     * 并须落在生产线的同一开工时段内；排程窗口内放不下或缺少生产标准的订单不出现在结果中
+     */
+    public List<Assignment> schedule(List<ProductionOrder> orders, List<ProductionLine> productionLines,
+                                     LineCalendar.Snapshot calendar, LocalDateTime startDate) {
+        return schedule(orders, productionLines, calendar, startDate, null);
+    }
+
+    /**
+     * 同时校验设备单元和员工占用的排程，resources为空时只考虑生产线
+     */
+    public List<Assignment> schedule(List<ProductionOrder> orders, List<ProductionLine> productionLines,
+                                     LineCalendar.Snapshot calendar, LocalDateTime startDate, ResourcePlan resources) {
+        if (productionLines.isEmpty()) {
+            return List.of();
+        }
+        Map<String, LineTimeline> timelines = calendar.timelines(
+                productionLines.stream().map(ProductionLine::getName).toList());
+
+        List<ProductionOrder> sorted = new ArrayList<>(orders);
+        sorted.sort(PRIORITY_ORDER);
+        return assign(sorted, productionLines, timelines, resources, startDate, calendar.getWindowEnd(), false);
+    }
+
+    /**
+     * 按给定顺序依次把订单放到能最早完工的生产线上，会在传入的时间轴上预留时段
+     * 同一生产线上前后两单生产标准相同时不需要换线间隔
+     *
+     * @param preferSameStandard 为true时，完工时间相差不超过一次换线间隔的生产线中优先选择上一单生产标准相同的
+     */
+    public List<Assignment> assign(List<ProductionOrder> sequence, List<ProductionLine> productionLines,
+                                   Map<String, LineTimeline> timelines, LocalDateTime startDate,
+                                   LocalDateTime windowEnd, boolean preferSameStandard) {
+        return assign(sequence, productionLines, timelines, null, startDate, windowEnd, preferSameStandard);
+    }
+
+    /**
+     * 按给定顺序分配，resources不为空时只在生产线、所需设备单元和具备技能的员工同时空闲的时段落位，并占用这些资源
+     */
+    public List<Assignment> assign(List<ProductionOrder> sequence, List<ProductionLine> productionLines,
+                                   Map<String, LineTimeline> timelines, ResourcePlan resources, LocalDateTime startDate,
+                                   LocalDateTime windowEnd, boolean preferSameStandard) {
+        // 各生产线上一单的完工时间和生产标准
+        Map<String, LocalDateTime> lastEnds = new HashMap<>();
+        Map<String, Long> lastStandards = new HashMap<>();
+        Map<String, ShiftCalendar> shiftCalendars = new HashMap<>();
+        for (ProductionLine line : productionLines) {
+            shiftCalendars.put(line.getName(), ShiftCalendar.of(line.getShifts()));
+        }
+
+        List<Assignment> assignments = new ArrayList<>(sequence.size());
+        for (ProductionOrder order : sequence) {
+            ProductionStandard standard = order.getProductionStandard();
+            if (standard == null || standard.getCookingTime() == null) {
+                continue;
+            }
+
+            Assignment best = null;
+            long bestRank = Long.MAX_VALUE;
+            for (ProductionLine line : productionLines) {
+                if (!line.supportsEquipment(standard.getEquipmentRequired())) {
+                    continue;
+                }
+                String name = line.getName();
+                boolean sameStandard = standard.getId() != null && standard.getId().equals(lastStandards.get(name));
+                LocalDateTime lastEnd = lastEnds.get(name);
+                LocalDateTime readyTime = lastEnd == null ? startDate
+                        : sameStandard ? lastEnd : lastEnd.plusMinutes(CHANGEOVER_MINUTES);
+                int duration = durationOn(line, order, standard);
+                LocalDateTime start = findStart(timelines.get(name), shiftCalendars.get(name), resources,
+                        standard.getEquipmentRequired(), name, readyTime, duration, windowEnd.minusMinutes(duration));
+                if (start == null) {
+                    continue;
+                }
+                // 各生产线产能不同，选择最早完工的生产线
+                long rank = Duration.between(startDate, start.plusMinutes(duration)).toMinutes();
+                if (preferSameStandard && sameStandard) {
+                    rank -= CHANGEOVER_MINUTES;
+                }
+                if (best == null || rank < bestRank) {
+                    best = new Assignment(order, name, start, start.plusMinutes(duration));
+                    bestRank = rank;
+                }
+            }
+            if (best == null) {
+                continue; // 排程窗口内无法安排
+            }
+
+            if (resources != null) {
+                ResourcePlan.Reservation reservation = resources.reserve(standard.getEquipmentRequired(),
+                        best.productionLine(), best.startTime(), best.endTime());
+                if (reservation == null) {
+                    continue;
+                }
+                best = new Assignment(order, best.productionLine(), best.startTime(), best.endTime(), reservation);
+            }
+            timelines.get(best.productionLine()).reserve(best.startTime(), best.endTime());
+            lastEnds.put(best.productionLine(), best.endTime());
+            lastStandards.put(best.productionLine(), standard.getId());
+            assignments.add(best);
+        }
+        return assignments;
+    }
+
+    /**
+     * 订单在指定生产线上的生产时长（分钟）
+     */
+    static int durationOn(ProductionLine line, ProductionOrder order, ProductionStandard standard) {
+        int quantity = order.getQuantity() != null ? order.getQuantity() : 0;
+        return Math.max(standard.getPlanningMinutes(), line.processingMinutes(quantity));
+    }
+
+    /**
+     * 交替对齐班次和跳过已占用区间，直到找到既在开工时段内又空闲的开始时间
+     */
+    static LocalDateTime findStart(LineTimeline timeline, ShiftCalendar shifts, LocalDateTime after,
+                                    int duration, LocalDateTime latestStart) {
+        return findStart(timeline, shifts, null, null, null, after, duration, latestStart);
+    }
+
+    /**
+     * 在班次、生产线占用和资源占用之间交替推进，直到三者在同一时段都满足
+     */
+    static LocalDateTime findStart(LineTimeline timeline, ShiftCalendar shifts, ResourcePlan resources,
+                                   String equipmentRequired, String productionLine, LocalDateTime after,
+                                   int duration, LocalDateTime latestStart) {
+        LocalDateTime candidate = after;
+        while (true) {
+            LocalDateTime inShift = shifts.alignStart(candidate, duration, latestStart);
+            if (inShift == null) {
+                return null;
+            }
+            LocalDateTime free = timeline.firstFit(inShift, duration, latestStart);
+            if (free == null) {
+                return null;
+            }
+            if (!free.equals(inShift)) {
+                candidate = free;
+                continue;
+            }
+            if (resources == null) {
+                return free;
+            }
+            LocalDateTime available = resources.earliestStart(equipmentRequired, productionLine, free, duration, latestStart);
+            if (available == null || available.equals(free)) {
+                return available;
+            }
+            candidate = available;
+        }
+    }
+
+    /**
+     * 订单排程结果，resources为占用的设备单元和员工，未校验资源时为空
+     */
+    public record Assignment(ProductionOrder order, String productionLine, LocalDateTime startTime, LocalDateTime endTime,
+                             ResourcePlan.Reservation resources) {
+
+        public Assignment(ProductionOrder order, String productionLine, LocalDateTime startTime, LocalDateTime endTime) {
+            this(order, productionLine, startTime, endTime, null);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ckm.scheduling;
+
+import java.util.Arrays;
+
+/**
+ * 按分钟记录的占用位图
+ * 第i位表示窗口起点之后第i分钟是否被占用，区间判断和查找按64位字整体与运算，超出窗口的部分视为空闲。
+ * 已有排程可能重复占用同一分钟（历史数据中的重叠），出现重复占用后按分钟记录占用次数，
+ * 释放只减去一次占用，次数归零才清除占用位，不会释放其他排程仍占用的分钟
+ */
+public final class OccupancyBitmap {
+
+    private final long[] words;
+
+    private final int size;
+
+    // 每分钟的占用次数，第一次出现重复占用时才分配，为空时每个占用位计一次
+    private int[] counts;
+
+    public OccupancyBitmap(int minutes) {
+        this.size = Math.max(minutes, 0);
+        this.words = new long[(this.size + 63) >>> 6];
+    }
+
+    private OccupancyBitmap(long[] words, int size, int[] counts) {
+        this.words = words;
+        this.size = size;
+        this.counts = counts;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * [from, to)内是否全部空闲
+     */
+    public boolean isFree(int from, int to) {
+        return nextSet(from, to) < 0;
+    }
+
+    public void occupy(int from, int to) {
+        int start = Math.max(from, 0);
+        int end = Math.min(to, size);
+        if (start >= end) {
+            return;
+        }
+        if (counts == null && nextSet(start, end) >= 0) {
+            countOccupied();
+        }
+        if (counts != null) {
+            for (int i = start; i < end; i++) {
+                counts[i]++;
+            }
+        }
+        apply(start, end, true);
+    }
+
+    /**
+     * 释放一次[from, to)内的占用，同一分钟还有其他占用时保持占用
+     */
+    public void release(int from, int to) {
+        if (counts == null) {
+            apply(from, to, false);
+            return;
+        }
+        int end = Math.min(to, size);
+        for (int i = Math.max(from, 0); i < end; i++) {
+            if (counts[i] > 0 && --counts[i] == 0) {
+                words[i >>> 6] &= ~(1L << (i & 63));
+            }
+        }
+    }
+
+    /**
+     * 不早于from、连续空闲length分钟的最早起点
+     */
+    public int nextFreeRun(int from, int length) {
+        int start = Math.max(from, 0);
+        while (true) {
+            int set = nextSet(start, start + length);
+            if (set < 0) {
+                return start;
+            }
+            start = nextClear(set + 1);
+        }
+    }
+
+    /**
+     * 已占用分钟数
+     */
+    public int occupiedMinutes() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public OccupancyBitmap copy() {
+        return new OccupancyBitmap(Arrays.copyOf(words, words.length), size,
+                counts != null ? Arrays.copyOf(counts, counts.length) : null);
+    }
+
+    /**
+     * 按当前占用位建立占用次数，此前每个占用位只有一次占用
+     */
+    private void countOccupied() {
+        counts = new int[size];
+        for (int w = 0; w < words.length; w++) {
+            long bits = words[w];
+            while (bits != 0) {
+                counts[(w << 6) + Long.numberOfTrailingZeros(bits)] = 1;
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * [from, to)内第一个占用位，没有返回-1
+     */
+    private int nextSet(int from, int to) {
+        int start = Math.max(from, 0);
+        int end = Math.min(to, size);
+        if (start >= end) {
+            return -1;
+        }
+        int firstWord = start >>> 6;
+        int lastWord = (end - 1) >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            long mask = -1L;
+            if (w == firstWord) {
+                mask &= -1L << (start & 63);
+            }
+            if (w == lastWord) {
+                mask &= -1L >>> (63 - ((end - 1) & 63));
+            }
+            long hits = words[w] & mask;
+            if (hits != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(hits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 不早于from的第一个空闲位，窗口之外均为空闲
+     */
+    private int nextClear(int from) {
+        int w = from >>> 6;
+        if (from >= size) {
+            return from;
+        }
+        long free = ~words[w] & (-1L << (from & 63));
+        while (free == 0) {
+            if (++w >= words.length) {
+                return Math.max(from, size);
+            }
+            free = ~words[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(free);
+    }
+
+    private void apply(int from, int to, boolean occupied) {
+        int start = Math.max(from, 0);
+        int end = Math.min(to, size);
+        if (start >= end) {
+            return;
+        }
+        int firstWord = start >>> 6;
+        int lastWord = (end - 1) >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            long mask = -1L;
+            if (w == firstWord) {
+                mask &= -1L << (start & 63);
+            }
+            if (w == lastWord) {
+                mask &= -1L >>> (63 - ((end - 1) & 63));
+            }
+            words[w] = occupied ? words[w] | mask : words[w] & ~mask;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 订单需求合并
+ * 生产标准相同、特殊要求一致且要求完成时间落在同一窗口内的订单合并生产，
+ * 合并后按可用生产线的单批次最大产量切分批次，并记录每个批次中各订单所占数量。
+ * 纯内存计算，不访问数据库
+ */
+@Component
+public class OrderConsolidator {
+
+    /**
+     * 合并订单
+     * 窗口从组内最早的要求完成时间算起，超出窗口的订单开始新的一组；
+     * 缺少生产标准、数量无效或没有生产线具备所需设备的订单不出现在结果中
+     *
+     * @param window 可合并的要求完成时间跨度
+     */
+    public List<ConsolidatedBatch> consolidate(List<ProductionOrder> orders, List<ProductionLine> productionLines, Duration window) {
+        Map<GroupKey, List<ProductionOrder>> groups = new LinkedHashMap<>();
+        for (ProductionOrder order : orders) {
+            ProductionStandard standard = order.getProductionStandard();
+            if (standard == null || order.getQuantity() == null || order.getQuantity() <= 0 || order.getRequiredDate() == null) {
+                continue;
+            }
+            groups.computeIfAbsent(new GroupKey(standard.getId(), instructionKey(order.getSpecialInstructions())),
+                    key -> new ArrayList<>()).add(order);
+        }
+
+        List<ConsolidatedBatch> batches = new ArrayList<>();
+        for (List<ProductionOrder> group : groups.values()) {
+            ProductionStandard standard = group.get(0).getProductionStandard();
+            int maxBatch = maxBatchQuantity(productionLines, standard.getEquipmentRequired());
+            if (maxBatch <= 0) {
+                continue;
+            }
+
+            group.sort(Comparator.comparing(ProductionOrder::getRequiredDate).thenComparing(ListScheduler.PRIORITY_ORDER));
+            List<ProductionOrder> cluster = new ArrayList<>();
+            LocalDateTime windowEnd = null;
+            for (ProductionOrder order : group) {
+                if (windowEnd != null && order.getRequiredDate().isAfter(windowEnd)) {
+                    pack(cluster, maxBatch, batches);
+                    cluster = new ArrayList<>();
+                }
+                if (cluster.isEmpty()) {
+                    windowEnd = order.getRequiredDate().plus(window);
+                }
+                cluster.add(order);
+            }
+            pack(cluster, maxBatch, batches);
+        }
+
+        batches.sort(Comparator.comparing(ConsolidatedBatch::requiredDate)
+                .thenComparing(ConsolidatedBatch::priority, Comparator.nullsLast(Comparator.reverseOrder())));
+        return batches;
+    }
+
+    /**
+     * 按要求完成时间顺序装入批次，装满即切分；单个订单超过剩余容量时拆到下一批次
+     */
+    private void pack(List<ProductionOrder> cluster, int maxBatch, List<ConsolidatedBatch> batches) {
+        List<Allocation> allocations = new ArrayList<>();
+        int filled = 0;
+        for (ProductionOrder order : cluster) {
+            int remaining = order.getQuantity();
+            while (remaining > 0) {
+                int quantity = Math.min(remaining, maxBatch - filled);
+                allocations.add(new Allocation(order, quantity));
+                filled += quantity;
+                remaining -= quantity;
+                if (filled == maxBatch) {
+                    batches.add(ConsolidatedBatch.of(allocations, filled));
+                    allocations = new ArrayList<>();
+                    filled = 0;
+                }
+            }
+        }
+        if (!allocations.isEmpty()) {
+            batches.add(ConsolidatedBatch.of(allocations, filled));
+        }
+    }
+
+    /**
+     * 具备所需设备的生产线中单批次最大产量的最大值，未设置上限视为不限，没有可用生产线时返回0
+     */
+    static int maxBatchQuantity(List<ProductionLine> productionLines, String equipmentRequired) {
+        int max = 0;
+        for (ProductionLine line : productionLines) {
+            if (!line.supportsEquipment(equipmentRequired)) {
+                continue;
+            }
+            Integer limit = line.getMaxBatchQuantity();
+            max = Math.max(max, limit == null || limit <= 0 ? Integer.MAX_VALUE : limit);
+        }
+        return max;
+    }
+
+    /**
+     * 特殊要求完全一致（忽略空白）的订单才可合并，没有特殊要求的订单彼此兼容
+     */
+    static String instructionKey(String specialInstructions) {
+        return specialInstructions == null ? "" : specialInstructions.replaceAll("\\s+", "");
+    }
+
+    private record GroupKey(Long productionStandardId, String instructions) {
+    }
+
+    /**
+     * 合并后的批次，requiredDate取批次内最早的要求完成时间，priority取最高优先级
+     */
+    public record ConsolidatedBatch(ProductionStandard productionStandard, String specialInstructions,
+                                    LocalDateTime requiredDate, ProductionOrder.Priority priority,
+                                    int quantity, List<Allocation> allocations) {
+
+        static ConsolidatedBatch of(List<Allocation> allocations, int quantity) {
+            ProductionOrder lead = allocations.get(0).order();
+            ProductionOrder.Priority priority = allocations.stream()
+                    .map(allocation -> allocation.order().getPriority())
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .orElse(lead.getPriority());
+            return new ConsolidatedBatch(lead.getProductionStandard(), lead.getSpecialInstructions(),
+                    lead.getRequiredDate(), priority, quantity, List.copyOf(allocations));
+        }
+    }
+
+    public record Allocation(ProductionOrder order, int quantity) {
+    }
+}
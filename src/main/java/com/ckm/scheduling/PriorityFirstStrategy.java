@@ -0,0 +1,28 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionOrder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 优先级优先：与自动排程相同，优先级高的在前，同优先级按要求完成日期升序
+ */
+@Component
+public class PriorityFirstStrategy implements SchedulingStrategy {
+
+    @Override
+    public String getName() {
+        return "PRIORITY";
+    }
+
+    @Override
+    public String getDescription() {
+        return "优先级优先";
+    }
+
+    @Override
+    public List<ProductionOrder> sequence(List<ProductionOrder> orders) {
+        return orders.stream().sorted(ListScheduler.PRIORITY_ORDER).toList();
+    }
+}
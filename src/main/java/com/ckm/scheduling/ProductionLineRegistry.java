@@ -0,0 +1,91 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.event.ProductionLineChangedEvent;
+import com.ckm.repository.ProductionLineRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 生产线注册表
+ * 首次访问时从数据库加载启用的生产线及班次，之后直接读内存；生产线配置变更提交后清空，下次访问重新加载
+ */
+@Component
+public class ProductionLineRegistry {
+
+    @Autowired
+    private ProductionLineRepository productionLineRepository;
+
+    private volatile Snapshot snapshot;
+
+    // 每次失效递增，加载期间发生失效时丢弃加载结果
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * 启用的生产线，按排序号和编码排序
+     */
+    public List<ProductionLine> getActiveLines() {
+        return snapshot().lines();
+    }
+
+    public List<String> getActiveLineNames() {
+        return snapshot().lines().stream().map(ProductionLine::getName).toList();
+    }
+
+    public Optional<ProductionLine> findByName(String name) {
+        return Optional.ofNullable(snapshot().byName().get(name));
+    }
+
+    public ShiftCalendar getShiftCalendar(String name) {
+        ShiftCalendar calendar = snapshot().calendars().get(name);
+        return calendar != null ? calendar : ShiftCalendar.of(List.of());
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionLineChanged(ProductionLineChangedEvent event) {
+        invalidate();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        long loadGeneration = generation.get();
+        Snapshot loaded = load();
+        synchronized (this) {
+            if (generation.get() == loadGeneration) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private Snapshot load() {
+        List<ProductionLine> lines = List.copyOf(
+                productionLineRepository.findWithShiftsByStatus(ProductionLine.LineStatus.ACTIVE));
+        Map<String, ProductionLine> byName = new LinkedHashMap<>();
+        Map<String, ShiftCalendar> calendars = new LinkedHashMap<>();
+        for (ProductionLine line : lines) {
+            byName.put(line.getName(), line);
+            calendars.put(line.getName(), ShiftCalendar.of(line.getShifts()));
+        }
+        return new Snapshot(lines, byName, calendars);
+    }
+
+    private record Snapshot(List<ProductionLine> lines, Map<String, ProductionLine> byName,
+                            Map<String, ShiftCalendar> calendars) {
+    }
+}
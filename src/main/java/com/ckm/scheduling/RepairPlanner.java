@@ -0,0 +1,260 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionSchedule;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 局部修复排程
+ * 订单取消、批次暂停或生产线停机后，只重排受影响生产线上扰动点之后的排程：
+ * 取消的排程移出，之后的排程依次前移补位；暂停的排程挪到该生产线待排队列末尾；
+ * 停机生产线上的排程插入其他具备所需设备的生产线的空闲时段。其余排程保持不变。
+ * 传入资源占用计划时，重排的排程同时校验设备单元和员工，优先沿用原有资源。
+ * 纯内存计算，不访问数据库，也不修改传入的排程对象
+ */
+@Component
+public class RepairPlanner {
+
+    /**
+     * 计算修复方案，只返回时段或生产线发生变化的排程
+     *
+     * @param window    受影响生产线上扰动时间之后尚未开始的排程
+     * @param timelines 各生产线时间轴副本（含window中的排程），计算过程中会被修改
+     * @param from      扰动发生时间，排程不会被移到此时间之前
+     * @param windowEnd 允许的最晚完工时间
+     */
+    public Result repair(List<ProductionSchedule> window, Disruption disruption, List<ProductionLine> productionLines,
+                         Map<String, LineTimeline> timelines, LocalDateTime from, LocalDateTime windowEnd) {
+        return repair(window, disruption, productionLines, timelines, null, from, windowEnd);
+    }
+
+    /**
+     * 计算修复方案，同时按设备单元和员工占用落位
+     *
+     * @param resources 资源占用计划副本（含window中的排程），计算过程中会被修改；为空时不校验资源
+     */
+    public Result repair(List<ProductionSchedule> window, Disruption disruption, List<ProductionLine> productionLines,
+                         Map<String, LineTimeline> timelines, ResourcePlan resources,
+                         LocalDateTime from, LocalDateTime windowEnd) {
+        List<ProductionSchedule> ordered = new ArrayList<>(window);
+        ordered.sort(Comparator.comparing(ProductionSchedule::getStartTime));
+
+        // 每条生产线从第一个被扰动的排程开始重排，之前的排程不动
+        Map<String, LocalDateTime> disruptedFrom = new LinkedHashMap<>();
+        for (ProductionSchedule schedule : ordered) {
+            if (disruption.isDisrupted(schedule)) {
+                disruptedFrom.putIfAbsent(schedule.getProductionLine(), schedule.getStartTime());
+            }
+        }
+
+        Map<String, List<ProductionSchedule>> kept = new LinkedHashMap<>();
+        Map<String, List<ProductionSchedule>> deferred = new LinkedHashMap<>();
+        List<ProductionSchedule> displaced = new ArrayList<>();
+        List<ProductionSchedule> removed = new ArrayList<>();
+        for (ProductionSchedule schedule : ordered) {
+            String line = schedule.getProductionLine();
+            LocalDateTime lineFrom = disruptedFrom.get(line);
+            if (lineFrom == null || schedule.getStartTime().isBefore(lineFrom)) {
+                continue;
+            }
+            LineTimeline timeline = timelines.get(line);
+            if (timeline != null) {
+                timeline.remove(schedule.getId());
+            }
+            if (resources != null) {
+                resources.release(schedule.getEquipmentUnits(), schedule.getStaffId(),
+                        schedule.getStartTime(), schedule.getEndTime());
+            }
+            if (disruption.removed().contains(schedule.getId())) {
+                removed.add(schedule);
+            } else if (disruption.downLines().contains(line)) {
+                displaced.add(schedule);
+            } else if (disruption.deferred().contains(schedule.getId())) {
+                deferred.computeIfAbsent(line, key -> new ArrayList<>()).add(schedule);
+            } else {
+                kept.computeIfAbsent(line, key -> new ArrayList<>()).add(schedule);
+            }
+        }
+
+        Map<String, ProductionLine> lines = new LinkedHashMap<>();
+        for (ProductionLine line : productionLines) {
+            lines.put(line.getName(), line);
+        }
+
+        List<Move> moves = new ArrayList<>();
+        List<ProductionSchedule> unplaced = new ArrayList<>();
+        for (Map.Entry<String, LocalDateTime> entry : disruptedFrom.entrySet()) {
+            String name = entry.getKey();
+            if (disruption.downLines().contains(name)) {
+                continue;
+            }
+            List<ProductionSchedule> sequence = new ArrayList<>(kept.getOrDefault(name, List.of()));
+            sequence.addAll(deferred.getOrDefault(name, List.of()));
+            LocalDateTime readyFrom = entry.getValue().isBefore(from) ? from : entry.getValue();
+            compact(sequence, name, lines.get(name), timelines, resources, readyFrom, windowEnd, moves, unplaced);
+        }
+
+        // 停机生产线上的排程按原顺序插入其他生产线能最早完工的空闲时段
+        for (ProductionSchedule schedule : displaced) {
+            Move best = null;
+            for (ProductionLine line : productionLines) {
+                if (disruption.downLines().contains(line.getName()) || !line.supportsEquipment(schedule.getEquipment())) {
+                    continue;
+                }
+                LocalDateTime start = place(schedule, line, timelines, resources, from, windowEnd);
+                if (start != null && (best == null || start.plus(duration(schedule)).isBefore(best.endTime()))) {
+                    best = new Move(schedule, line.getName(), start, start.plus(duration(schedule)));
+                }
+            }
+            ResourcePlan.Reservation reservation = best != null
+                    ? reserve(resources, schedule, best.productionLine(), best.startTime(), best.endTime()) : null;
+            if (best == null || (resources != null && reservation == null)) {
+                unplaced.add(schedule);
+                rebookOriginal(resources, schedule);
+                continue;
+            }
+            timelines.get(best.productionLine()).reserve(best.startTime(), best.endTime());
+            moves.add(new Move(schedule, best.productionLine(), best.startTime(), best.endTime(), reservation));
+        }
+        return new Result(moves, removed, unplaced);
+    }
+
+    /**
+     * 按顺序从readyFrom起依次排入，保留原生产时长，标准不同的相邻排程之间留出换线间隔
+     */
+    private void compact(List<ProductionSchedule> sequence, String name, ProductionLine line,
+                         Map<String, LineTimeline> timelines, ResourcePlan resources, LocalDateTime readyFrom,
+                         LocalDateTime windowEnd, List<Move> moves, List<ProductionSchedule> unplaced) {
+        LineTimeline timeline = timelines.computeIfAbsent(name, LineTimeline::new);
+        ShiftCalendar shifts = line != null ? ShiftCalendar.of(line.getShifts()) : ShiftCalendar.of(List.of());
+        ProductionSchedule previous = null;
+        LocalDateTime previousEnd = null;
+        for (ProductionSchedule schedule : sequence) {
+            LocalDateTime ready = previousEnd == null ? readyFrom
+                    : sameStandard(previous, schedule) ? previousEnd
+                    : previousEnd.plusMinutes(ListScheduler.CHANGEOVER_MINUTES);
+            int minutes = (int) duration(schedule).toMinutes();
+            LocalDateTime start = ListScheduler.findStart(timeline, shifts, resources, schedule.getEquipment(), name,
+                    ready, minutes, windowEnd.minusMinutes(minutes));
+            LocalDateTime end = start != null ? start.plusMinutes(minutes) : null;
+            ResourcePlan.Reservation reservation = start != null ? reserve(resources, schedule, name, start, end) : null;
+            if (start == null || (resources != null && reservation == null)) {
+                // 排不进窗口的保留原时段
+                unplaced.add(schedule);
+                timeline.reserve(schedule.getStartTime(), schedule.getEndTime());
+                rebookOriginal(resources, schedule);
+                continue;
+            }
+            timeline.reserve(start, end);
+            if (!start.equals(schedule.getStartTime()) || changesResources(schedule, reservation)) {
+                moves.add(new Move(schedule, name, start, end, reservation));
+            }
+            previous = schedule;
+            previousEnd = end;
+        }
+    }
+
+    private LocalDateTime place(ProductionSchedule schedule, ProductionLine line, Map<String, LineTimeline> timelines,
+                                ResourcePlan resources, LocalDateTime from, LocalDateTime windowEnd) {
+        LineTimeline timeline = timelines.computeIfAbsent(line.getName(), LineTimeline::new);
+        int minutes = (int) duration(schedule).toMinutes();
+        return ListScheduler.findStart(timeline, ShiftCalendar.of(line.getShifts()), resources, schedule.getEquipment(),
+                line.getName(), from, minutes, windowEnd.minusMinutes(minutes));
+    }
+
+    /**
+     * 同一生产线上优先沿用原设备单元和员工，不空闲时再按设备类型和技能重新分配
+     */
+    private static ResourcePlan.Reservation reserve(ResourcePlan resources, ProductionSchedule schedule, String line,
+                                                    LocalDateTime start, LocalDateTime end) {
+        if (resources == null) {
+            return null;
+        }
+        if (line.equals(schedule.getProductionLine())
+                && (schedule.getEquipmentUnits() != null || schedule.getStaffId() != null)) {
+            ResourcePlan.Reservation kept = resources.rebook(schedule.getEquipmentUnits(), schedule.getStaffId(),
+                    schedule.getAssignedStaff(), start, end);
+            if (kept != null) {
+                return kept;
+            }
+        }
+        return resources.reserve(schedule.getEquipment(), line, start, end);
+    }
+
+    private static void rebookOriginal(ResourcePlan resources, ProductionSchedule schedule) {
+        if (resources != null) {
+            resources.book(schedule.getEquipmentUnits(), schedule.getStaffId(), schedule.getStartTime(), schedule.getEndTime());
+        }
+    }
+
+    private static boolean changesResources(ProductionSchedule schedule, ResourcePlan.Reservation reservation) {
+        return reservation != null && (!Objects.equals(reservation.unitCodesText(), schedule.getEquipmentUnits())
+                || !Objects.equals(reservation.staffId(), schedule.getStaffId()));
+    }
+
+    private static Duration duration(ProductionSchedule schedule) {
+        return Duration.between(schedule.getStartTime(), schedule.getEndTime());
+    }
+
+    private static boolean sameStandard(ProductionSchedule previous, ProductionSchedule current) {
+        Long previousStandard = standardId(previous);
+        return previousStandard != null && previousStandard.equals(standardId(current));
+    }
+
+    private static Long standardId(ProductionSchedule schedule) {
+        ProductionOrder order = schedule.getProductionOrder();
+        return order != null && order.getProductionStandard() != null ? order.getProductionStandard().getId() : null;
+    }
+
+    /**
+     * 扰动内容：removed为要取消的排程，deferred为要挪到队尾的排程，downLines为停机的生产线
+     */
+    public record Disruption(Set<Long> removed, Set<Long> deferred, Set<String> downLines) {
+
+        public static Disruption cancelled(Collection<Long> scheduleIds) {
+            return new Disruption(Set.copyOf(scheduleIds), Set.of(), Set.of());
+        }
+
+        public static Disruption deferred(Collection<Long> scheduleIds) {
+            return new Disruption(Set.of(), Set.copyOf(scheduleIds), Set.of());
+        }
+
+        public static Disruption lineDown(String productionLine) {
+            return new Disruption(Set.of(), Set.of(), Set.of(productionLine));
+        }
+
+        boolean isDisrupted(ProductionSchedule schedule) {
+            return removed.contains(schedule.getId()) || deferred.contains(schedule.getId())
+                    || downLines.contains(schedule.getProductionLine());
+        }
+    }
+
+    /**
+     * 排程的新生产线、时段和占用的资源，未校验资源时resources为空
+     */
+    public record Move(ProductionSchedule schedule, String productionLine, LocalDateTime startTime, LocalDateTime endTime,
+                       ResourcePlan.Reservation resources) {
+
+        public Move(ProductionSchedule schedule, String productionLine, LocalDateTime startTime, LocalDateTime endTime) {
+            this(schedule, productionLine, startTime, endTime, null);
+        }
+    }
+
+    /**
+     * 修复结果：moves为需要更新的排程，removed为需要取消的排程，unplaced为无法重排而保持原样的排程
+     */
+    public record Result(List<Move> moves, List<ProductionSchedule> removed, List<ProductionSchedule> unplaced) {
+    }
+}
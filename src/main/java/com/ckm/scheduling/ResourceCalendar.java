@@ -0,0 +1,209 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.EquipmentUnit;
+import com.ckm.entity.KitchenStaff;
+import com.ckm.entity.ProductionSchedule;
+import com.ckm.event.ProductionLineChangedEvent;
+import com.ckm.event.ProductionResourceChangedEvent;
+import com.ckm.repository.EquipmentUnitRepository;
+import com.ckm.repository.KitchenStaffRepository;
+import com.ckm.repository.ProductionScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 资源日历
+ * 在内存中维护排程窗口内设备单元和员工的分钟级占用，与生产线日历同时加载，排程时只做位图运算
+ */
+@Component
+public class ResourceCalendar {
+
+    @Autowired
+    private EquipmentUnitRepository equipmentUnitRepository;
+
+    @Autowired
+    private KitchenStaffRepository kitchenStaffRepository;
+
+    @Autowired
+    private ProductionScheduleRepository productionScheduleRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 已记入计划的排程占用，排程变更时先按原占用释放
+    private final Map<Long, Booking> bookings = new HashMap<>();
+
+    private ResourcePlan plan;
+
+    private LocalDateTime windowStart;
+
+    private LocalDateTime windowEnd;
+
+    // 每次修改共享计划递增，加载期间发生修改时不以加载结果替换
+    private long modifications;
+
+    /**
+     * 加载时间窗口内的设备单元、员工和排程占用，返回本次调用专用的占用计划
+     * 读取期间共享计划没有被修改或失效时以加载结果替换共享计划，否则保留共享计划，返回的计划不受影响
+     */
+    public ResourcePlan load(LocalDateTime from, LocalDateTime to) {
+        long seen = modifications();
+        Loaded loaded = fetch(from, to);
+        lock.writeLock().lock();
+        try {
+            if (modifications == seen) {
+                plan = loaded.plan().copy();
+                bookings.clear();
+                bookings.putAll(loaded.bookings());
+                windowStart = loaded.windowStart();
+                windowEnd = to;
+                modifications++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return loaded.plan();
+    }
+
+    private long modifications() {
+        lock.readLock().lock();
+        try {
+            return modifications;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库读取时间窗口内的占用计划，只返回给调用方，不修改共享日历
+     */
+    public ResourcePlan read(LocalDateTime from, LocalDateTime to) {
+        return fetch(from, to).plan();
+    }
+
+    private Loaded fetch(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.toLocalDate().atStartOfDay();
+        List<EquipmentUnit> units = equipmentUnitRepository.findByStatusOrderByCodeAsc(EquipmentUnit.UnitStatus.ACTIVE);
+        List<KitchenStaff> staff = kitchenStaffRepository.findWithShiftsByStatus(KitchenStaff.StaffStatus.ACTIVE);
+        List<Object[]> rows = productionScheduleRepository.findResourceBookingsInRange(
+                start, to, ProductionSchedule.ScheduleStatus.CANCELLED);
+
+        ResourcePlan loaded = ResourcePlan.of(units, staff, start, to);
+        Map<Long, Booking> loadedBookings = new HashMap<>();
+        for (Object[] row : rows) {
+            Booking booking = new Booking((String) row[1], (Long) row[2], (LocalDateTime) row[3], (LocalDateTime) row[4]);
+            loaded.book(booking.equipmentUnits(), booking.staffId(), booking.startTime(), booking.endTime());
+            loadedBookings.put((Long) row[0], booking);
+        }
+        return new Loaded(loaded, loadedBookings, start);
+    }
+
+    public boolean covers(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            return windowStart != null && !from.isBefore(windowStart) && !to.isAfter(windowEnd);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            plan = null;
+            bookings.clear();
+            windowStart = null;
+            windowEnd = null;
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ProductionResourceChangedEvent event) {
+        invalidate();
+    }
+
+    /**
+     * 设备单元按生产线名称固定在线上，生产线改名后重新加载
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionLineChanged(ProductionLineChangedEvent event) {
+        invalidate();
+    }
+
+    /**
+     * 同步排程变更：释放原占用，未取消的排程按最新设备、员工和时段重新占用
+     */
+    public void upsertAll(Collection<ProductionSchedule> schedules) {
+        lock.writeLock().lock();
+        try {
+            modifications++;
+            if (plan == null) {
+                return;
+            }
+            for (ProductionSchedule schedule : schedules) {
+                Booking previous = bookings.remove(schedule.getId());
+                if (previous != null) {
+                    plan.release(previous.equipmentUnits(), previous.staffId(), previous.startTime(), previous.endTime());
+                }
+                if (schedule.getStatus() != ProductionSchedule.ScheduleStatus.CANCELLED
+                        && (schedule.getEquipmentUnits() != null || schedule.getStaffId() != null)) {
+                    Booking booking = new Booking(schedule.getEquipmentUnits(), schedule.getStaffId(),
+                            schedule.getStartTime(), schedule.getEndTime());
+                    plan.book(booking.equipmentUnits(), booking.staffId(), booking.startTime(), booking.endTime());
+                    bookings.put(schedule.getId(), booking);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        invalidateOnRollback();
+    }
+
+    public void remove(Long scheduleId) {
+        lock.writeLock().lock();
+        try {
+            modifications++;
+            Booking previous = bookings.remove(scheduleId);
+            if (previous != null && plan != null) {
+                plan.release(previous.equipmentUnits(), previous.staffId(), previous.startTime(), previous.endTime());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        invalidateOnRollback();
+    }
+
+    /**
+     * 事务回滚时计划中的变更已失效，整体清空以便下次重新加载
+     */
+    private void invalidateOnRollback() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        invalidate();
+                    }
+                }
+            });
+        }
+    }
+
+    private record Booking(String equipmentUnits, Long staffId, LocalDateTime startTime, LocalDateTime endTime) {
+    }
+
+    private record Loaded(ResourcePlan plan, Map<Long, Booking> bookings, LocalDateTime windowStart) {
+    }
+}
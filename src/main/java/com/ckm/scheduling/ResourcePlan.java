@@ -0,0 +1,336 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.EquipmentUnit;
+import com.ckm.entity.KitchenStaff;
+import com.ckm.entity.ProductionLine;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 设备单元和员工的分钟级占用计划
+ * 排程只有在所需的每类设备各有一台、且有一名具备相应技能的员工在整个时段内都空闲时才能落位。
+ * 某类设备没有登记任何设备单元时不限制该类设备；没有登记任何员工时不限制人员。
+ * 配置了出勤班次的员工只在班次内可排，班次外的时间单独记录，不计入已排工时
+ */
+public final class ResourcePlan {
+
+    private final LocalDateTime origin;
+
+    private final Map<String, List<Unit>> unitsByType;
+
+    private final Map<String, Unit> unitsByCode;
+
+    private final List<Staff> staff;
+
+    private final Map<Long, Staff> staffById;
+
+    private ResourcePlan(LocalDateTime origin, List<Unit> units, List<Staff> staff) {
+        this.origin = origin;
+        this.unitsByType = new LinkedHashMap<>();
+        this.unitsByCode = new LinkedHashMap<>();
+        // 固定在生产线上的设备优先于共用设备
+        List<Unit> ordered = new ArrayList<>(units);
+        ordered.sort(Comparator.comparing((Unit unit) -> unit.productionLine() == null || unit.productionLine().isBlank()));
+        for (Unit unit : ordered) {
+            unitsByType.computeIfAbsent(unit.type(), type -> new ArrayList<>()).add(unit);
+            unitsByCode.put(unit.code(), unit);
+        }
+        this.staff = staff;
+        this.staffById = new LinkedHashMap<>();
+        for (Staff member : staff) {
+            staffById.put(member.id(), member);
+        }
+    }
+
+    /**
+     * 为[from, to)建立空的占用计划
+     */
+    public static ResourcePlan of(List<EquipmentUnit> equipmentUnits, List<KitchenStaff> kitchenStaff,
+                                  LocalDateTime from, LocalDateTime to) {
+        int minutes = (int) Duration.between(from, to).toMinutes();
+        List<Unit> units = new ArrayList<>(equipmentUnits.size());
+        for (EquipmentUnit unit : equipmentUnits) {
+            units.add(new Unit(unit.getCode(), unit.getEquipmentType(), unit.getProductionLine(), new OccupancyBitmap(minutes)));
+        }
+        List<Staff> staff = new ArrayList<>(kitchenStaff.size());
+        for (KitchenStaff member : kitchenStaff) {
+            staff.add(new Staff(member.getId(), member.getName(), member.getSkillSet(), new OccupancyBitmap(minutes),
+                    offShift(ShiftCalendar.of(member.getShifts()), from, to, minutes)));
+        }
+        return new ResourcePlan(from, units, staff);
+    }
+
+    /**
+     * 复制占用计划，供试排在不影响共享计划的情况下修改
+     */
+    public ResourcePlan copy() {
+        List<Unit> units = new ArrayList<>(unitsByCode.size());
+        for (Unit unit : unitsByCode.values()) {
+            units.add(new Unit(unit.code(), unit.type(), unit.productionLine(), unit.bitmap().copy()));
+        }
+        List<Staff> copies = new ArrayList<>(staff.size());
+        for (Staff member : staff) {
+            copies.add(new Staff(member.id(), member.name(), member.skills(), member.bitmap().copy(), member.offShift()));
+        }
+        return new ResourcePlan(origin, units, copies);
+    }
+
+    public boolean isUnconstrained() {
+        return unitsByCode.isEmpty() && staff.isEmpty();
+    }
+
+    /**
+     * 不早于after、所需设备和员工能连续空闲durationMinutes的最早开始时间
+     *
+     * @param latestStart 允许的最晚开始时间，超出或没有可用资源返回null
+     */
+    public LocalDateTime earliestStart(String equipmentRequired, String productionLine, LocalDateTime after,
+                                       int durationMinutes, LocalDateTime latestStart) {
+        List<String> types = types(equipmentRequired);
+        int minute = index(after);
+        int latest = index(latestStart);
+        while (minute <= latest) {
+            int next = minute;
+            for (String type : types) {
+                List<Unit> units = unitsByType.get(type);
+                if (units == null) {
+                    continue;
+                }
+                int earliest = -1;
+                for (Unit unit : units) {
+                    if (unit.isAvailableOn(productionLine)) {
+                        int start = unit.bitmap().nextFreeRun(minute, durationMinutes);
+                        earliest = earliest < 0 ? start : Math.min(earliest, start);
+                    }
+                }
+                if (earliest < 0) {
+                    return null; // 该生产线上没有此类设备
+                }
+                next = Math.max(next, earliest);
+            }
+            if (!staff.isEmpty()) {
+                int earliest = -1;
+                for (Staff member : staff) {
+                    if (member.isQualified(types)) {
+                        int start = member.nextFreeRun(minute, durationMinutes);
+                        earliest = earliest < 0 ? start : Math.min(earliest, start);
+                    }
+                }
+                if (earliest < 0) {
+                    return null; // 没有具备技能的员工
+                }
+                next = Math.max(next, earliest);
+            }
+            if (next == minute) {
+                return origin.plusMinutes(minute).isBefore(after) ? after : origin.plusMinutes(minute);
+            }
+            minute = next;
+        }
+        return null;
+    }
+
+    /**
+     * 为时段占用所需设备和员工，任一资源不空闲时不占用任何资源并返回null
+     * 同类设备中固定在本生产线上的优先，员工选已排工时最少的
+     */
+    public Reservation reserve(String equipmentRequired, String productionLine, LocalDateTime start, LocalDateTime end) {
+        List<String> types = types(equipmentRequired);
+        int from = index(start);
+        int to = index(end);
+
+        List<Unit> chosen = new ArrayList<>(types.size());
+        for (String type : types) {
+            List<Unit> units = unitsByType.get(type);
+            if (units == null) {
+                continue;
+            }
+            Unit free = null;
+            for (Unit unit : units) {
+                if (unit.isAvailableOn(productionLine) && unit.bitmap().isFree(from, to)) {
+                    free = unit;
+                    break;
+                }
+            }
+            if (free == null) {
+                return null;
+            }
+            chosen.add(free);
+        }
+
+        Staff assignee = null;
+        if (!staff.isEmpty()) {
+            int lowestLoad = Integer.MAX_VALUE;
+            for (Staff member : staff) {
+                if (member.isQualified(types) && member.isFree(from, to)) {
+                    int load = member.bitmap().occupiedMinutes();
+                    if (load < lowestLoad) {
+                        assignee = member;
+                        lowestLoad = load;
+                    }
+                }
+            }
+            if (assignee == null) {
+                return null;
+            }
+            assignee.bitmap().occupy(from, to);
+        }
+
+        List<String> codes = new ArrayList<>(chosen.size());
+        for (Unit unit : chosen) {
+            unit.bitmap().occupy(from, to);
+            codes.add(unit.code());
+        }
+        return new Reservation(codes, assignee != null ? assignee.id() : null, assignee != null ? assignee.name() : null);
+    }
+
+    /**
+     * 在新时段继续占用排程原有的设备单元和员工，其中任一不空闲时不占用并返回null。
+     * 修复排程时优先沿用原资源，减少人员和设备的变动
+     */
+    public Reservation rebook(String equipmentUnits, Long staffId, String staffName, LocalDateTime start, LocalDateTime end) {
+        int from = index(start);
+        int to = index(end);
+        List<Unit> units = new ArrayList<>();
+        for (String code : types(equipmentUnits)) {
+            Unit unit = unitsByCode.get(code);
+            if (unit == null || !unit.bitmap().isFree(from, to)) {
+                return null;
+            }
+            units.add(unit);
+        }
+        Staff member = null;
+        if (!staff.isEmpty()) {
+            member = staffId != null ? staffById.get(staffId) : null;
+            if (member == null || !member.isFree(from, to)) {
+                return null;
+            }
+            member.bitmap().occupy(from, to);
+        }
+        List<String> codes = new ArrayList<>(units.size());
+        for (Unit unit : units) {
+            unit.bitmap().occupy(from, to);
+            codes.add(unit.code());
+        }
+        return new Reservation(codes, member != null ? member.id() : null, member != null ? member.name() : staffName);
+    }
+
+    /**
+     * 员工在[start, end)内是否在班次内且没有排程占用，计划中没有的员工不受限制
+     */
+    public boolean isStaffFree(Long staffId, LocalDateTime start, LocalDateTime end) {
+        Staff member = staffId != null ? staffById.get(staffId) : null;
+        return member == null || member.isFree(index(start), index(end));
+    }
+
+    /**
+     * 按已有排程记录的设备单元和员工占用时段
+     */
+    public void book(String equipmentUnits, Long staffId, LocalDateTime start, LocalDateTime end) {
+        mark(equipmentUnits, staffId, start, end, true);
+    }
+
+    /**
+     * 释放排程的占用，与其他排程重叠的分钟仍由其他排程占用
+     */
+    public void release(String equipmentUnits, Long staffId, LocalDateTime start, LocalDateTime end) {
+        mark(equipmentUnits, staffId, start, end, false);
+    }
+
+    private void mark(String equipmentUnits, Long staffId, LocalDateTime start, LocalDateTime end, boolean occupied) {
+        int from = index(start);
+        int to = index(end);
+        for (String code : types(equipmentUnits)) {
+            Unit unit = unitsByCode.get(code);
+            if (unit != null) {
+                if (occupied) {
+                    unit.bitmap().occupy(from, to);
+                } else {
+                    unit.bitmap().release(from, to);
+                }
+            }
+        }
+        Staff member = staffId != null ? staffById.get(staffId) : null;
+        if (member != null) {
+            if (occupied) {
+                member.bitmap().occupy(from, to);
+            } else {
+                member.bitmap().release(from, to);
+            }
+        }
+    }
+
+    /**
+     * 班次外的分钟，全天可排时返回null
+     */
+    private static OccupancyBitmap offShift(ShiftCalendar shifts, LocalDateTime from, LocalDateTime to, int minutes) {
+        if (shifts.isAlwaysOpen()) {
+            return null;
+        }
+        OccupancyBitmap offShift = new OccupancyBitmap(minutes);
+        offShift.occupy(0, minutes);
+        for (ShiftCalendar.Window window : shifts.windowsBetween(from, to)) {
+            offShift.release((int) Duration.between(from, window.start()).toMinutes(),
+                    (int) Duration.between(from, window.end()).toMinutes());
+        }
+        return offShift;
+    }
+
+    private int index(LocalDateTime time) {
+        long minutes = Duration.between(origin, time).toMinutes();
+        return (int) Math.max(0, Math.min(minutes, Integer.MAX_VALUE / 2));
+    }
+
+    private static List<String> types(String equipment) {
+        return equipment == null ? List.of() : ProductionLine.splitEquipment(equipment).toList();
+    }
+
+    /**
+     * 排程占用的设备单元编码和负责员工，未登记员工时staffId为空
+     */
+    public record Reservation(List<String> unitCodes, Long staffId, String staffName) {
+
+        public String unitCodesText() {
+            return unitCodes.isEmpty() ? null : String.join(",", unitCodes);
+        }
+    }
+
+    private record Unit(String code, String type, String productionLine, OccupancyBitmap bitmap) {
+
+        boolean isAvailableOn(String line) {
+            return productionLine == null || productionLine.isBlank() || productionLine.equals(line);
+        }
+    }
+
+    /**
+     * offShift为班次外的分钟，只读，各副本共用
+     */
+    private record Staff(Long id, String name, Set<String> skills, OccupancyBitmap bitmap, OccupancyBitmap offShift) {
+
+        boolean isQualified(List<String> types) {
+            return skills.containsAll(types);
+        }
+
+        boolean isFree(int from, int to) {
+            return bitmap.isFree(from, to) && (offShift == null || offShift.isFree(from, to));
+        }
+
+        int nextFreeRun(int from, int length) {
+            int start = bitmap.nextFreeRun(from, length);
+            while (offShift != null) {
+                int inShift = offShift.nextFreeRun(start, length);
+                if (inShift == start) {
+                    break;
+                }
+                start = bitmap.nextFreeRun(inShift, length);
+            }
+            return start;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.ckm.scheduling;
+
+import com.ckm.dto.ScheduleConflictDTO;
+import com.ckm.entity.ProductionSchedule;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 排程冲突分析
+ * 按生产线对开始/结束事件排序后扫描一遍，复杂度O(n log n)
+ */
+@Component
+public class ScheduleConflictAnalyzer {
+
+    // 同一时刻先处理结束事件，首尾相接的排程不算冲突
+    private static final Comparator<Event> EVENT_ORDER = Comparator
+            .comparing(Event::time)
+            .thenComparingInt(Event::delta);
+
+    /**
+     * 分析已保存排程之间的冲突，已取消的排程不参与
+     */
+    public List<ScheduleConflictDTO> analyze(List<ProductionSchedule> schedules) {
+        Map<String, List<Event>> eventsByLine = new HashMap<>();
+        for (ProductionSchedule schedule : schedules) {
+            if (schedule.getStatus() == ProductionSchedule.ScheduleStatus.CANCELLED
+                    || !schedule.getStartTime().isBefore(schedule.getEndTime())) {
+                continue;
+            }
+            List<Event> events = eventsByLine.computeIfAbsent(schedule.getProductionLine(), line -> new ArrayList<>());
+            events.add(new Event(schedule.getStartTime(), 1, schedule));
+            events.add(new Event(schedule.getEndTime(), -1, schedule));
+        }
+
+        List<ScheduleConflictDTO> conflicts = new ArrayList<>();
+        eventsByLine.forEach((line, events) -> conflicts.addAll(sweep(line, events)));
+        conflicts.sort(Comparator.comparing(ScheduleConflictDTO::getOverlapStart)
+                .thenComparing(ScheduleConflictDTO::getProductionLine));
+        return conflicts;
+    }
+
+    private List<ScheduleConflictDTO> sweep(String productionLine, List<Event> events) {
+        events.sort(EVENT_ORDER);
+
+        List<ScheduleConflictDTO> conflicts = new ArrayList<>();
+        Map<Long, ProductionSchedule> active = new LinkedHashMap<>();
+        Map<Long, ProductionSchedule> cluster = null;
+        LocalDateTime clusterStart = null;
+        LocalDateTime previousTime = null;
+        Duration overlap = Duration.ZERO;
+        int maxConcurrent = 0;
+
+        for (Event event : events) {
+            if (cluster != null && active.size() >= 2) {
+                overlap = overlap.plus(Duration.between(previousTime, event.time()));
+            }
+            previousTime = event.time();
+
+            if (event.delta() > 0) {
+                active.put(event.schedule().getId(), event.schedule());
+                if (active.size() == 2 && cluster == null) {
+                    cluster = new LinkedHashMap<>(active);
+                    clusterStart = event.time();
+                    overlap = Duration.ZERO;
+                    maxConcurrent = 0;
+                } else if (cluster != null) {
+                    cluster.put(event.schedule().getId(), event.schedule());
+                }
+                maxConcurrent = Math.max(maxConcurrent, active.size());
+            } else {
+                active.remove(event.schedule().getId());
+                if (cluster != null && active.size() < 2) {
+                    conflicts.add(toConflict(productionLine, cluster, clusterStart, event.time(), overlap, maxConcurrent));
+                    cluster = null;
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    private ScheduleConflictDTO toConflict(String productionLine, Map<Long, ProductionSchedule> cluster,
+                                           LocalDateTime start, LocalDateTime end, Duration overlap, int maxConcurrent) {
+        return ScheduleConflictDTO.builder()
+                .productionLine(productionLine)
+                .scheduleIds(cluster.values().stream().map(ProductionSchedule::getId).toList())
+                .scheduleNumbers(cluster.values().stream().map(ProductionSchedule::getScheduleNumber).toList())
+                .overlapStart(start)
+                .overlapEnd(end)
+                .overlapMinutes(overlap.toMinutes())
+                .maxConcurrent(maxConcurrent)
+                .build();
+    }
+
+    private record Event(LocalDateTime time, int delta, ProductionSchedule schedule) {
+    }
+}
@@ -0,0 +1,495 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 排程局部搜索优化
+ * 以列表排程的结果为初始方案，在各生产线的生产顺序上做交换、移动等邻域操作，按模拟退火接受新方案，
+ * 在限定时间内降低总完工时间、空档和延误，时间上限随订单数缩放，连续多次操作没有更好的方案时提前结束。
+ * 每次操作只重算受影响生产线从改动位置开始的部分；
+ * 多个互相独立的搜索并行运行，取最好的结果。评分与排程模拟一致，纯内存计算，不访问数据库。
+ * 给定资源占用时，只接受设备单元和员工仍能按新时段占用的方案：每次操作只释放并重新占用受影响生产线上时段有变化的订单，
+ * 不重建整个资源计划
+ */
+@Slf4j
+@Component
+public class ScheduleOptimizer {
+
+    // 初始温度（分钟），约等于愿意为跳出局部最优接受的变差幅度
+    static final double INITIAL_TEMPERATURE = 60.0;
+
+    static final double FINAL_TEMPERATURE = 0.5;
+
+    @Value("${ckm.optimizer.time-budget-ms:2000}")
+    private long timeBudgetMillis = 2000;
+
+    // 每个订单的搜索时间，时间上限取其与总预算中较小者，0表示只用总预算
+    @Value("${ckm.optimizer.budget-per-order-ms:20}")
+    private long budgetPerOrderMillis = 20;
+
+    // 连续这么多次操作没有找到更好的方案即视为收敛
+    @Value("${ckm.optimizer.stall-moves:20000}")
+    private long stallMoves = 20000;
+
+    // 并行搜索数，0表示与CPU核数相同
+    @Value("${ckm.optimizer.restarts:0}")
+    private int restarts;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 在时间预算内改进排程方案，没有找到更好的方案时原样返回
+     *
+     * @param baseline 不含本次分配的生产线时间轴，只读
+     */
+    public List<ListScheduler.Assignment> improve(List<ListScheduler.Assignment> initial, List<ProductionLine> productionLines,
+                                                  Map<String, LineTimeline> baseline, LocalDateTime startDate,
+                                                  LocalDateTime windowEnd) {
+        return improve(initial, productionLines, baseline, null, startDate, windowEnd);
+    }
+
+    /**
+     * 改进排程方案并重新占用设备单元和员工
+     * 每次搜索在resources的副本上占用当前方案的资源，邻域操作只对时段变化的订单释放原占用后重新试占，
+     * 有资源冲突的操作与越出窗口的操作一样撤销；最好的方案最后再按开始时间整体占用一次，失败时保留初始方案
+     *
+     * @param resources 不含本次分配的资源占用，为空时不校验资源
+     */
+    public List<ListScheduler.Assignment> improve(List<ListScheduler.Assignment> initial, List<ProductionLine> productionLines,
+                                                  Map<String, LineTimeline> baseline, ResourcePlan resources,
+                                                  LocalDateTime startDate, LocalDateTime windowEnd) {
+        if (timeBudgetMillis <= 0 || initial.size() < 2 || windowEnd == null) {
+            return initial;
+        }
+        ResourcePlan plan = resources != null && !resources.isUnconstrained() ? resources : null;
+        long budget = budgetPerOrderMillis > 0
+                ? Math.min(timeBudgetMillis, budgetPerOrderMillis * initial.size()) : timeBudgetMillis;
+        long deadline = System.nanoTime() + Duration.ofMillis(budget).toNanos();
+        int searches = restarts > 0 ? restarts : pool.getParallelism();
+
+        List<ForkJoinTask<Search>> tasks = new ArrayList<>(searches);
+        for (int i = 0; i < searches; i++) {
+            long seed = i;
+            tasks.add(pool.submit(() -> {
+                Search search = new Search(initial, productionLines, baseline, plan, startDate, windowEnd, seed);
+                search.run(deadline, stallMoves);
+                return search;
+            }));
+        }
+
+        Search best = null;
+        for (ForkJoinTask<Search> task : tasks) {
+            Search search = task.join();
+            if (best == null || search.bestScore < best.bestScore) {
+                best = search;
+            }
+        }
+        log.debug("Schedule optimization: {} orders, {} searches, {} moves, score {} -> {}",
+                initial.size(), searches, best.moves, best.initialScore, best.bestScore);
+        if (best.bestScore >= best.initialScore) {
+            return initial;
+        }
+        List<ListScheduler.Assignment> improved = best.bestAssignments();
+        if (resources == null) {
+            return improved;
+        }
+        List<ListScheduler.Assignment> reserved = reserve(improved, resources);
+        if (reserved == null) {
+            log.debug("Optimized schedule conflicts with equipment or staff occupancy, keeping initial plan");
+            return initial;
+        }
+        return reserved;
+    }
+
+    /**
+     * 按开始时间依次在resources的副本上占用资源，任一排程的资源不空闲时返回null
+     */
+    static List<ListScheduler.Assignment> reserve(List<ListScheduler.Assignment> assignments, ResourcePlan resources) {
+        ResourcePlan plan = resources.copy();
+        List<ListScheduler.Assignment> reserved = new ArrayList<>(assignments.size());
+        for (ListScheduler.Assignment assignment : assignments) {
+            ResourcePlan.Reservation reservation = plan.reserve(
+                    assignment.order().getProductionStandard().getEquipmentRequired(),
+                    assignment.productionLine(), assignment.startTime(), assignment.endTime());
+            if (reservation == null) {
+                return null;
+            }
+            reserved.add(new ListScheduler.Assignment(assignment.order(), assignment.productionLine(),
+                    assignment.startTime(), assignment.endTime(), reservation));
+        }
+        return reserved;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * 一次独立的模拟退火搜索
+     */
+    static final class Search {
+
+        private final Plan[] plans;
+        // 当前方案占用后的资源计划及各订单的占用，为空时不校验资源
+        private final ResourcePlan booked;
+        private final Map<ProductionOrder, Booking> bookings = new IdentityHashMap<>();
+        private final SplittableRandom random;
+        private final long initialScore;
+
+        private long score;
+        private long bestScore;
+        private List<List<ProductionOrder>> bestSequences;
+        private long moves;
+        private long lastImprovement;
+
+        Search(List<ListScheduler.Assignment> initial, List<ProductionLine> productionLines,
+               Map<String, LineTimeline> baseline, ResourcePlan resources, LocalDateTime startDate,
+               LocalDateTime windowEnd, long seed) {
+            List<ListScheduler.Assignment> ordered = new ArrayList<>(initial);
+            ordered.sort(Comparator.comparing(ListScheduler.Assignment::startTime));
+
+            plans = new Plan[productionLines.size()];
+            for (int i = 0; i < plans.length; i++) {
+                ProductionLine line = productionLines.get(i);
+                LineTimeline timeline = baseline.get(line.getName());
+                plans[i] = new Plan(line, timeline != null ? timeline : new LineTimeline(line.getName()),
+                        startDate, windowEnd, initial.size());
+                for (ListScheduler.Assignment assignment : ordered) {
+                    if (assignment.productionLine().equals(line.getName())) {
+                        plans[i].orders.add(assignment.order());
+                    }
+                }
+                plans[i].evaluateFrom(0);
+            }
+            booked = resources != null ? resources.copy() : null;
+            random = new SplittableRandom(seed);
+            score = totalScore();
+            initialScore = score;
+            bestScore = score;
+            bestSequences = snapshot();
+        }
+
+        void run(long deadline, long stallMoves) {
+            if (booked != null && !bookAll()) {
+                return; // 初始方案的资源已冲突，无法在其基础上逐步校验
+            }
+            long start = System.nanoTime();
+            double span = Math.max(1, deadline - start);
+            double temperature = INITIAL_TEMPERATURE;
+            while (true) {
+                // 每256次操作检查一次时间、是否收敛并降温
+                if ((moves & 0xFF) == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline || (stallMoves > 0 && moves - lastImprovement >= stallMoves)) {
+                        return;
+                    }
+                    temperature = INITIAL_TEMPERATURE
+                            * Math.pow(FINAL_TEMPERATURE / INITIAL_TEMPERATURE, (now - start) / span);
+                }
+                moves++;
+                step(temperature);
+            }
+        }
+
+        /**
+         * 随机选择一个邻域操作，不可行或被拒绝时撤销
+         */
+        private void step(double temperature) {
+            Plan from = plans[random.nextInt(plans.length)];
+            if (from.orders.isEmpty()) {
+                return;
+            }
+            int i = random.nextInt(from.orders.size());
+            ProductionOrder order = from.orders.get(i);
+            Plan to = plans[random.nextInt(plans.length)];
+
+            if (random.nextBoolean()) {
+                // 移动：取出订单插入到目标生产线的任意位置
+                if (!to.supports(order)) {
+                    return;
+                }
+                from.orders.remove(i);
+                int j = random.nextInt(to.orders.size() + 1);
+                to.orders.add(j, order);
+                if (!accept(from, i, to, j, temperature)) {
+                    to.orders.remove(j);
+                    from.orders.add(i, order);
+                    restore(from, i, to, j);
+                }
+            } else {
+                // 交换：与目标生产线上的任意订单互换位置
+                if (to.orders.isEmpty()) {
+                    return;
+                }
+                int j = random.nextInt(to.orders.size());
+                ProductionOrder other = to.orders.get(j);
+                if (other == order || !to.supports(order) || !from.supports(other)) {
+                    return;
+                }
+                from.orders.set(i, other);
+                to.orders.set(j, order);
+                if (!accept(from, i, to, j, temperature)) {
+                    from.orders.set(i, order);
+                    to.orders.set(j, other);
+                    restore(from, i, to, j);
+                }
+            }
+        }
+
+        private boolean accept(Plan from, int i, Plan to, int j, double temperature) {
+            boolean feasible = from == to
+                    ? from.evaluateFrom(Math.min(i, j))
+                    : from.evaluateFrom(i) && to.evaluateFrom(j);
+            if (!feasible) {
+                return false;
+            }
+            long candidate = totalScore();
+            long delta = candidate - score;
+            if (delta > 0 && random.nextDouble() >= Math.exp(-delta / temperature)) {
+                return false;
+            }
+            if (booked != null && !rebook(from, i, to, j)) {
+                return false;
+            }
+            score = candidate;
+            if (score < bestScore) {
+                bestScore = score;
+                bestSequences = snapshot();
+                lastImprovement = moves;
+            }
+            return true;
+        }
+
+        /**
+         * 按开始时间依次占用当前方案的资源
+         */
+        private boolean bookAll() {
+            for (ListScheduler.Assignment assignment : assignments()) {
+                ResourcePlan.Reservation reservation = tryReserve(assignment);
+                if (reservation == null) {
+                    return false;
+                }
+                bookings.put(assignment.order(), new Booking(assignment.productionLine(),
+                        assignment.startTime(), assignment.endTime(), reservation));
+            }
+            return true;
+        }
+
+        /**
+         * 释放受影响生产线上从改动位置起时段有变化的订单的原占用，按新时段重新占用；
+         * 任一订单占用失败时恢复全部原占用并返回false
+         */
+        private boolean rebook(Plan from, int i, Plan to, int j) {
+            List<ListScheduler.Assignment> changed = new ArrayList<>();
+            if (from == to) {
+                collectChanged(from, Math.min(i, j), changed);
+            } else {
+                collectChanged(from, i, changed);
+                collectChanged(to, j, changed);
+            }
+            if (changed.isEmpty()) {
+                return true;
+            }
+            changed.sort(Comparator.comparing(ListScheduler.Assignment::startTime));
+            for (ListScheduler.Assignment assignment : changed) {
+                bookings.get(assignment.order()).release(booked);
+            }
+
+            List<Booking> rebooked = new ArrayList<>(changed.size());
+            for (ListScheduler.Assignment assignment : changed) {
+                ResourcePlan.Reservation reservation = tryReserve(assignment);
+                if (reservation == null) {
+                    rebooked.forEach(booking -> booking.release(booked));
+                    for (ListScheduler.Assignment undone : changed) {
+                        bookings.get(undone.order()).book(booked);
+                    }
+                    return false;
+                }
+                rebooked.add(new Booking(assignment.productionLine(), assignment.startTime(), assignment.endTime(), reservation));
+            }
+            for (int k = 0; k < changed.size(); k++) {
+                bookings.put(changed.get(k).order(), rebooked.get(k));
+            }
+            return true;
+        }
+
+        private void collectChanged(Plan plan, int p, List<ListScheduler.Assignment> changed) {
+            for (int k = p; k < plan.orders.size(); k++) {
+                ProductionOrder order = plan.orders.get(k);
+                if (!bookings.get(order).matches(plan.line.getName(), plan.starts[k], plan.ends[k])) {
+                    changed.add(new ListScheduler.Assignment(order, plan.line.getName(), plan.starts[k], plan.ends[k]));
+                }
+            }
+        }
+
+        private ResourcePlan.Reservation tryReserve(ListScheduler.Assignment assignment) {
+            return booked.reserve(assignment.order().getProductionStandard().getEquipmentRequired(),
+                    assignment.productionLine(), assignment.startTime(), assignment.endTime());
+        }
+
+        private void restore(Plan from, int i, Plan to, int j) {
+            if (from == to) {
+                from.evaluateFrom(Math.min(i, j));
+            } else {
+                from.evaluateFrom(i);
+                to.evaluateFrom(j);
+            }
+        }
+
+        private long totalScore() {
+            long makespan = 0;
+            long cost = 0;
+            for (Plan plan : plans) {
+                makespan = Math.max(makespan, plan.makespan());
+                cost += plan.cost();
+            }
+            return makespan + cost;
+        }
+
+        private List<List<ProductionOrder>> snapshot() {
+            List<List<ProductionOrder>> sequences = new ArrayList<>(plans.length);
+            for (Plan plan : plans) {
+                sequences.add(List.copyOf(plan.orders));
+            }
+            return sequences;
+        }
+
+        List<ListScheduler.Assignment> bestAssignments() {
+            for (int p = 0; p < plans.length; p++) {
+                plans[p].orders.clear();
+                plans[p].orders.addAll(bestSequences.get(p));
+                plans[p].evaluateFrom(0);
+            }
+            return assignments();
+        }
+
+        /**
+         * 当前方案，按开始时间排序
+         */
+        private List<ListScheduler.Assignment> assignments() {
+            List<ListScheduler.Assignment> assignments = new ArrayList<>();
+            for (Plan plan : plans) {
+                for (int k = 0; k < plan.orders.size(); k++) {
+                    assignments.add(new ListScheduler.Assignment(plan.orders.get(k), plan.line.getName(),
+                            plan.starts[k], plan.ends[k]));
+                }
+            }
+            assignments.sort(Comparator.comparing(ListScheduler.Assignment::startTime));
+            return assignments;
+        }
+    }
+
+    /**
+     * 订单在当前方案中的生产线、时段及占用的设备单元和员工
+     */
+    private record Booking(String productionLine, LocalDateTime start, LocalDateTime end,
+                           ResourcePlan.Reservation reservation) {
+
+        boolean matches(String line, LocalDateTime startTime, LocalDateTime endTime) {
+            return productionLine.equals(line) && start.equals(startTime) && end.equals(endTime);
+        }
+
+        void book(ResourcePlan plan) {
+            plan.book(reservation.unitCodesText(), reservation.staffId(), start, end);
+        }
+
+        void release(ResourcePlan plan) {
+            plan.release(reservation.unitCodesText(), reservation.staffId(), start, end);
+        }
+    }
+
+    /**
+     * 单条生产线的生产顺序及各位置的开工、完工时间
+     * cumulative[k]为前k+1单的空档与加权延误之和，修改位置p之后只需从p开始重算
+     */
+    static final class Plan {
+
+        private final ProductionLine line;
+        private final LineTimeline timeline;
+        private final ShiftCalendar shifts;
+        private final LocalDateTime startDate;
+        private final LocalDateTime windowEnd;
+        private final List<ProductionOrder> orders = new ArrayList<>();
+        private final LocalDateTime[] starts;
+        private final LocalDateTime[] ends;
+        private final long[] cumulative;
+
+        Plan(ProductionLine line, LineTimeline timeline, LocalDateTime startDate, LocalDateTime windowEnd, int capacity) {
+            this.line = line;
+            this.timeline = timeline;
+            this.shifts = ShiftCalendar.of(line.getShifts());
+            this.startDate = startDate;
+            this.windowEnd = windowEnd;
+            this.starts = new LocalDateTime[capacity];
+            this.ends = new LocalDateTime[capacity];
+            this.cumulative = new long[capacity];
+        }
+
+        boolean supports(ProductionOrder order) {
+            return line.supportsEquipment(order.getProductionStandard().getEquipmentRequired());
+        }
+
+        /**
+         * 从位置p开始重新推算开工时间，有订单放不进排程窗口时返回false
+         */
+        boolean evaluateFrom(int p) {
+            for (int k = p; k < orders.size(); k++) {
+                ProductionOrder order = orders.get(k);
+                ProductionStandard standard = order.getProductionStandard();
+                LocalDateTime readyTime = startDate;
+                long previousCost = 0;
+                if (k > 0) {
+                    Long previousStandard = orders.get(k - 1).getProductionStandard().getId();
+                    boolean sameStandard = previousStandard != null && previousStandard.equals(standard.getId());
+                    readyTime = sameStandard ? ends[k - 1] : ends[k - 1].plusMinutes(ListScheduler.CHANGEOVER_MINUTES);
+                    previousCost = cumulative[k - 1];
+                }
+                int duration = ListScheduler.durationOn(line, order, standard);
+                LocalDateTime start = ListScheduler.findStart(timeline, shifts, readyTime, duration,
+                        windowEnd.minusMinutes(duration));
+                if (start == null) {
+                    return false;
+                }
+                starts[k] = start;
+                ends[k] = start.plusMinutes(duration);
+
+                long cost = previousCost;
+                if (k > 0) {
+                    cost += Duration.between(ends[k - 1], start).toMinutes();
+                }
+                LocalDateTime requiredDate = order.getRequiredDate();
+                if (requiredDate != null && ends[k].isAfter(requiredDate)) {
+                    cost += ScheduleSimulator.LATENESS_WEIGHT * Duration.between(requiredDate, ends[k]).toMinutes();
+                }
+                cumulative[k] = cost;
+            }
+            return true;
+        }
+
+        long makespan() {
+            return orders.isEmpty() ? 0 : Duration.between(startDate, ends[orders.size() - 1]).toMinutes();
+        }
+
+        long cost() {
+            return orders.isEmpty() ? 0 : cumulative[orders.size() - 1];
+        }
+    }
+}
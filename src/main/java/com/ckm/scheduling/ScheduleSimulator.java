@@ -0,0 +1,152 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 排程模拟
+ * 在同一份订单和生产线占用快照上并行运行各排程策略，按总完工时间、延误和空档综合评分排序。
+ * 每个策略使用独立的时间轴副本，不写入数据库也不影响共享日历
+ */
+@Component
+public class ScheduleSimulator {
+
+    // 每分钟延误折算的评分权重，延误比多占用生产线更不可接受
+    static final int LATENESS_WEIGHT = 3;
+
+    // 每个未能排入的订单折算的罚分（分钟）
+    static final int UNSCHEDULED_PENALTY_MINUTES = 24 * 60;
+
+    @Autowired
+    private ListScheduler listScheduler;
+
+    @Autowired
+    private List<SchedulingStrategy> strategies = List.of();
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    public List<SchedulingStrategy> getStrategies() {
+        return strategies;
+    }
+
+    /**
+     * 运行指定策略并按评分从优到劣返回，names为空时运行全部策略
+     *
+     * @param baseline 排程窗口内已有排程的生产线时间轴，不会被修改
+     */
+    public List<Candidate> simulate(List<ProductionOrder> orders, List<ProductionLine> productionLines,
+                                    Map<String, LineTimeline> baseline, LocalDateTime startDate,
+                                    LocalDateTime windowEnd, Collection<String> names) {
+        return simulate(orders, productionLines, baseline, null, startDate, windowEnd, names);
+    }
+
+    /**
+     * 同时校验设备单元和员工占用的模拟，每个策略使用resources的独立副本
+     */
+    public List<Candidate> simulate(List<ProductionOrder> orders, List<ProductionLine> productionLines,
+                                    Map<String, LineTimeline> baseline, ResourcePlan resources, LocalDateTime startDate,
+                                    LocalDateTime windowEnd, Collection<String> names) {
+        List<SchedulingStrategy> selected = strategies.stream()
+                .filter(strategy -> names == null || names.isEmpty() || names.contains(strategy.getName()))
+                .toList();
+
+        List<ForkJoinTask<Candidate>> tasks = new ArrayList<>(selected.size());
+        for (SchedulingStrategy strategy : selected) {
+            tasks.add(pool.submit(() -> run(strategy, orders, productionLines, baseline, resources, startDate, windowEnd)));
+        }
+
+        List<Candidate> candidates = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<Candidate> task : tasks) {
+            candidates.add(task.join());
+        }
+        candidates.sort(Comparator.comparingLong(Candidate::score));
+        return candidates;
+    }
+
+    private Candidate run(SchedulingStrategy strategy, List<ProductionOrder> orders, List<ProductionLine> productionLines,
+                          Map<String, LineTimeline> baseline, ResourcePlan resources, LocalDateTime startDate,
+                          LocalDateTime windowEnd) {
+        Map<String, LineTimeline> timelines = new LinkedHashMap<>();
+        for (ProductionLine line : productionLines) {
+            LineTimeline timeline = baseline.get(line.getName());
+            timelines.put(line.getName(), timeline != null ? timeline.copy() : new LineTimeline(line.getName()));
+        }
+
+        List<ListScheduler.Assignment> assignments = listScheduler.assign(strategy.sequence(orders), productionLines,
+                timelines, resources != null ? resources.copy() : null, startDate, windowEnd, strategy.isChangeoverAware());
+        return evaluate(strategy, assignments, orders.size(), startDate);
+    }
+
+    /**
+     * 计算方案指标
+     * 总完工时间为开始时间到最后一单完工的分钟数；空档为同一生产线相邻两单之间的分钟数（含换线间隔）
+     */
+    static Candidate evaluate(SchedulingStrategy strategy, List<ListScheduler.Assignment> assignments,
+                              int orderCount, LocalDateTime startDate) {
+        long makespan = 0;
+        long lateness = 0;
+        int lateOrders = 0;
+        Map<String, List<ListScheduler.Assignment>> byLine = new HashMap<>();
+        for (ListScheduler.Assignment assignment : assignments) {
+            makespan = Math.max(makespan, Duration.between(startDate, assignment.endTime()).toMinutes());
+            LocalDateTime requiredDate = assignment.order().getRequiredDate();
+            if (requiredDate != null && assignment.endTime().isAfter(requiredDate)) {
+                lateness += Duration.between(requiredDate, assignment.endTime()).toMinutes();
+                lateOrders++;
+            }
+            byLine.computeIfAbsent(assignment.productionLine(), line -> new ArrayList<>()).add(assignment);
+        }
+
+        long idle = 0;
+        int changeovers = 0;
+        for (List<ListScheduler.Assignment> lineAssignments : byLine.values()) {
+            lineAssignments.sort(Comparator.comparing(ListScheduler.Assignment::startTime));
+            for (int i = 1; i < lineAssignments.size(); i++) {
+                ListScheduler.Assignment previous = lineAssignments.get(i - 1);
+                ListScheduler.Assignment current = lineAssignments.get(i);
+                idle += Duration.between(previous.endTime(), current.startTime()).toMinutes();
+                Long previousStandard = standardId(previous);
+                if (previousStandard == null || !previousStandard.equals(standardId(current))) {
+                    changeovers++;
+                }
+            }
+        }
+
+        int unscheduled = orderCount - assignments.size();
+        long score = makespan + idle + LATENESS_WEIGHT * lateness + (long) UNSCHEDULED_PENALTY_MINUTES * unscheduled;
+        return new Candidate(strategy.getName(), strategy.getDescription(), assignments,
+                makespan, lateness, lateOrders, idle, changeovers, unscheduled, score);
+    }
+
+    private static Long standardId(ListScheduler.Assignment assignment) {
+        return assignment.order().getProductionStandard().getId();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * 一个策略的模拟方案，score越小越好
+     */
+    public record Candidate(String strategy, String description, List<ListScheduler.Assignment> assignments,
+                            long makespanMinutes, long totalLatenessMinutes, int lateOrders,
+                            long idleMinutes, int changeovers, int unscheduledOrders, long score) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionOrder;
+
+import java.util.List;
+
+/**
+ * 排程策略
+ * 决定订单的派工顺序，生产线和时段由列表排程按顺序分配。实现类注册为Spring组件即可参与排程模拟
+ */
+public interface SchedulingStrategy {
+
+    /**
+     * 策略名称，用于接口参数和结果展示
+     */
+    String getName();
+
+    String getDescription();
+
+    /**
+     * 返回派工顺序，不修改传入的列表
+     */
+    List<ProductionOrder> sequence(List<ProductionOrder> orders);
+
+    /**
+     * 分配生产线时是否优先沿用上一单生产标准相同的生产线以减少换线
+     */
+    default boolean isChangeoverAware() {
+        return false;
+    }
+}
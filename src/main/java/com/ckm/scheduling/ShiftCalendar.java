@@ -0,0 +1,102 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ShiftWindow;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 班次日历
+ * 将班次配置展开为具体日期的开工时段，相邻或重叠的班次合并为一个时段；未配置班次视为全天开工
+ */
+public class ShiftCalendar {
+
+    private static final ShiftCalendar ALWAYS_OPEN = new ShiftCalendar(List.of());
+
+    private final List<ShiftWindow> shifts;
+
+    private ShiftCalendar(List<ShiftWindow> shifts) {
+        this.shifts = List.copyOf(shifts);
+    }
+
+    public static ShiftCalendar of(List<ShiftWindow> shifts) {
+        return shifts == null || shifts.isEmpty() ? ALWAYS_OPEN : new ShiftCalendar(shifts);
+    }
+
+    public boolean isAlwaysOpen() {
+        return shifts.isEmpty();
+    }
+
+    /**
+     * 查找不早于after、能在同一开工时段内连续生产durationMinutes的最早开始时间
+     *
+     * @param latestStart 允许的最晚开始时间，超出返回null
+     */
+    public LocalDateTime alignStart(LocalDateTime after, int durationMinutes, LocalDateTime latestStart) {
+        if (after.isAfter(latestStart)) {
+            return null;
+        }
+        if (isAlwaysOpen()) {
+            return after;
+        }
+        for (Window window : windowsBetween(after, latestStart.plusMinutes(durationMinutes))) {
+            LocalDateTime start = window.start().isAfter(after) ? window.start() : after;
+            if (start.isAfter(latestStart)) {
+                return null;
+            }
+            if (!start.plusMinutes(durationMinutes).isAfter(window.end())) {
+                return start;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 时间范围内的开工时段（已按开始时间排序、合并并截取到范围内）
+     */
+    public List<Window> windowsBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        if (isAlwaysOpen()) {
+            return List.of(new Window(from, to));
+        }
+
+        // 前一天的跨夜班次可能延续到from之后
+        List<Window> occurrences = new ArrayList<>();
+        for (LocalDate day = from.toLocalDate().minusDays(1); !day.isAfter(to.toLocalDate()); day = day.plusDays(1)) {
+            for (ShiftWindow shift : shifts) {
+                if (shift.appliesTo(day.getDayOfWeek())) {
+                    LocalDateTime start = day.atTime(shift.getStartTime());
+                    LocalDateTime end = (shift.isOvernight() ? day.plusDays(1) : day).atTime(shift.getEndTime());
+                    if (end.isAfter(from) && start.isBefore(to)) {
+                        occurrences.add(new Window(start.isBefore(from) ? from : start, end.isAfter(to) ? to : end));
+                    }
+                }
+            }
+        }
+        occurrences.sort(Comparator.comparing(Window::start));
+
+        List<Window> merged = new ArrayList<>();
+        for (Window window : occurrences) {
+            Window last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !window.start().isAfter(last.end())) {
+                if (window.end().isAfter(last.end())) {
+                    merged.set(merged.size() - 1, new Window(last.start(), window.end()));
+                }
+            } else {
+                merged.add(window);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 开工时段
+     */
+    public record Window(LocalDateTime start, LocalDateTime end) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.ProductionOrder;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 最短加工时间优先（SPT）：按生产时长升序，相同时数量少的在前，可缩短平均完工时间
+ */
+@Component
+public class ShortestProcessingTimeStrategy implements SchedulingStrategy {
+
+    private static final Comparator<ProductionOrder> PROCESSING_TIME_ORDER = Comparator
+            .comparing((ProductionOrder order) -> order.getProductionStandard() != null
+                    ? order.getProductionStandard().getPlanningMinutes() : null, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ProductionOrder::getQuantity, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(EarliestDueDateStrategy.DUE_DATE_ORDER);
+
+    @Override
+    public String getName() {
+        return "SPT";
+    }
+
+    @Override
+    public String getDescription() {
+        return "最短加工时间优先";
+    }
+
+    @Override
+    public List<ProductionOrder> sequence(List<ProductionOrder> orders) {
+        return orders.stream().sorted(PROCESSING_TIME_ORDER).toList();
+    }
+}
@@ -0,0 +1,330 @@
+package com.ckm.scheduling;
+
+import com.ckm.entity.KitchenStaff;
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionStep;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 步骤人员分配
+ * 按计划开始时间依次为待开始且未分配人员的步骤挑选员工：员工须具备步骤所需设备的技能、
+ * 出勤班次覆盖整个步骤且该时段没有其他步骤或排程，候选人中选已分配工时最少的。
+ * 员工一律按ID区分，班次和排程占用都取自同一份资源占用计划。
+ * 没有空闲候选人时尝试把占用候选人的那个步骤转给另一名空闲员工（修复），
+ * 最后把工时最多员工的步骤挪给能接手的工时更少的员工以均衡负荷。
+ * 纯内存计算，不访问数据库，也不修改传入的步骤
+ */
+@Component
+public class StaffAssigner {
+
+    /**
+     * 计算步骤的人员分配，只考虑员工班次
+     */
+    public Result assign(List<ProductionStep> steps, List<KitchenStaff> staff) {
+        return assign(steps, staff, null);
+    }
+
+    /**
+     * 计算步骤的人员分配
+     *
+     * @param steps     当天的步骤；已分配人员的待开始或进行中步骤视为固定占用，其余状态的步骤忽略
+     * @param staff     在岗员工
+     * @param resources 员工班次和排程占用，为空时按员工自身的班次建立
+     */
+    public Result assign(List<ProductionStep> steps, List<KitchenStaff> staff, ResourcePlan resources) {
+        List<ProductionStep> open = new ArrayList<>();
+        List<ProductionStep> fixed = new ArrayList<>();
+        LocalDateTime origin = null;
+        LocalDateTime horizon = null;
+        for (ProductionStep step : steps) {
+            if (step.getStatus() != ProductionStep.StepStatus.PENDING
+                    && step.getStatus() != ProductionStep.StepStatus.IN_PROGRESS) {
+                continue;
+            }
+            if (hasStaff(step)) {
+                fixed.add(step);
+            } else if (step.getStatus() == ProductionStep.StepStatus.PENDING) {
+                open.add(step);
+            } else {
+                continue;
+            }
+            LocalDateTime start = startOf(step);
+            LocalDateTime end = start.plusMinutes(durationOf(step));
+            origin = origin == null || start.isBefore(origin) ? start : origin;
+            horizon = horizon == null || end.isAfter(horizon) ? end : horizon;
+        }
+        if (open.isEmpty() || staff.isEmpty()) {
+            return new Result(List.of(), open, Map.of());
+        }
+
+        LocalDateTime dayStart = origin.toLocalDate().atStartOfDay();
+        ResourcePlan plan = resources != null ? resources : ResourcePlan.of(List.of(), staff, dayStart, horizon.plusMinutes(1));
+        Board board = new Board(staff, plan, dayStart, horizon);
+        for (ProductionStep step : fixed) {
+            board.occupy(step);
+        }
+
+        // 同一时刻开始的步骤先排时间长的，技能要求相同的步骤共用候选人列表
+        open.sort(Comparator.comparing(StaffAssigner::startOf)
+                .thenComparing(Comparator.comparingInt((ProductionStep step) -> durationOf(step)).reversed())
+                .thenComparing(ProductionStep::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<ProductionStep> unassigned = new ArrayList<>();
+        for (ProductionStep step : open) {
+            if (!board.place(step) && !board.repair(step)) {
+                unassigned.add(step);
+            }
+        }
+        board.rebalance();
+        return board.result(open, unassigned);
+    }
+
+    private static boolean hasStaff(ProductionStep step) {
+        return step.getStaffId() != null || (step.getAssignedStaff() != null && !step.getAssignedStaff().isBlank());
+    }
+
+    private static LocalDateTime startOf(ProductionStep step) {
+        return step.getStatus() == ProductionStep.StepStatus.IN_PROGRESS && step.getActualStartTime() != null
+                ? step.getActualStartTime() : step.getPlannedStartTime();
+    }
+
+    private static int durationOf(ProductionStep step) {
+        return step.getPlannedDurationMinutes() != null ? Math.max(step.getPlannedDurationMinutes(), 1) : 1;
+    }
+
+    /**
+     * 员工的步骤占用和已分配工时，班次和排程占用由资源计划判断
+     */
+    private static final class Board {
+
+        private final LocalDateTime origin;
+
+        private final List<KitchenStaff> staff;
+
+        private final ResourcePlan plan;
+
+        private final OccupancyBitmap[] busy;
+
+        private final int[] load;
+
+        private final List<List<Slot>> slots;
+
+        private final Map<Long, Integer> indexById = new HashMap<>();
+
+        // 只有姓名的步骤按姓名对应员工，重名的姓名记为-1，不计入任何人
+        private final Map<String, Integer> indexByName = new HashMap<>();
+
+        private final Map<String, int[]> qualifiedByEquipment = new HashMap<>();
+
+        // 按对象标识记录，避免实体的equals/hashCode触发懒加载
+        private final Map<ProductionStep, Integer> assignedTo = new IdentityHashMap<>();
+
+        Board(List<KitchenStaff> staff, ResourcePlan plan, LocalDateTime origin, LocalDateTime horizon) {
+            this.origin = origin;
+            this.staff = staff;
+            this.plan = plan;
+            int minutes = (int) Duration.between(origin, horizon).toMinutes() + 1;
+            int count = staff.size();
+            this.busy = new OccupancyBitmap[count];
+            this.load = new int[count];
+            this.slots = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                KitchenStaff member = staff.get(i);
+                busy[i] = new OccupancyBitmap(minutes);
+                slots.add(new ArrayList<>());
+                indexById.put(member.getId(), i);
+                indexByName.merge(member.getName(), i, (previous, next) -> -1);
+            }
+        }
+
+        void occupy(ProductionStep step) {
+            Integer index = step.getStaffId() != null
+                    ? indexById.get(step.getStaffId()) : indexByName.get(step.getAssignedStaff());
+            if (index != null && index >= 0) {
+                int from = minute(startOf(step));
+                busy[index].occupy(from, from + durationOf(step));
+                load[index] += durationOf(step);
+            }
+        }
+
+        /**
+         * 分配给空闲候选人中工时最少的一个
+         */
+        boolean place(ProductionStep step) {
+            int from = minute(startOf(step));
+            int to = from + durationOf(step);
+            int best = -1;
+            for (int candidate : qualified(step.getEquipment())) {
+                if ((best < 0 || load[candidate] < load[best]) && isAvailable(candidate, from, to)) {
+                    best = candidate;
+                }
+            }
+            if (best < 0) {
+                return false;
+            }
+            book(step, best, from, to);
+            return true;
+        }
+
+        /**
+         * 候选人只被一个已分配步骤占用、且该步骤能转给其他空闲员工时，转出后由候选人接手
+         */
+        boolean repair(ProductionStep step) {
+            int from = minute(startOf(step));
+            int to = from + durationOf(step);
+            for (int candidate : qualified(step.getEquipment())) {
+                if (!plan.isStaffFree(staff.get(candidate).getId(), time(from), time(to))) {
+                    continue;
+                }
+                Slot blocking = null;
+                int overlaps = 0;
+                for (Slot slot : slots.get(candidate)) {
+                    if (slot.from() < to && from < slot.to()) {
+                        blocking = slot;
+                        overlaps++;
+                    }
+                }
+                if (overlaps != 1) {
+                    continue; // 被多个步骤或固定步骤占用
+                }
+                busy[candidate].release(blocking.from(), blocking.to());
+                boolean freed = busy[candidate].isFree(from, to);
+                int target = freed ? takeover(blocking, candidate) : -1;
+                if (target < 0) {
+                    busy[candidate].occupy(blocking.from(), blocking.to());
+                    continue;
+                }
+                unbook(blocking, candidate);
+                book(blocking.step(), target, blocking.from(), blocking.to());
+                book(step, candidate, from, to);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 工时最多的员工起，把步骤挪给工时少到接手后仍低于原员工的空闲候选人
+         */
+        void rebalance() {
+            Integer[] order = new Integer[staff.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt((Integer i) -> load[i]).reversed());
+            for (int owner : order) {
+                for (Slot slot : new ArrayList<>(slots.get(owner))) {
+                    int minutes = slot.to() - slot.from();
+                    int target = -1;
+                    for (int candidate : qualified(slot.step().getEquipment())) {
+                        if (candidate != owner && load[candidate] + minutes < load[owner]
+                                && (target < 0 || load[candidate] < load[target])
+                                && isAvailable(candidate, slot.from(), slot.to())) {
+                            target = candidate;
+                        }
+                    }
+                    if (target >= 0) {
+                        unbook(slot, owner);
+                        book(slot.step(), target, slot.from(), slot.to());
+                    }
+                }
+            }
+        }
+
+        Result result(List<ProductionStep> open, List<ProductionStep> unassigned) {
+            List<Assignment> assignments = new ArrayList<>(assignedTo.size());
+            for (ProductionStep step : open) {
+                Integer index = assignedTo.get(step);
+                if (index != null) {
+                    KitchenStaff member = staff.get(index);
+                    assignments.add(new Assignment(step, member.getId(), member.getName()));
+                }
+            }
+            Map<Long, Integer> loadMinutes = new LinkedHashMap<>();
+            for (int i = 0; i < staff.size(); i++) {
+                loadMinutes.put(staff.get(i).getId(), load[i]);
+            }
+            return new Result(assignments, unassigned, loadMinutes);
+        }
+
+        private int takeover(Slot slot, int excluded) {
+            int best = -1;
+            for (int candidate : qualified(slot.step().getEquipment())) {
+                if (candidate != excluded && (best < 0 || load[candidate] < load[best])
+                        && isAvailable(candidate, slot.from(), slot.to())) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+
+        private boolean isAvailable(int index, int from, int to) {
+            return busy[index].isFree(from, to) && plan.isStaffFree(staff.get(index).getId(), time(from), time(to));
+        }
+
+        private void book(ProductionStep step, int index, int from, int to) {
+            busy[index].occupy(from, to);
+            load[index] += to - from;
+            slots.get(index).add(new Slot(step, from, to));
+            assignedTo.put(step, index);
+        }
+
+        private void unbook(Slot slot, int index) {
+            busy[index].release(slot.from(), slot.to());
+            load[index] -= slot.to() - slot.from();
+            slots.get(index).removeIf(booked -> booked == slot);
+            assignedTo.remove(slot.step());
+        }
+
+        /**
+         * 具备设备技能的员工下标，不要求设备的步骤所有员工均可
+         */
+        private int[] qualified(String equipment) {
+            String key = equipment == null ? "" : equipment;
+            return qualifiedByEquipment.computeIfAbsent(key, k -> {
+                List<String> types = k.isEmpty() ? List.of() : ProductionLine.splitEquipment(k).toList();
+                List<Integer> indexes = new ArrayList<>();
+                for (int i = 0; i < staff.size(); i++) {
+                    Set<String> skills = staff.get(i).getSkillSet();
+                    if (skills.containsAll(types)) {
+                        indexes.add(i);
+                    }
+                }
+                return indexes.stream().mapToInt(Integer::intValue).toArray();
+            });
+        }
+
+        private int minute(LocalDateTime time) {
+            return (int) Duration.between(origin, time).toMinutes();
+        }
+
+        private LocalDateTime time(int minute) {
+            return origin.plusMinutes(minute);
+        }
+    }
+
+    private record Slot(ProductionStep step, int from, int to) {
+    }
+
+    /**
+     * 步骤分配到的员工
+     */
+    public record Assignment(ProductionStep step, Long staffId, String staffName) {
+    }
+
+    /**
+     * 分配结果：assignments为新分配的步骤，unassigned为找不到可用员工的步骤，loadMinutes为各员工ID当天的工时
+     */
+    public record Result(List<Assignment> assignments, List<ProductionStep> unassigned, Map<Long, Integer> loadMinutes) {
+    }
+}
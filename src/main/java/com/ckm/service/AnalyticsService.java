@@ -1,12 +1,14 @@
 package com.ckm.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import com.ckm.dto.CostRollupDTO;
 import com.ckm.entity.QualityTrace;
-import com.ckm.entity.Supplier;
+import com.ckm.repository.BatchCostJdbcRepository;
 import com.ckm.repository.QualityTraceRepository;
-import com.ckm.repository.SupplierRepository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -16,11 +18,16 @@ import java.util.stream.Collectors;
 @Service
 public class AnalyticsService {
 
+    private static final int COST_TREND_DAYS = 30;
+
     @Autowired
     private QualityTraceRepository qualityTraceRepository;
 
     @Autowired
-    private SupplierRepository supplierRepository;
+    private BatchCostService batchCostService;
+
+    @Value("${ckm.cost.target-cost-per-unit:11.8}")
+    private double targetCostPerUnit = 11.8;
 
     /**
      * 获取生产效率分析
@@ -55,45 +62,57 @@ public class AnalyticsService {
     }
 
     /**
-     * 获取成本分析
+     * 获取成本分析，读取预先汇总的批次成本，统计最近30天
      */
     public Map<String, Object> getCostAnalysis() {
         Map<String, Object> result = new HashMap<>();
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(COST_TREND_DAYS - 1);
 
-        // 食材成本分析
-        List<Supplier> suppliers = supplierRepository.findAll();
-        double totalCost = suppliers.stream()
-            .mapToDouble(Supplier::getContractPrice)
-            .sum();
-
-        Map<String, Double> costByCategory = suppliers.stream()
-            .collect(Collectors.groupingBy(
-                Supplier::getCategory,
-                Collectors.summingDouble(Supplier::getContractPrice)
-            ));
-
-        // 成本趋势（最近30天）- 基于实际供应商数据计算
-        Map<String, Object> costTrend = new HashMap<>();
+        // 按日汇总，没有成本的日期记为0
+        Map<LocalDate, CostRollupDTO> byDay = new HashMap<>();
+        for (CostRollupDTO rollup : batchCostService.getRollups(from, today, BatchCostJdbcRepository.Dimension.DAY)) {
+            byDay.put(LocalDate.parse(rollup.getKey()), rollup);
+        }
+        Map<String, Object> costTrend = new LinkedHashMap<>();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd");
-
-        // 计算每日平均成本（这里可以扩展为按日期聚合的实际数据）
-        double avgDailyCost = totalCost / suppliers.size();
-        for (int i = 29; i >= 0; i--) {
-            LocalDate date = LocalDate.now().minusDays(i);
-            String dateStr = date.format(formatter);
-            // 使用实际平均成本加上小幅波动模拟真实趋势
-            double variation = (Math.random() - 0.5) * 0.1 * avgDailyCost; // ±5%波动
-            costTrend.put(dateStr, Math.max(0, avgDailyCost + variation));
+        BigDecimal material = BigDecimal.ZERO;
+        BigDecimal labor = BigDecimal.ZERO;
+        BigDecimal overhead = BigDecimal.ZERO;
+        for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+            CostRollupDTO rollup = byDay.get(date);
+            costTrend.put(date.format(formatter), rollup != null ? rollup.getTotalCost().doubleValue() : 0.0);
+            if (rollup != null) {
+                material = material.add(rollup.getMaterialCost());
+                labor = labor.add(rollup.getLaborCost());
+                overhead = overhead.add(rollup.getOverheadCost());
+            }
         }
+        double totalCost = material.add(labor).add(overhead).doubleValue();
+
+        // 食材成本按供应商分类
+        Map<String, Double> costByCategory = new HashMap<>();
+        batchCostService.getMaterialCostByCategory(from, today)
+                .forEach((category, cost) -> costByCategory.put(category, cost.doubleValue()));
+
+        Map<String, Object> costBreakdown = new HashMap<>();
+        costBreakdown.put("material", material.doubleValue());
+        costBreakdown.put("labor", labor.doubleValue());
+        costBreakdown.put("overhead", overhead.doubleValue());
 
-        // 成本控制指标
+        // 成本控制指标，单位成本为元/份，偏差为百分比，没有完成批次时为空
         Map<String, Object> costMetrics = new HashMap<>();
-        costMetrics.put("costPerUnit", 12.5);        // 元/份
-        costMetrics.put("targetCostPerUnit", 11.8);  // 元/份
-        costMetrics.put("costVariance", 5.9);        // 百分比
+        BigDecimal costPerUnit = batchCostService.getCostPerUnit(from, today);
+        costMetrics.put("costPerUnit", costPerUnit != null ? costPerUnit.doubleValue() : null);
+        costMetrics.put("targetCostPerUnit", targetCostPerUnit);
+        costMetrics.put("costVariance", costPerUnit != null && targetCostPerUnit > 0
+                ? (costPerUnit.doubleValue() - targetCostPerUnit) / targetCostPerUnit * 100 : null);
 
         result.put("totalCost", totalCost);
         result.put("costByCategory", costByCategory);
+        result.put("costBreakdown", costBreakdown);
+        result.put("costByStandard", batchCostService.getRollups(from, today, BatchCostJdbcRepository.Dimension.STANDARD));
+        result.put("costByFranchise", batchCostService.getRollups(from, today, BatchCostJdbcRepository.Dimension.FRANCHISE));
         result.put("costTrend", costTrend);
         result.put("costMetrics", costMetrics);
 
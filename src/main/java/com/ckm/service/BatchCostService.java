@@ -0,0 +1,224 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.ckm.dto.CostRollupDTO;
+import com.ckm.dto.MaterialUsageDTO;
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.QualityTrace;
+import com.ckm.entity.Supplier;
+import com.ckm.repository.BatchCostJdbcRepository;
+import com.ckm.repository.ProductionBatchRepository;
+import com.ckm.repository.QualityTraceRepository;
+import com.ckm.repository.SupplierRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 批次成本核算
+ * 食材成本在领料时按供应商合同价计入，人工和设备成本在步骤完成时按实际工时乘以员工和设备的小时费率计入。
+ * 每次计入的增量在同一事务内累加到批次成本和按日、生产标准、加盟店的汇总行，报表直接读取汇总行；
+ * 合并批次的增量按各加盟店的分配数量分摊
+ */
+@Service
+@Transactional
+public class BatchCostService {
+
+    private static final BigDecimal MINUTES_PER_HOUR = BigDecimal.valueOf(60);
+
+    @Autowired
+    private BatchCostJdbcRepository batchCostJdbcRepository;
+
+    @Autowired
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private QualityTraceRepository qualityTraceRepository;
+
+    @Value("${ckm.cost.default-labor-rate:30.00}")
+    private BigDecimal defaultLaborRate = new BigDecimal("30.00");
+
+    @Value("${ckm.cost.default-overhead-rate:12.00}")
+    private BigDecimal defaultOverheadRate = new BigDecimal("12.00");
+
+    /**
+     * 记录批次领料并计入食材成本
+     */
+    public MaterialUsageDTO recordMaterialUsage(Long batchId, MaterialUsageDTO usage, String recordedBy) {
+        if (usage.getSupplierId() == null || usage.getQuantity() == null || usage.getQuantity().signum() <= 0) {
+            throw new BusinessException("供应商和领用数量不能为空，数量必须大于0");
+        }
+        if (!productionBatchRepository.existsById(batchId)) {
+            throw new RuntimeException("生产批次不存在");
+        }
+        Supplier supplier = supplierRepository.findById(usage.getSupplierId())
+                .orElseThrow(() -> new RuntimeException("供应商不存在"));
+        if (supplier.getContractPrice() == null) {
+            throw new BusinessException("供应商未设置合同价: " + supplier.getName());
+        }
+        String lotNumber = null;
+        String ingredientName = usage.getIngredientName();
+        if (usage.getQualityTraceId() != null) {
+            QualityTrace lot = qualityTraceRepository.findById(usage.getQualityTraceId())
+                    .orElseThrow(() -> new RuntimeException("质量追溯记录不存在"));
+            if (lot.getStatus() == QualityTrace.QualityStatus.FAILED || lot.getStatus() == QualityTrace.QualityStatus.QUARANTINED) {
+                throw new BusinessException("食材批次" + lot.getBatchNumber() + "质检未通过，不能领用");
+            }
+            lotNumber = lot.getBatchNumber();
+            if (ingredientName == null) {
+                ingredientName = lot.getIngredientName();
+            }
+        }
+
+        BigDecimal unitPrice = BigDecimal.valueOf(supplier.getContractPrice()).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal cost = usage.getQuantity().multiply(unitPrice).setScale(2, RoundingMode.HALF_UP);
+        LocalDateTime usedAt = usage.getUsedAt() != null ? usage.getUsedAt() : LocalDateTime.now();
+        Long id = batchCostJdbcRepository.insertMaterialUsage(new BatchCostJdbcRepository.MaterialUsage(batchId,
+                supplier.getId(), usage.getQualityTraceId(), lotNumber, ingredientName, usage.getQuantity(), unitPrice,
+                cost, usedAt, recordedBy));
+        apply(List.of(new Increment(batchId, usedAt.toLocalDate(), ProductionBatch.CostBreakdown.ofMaterial(cost))));
+
+        return MaterialUsageDTO.builder()
+                .id(id)
+                .batchId(batchId)
+                .supplierId(supplier.getId())
+                .qualityTraceId(usage.getQualityTraceId())
+                .lotNumber(lotNumber)
+                .ingredientName(ingredientName)
+                .quantity(usage.getQuantity())
+                .unitPrice(unitPrice)
+                .cost(cost)
+                .usedAt(usedAt)
+                .build();
+    }
+
+    /**
+     * 计入刚完成步骤的人工和设备成本，由步骤完成的流转在同一事务内调用，每个步骤只完成一次
+     * 没有实际工时的步骤不计成本，没有设备的步骤不计设备成本
+     */
+    public void applyCompletedSteps(Collection<Long> stepIds) {
+        List<Increment> increments = new ArrayList<>();
+        for (BatchCostJdbcRepository.StepCost step : batchCostJdbcRepository.findCompletedStepCosts(stepIds)) {
+            if (step.durationMinutes() == null || step.durationMinutes() <= 0) {
+                continue;
+            }
+            BigDecimal hours = BigDecimal.valueOf(step.durationMinutes()).divide(MINUTES_PER_HOUR, 6, RoundingMode.HALF_UP);
+            BigDecimal labor = hours.multiply(step.staffRate() != null ? step.staffRate() : defaultLaborRate)
+                    .setScale(2, RoundingMode.HALF_UP);
+            BigDecimal overhead = step.equipment() == null || step.equipment().isBlank() ? BigDecimal.ZERO
+                    : hours.multiply(step.equipmentRate() != null ? step.equipmentRate() : defaultOverheadRate)
+                    .setScale(2, RoundingMode.HALF_UP);
+            LocalDate costDate = step.completedTime() != null ? step.completedTime().toLocalDate() : LocalDate.now();
+            increments.add(new Increment(step.batchId(), costDate, new ProductionBatch.CostBreakdown(BigDecimal.ZERO, labor, overhead)));
+        }
+        apply(increments);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CostRollupDTO> getRollups(LocalDate from, LocalDate to, BatchCostJdbcRepository.Dimension dimension) {
+        if (from.isAfter(to)) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        return batchCostJdbcRepository.summarize(from, to, dimension).stream()
+                .map(summary -> CostRollupDTO.builder()
+                        .dimension(dimension.name())
+                        .key(summary.groupKey())
+                        .materialCost(summary.materialCost())
+                        .laborCost(summary.laborCost())
+                        .overheadCost(summary.overheadCost())
+                        .totalCost(summary.totalCost())
+                        .build())
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, BigDecimal> getMaterialCostByCategory(LocalDate from, LocalDate to) {
+        return batchCostJdbcRepository.sumMaterialCostByCategory(from, to);
+    }
+
+    /**
+     * 日期范围内完成批次的单位成本，没有完成批次时为空
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getCostPerUnit(LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay().minusNanos(1);
+        Double totalCost = productionBatchRepository.getTotalCostByStatusAndDateRange(ProductionBatch.BatchStatus.COMPLETED, start, end);
+        Long quantity = productionBatchRepository.getActualQuantityByStatusAndDateRange(ProductionBatch.BatchStatus.COMPLETED, start, end);
+        if (totalCost == null || quantity == null || quantity == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(totalCost).divide(BigDecimal.valueOf(quantity), 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * 累加批次成本和汇总行
+     */
+    private void apply(List<Increment> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+        Map<Long, ProductionBatch.CostBreakdown> batchDeltas = new LinkedHashMap<>();
+        for (Increment increment : increments) {
+            batchDeltas.merge(increment.batchId(), increment.cost(), ProductionBatch.CostBreakdown::plus);
+        }
+        batchCostJdbcRepository.adjustBatchCosts(batchDeltas);
+
+        Set<Long> batchIds = new LinkedHashSet<>(batchDeltas.keySet());
+        Map<Long, BatchCostJdbcRepository.BatchOrigin> origins = batchCostJdbcRepository.findOrigins(batchIds);
+        Map<Long, Map<Long, Integer>> allocations = batchCostJdbcRepository.findAllocationQuantities(batchIds);
+        // 按键排序，并发事务以相同顺序更新汇总行
+        Map<BatchCostJdbcRepository.RollupKey, ProductionBatch.CostBreakdown> rollupDeltas = new TreeMap<>();
+        for (Increment increment : increments) {
+            BatchCostJdbcRepository.BatchOrigin origin = origins.get(increment.batchId());
+            if (origin == null) {
+                continue;
+            }
+            Map<Long, Integer> quantities = allocations.getOrDefault(increment.batchId(), Map.of(origin.franchiseId(), 1));
+            split(increment.cost(), quantities).forEach((franchiseId, share) -> rollupDeltas.merge(
+                    new BatchCostJdbcRepository.RollupKey(increment.costDate(), origin.standardId(), franchiseId),
+                    share, ProductionBatch.CostBreakdown::plus));
+        }
+        batchCostJdbcRepository.adjustRollups(rollupDeltas);
+    }
+
+    /**
+     * 按数量比例分摊，舍入差额计入最后一个加盟店，各份之和等于原金额
+     */
+    private static Map<Long, ProductionBatch.CostBreakdown> split(ProductionBatch.CostBreakdown cost, Map<Long, Integer> quantities) {
+        Map<Long, ProductionBatch.CostBreakdown> shares = new LinkedHashMap<>();
+        long whole = quantities.values().stream().mapToLong(Integer::longValue).sum();
+        if (quantities.size() == 1 || whole <= 0) {
+            shares.put(quantities.keySet().iterator().next(), cost);
+            return shares;
+        }
+        ProductionBatch.CostBreakdown remaining = cost;
+        int index = 0;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            ProductionBatch.CostBreakdown share = ++index == quantities.size() ? remaining : cost.share(entry.getValue(), whole);
+            shares.put(entry.getKey(), share);
+            remaining = remaining.minus(share);
+        }
+        return shares;
+    }
+
+    private record Increment(Long batchId, LocalDate costDate, ProductionBatch.CostBreakdown cost) {
+    }
+}
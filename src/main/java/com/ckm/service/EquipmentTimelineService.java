@@ -0,0 +1,174 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.ckm.dto.EquipmentUtilizationDTO;
+import com.ckm.entity.EquipmentUnit;
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ShiftWindow;
+import com.ckm.repository.EquipmentTimelineJdbcRepository;
+import com.ckm.repository.EquipmentUnitRepository;
+import com.ckm.scheduling.EquipmentDirectory;
+import com.ckm.scheduling.EquipmentTimeline;
+import com.ckm.scheduling.ProductionLineRegistry;
+import com.ckm.scheduling.ShiftCalendar;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 设备占用时间轴
+ * 一次范围查询按实际开始时间逐行读取步骤，设备文本归一化后分发到各设备的时间轴，
+ * 统计各开工时段的利用率、空闲时段和超容量占用。固定在生产线上的设备按该线班次统计，
+ * 共用和未登记的设备按全部启用生产线的班次统计
+ */
+@Service
+@Transactional(readOnly = true)
+public class EquipmentTimelineService {
+
+    @Autowired
+    private EquipmentTimelineJdbcRepository equipmentTimelineJdbcRepository;
+
+    @Autowired
+    private EquipmentUnitRepository equipmentUnitRepository;
+
+    @Autowired
+    private ProductionLineRegistry productionLineRegistry;
+
+    // 开始早于统计范围的步骤最多往前找这么久，超过的步骤不计入
+    @Value("${ckm.equipment-timeline.lookback-hours:24}")
+    private int lookbackHours = 24;
+
+    @Value("${ckm.equipment-timeline.min-idle-minutes:30}")
+    private int minIdleMinutes = 30;
+
+    @Value("${ckm.equipment-timeline.max-violations:100}")
+    private int maxViolations = 100;
+
+    @Value("${ckm.equipment-timeline.max-range-days:62}")
+    private int maxRangeDays = 62;
+
+    /**
+     * 各设备在[startDate, endDate]内的占用，启用的设备即使没有步骤也列出，按设备标识排序
+     */
+    public List<EquipmentUtilizationDTO> getTimelines(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new BusinessException("结束日期不能早于开始日期");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= maxRangeDays) {
+            throw new BusinessException("统计范围不能超过" + maxRangeDays + "天");
+        }
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+
+        List<EquipmentUnit> units = equipmentUnitRepository.findAll(Sort.by("code"));
+        EquipmentDirectory directory = EquipmentDirectory.of(units);
+        Calendars calendars = new Calendars(productionLineRegistry.getActiveLines(), from, to);
+
+        Map<String, EquipmentTimeline> timelines = new HashMap<>();
+        for (EquipmentUnit unit : units) {
+            if (unit.getStatus() == EquipmentUnit.UnitStatus.ACTIVE) {
+                timeline(timelines, directory.resolve(unit.getCode()), calendars);
+            }
+        }
+
+        // 同一设备文本在各步骤上反复出现，归一化结果按原文缓存
+        Map<String, Set<EquipmentDirectory.Entry>> resolved = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        equipmentTimelineJdbcRepository.forEachUsage(from.minusHours(lookbackHours), to, usage -> {
+            LocalDateTime end = usage.endTime(now);
+            if (end == null || !end.isAfter(from)) {
+                return;
+            }
+            LocalDateTime start = usage.startTime().isBefore(from) ? from : usage.startTime();
+            if (end.isAfter(to)) {
+                end = to;
+            }
+            for (EquipmentDirectory.Entry entry : resolved.computeIfAbsent(usage.equipment(), equipment -> resolve(directory, equipment))) {
+                timeline(timelines, entry, calendars).add(usage.stepId(), start, end);
+            }
+        });
+
+        List<EquipmentUtilizationDTO> report = new ArrayList<>(timelines.size());
+        for (EquipmentTimeline timeline : timelines.values()) {
+            report.add(timeline.finish());
+        }
+        report.sort((a, b) -> a.getEquipment().compareTo(b.getEquipment()));
+        return report;
+    }
+
+    /**
+     * 一个步骤可能填写多台设备（如"炒锅、电子秤"），重复的只计一次
+     */
+    private static Set<EquipmentDirectory.Entry> resolve(EquipmentDirectory directory, String equipment) {
+        Set<EquipmentDirectory.Entry> entries = new LinkedHashSet<>();
+        ProductionLine.splitEquipment(equipment).map(directory::resolve)
+                .filter(entry -> !entry.id().isEmpty())
+                .forEach(entries::add);
+        return entries;
+    }
+
+    private EquipmentTimeline timeline(Map<String, EquipmentTimeline> timelines, EquipmentDirectory.Entry entry,
+                                       Calendars calendars) {
+        return timelines.computeIfAbsent(entry.id(), id ->
+                new EquipmentTimeline(entry, calendars.windowsFor(entry.productionLine()), minIdleMinutes, maxViolations));
+    }
+
+    /**
+     * 统计范围内各生产线的开工时段，全天开工时按自然日切分，逐日统计
+     */
+    private static final class Calendars {
+
+        private final Map<String, List<ShiftCalendar.Window>> byLine = new LinkedHashMap<>();
+
+        private final List<ShiftCalendar.Window> kitchen;
+
+        private final LocalDateTime from;
+
+        private final LocalDateTime to;
+
+        Calendars(List<ProductionLine> lines, LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+            // 任一生产线未配置班次即全天开工，厨房整体也就全天开工
+            List<ShiftWindow> allShifts = new ArrayList<>();
+            boolean alwaysOpen = lines.isEmpty();
+            for (ProductionLine line : lines) {
+                byLine.put(line.getName(), windows(ShiftCalendar.of(line.getShifts())));
+                alwaysOpen |= line.getShifts() == null || line.getShifts().isEmpty();
+                if (line.getShifts() != null) {
+                    allShifts.addAll(line.getShifts());
+                }
+            }
+            kitchen = windows(ShiftCalendar.of(alwaysOpen ? List.of() : allShifts));
+        }
+
+        List<ShiftCalendar.Window> windowsFor(String productionLine) {
+            List<ShiftCalendar.Window> windows = productionLine != null ? byLine.get(productionLine) : null;
+            return windows != null ? windows : kitchen;
+        }
+
+        private List<ShiftCalendar.Window> windows(ShiftCalendar calendar) {
+            if (!calendar.isAlwaysOpen()) {
+                return calendar.windowsBetween(from, to);
+            }
+            List<ShiftCalendar.Window> days = new ArrayList<>();
+            for (LocalDateTime day = from; day.isBefore(to); day = day.plusDays(1)) {
+                days.add(new ShiftCalendar.Window(day, day.plusDays(1).isAfter(to) ? to : day.plusDays(1)));
+            }
+            return days;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.ckm.event.FloorEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 现场看板事件流（SSE）
+ * 事件在事务提交后按序编号、序列化一次后写入定长环形缓冲，由单个推送线程把每个客户端从其已收到的编号补齐到最新，
+ * 心跳也在同一线程发送，同一客户端不会被并发写入。
+ * 断线重连的客户端带Last-Event-ID从缓冲中续传；编号已被覆盖或来自重启前时先收到reset事件，需重新加载一次全量数据
+ */
+@Slf4j
+@Service
+public class FloorEventStream {
+
+    static final String RESET = "reset";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ckm.floor-events.buffer-size:10000}")
+    private int bufferSize = 10000;
+
+    @Value("${ckm.floor-events.max-clients:1000}")
+    private int maxClients = 1000;
+
+    @Value("${ckm.floor-events.heartbeat-seconds:15}")
+    private long heartbeatSeconds = 15;
+
+    @Value("${ckm.floor-events.emitter-timeout-minutes:30}")
+    private long emitterTimeoutMinutes = 30;
+
+    private AtomicReferenceArray<Entry> ring;
+
+    // 最新事件的编号，写入环形缓冲后才推进
+    private volatile long head;
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+    // 已有待执行的推送任务时不再重复提交
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    private ScheduledExecutorService dispatcher;
+
+    @PostConstruct
+    public void start() {
+        ring = new AtomicReferenceArray<>(bufferSize);
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "floor-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        clients.forEach(client -> client.emitter().complete());
+        clients.clear();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFloorEvent(FloorEvent event) {
+        publish(event);
+    }
+
+    /**
+     * 写入环形缓冲并通知推送线程
+     */
+    public void publish(FloorEvent event) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.warn("Dropping floor event {}: {}", event.type(), e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            long id = head + 1;
+            ring.set(slot(id), new Entry(id, event.type(), data));
+            head = id;
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * 订阅事件流
+     *
+     * @param lastEventId 客户端最后收到的事件编号，为空时只接收此后的新事件
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (clients.size() >= maxClients) {
+            throw new BusinessException("现场事件连接数已达上限，请稍后重连", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        SseEmitter emitter = newEmitter(Duration.ofMinutes(emitterTimeoutMinutes).toMillis());
+        long current = head;
+        Client client = new Client(emitter);
+        if (lastEventId == null) {
+            client.cursor = current;
+        } else if (lastEventId > current || lastEventId < current - bufferSize) {
+            // 编号大于最新事件说明服务已重启、编号重新开始，与落后超过缓冲长度一样需要重新加载
+            client.cursor = current;
+            client.cursor = current;
+            client.resetPending = true;
+        } else {
+            client.cursor = lastEventId;
+        }
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(e -> clients.remove(client));
+        clients.add(client);
+        scheduleFlush();
+        return emitter;
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public long getLastEventId() {
+        return head;
+    }
+
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void scheduleFlush() {
+        if (flushPending.compareAndSet(false, true)) {
+            dispatcher.execute(this::flush);
+        }
+    }
+
+    /**
+     * 把每个客户端补齐到最新事件
+     */
+    private void flush() {
+        flushPending.set(false);
+        long latest = head;
+        for (Client client : clients) {
+            try {
+                if (client.resetPending) {
+                    client.emitter().send(SseEmitter.event().id(String.valueOf(client.cursor)).name(RESET).data("{}"));
+                    client.resetPending = false;
+                }
+                while (client.cursor < latest) {
+                    long id = client.cursor + 1;
+                    Entry entry = ring.get(slot(id));
+                    if (entry == null || entry.id() != id) {
+                        // 客户端落后超过缓冲长度，跳到最新并要求重新加载
+                        client.cursor = latest;
+                        client.emitter().send(SseEmitter.event().id(String.valueOf(latest)).name(RESET).data("{}"));
+                        break;
+                    }
+                    client.emitter().send(SseEmitter.event().id(String.valueOf(id)).name(entry.type())
+                            .data(entry.data(), MediaType.APPLICATION_JSON));
+                    client.cursor = id;
+                }
+            } catch (IOException | IllegalStateException e) {
+                drop(client);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Client client : clients) {
+            try {
+                client.emitter().send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                drop(client);
+            }
+        }
+    }
+
+    private void drop(Client client) {
+        clients.remove(client);
+        client.emitter().completeWithError(new IOException("floor event client disconnected"));
+    }
+
+    private int slot(long id) {
+        return (int) (id % bufferSize);
+    }
+
+    private record Entry(long id, String type, String data) {
+    }
+
+    /**
+     * 订阅的客户端，cursor为已推送的最后事件编号，加入订阅集合后只在推送线程中读写
+     */
+    private static final class Client {
+
+        private final SseEmitter emitter;
+
+        private long cursor;
+
+        private boolean resetPending;
+
+        Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        SseEmitter emitter() {
+            return emitter;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 幂等请求处理
+ * 带Idempotency-Key的写请求在保留期内重试时不再执行，直接按首次结果的ID返回原结果；
+ * 只保存请求摘要和结果ID，不缓存响应内容。本服务不开启事务，结果在业务事务提交后才登记
+ */
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 150;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 执行或重放请求
+     *
+     * @param scope    请求类型，不同接口的相同键互不影响
+     * @param key      客户端提供的幂等键，为空时直接执行
+     * @param request  请求内容，相同键的请求内容不同时拒绝
+     * @param action   首次请求的处理
+     * @param resultId 从处理结果中取出可用于重放的ID
+     * @param replay   按ID重新取得结果
+     */
+    public <T> Outcome<T> execute(String scope, String key, Object request, Supplier<T> action,
+                                  Function<T, String> resultId, Function<String, T> replay) {
+        if (key == null || key.isBlank()) {
+            return new Outcome<>(action.get(), false);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException("Idempotency-Key长度不能超过" + MAX_KEY_LENGTH);
+        }
+        String scopedKey = scope + ":" + key;
+        long fingerprint = fingerprint(request);
+        IdempotencyStore.Entry existing = idempotencyStore.reserve(scopedKey, fingerprint);
+        if (existing != null) {
+            if (existing.fingerprint() != fingerprint) {
+                throw new BusinessException("Idempotency-Key已用于内容不同的请求", HttpStatus.UNPROCESSABLE_ENTITY);
+            }
+            if (!existing.isCompleted()) {
+                throw new BusinessException("相同Idempotency-Key的请求正在处理，请稍后重试", HttpStatus.CONFLICT);
+            }
+            return new Outcome<>(replay.apply(existing.result()), true);
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            idempotencyStore.release(scopedKey);
+            throw e;
+        }
+        idempotencyStore.complete(scopedKey, resultId.apply(result));
+        return new Outcome<>(result, false);
+    }
+
+    /**
+     * 请求内容的64位摘要
+     */
+    private long fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("无法计算请求摘要", e);
+        }
+    }
+
+    /**
+     * 处理结果，replayed表示结果来自之前的请求
+     */
+    public record Outcome<T>(T value, boolean replayed) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.ckm.service;
+
+/**
+ * 幂等键存储
+ * 键首次出现时登记为处理中，处理成功后记录结果，失败时删除以便客户端重试；键在保留期后过期
+ */
+public interface IdempotencyStore {
+
+    /**
+     * 登记幂等键
+     *
+     * @return 键不存在（已登记为处理中）时返回null，否则返回已有记录
+     */
+    Entry reserve(String key, long fingerprint);
+
+    void complete(String key, String result);
+
+    void release(String key);
+
+    /**
+     * 幂等记录：fingerprint为首次请求内容的摘要，result为处理结果的标识，处理中为空
+     */
+    record Entry(long fingerprint, String result) {
+
+        public boolean isCompleted() {
+            return result != null;
+        }
+    }
+}
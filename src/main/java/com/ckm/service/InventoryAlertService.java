@@ -135,9 +135,9 @@ public class InventoryAlertService {
 
     /**
      * 定时任务：每日库存检查
-     * 每天早上8点执行
+     * 由ckm.inventory-alerts.daily-cron开启，如每天早上8点执行为0 0 8 * * ?
      */
-    @Scheduled(cron = "0 0 8 * * ?")
+    @Scheduled(cron = "${ckm.inventory-alerts.daily-cron:-}")
     public void dailyInventoryCheck() {
         Map<String, Object> alerts = checkStockLevels();
 
@@ -150,9 +150,9 @@ public class InventoryAlertService {
 
     /**
      * 定时任务：每周质量检查
-     * 每周一早上9点执行
+     * 由ckm.inventory-alerts.weekly-cron开启，如每周一早上9点执行为0 0 9 ? * MON
      */
-    @Scheduled(cron = "0 0 9 ? * MON")
+    @Scheduled(cron = "${ckm.inventory-alerts.weekly-cron:-}")
     public void weeklyQualityCheck() {
         Map<String, Object> qualityAlerts = getQualityAlerts();
 
@@ -0,0 +1,95 @@
+package com.ckm.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多节点共享的幂等键存储
+ * 以幂等键为主键的表保存登记，主键冲突即为重复请求；过期记录在登记时按批清理
+ */
+@Component
+@ConditionalOnProperty(name = "ckm.idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    // 每登记多少个键清理一次过期记录
+    private static final int PURGE_INTERVAL = 1000;
+
+    private static final int PURGE_LIMIT = 5000;
+
+    // 超过此时间仍未完成的登记视为处理节点已失效，允许重试接管
+    private static final int IN_FLIGHT_TIMEOUT_MINUTES = 5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${ckm.idempotency.ttl-hours:24}")
+    private long ttlHours = 24;
+
+    private final AtomicLong reservations = new AtomicLong();
+
+    @Override
+    public Entry reserve(String key, long fingerprint) {
+        if (reservations.incrementAndGet() % PURGE_INTERVAL == 0) {
+            jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ? LIMIT " + PURGE_LIMIT,
+                    Timestamp.valueOf(LocalDateTime.now()));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            insert(key, fingerprint, now);
+            return null;
+        } catch (DuplicateKeyException e) {
+            List<Entry> existing = jdbcTemplate.query(
+                    "SELECT fingerprint, result FROM idempotency_keys WHERE idempotency_key = ? AND expires_at >= ?",
+                    (rs, rowNum) -> new Entry(rs.getLong(1), rs.getString(2)), key, Timestamp.valueOf(now));
+            if (!existing.isEmpty()) {
+                Entry entry = existing.get(0);
+                // 请求体不同的登记不接管，交由调用方按冲突拒绝
+                if (!entry.isCompleted() && entry.fingerprint() == fingerprint && takeOver(key, fingerprint, now)) {
+                    return null;
+                }
+                return entry;
+            }
+            // 已过期的记录尚未清理，删除后重新登记
+            jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND expires_at < ?",
+                    key, Timestamp.valueOf(now));
+            try {
+                insert(key, fingerprint, now);
+                return null;
+            } catch (DuplicateKeyException concurrent) {
+                return new Entry(fingerprint, null);
+            }
+        }
+    }
+
+    @Override
+    public void complete(String key, String result) {
+        jdbcTemplate.update("UPDATE idempotency_keys SET result = ? WHERE idempotency_key = ?", result, key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key = ? AND result IS NULL", key);
+    }
+
+    private boolean takeOver(String key, long fingerprint, LocalDateTime now) {
+        return jdbcTemplate.update("UPDATE idempotency_keys SET created_at = ? " +
+                        "WHERE idempotency_key = ? AND fingerprint = ? AND result IS NULL AND created_at < ?",
+                Timestamp.valueOf(now), key, fingerprint,
+                Timestamp.valueOf(now.minusMinutes(IN_FLIGHT_TIMEOUT_MINUTES))) == 1;
+    }
+
+    private void insert(String key, long fingerprint, LocalDateTime now) {
+        jdbcTemplate.update(
+                "INSERT INTO idempotency_keys (idempotency_key, fingerprint, created_at, expires_at) VALUES (?, ?, ?, ?)",
+                key, fingerprint, Timestamp.valueOf(now), Timestamp.valueOf(now.plusHours(ttlHours)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.ckm.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 单节点幂等键存储
+ * 基于有容量上限、按写入时间过期的并发哈希表，每个键只保存请求摘要和结果ID
+ */
+@Component
+@ConditionalOnProperty(name = "ckm.idempotency.store", havingValue = "local", matchIfMissing = true)
+public class LocalIdempotencyStore implements IdempotencyStore {
+
+    @Value("${ckm.idempotency.ttl-hours:24}")
+    private long ttlHours = 24;
+
+    @Value("${ckm.idempotency.max-keys:200000}")
+    private long maxKeys = 200000;
+
+    private Cache<String, Entry> entries;
+
+    @PostConstruct
+    public void init() {
+        entries = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .maximumSize(maxKeys)
+                .build();
+    }
+
+    @Override
+    public Entry reserve(String key, long fingerprint) {
+        return entries.asMap().putIfAbsent(key, new Entry(fingerprint, null));
+    }
+
+    @Override
+    public void complete(String key, String result) {
+        entries.asMap().computeIfPresent(key, (k, entry) -> new Entry(entry.fingerprint(), result));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.asMap().computeIfPresent(key, (k, entry) -> entry.isCompleted() ? entry : null);
+    }
+}
@@ -0,0 +1,183 @@
+package com.ckm.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 订单导入文件的逐行读取
+ * CSV首行为列名，字段可用双引号包裹（引号内的逗号不分隔，两个双引号表示一个双引号），不支持跨行字段；
+ * NDJSON每行一个JSON对象。列名统一转为小写并去掉下划线和连字符，一次只在内存中保留一行
+ */
+public class OrderImportReader implements Iterator<OrderImportReader.Row>, AutoCloseable {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private final BufferedReader reader;
+
+    private final Format format;
+
+    private final ObjectMapper objectMapper;
+
+    private List<String> header;
+
+    private int lineNumber;
+
+    private Row next;
+
+    public OrderImportReader(InputStream input, Format format, ObjectMapper objectMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = read();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Row read() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                    line = line.substring(1);
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && header == null) {
+                    header = new ArrayList<>();
+                    for (String name : splitCsv(line)) {
+                        header.add(normalize(name));
+                    }
+                    continue;
+                }
+                try {
+                    return new Row(lineNumber, format == Format.CSV ? csvFields(line) : jsonFields(line), null);
+                } catch (IllegalArgumentException e) {
+                    return new Row(lineNumber, Map.of(), e.getMessage());
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, String> csvFields(String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("字段数多于列名");
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            String value = values.get(i).trim();
+            if (!value.isEmpty()) {
+                fields.put(header.get(i), value);
+            }
+        }
+        return fields;
+    }
+
+    private Map<String, String> jsonFields(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("不是有效的JSON");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("每行必须是一个JSON对象");
+        }
+        Map<String, String> fields = new HashMap<>();
+        node.fields().forEachRemaining(field -> {
+            JsonNode value = field.getValue();
+            if (value.isObject()) {
+                // 关联对象按{"id": ...}或{"name": ...}引用
+                JsonNode reference = value.has("id") ? value.get("id") : value.has("name") ? value.get("name") : value.get("dishName");
+                if (reference != null && !reference.isNull()) {
+                    fields.put(normalize(field.getKey()), reference.asText());
+                }
+            } else if (!value.isNull() && !value.asText().isBlank()) {
+                fields.put(normalize(field.getKey()), value.asText().trim());
+            }
+        });
+        return fields;
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("引号未闭合");
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static String normalize(String name) {
+        return name.trim().replace("_", "").replace("-", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 文件中的一行，error不为空表示该行无法解析
+     */
+    public record Row(int lineNumber, Map<String, String> fields, String error) {
+    }
+}
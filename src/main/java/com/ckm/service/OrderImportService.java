@@ -0,0 +1,372 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.ckm.dto.OrderImportResultDTO;
+import com.ckm.entity.Franchise;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.repository.FranchiseRepository;
+import com.ckm.repository.ProductionOrderJdbcRepository;
+import com.ckm.repository.ProductionStandardRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 加盟店订单文件导入
+ * 逐行读取CSV或NDJSON，加盟店和生产标准在导入开始时一次性载入内存按ID或名称匹配，
+ * 有效订单攒满一批后分配编号、在一个事务内JDBC批量插入。
+ * 无法解析或校验不通过的行记入错误报告，不影响其余行；整批插入失败时对半拆分重试以定位出错的行
+ */
+@Slf4j
+@Service
+public class OrderImportService {
+
+    @Autowired
+    private FranchiseRepository franchiseRepository;
+
+    @Autowired
+    private ProductionStandardRepository productionStandardRepository;
+
+    @Autowired
+    private ProductionOrderJdbcRepository productionOrderJdbcRepository;
+
+    @Autowired
+    private SequenceAllocator sequenceAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ckm.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${ckm.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+
+    @Value("${ckm.import.max-retry-transactions:64}")
+    private int maxRetryTransactions = 64;
+
+    /**
+     * 按文件名后缀判断格式，.ndjson和.jsonl为NDJSON，其余按CSV处理
+     */
+    public static OrderImportReader.Format formatOf(String format, String filename) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return OrderImportReader.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new BusinessException("不支持的导入格式: " + format);
+            }
+        }
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl")
+                ? OrderImportReader.Format.NDJSON : OrderImportReader.Format.CSV;
+    }
+
+    /**
+     * 导入订单文件
+     * 列：franchise（加盟店ID或名称）、standard（生产标准ID或菜品名称）、quantity、unitPrice、requiredDate，
+     * 可选priority、specialInstructions、notes、orderNumber
+     */
+    public OrderImportResultDTO importOrders(InputStream input, OrderImportReader.Format format, String importedBy) {
+        Lookup lookup = new Lookup(franchiseRepository.findAll(), productionStandardRepository.findAll());
+        Report report = new Report(maxReportedErrors);
+        List<ProductionOrder> chunk = new ArrayList<>(chunkSize);
+        List<Integer> lines = new ArrayList<>(chunkSize);
+        try (OrderImportReader reader = new OrderImportReader(input, format, objectMapper)) {
+            while (reader.hasNext()) {
+                OrderImportReader.Row row = reader.next();
+                report.totalLines++;
+                if (row.error() != null) {
+                    report.fail(row.lineNumber(), row.error());
+                    continue;
+                }
+                try {
+                    chunk.add(toOrder(row.fields(), lookup, importedBy));
+                    lines.add(row.lineNumber());
+                } catch (BusinessException e) {
+                    report.fail(row.lineNumber(), e.getMessage());
+                }
+                if (chunk.size() >= chunkSize) {
+                    flush(chunk, lines, report);
+                }
+            }
+            flush(chunk, lines, report);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Order import by {} stopped after {} lines: {}", importedBy, report.totalLines, e.getMessage());
+            throw new BusinessException("读取导入文件失败: " + e.getMessage());
+        }
+        return report.toResult();
+    }
+
+    private ProductionOrder toOrder(Map<String, String> fields, Lookup lookup, String importedBy) {
+        ProductionOrder order = new ProductionOrder();
+        order.setFranchise(lookup.franchise(first(fields, "franchise", "franchiseid", "franchisename")));
+        order.setProductionStandard(lookup.standard(first(fields, "standard", "productionstandard",
+                "productionstandardid", "standardid", "dishname")));
+        order.setQuantity(parseQuantity(fields.get("quantity")));
+        order.setUnitPrice(parseUnitPrice(fields.get("unitprice")));
+        order.setRequiredDate(parseRequiredDate(fields.get("requireddate")));
+        order.setPriority(parsePriority(fields.get("priority")));
+        order.setSpecialInstructions(fields.get("specialinstructions"));
+        order.setNotes(fields.get("notes"));
+        order.setOrderNumber(fields.get("ordernumber"));
+        order.setCreatedBy(importedBy);
+        order.setUpdatedBy(importedBy);
+        return order;
+    }
+
+    /**
+     * 分配编号、计算总金额后整批插入，失败时对半拆分重试
+     */
+    private void flush(List<ProductionOrder> chunk, List<Integer> lines, Report report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // 编号在独立事务中预留，拆分重试时沿用，失败行的编号不再使用
+        assignNumbers(chunk);
+        insertSplitting(chunk, lines, 0, chunk.size(), maxRetryTransactions, report);
+        chunk.clear();
+        lines.clear();
+    }
+
+    /**
+     * 插入[from, to)范围内的订单，失败时对半拆分重试以定位出错的行，少量坏行只需对数级的事务数；
+     * 重试事务数用完后不再拆分，失败范围内的行整体记为失败
+     *
+     * @return 剩余可用的重试事务数
+     */
+    private int insertSplitting(List<ProductionOrder> chunk, List<Integer> lines, int from, int to,
+                                int retries, Report report) {
+        List<ProductionOrder> orders = chunk.subList(from, to);
+        try {
+            insert(orders);
+            report.imported += orders.size();
+            return retries;
+        } catch (RuntimeException e) {
+            orders.forEach(order -> order.setId(null));
+            if (orders.size() == 1 || retries < 2) {
+                String message = "写入失败: " + rootMessage(e);
+                for (int i = from; i < to; i++) {
+                    report.fail(lines.get(i), message);
+                }
+                return retries;
+            }
+        }
+        int middle = (from + to) >>> 1;
+        int remaining = insertSplitting(chunk, lines, from, middle, retries - 2, report);
+        return insertSplitting(chunk, lines, middle, to, remaining, report);
+    }
+
+    private void insert(List<ProductionOrder> orders) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> productionOrderJdbcRepository.insertAll(orders));
+    }
+
+    private void assignNumbers(List<ProductionOrder> orders) {
+        List<ProductionOrder> unnumbered = orders.stream().filter(order -> order.getOrderNumber() == null).toList();
+        Iterator<String> numbers = sequenceAllocator.next(SequenceAllocator.ORDER_PREFIX, unnumbered.size()).iterator();
+        for (ProductionOrder order : unnumbered) {
+            order.setOrderNumber(numbers.next());
+        }
+        for (ProductionOrder order : orders) {
+            order.setTotalAmount(order.getUnitPrice().multiply(BigDecimal.valueOf(order.getQuantity())));
+        }
+    }
+
+    private static String first(Map<String, String> fields, String... names) {
+        for (String name : names) {
+            String value = fields.get(name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static Integer parseQuantity(String value) {
+        if (value == null) {
+            throw new BusinessException("数量不能为空");
+        }
+        try {
+            int quantity = Integer.parseInt(value);
+            if (quantity <= 0) {
+                throw new BusinessException("数量必须大于0");
+            }
+            return quantity;
+        } catch (NumberFormatException e) {
+            throw new BusinessException("数量格式错误: " + value);
+        }
+    }
+
+    private static BigDecimal parseUnitPrice(String value) {
+        if (value == null) {
+            throw new BusinessException("单价不能为空");
+        }
+        try {
+            BigDecimal unitPrice = new BigDecimal(value);
+            if (unitPrice.signum() < 0) {
+                throw new BusinessException("单价不能为负数");
+            }
+            return unitPrice;
+        } catch (NumberFormatException e) {
+            throw new BusinessException("单价格式错误: " + value);
+        }
+    }
+
+    /**
+     * 接受yyyy-MM-ddTHH:mm[:ss]、yyyy-MM-dd HH:mm[:ss]或只有日期（视为当天0点）
+     */
+    private static LocalDateTime parseRequiredDate(String value) {
+        if (value == null) {
+            throw new BusinessException("要求完成时间不能为空");
+        }
+        try {
+            if (value.length() <= 10) {
+                return LocalDate.parse(value).atStartOfDay();
+            }
+            return LocalDateTime.parse(value.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            throw new BusinessException("要求完成时间格式错误: " + value);
+        }
+    }
+
+    private static ProductionOrder.Priority parsePriority(String value) {
+        if (value == null) {
+            return ProductionOrder.Priority.NORMAL;
+        }
+        try {
+            return ProductionOrder.Priority.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("优先级错误: " + value);
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    /**
+     * 导入期间的加盟店和生产标准索引，数字先按ID匹配，再按名称匹配
+     */
+    private static final class Lookup {
+
+        private final Map<Long, Franchise> franchisesById = new HashMap<>();
+
+        private final Map<String, Franchise> franchisesByName = new HashMap<>();
+
+        private final Map<Long, ProductionStandard> standardsById = new HashMap<>();
+
+        private final Map<String, ProductionStandard> standardsByName = new HashMap<>();
+
+        Lookup(List<Franchise> franchises, List<ProductionStandard> standards) {
+            for (Franchise franchise : franchises) {
+                franchisesById.put(franchise.getId(), franchise);
+                if (franchise.getName() != null) {
+                    franchisesByName.putIfAbsent(franchise.getName(), franchise);
+                }
+            }
+            for (ProductionStandard standard : standards) {
+                standardsById.put(standard.getId(), standard);
+                if (standard.getDishName() != null) {
+                    standardsByName.putIfAbsent(standard.getDishName(), standard);
+                }
+            }
+        }
+
+        Franchise franchise(String reference) {
+            if (reference == null) {
+                throw new BusinessException("加盟店不能为空");
+            }
+            Franchise franchise = find(franchisesById, franchisesByName, reference);
+            if (franchise == null) {
+                throw new BusinessException("加盟店不存在: " + reference);
+            }
+            return franchise;
+        }
+
+        ProductionStandard standard(String reference) {
+            if (reference == null) {
+                throw new BusinessException("生产标准不能为空");
+            }
+            ProductionStandard standard = find(standardsById, standardsByName, reference);
+            if (standard == null) {
+                throw new BusinessException("生产标准不存在: " + reference);
+            }
+            return standard;
+        }
+
+        private static <T> T find(Map<Long, T> byId, Map<String, T> byName, String reference) {
+            T found = null;
+            try {
+                found = byId.get(Long.valueOf(reference));
+            } catch (NumberFormatException ignored) {
+                // 不是ID，按名称匹配
+            }
+            return found != null ? found : byName.get(reference);
+        }
+    }
+
+    /**
+     * 导入计数和错误报告
+     */
+    private static final class Report {
+
+        private final int maxErrors;
+
+        private final List<OrderImportResultDTO.LineError> errors = new ArrayList<>();
+
+        private int totalLines;
+
+        private int imported;
+
+        private int failed;
+
+        Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void fail(int line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new OrderImportResultDTO.LineError(line, message));
+            }
+        }
+
+        OrderImportResultDTO toResult() {
+            // 整批失败后逐行重试的错误晚于后续行记入，按行号重排
+            errors.sort((a, b) -> Integer.compare(a.line(), b.line()));
+            return OrderImportResultDTO.builder()
+                    .totalLines(totalLines)
+                    .importedCount(imported)
+                    .failedCount(failed)
+                    .errors(errors)
+                    .errorsTruncated(failed > errors.size())
+                    .build();
+        }
+    }
+}
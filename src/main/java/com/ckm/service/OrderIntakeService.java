@@ -0,0 +1,296 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.ckm.TooManyRequestsException;
+import com.ckm.dto.OrderIntakeTicketDTO;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.repository.ProductionOrderJdbcRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 订单异步受理
+ * 提交的订单进入有界内存队列后立即返回受理凭据，由固定数量的写入线程合并多次提交、
+ * 按批在一个事务内JDBC批量插入，数据库连接占用不超过写入线程数。
+ * 排队订单数达到上限时直接拒绝并给出按当前写入速度估算的重试间隔，不让请求线程堆积在连接池上
+ */
+@Slf4j
+@Service
+public class OrderIntakeService {
+
+    private static final String QUEUED = "QUEUED";
+
+    private static final String COMPLETED = "COMPLETED";
+
+    private static final String FAILED = "FAILED";
+
+    private static final long POLL_MILLIS = 200;
+
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    @Autowired
+    private ProductionOrderJdbcRepository productionOrderJdbcRepository;
+
+    @Autowired
+    private SequenceAllocator sequenceAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ckm.intake.queue-capacity:5000}")
+    private int queueCapacity = 5000;
+
+    @Value("${ckm.intake.writers:4}")
+    private int writerCount = 4;
+
+    @Value("${ckm.intake.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${ckm.intake.ticket-retention-minutes:60}")
+    private long ticketRetentionMinutes = 60;
+
+    // 受理凭据至少保留到幂等键过期，重试时才能按凭据重放
+    @Value("${ckm.idempotency.ttl-hours:24}")
+    private long idempotencyTtlHours = 24;
+
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+
+    // 已受理未写入的订单数，按订单数而不是提交次数限流
+    private final AtomicInteger queuedOrders = new AtomicInteger();
+
+    // 最近的写入速度（订单/秒），用于估算Retry-After
+    private volatile double ordersPerSecond;
+
+    private volatile boolean running;
+
+    private Cache<String, OrderIntakeTicketDTO> tickets;
+
+    private ExecutorService writers;
+
+    @PostConstruct
+    public void start() {
+        tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(Math.max(ticketRetentionMinutes, idempotencyTtlHours * 60)))
+                .build();
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerCount, runnable -> {
+            Thread thread = new Thread(runnable, "order-intake-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < writerCount; i++) {
+            writers.submit(this::drainLoop);
+        }
+    }
+
+    /**
+     * 停止受理，已排队的订单写完后再退出
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writers != null) {
+            writers.shutdown();
+            writers.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 受理一次订单提交，订单写入前只做必填项检查
+     *
+     * @throws TooManyRequestsException 排队订单数超过上限
+     */
+    public OrderIntakeTicketDTO submit(List<ProductionOrder> orders, String submittedBy) {
+        if (orders == null || orders.isEmpty()) {
+            throw new BusinessException("订单不能为空");
+        }
+        for (ProductionOrder order : orders) {
+            if (order == null || order.getQuantity() == null || order.getQuantity() <= 0 || order.getRequiredDate() == null) {
+                throw new BusinessException("订单数量和要求完成时间不能为空");
+            }
+        }
+        if (!running) {
+            throw new BusinessException("订单受理已停止", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (orders.size() > queueCapacity) {
+            throw new BusinessException("单次提交的订单数不能超过" + queueCapacity);
+        }
+
+        int queued;
+        do {
+            queued = queuedOrders.get();
+            if (queued + orders.size() > queueCapacity) {
+                throw new TooManyRequestsException("订单受理繁忙，请稍后重试", retryAfterSeconds(queued));
+            }
+        } while (!queuedOrders.compareAndSet(queued, queued + orders.size()));
+
+        for (ProductionOrder order : orders) {
+            order.setId(null);
+            order.setCreatedBy(submittedBy);
+            order.setUpdatedBy(submittedBy);
+        }
+        Submission submission = new Submission(UUID.randomUUID().toString(), List.copyOf(orders), LocalDateTime.now());
+        OrderIntakeTicketDTO ticket = ticket(submission, QUEUED, null, null);
+        tickets.put(submission.ticketId(), ticket);
+        queue.add(submission);
+        return ticket;
+    }
+
+    public Optional<OrderIntakeTicketDTO> findTicket(String ticketId) {
+        return Optional.ofNullable(tickets.getIfPresent(ticketId));
+    }
+
+    public int getQueuedOrders() {
+        return queuedOrders.get();
+    }
+
+    private void drainLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Submission first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    write(collect(first));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // 写入线程不能因单批异常退出
+                log.error("Order intake writer failed", e);
+            }
+        }
+    }
+
+    /**
+     * 在first之后继续取出已排队的提交，凑满一批
+     */
+    private List<Submission> collect(Submission first) {
+        List<Submission> batch = new ArrayList<>();
+        batch.add(first);
+        int orders = first.orders().size();
+        while (orders < batchSize) {
+            Submission next = queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            orders += next.orders().size();
+        }
+        return batch;
+    }
+
+    /**
+     * 整批在一个事务内写入；失败时逐个提交单独重试，只让出错的提交失败
+     */
+    private void write(List<Submission> batch) {
+        long started = System.nanoTime();
+        List<ProductionOrder> orders = new ArrayList<>();
+        batch.forEach(submission -> orders.addAll(submission.orders()));
+        try {
+            // 编号在独立事务中预留，先于写入事务分配，避免同时占用两个连接
+            assignNumbers(orders);
+            insert(orders);
+            batch.forEach(submission -> tickets.put(submission.ticketId(), ticket(submission, COMPLETED, null, LocalDateTime.now())));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+            } else {
+                for (Submission submission : batch) {
+                    try {
+                        assignNumbers(submission.orders());
+                        insert(submission.orders());
+                        tickets.put(submission.ticketId(), ticket(submission, COMPLETED, null, LocalDateTime.now()));
+                    } catch (RuntimeException single) {
+                        fail(submission, single);
+                    }
+                }
+            }
+        } finally {
+            queuedOrders.addAndGet(-orders.size());
+            recordThroughput(orders.size(), System.nanoTime() - started);
+        }
+    }
+
+    private void insert(List<ProductionOrder> orders) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> productionOrderJdbcRepository.insertAll(orders));
+    }
+
+    private void assignNumbers(List<ProductionOrder> orders) {
+        List<ProductionOrder> unnumbered = orders.stream().filter(order -> order.getOrderNumber() == null).toList();
+        Iterator<String> numbers = sequenceAllocator.next(SequenceAllocator.ORDER_PREFIX, unnumbered.size()).iterator();
+        for (ProductionOrder order : unnumbered) {
+            order.setOrderNumber(numbers.next());
+        }
+        for (ProductionOrder order : orders) {
+            if (order.getUnitPrice() != null) {
+                order.setTotalAmount(order.getUnitPrice().multiply(BigDecimal.valueOf(order.getQuantity())));
+            }
+        }
+    }
+
+    private void fail(Submission submission, RuntimeException e) {
+        log.warn("Order intake ticket {} failed: {}", submission.ticketId(), e.getMessage());
+        tickets.put(submission.ticketId(), ticket(submission, FAILED, "订单写入失败: " + e.getMessage(), LocalDateTime.now()));
+    }
+
+    /**
+     * 按写入线程数和单线程写入速度估算清空当前队列所需的秒数
+     */
+    private long retryAfterSeconds(int queued) {
+        double rate = ordersPerSecond * writerCount;
+        if (rate <= 0) {
+            return 1;
+        }
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, (long) Math.ceil(queued / rate)));
+    }
+
+    private void recordThroughput(int orders, long elapsedNanos) {
+        double rate = orders / Math.max(elapsedNanos / 1e9, 1e-3);
+        double previous = ordersPerSecond;
+        ordersPerSecond = previous <= 0 ? rate : previous * 0.8 + rate * 0.2;
+    }
+
+    private static OrderIntakeTicketDTO ticket(Submission submission, String status, String message,
+                                               LocalDateTime completedAt) {
+        boolean completed = COMPLETED.equals(status);
+        return OrderIntakeTicketDTO.builder()
+                .ticketId(submission.ticketId())
+                .status(status)
+                .orderCount(submission.orders().size())
+                .orderIds(completed ? submission.orders().stream().map(ProductionOrder::getId).toList() : List.of())
+                .orderNumbers(completed ? submission.orders().stream().map(ProductionOrder::getOrderNumber).toList() : List.of())
+                .message(message)
+                .submittedAt(submission.submittedAt())
+                .completedAt(completedAt)
+                .build();
+    }
+
+    private record Submission(String ticketId, List<ProductionOrder> orders, LocalDateTime submittedAt) {
+    }
+}
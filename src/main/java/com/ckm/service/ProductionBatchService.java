@@ -1,10 +1,19 @@
 package com.ckm.service;
 
+import com.ckm.BusinessException;
+import com.ckm.dto.TransitionResultDTO;
 import com.ckm.entity.ProductionBatch;
 import com.ckm.entity.ProductionOrder;
 import com.ckm.entity.ProductionSchedule;
+import com.ckm.event.BatchPausedEvent;
+import com.ckm.event.FloorEvent;
 import com.ckm.repository.ProductionBatchRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,13 +22,38 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+@Slf4j
 @Service
 @Transactional
 public class ProductionBatchService {
 
+    // 各流转允许的起始状态
+    private static final List<ProductionBatch.BatchStatus> STARTABLE = List.of(
+            ProductionBatch.BatchStatus.PLANNED, ProductionBatch.BatchStatus.PREPARING);
+    private static final List<ProductionBatch.BatchStatus> COMPLETABLE = List.of(
+            ProductionBatch.BatchStatus.IN_PROGRESS, ProductionBatch.BatchStatus.QUALITY_CHECK);
+    private static final List<ProductionBatch.BatchStatus> PAUSABLE = List.of(
+            ProductionBatch.BatchStatus.PREPARING, ProductionBatch.BatchStatus.IN_PROGRESS);
+    private static final List<ProductionBatch.BatchStatus> RESUMABLE = List.of(ProductionBatch.BatchStatus.ON_HOLD);
+    private static final List<ProductionBatch.BatchStatus> REJECTABLE = List.of(
+            ProductionBatch.BatchStatus.PLANNED, ProductionBatch.BatchStatus.PREPARING, ProductionBatch.BatchStatus.IN_PROGRESS,
+            ProductionBatch.BatchStatus.QUALITY_CHECK, ProductionBatch.BatchStatus.ON_HOLD);
+
     @Autowired
     private ProductionBatchRepository productionBatchRepository;
 
+    @Autowired
+    private SequenceAllocator sequenceAllocator;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StepTemplateService stepTemplateService;
+
+    @Value("${ckm.step-counters.reconcile-lookback-hours:24}")
+    private long reconcileLookbackHours = 24;
+
     public List<ProductionBatch> findAll() {
         return productionBatchRepository.findAll();
     }
@@ -31,7 +65,7 @@ public class ProductionBatchService {
     public ProductionBatch save(ProductionBatch batch) {
         // 生成批次编号
         if (batch.getBatchNumber() == null) {
-            batch.setBatchNumber(generateBatchNumber());
+            batch.setBatchNumber(sequenceAllocator.next(SequenceAllocator.BATCH_PREFIX));
         }
 
         // 设置开始时间
@@ -39,13 +73,57 @@ public class ProductionBatchService {
             batch.setStartTime(LocalDateTime.now());
         }
 
-        return productionBatchRepository.save(batch);
+        // 新建且未带步骤的批次按生产标准的步骤模板生成步骤
+        boolean expandSteps = batch.getId() == null && (batch.getSteps() == null || batch.getSteps().isEmpty());
+        ProductionBatch saved = productionBatchRepository.save(batch);
+        if (expandSteps) {
+            stepTemplateService.materializeSteps(List.of(saved));
+        }
+        return saved;
+    }
+
+    /**
+     * 保存合并生成的批次，整批一次预留编号，分配记录随批次级联保存，所有批次的步骤一次批量插入
+     */
+    public List<ProductionBatch> saveAll(List<ProductionBatch> batches) {
+        List<String> numbers = sequenceAllocator.next(SequenceAllocator.BATCH_PREFIX, batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            ProductionBatch batch = batches.get(i);
+            batch.setBatchNumber(numbers.get(i));
+            if (batch.getStartTime() == null) {
+                batch.setStartTime(LocalDateTime.now());
+            }
+        }
+        List<ProductionBatch> saved = productionBatchRepository.saveAll(batches);
+        stepTemplateService.materializeSteps(saved);
+        return saved;
     }
 
     public void deleteById(Long id) {
         productionBatchRepository.deleteById(id);
     }
 
+    /**
+     * 对账步骤计数：找出计数与步骤实际状态不一致的批次并按步骤重新统计。
+     * 计数随步骤流转增量维护，绕过服务直接写入步骤或并发覆盖质检结果时可能产生偏差；
+     * 只检查未结束和最近更新过的批次
+     *
+     * @return 修正的批次数
+     */
+    @Scheduled(initialDelayString = "${ckm.step-counters.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${ckm.step-counters.reconcile-interval-ms:300000}")
+    public int reconcileStepCounters() {
+        List<Long> drifted = productionBatchRepository.findBatchIdsWithStepCounterDrift(
+                LocalDateTime.now().minusHours(reconcileLookbackHours));
+        if (drifted.isEmpty()) {
+            return 0;
+        }
+        log.warn("Repairing step counters of {} batches: {}", drifted.size(),
+                drifted.size() > 20 ? drifted.subList(0, 20) + "..." : drifted);
+        productionBatchRepository.recountStepCounters(drifted);
+        return drifted.size();
+    }
+
     public List<ProductionBatch> findByProductionOrderId(Long orderId) {
         return productionBatchRepository.findByProductionOrderIdOrderByStartTimeAsc(orderId);
     }
@@ -54,81 +132,88 @@ public class ProductionBatchService {
         return productionBatchRepository.findByStatusOrderByStartTimeAsc(status);
     }
 
-    public ProductionBatch startBatch(Long batchId, String startedBy) {
-        ProductionBatch batch = productionBatchRepository.findById(batchId)
-                .orElseThrow(() -> new RuntimeException("生产批次不存在"));
-
-        batch.setStatus(ProductionBatch.BatchStatus.IN_PROGRESS);
-        batch.setActualStartTime(LocalDateTime.now());
-        batch.setUpdatedBy(startedBy);
-        return productionBatchRepository.save(batch);
+    /**
+     * 开始批次，单条语句完成状态校验和更新
+     *
+     * @param expectedVersion 期望版本，为空时只校验状态
+     */
+    public TransitionResultDTO startBatch(Long batchId, Long expectedVersion, String startedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = productionBatchRepository.startBatch(batchId, STARTABLE, expectedVersion,
+                ProductionBatch.BatchStatus.IN_PROGRESS, startedBy, now);
+        if (updated == 0) {
+            throw conflict(batchId, "开始");
+        }
+        return published("BATCH_STARTED", transitioned(batchId, ProductionBatch.BatchStatus.IN_PROGRESS, now), startedBy);
     }
 
-    public ProductionBatch completeBatch(Long batchId, Integer actualQuantity, String completedBy) {
-        ProductionBatch batch = productionBatchRepository.findById(batchId)
-                .orElseThrow(() -> new RuntimeException("生产批次不存在"));
-
-        batch.setStatus(ProductionBatch.BatchStatus.COMPLETED);
-        batch.setActualQuantity(actualQuantity);
-        batch.setEndTime(LocalDateTime.now());
-        batch.setYieldRate(calculateYieldRate(batch.getPlannedQuantity(), actualQuantity));
-        batch.setUpdatedBy(completedBy);
-        return productionBatchRepository.save(batch);
+    /**
+     * 完成批次并按计划数量计算产出率
+     */
+    public TransitionResultDTO completeBatch(Long batchId, Long expectedVersion, Integer actualQuantity, String completedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = productionBatchRepository.completeBatch(batchId, COMPLETABLE, expectedVersion,
+                ProductionBatch.BatchStatus.COMPLETED, actualQuantity, completedBy, now);
+        if (updated == 0) {
+            throw conflict(batchId, "完成");
+        }
+        return published("BATCH_COMPLETED", transitioned(batchId, ProductionBatch.BatchStatus.COMPLETED, now), completedBy);
     }
 
-    public ProductionBatch pauseBatch(Long batchId, String pausedBy) {
-        ProductionBatch batch = productionBatchRepository.findById(batchId)
-                .orElseThrow(() -> new RuntimeException("生产批次不存在"));
-
-        batch.setStatus(ProductionBatch.BatchStatus.ON_HOLD);
-        batch.setUpdatedBy(pausedBy);
-        return productionBatchRepository.save(batch);
+    public TransitionResultDTO pauseBatch(Long batchId, Long expectedVersion, String pausedBy) {
+        TransitionResultDTO result = transition(batchId, expectedVersion, PAUSABLE, ProductionBatch.BatchStatus.ON_HOLD,
+                null, null, pausedBy, "暂停");
+        // 提交后把该批次尚未开始的排程挪到生产线队尾
+        eventPublisher.publishEvent(new BatchPausedEvent(batchId, result.getUpdatedAt()));
+        return published("BATCH_PAUSED", result, pausedBy);
     }
 
-    public ProductionBatch resumeBatch(Long batchId, String resumedBy) {
-        ProductionBatch batch = productionBatchRepository.findById(batchId)
-                .orElseThrow(() -> new RuntimeException("生产批次不存在"));
-
-        batch.setStatus(ProductionBatch.BatchStatus.IN_PROGRESS);
-        batch.setUpdatedBy(resumedBy);
-        return productionBatchRepository.save(batch);
+    public TransitionResultDTO resumeBatch(Long batchId, Long expectedVersion, String resumedBy) {
+        return published("BATCH_RESUMED",
+                transition(batchId, expectedVersion, RESUMABLE, ProductionBatch.BatchStatus.IN_PROGRESS, null, null, resumedBy, "恢复"), resumedBy);
     }
 
-    public ProductionBatch rejectBatch(Long batchId, String rejectedBy, String reason) {
-        ProductionBatch batch = productionBatchRepository.findById(batchId)
-                .orElseThrow(() -> new RuntimeException("生产批次不存在"));
-
-        batch.setStatus(ProductionBatch.BatchStatus.REJECTED);
-        batch.setIssues(reason);
-        batch.setEndTime(LocalDateTime.now());
-        batch.setUpdatedBy(rejectedBy);
-        return productionBatchRepository.save(batch);
+    public TransitionResultDTO rejectBatch(Long batchId, Long expectedVersion, String rejectedBy, String reason) {
+        return published("BATCH_REJECTED", transition(batchId, expectedVersion, REJECTABLE, ProductionBatch.BatchStatus.REJECTED,
+                reason, LocalDateTime.now(), rejectedBy, "驳回"), rejectedBy);
     }
 
-    public boolean existsByBatchNumber(String batchNumber) {
-        return productionBatchRepository.existsByBatchNumber(batchNumber);
+    /**
+     * 流转提交后推送到现场看板
+     */
+    private TransitionResultDTO published(String type, TransitionResultDTO result, String actor) {
+        eventPublisher.publishEvent(FloorEvent.of(type, result, actor));
+        return result;
     }
 
-    private String generateBatchNumber() {
+    private TransitionResultDTO transition(Long batchId, Long expectedVersion, List<ProductionBatch.BatchStatus> fromStatuses,
+                                           ProductionBatch.BatchStatus status, String issues, LocalDateTime endTime,
+                                           String updatedBy, String action) {
         LocalDateTime now = LocalDateTime.now();
-        String dateStr = now.format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String sequence = String.format("%04d", getNextSequenceNumber());
-        return "PB" + dateStr + sequence;
+        int updated = productionBatchRepository.transitionBatch(batchId, fromStatuses, expectedVersion,
+                status, issues, endTime, updatedBy, now);
+        if (updated == 0) {
+            throw conflict(batchId, action);
+        }
+        return transitioned(batchId, status, now);
     }
 
-    private int getNextSequenceNumber() {
-        LocalDateTime today = LocalDateTime.now().toLocalDate().atStartOfDay();
-        LocalDateTime tomorrow = today.plusDays(1);
+    private TransitionResultDTO transitioned(Long batchId, ProductionBatch.BatchStatus status, LocalDateTime now) {
+        return TransitionResultDTO.of(batchId, status, productionBatchRepository.findVersionById(batchId).orElse(null), now);
+    }
 
-        long count = productionBatchRepository.findBatchesInDateRange(today, tomorrow).size();
-        return (int) count + 1;
+    /**
+     * 流转未生效时查询当前状态，区分批次不存在和并发冲突
+     */
+    private BusinessException conflict(Long batchId, String action) {
+        ProductionBatch current = productionBatchRepository.findById(batchId)
+                .orElseThrow(() -> new RuntimeException("生产批次不存在"));
+        return new BusinessException("生产批次无法" + action + "：当前状态为" + current.getStatus().getDescription()
+                + "，版本" + current.getVersion(), HttpStatus.CONFLICT);
     }
 
-    private Double calculateYieldRate(Integer planned, Integer actual) {
-        if (planned == null || planned == 0 || actual == null) {
-            return 0.0;
-        }
-        return (double) actual / planned * 100.0;
+    public boolean existsByBatchNumber(String batchNumber) {
+        return productionBatchRepository.existsByBatchNumber(batchNumber);
     }
 
     // 统计方法
@@ -0,0 +1,88 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.ckm.entity.ProductionLine;
+import com.ckm.event.ProductionLineChangedEvent;
+import com.ckm.event.ProductionLineDownEvent;
+import com.ckm.repository.EquipmentUnitRepository;
+import com.ckm.repository.ProductionLineRepository;
+import com.ckm.repository.ProductionScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Transactional
+public class ProductionLineService {
+
+    @Autowired
+    private ProductionLineRepository productionLineRepository;
+
+    @Autowired
+    private ProductionScheduleRepository productionScheduleRepository;
+
+    @Autowired
+    private EquipmentUnitRepository equipmentUnitRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public List<ProductionLine> findAll() {
+        return productionLineRepository.findAll();
+    }
+
+    public Optional<ProductionLine> findById(Long id) {
+        return productionLineRepository.findById(id);
+    }
+
+    /**
+     * 保存生产线，改名时同步排程和设备单元上记录的生产线名称
+     */
+    public ProductionLine save(ProductionLine productionLine) {
+        if (productionLine.getId() == null && productionLineRepository.existsByCode(productionLine.getCode())) {
+            throw new RuntimeException("生产线编码已存在: " + productionLine.getCode());
+        }
+        String previousName = productionLine.getId() == null ? null : productionLineRepository.findById(productionLine.getId())
+                .map(ProductionLine::getName).orElse(null);
+
+        ProductionLine saved = productionLineRepository.save(productionLine);
+        if (previousName != null && !previousName.equals(saved.getName())) {
+            productionScheduleRepository.renameProductionLine(saved.getId(), saved.getName());
+            equipmentUnitRepository.renameProductionLine(previousName, saved.getName());
+        }
+        eventPublisher.publishEvent(new ProductionLineChangedEvent(saved.getId()));
+        return saved;
+    }
+
+    /**
+     * 删除生产线，已有排程的生产线只能停用
+     */
+    public void deleteById(Long id) {
+        if (productionScheduleRepository.existsByProductionLineId(id)) {
+            throw new BusinessException("生产线已有排程记录，不能删除，请改为停用", HttpStatus.CONFLICT);
+        }
+        productionLineRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductionLineChangedEvent(id));
+    }
+
+    public ProductionLine updateStatus(Long id, ProductionLine.LineStatus status) {
+        ProductionLine productionLine = productionLineRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("生产线不存在"));
+
+        ProductionLine.LineStatus previous = productionLine.getStatus();
+        productionLine.setStatus(status);
+        ProductionLine saved = productionLineRepository.save(productionLine);
+        eventPublisher.publishEvent(new ProductionLineChangedEvent(id));
+        if (previous == ProductionLine.LineStatus.ACTIVE && status != ProductionLine.LineStatus.ACTIVE) {
+            // 提交后把该生产线当天剩余的排程转到其他生产线
+            eventPublisher.publishEvent(new ProductionLineDownEvent(saved.getName(), LocalDateTime.now()));
+        }
+        return saved;
+    }
+}
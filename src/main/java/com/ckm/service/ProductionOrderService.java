@@ -1,28 +1,82 @@
 package com.ckm.service;
 
+import com.ckm.BusinessException;
+import com.ckm.dto.BulkOrderRequestDTO;
+import com.ckm.dto.BulkTransitionResultDTO;
+import com.ckm.dto.CursorPageDTO;
+import com.ckm.dto.OrderSummaryDTO;
 import com.ckm.entity.ProductionOrder;
 import com.ckm.entity.ProductionStandard;
+import com.ckm.event.OrdersCancelledEvent;
+import com.ckm.repository.ProductionOrderJdbcRepository;
 import com.ckm.repository.ProductionOrderRepository;
 import com.ckm.repository.ProductionStandardRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class ProductionOrderService {
 
+    // 各流转允许的起始状态
+    private static final List<ProductionOrder.OrderStatus> APPROVABLE = List.of(ProductionOrder.OrderStatus.PENDING);
+    private static final List<ProductionOrder.OrderStatus> SCHEDULABLE = List.of(
+            ProductionOrder.OrderStatus.APPROVED, ProductionOrder.OrderStatus.SCHEDULED);
+    private static final List<ProductionOrder.OrderStatus> COMPLETABLE = List.of(
+            ProductionOrder.OrderStatus.SCHEDULED, ProductionOrder.OrderStatus.IN_PRODUCTION);
+    private static final List<ProductionOrder.OrderStatus> CANCELLABLE = List.of(
+            ProductionOrder.OrderStatus.PENDING, ProductionOrder.OrderStatus.APPROVED, ProductionOrder.OrderStatus.SCHEDULED);
+
+    // 单次批量操作的订单数上限
+    private static final int MAX_BULK_SIZE = 5000;
+
     @Autowired
     private ProductionOrderRepository productionOrderRepository;
 
     @Autowired
     private ProductionStandardRepository productionStandardRepository;
 
+    @Autowired
+    private ProductionOrderJdbcRepository productionOrderJdbcRepository;
+
+    @Autowired
+    private SequenceAllocator sequenceAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ckm.bulk.chunk-size:200}")
+    private int bulkChunkSize = 200;
+
     public List<ProductionOrder> findAll() {
         return productionOrderRepository.findAll();
     }
@@ -31,10 +85,37 @@ public class ProductionOrderService {
         return productionOrderRepository.findById(id);
     }
 
+    /**
+     * 按下单时间倒序游标分页查询订单列表，withTotal为false时不统计总数
+     */
+    public CursorPageDTO<OrderSummaryDTO> findOrderPage(String cursor, Integer limit,
+                                                        ProductionOrder.OrderStatus status, boolean withTotal) {
+        int size = CursorPageDTO.normalizeLimit(limit);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<OrderSummaryDTO> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = status == null
+                    ? productionOrderRepository.findOrderPage(page)
+                    : productionOrderRepository.findOrderPageByStatus(status, page);
+        } else {
+            OrderCursor after = CursorPageDTO.decodeCursor(cursor, 2,
+                    keys -> new OrderCursor(LocalDateTime.parse(keys[0]), Long.valueOf(keys[1])));
+            rows = status == null
+                    ? productionOrderRepository.findOrderPageAfter(after.orderDate(), after.id(), page)
+                    : productionOrderRepository.findOrderPageByStatusAfter(status, after.orderDate(), after.id(), page);
+        }
+
+        Long total = null;
+        if (withTotal) {
+            total = status == null ? productionOrderRepository.count() : productionOrderRepository.countByStatus(status);
+        }
+        return CursorPageDTO.of(rows, size, order -> CursorPageDTO.encodeCursor(order.getOrderDate(), order.getId()), total);
+    }
+
     public ProductionOrder save(ProductionOrder productionOrder) {
         // 生成订单编号
         if (productionOrder.getOrderNumber() == null) {
-            productionOrder.setOrderNumber(generateOrderNumber());
+            productionOrder.setOrderNumber(sequenceAllocator.next(SequenceAllocator.ORDER_PREFIX));
         }
 
         // 计算总金额
@@ -68,63 +149,208 @@ public class ProductionOrderService {
         return productionOrderRepository.findByRequiredDateBetweenOrderByRequiredDateAsc(startDate, endDate);
     }
 
-    public ProductionOrder approveOrder(Long orderId, String approvedBy) {
-        ProductionOrder order = productionOrderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("生产订单不存在"));
+    public ProductionOrder approveOrder(Long orderId, Long expectedVersion, String approvedBy) {
+        return transition(orderId, expectedVersion, APPROVABLE, ProductionOrder.OrderStatus.APPROVED,
+                null, null, approvedBy, "批准");
+    }
 
-        order.setStatus(ProductionOrder.OrderStatus.APPROVED);
-        order.setUpdatedBy(approvedBy);
-        return productionOrderRepository.save(order);
+    /**
+     * 批量查询已批准且未合并到批次的订单，同时加载生产标准
+     */
+    public List<ProductionOrder> findApprovedWithStandard(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        return productionOrderRepository.findUnallocatedWithStandardByIdInAndStatus(orderIds, ProductionOrder.OrderStatus.APPROVED);
     }
 
-    public ProductionOrder scheduleOrder(Long orderId, LocalDateTime scheduledDate, String scheduledBy) {
-        ProductionOrder order = productionOrderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("生产订单不存在"));
+    /**
+     * 查询全部已批准且未合并到批次的订单，同时加载生产标准
+     */
+    public List<ProductionOrder> findAllApprovedWithStandard() {
+        return productionOrderRepository.findUnallocatedWithStandardByStatus(ProductionOrder.OrderStatus.APPROVED);
+    }
 
-        order.setStatus(ProductionOrder.OrderStatus.SCHEDULED);
-        order.setScheduledDate(scheduledDate);
-        order.setUpdatedBy(scheduledBy);
-        return productionOrderRepository.save(order);
+    /**
+     * 锁定仍为已批准且未合并到批次的订单直到事务结束，返回锁定的订单ID
+     */
+    public Set<Long> lockUnallocatedApproved(Collection<Long> orderIds) {
+        return productionOrderJdbcRepository.lockUnallocatedApproved(orderIds);
     }
 
-    public ProductionOrder completeOrder(Long orderId, String completedBy) {
-        ProductionOrder order = productionOrderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("生产订单不存在"));
+    /**
+     * 批量将已批准订单标记为已排程，返回完成流转的订单ID
+     */
+    public Set<Long> markScheduled(Map<Long, LocalDateTime> scheduledDates, String scheduledBy) {
+        return productionOrderJdbcRepository.markScheduled(scheduledDates, scheduledBy);
+    }
+
+    public ProductionOrder scheduleOrder(Long orderId, Long expectedVersion, LocalDateTime scheduledDate, String scheduledBy) {
+        return transition(orderId, expectedVersion, SCHEDULABLE, ProductionOrder.OrderStatus.SCHEDULED,
+                scheduledDate, null, scheduledBy, "排程");
+    }
+
+    public ProductionOrder completeOrder(Long orderId, Long expectedVersion, String completedBy) {
+        return transition(orderId, expectedVersion, COMPLETABLE, ProductionOrder.OrderStatus.COMPLETED,
+                null, LocalDateTime.now(), completedBy, "完成");
+    }
 
-        order.setStatus(ProductionOrder.OrderStatus.COMPLETED);
-        order.setCompletedDate(LocalDateTime.now());
-        order.setUpdatedBy(completedBy);
-        return productionOrderRepository.save(order);
+    public ProductionOrder cancelOrder(Long orderId, Long expectedVersion, String cancelledBy) {
+        ProductionOrder cancelled = transition(orderId, expectedVersion, CANCELLABLE, ProductionOrder.OrderStatus.CANCELLED,
+                null, null, cancelledBy, "取消");
+        // 提交后释放该订单的排程并重排受影响的生产线
+        eventPublisher.publishEvent(new OrdersCancelledEvent(List.of(orderId), LocalDateTime.now()));
+        return cancelled;
     }
 
-    public ProductionOrder cancelOrder(Long orderId, String cancelledBy) {
-        ProductionOrder order = productionOrderRepository.findById(orderId)
+    /**
+     * 按状态和版本守卫的单条更新，成功后重新读取订单
+     * 更新语句不清空持久化上下文，本事务中已加载过的订单仍是旧状态，只刷新这一个订单
+     */
+    private ProductionOrder transition(Long orderId, Long expectedVersion, List<ProductionOrder.OrderStatus> fromStatuses,
+                                       ProductionOrder.OrderStatus status, LocalDateTime scheduledDate,
+                                       LocalDateTime completedDate, String updatedBy, String action) {
+        int updated = productionOrderRepository.transitionOrder(orderId, fromStatuses, expectedVersion,
+                status, scheduledDate, completedDate, updatedBy, LocalDateTime.now());
+        ProductionOrder current = productionOrderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("生产订单不存在"));
+        if (updated == 0) {
+            throw new BusinessException("生产订单无法" + action + "：当前状态为" + current.getStatus().getDescription()
+                    + "，版本" + current.getVersion(), HttpStatus.CONFLICT);
+        }
+        entityManager.refresh(current);
+        return current;
+    }
 
-        order.setStatus(ProductionOrder.OrderStatus.CANCELLED);
-        order.setUpdatedBy(cancelledBy);
-        return productionOrderRepository.save(order);
+    // ==================== 批量状态流转 ====================
+
+    /**
+     * 批量批准订单，校验规则与单条批准相同
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkTransitionResultDTO bulkApprove(BulkOrderRequestDTO request, String approvedBy) {
+        return bulkTransition(request, APPROVABLE, ProductionOrder.OrderStatus.APPROVED, null, null, approvedBy, "批准");
     }
 
-    public boolean existsByOrderNumber(String orderNumber) {
-        return productionOrderRepository.existsByOrderNumber(orderNumber);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkTransitionResultDTO bulkSchedule(BulkOrderRequestDTO request, String scheduledBy) {
+        if (request.getScheduledDate() == null) {
+            throw new BusinessException("批量排程必须指定排程日期");
+        }
+        return bulkTransition(request, SCHEDULABLE, ProductionOrder.OrderStatus.SCHEDULED,
+                request.getScheduledDate(), null, scheduledBy, "排程");
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkTransitionResultDTO bulkCancel(BulkOrderRequestDTO request, String cancelledBy) {
+        BulkTransitionResultDTO result = bulkTransition(request, CANCELLABLE, ProductionOrder.OrderStatus.CANCELLED,
+                null, null, cancelledBy, "取消");
+        List<Long> cancelled = result.getOutcomes().stream()
+                .filter(BulkTransitionResultDTO.Outcome::success)
+                .map(BulkTransitionResultDTO.Outcome::id)
+                .toList();
+        if (!cancelled.isEmpty()) {
+            eventPublisher.publishEvent(new OrdersCancelledEvent(cancelled, LocalDateTime.now()));
+        }
+        return result;
+    }
+
+    /**
+     * 按块执行集合更新，每块独立提交；某块失败只影响该块内的订单
+     */
+    private BulkTransitionResultDTO bulkTransition(BulkOrderRequestDTO request, List<ProductionOrder.OrderStatus> fromStatuses,
+                                                   ProductionOrder.OrderStatus status, LocalDateTime scheduledDate,
+                                                   LocalDateTime completedDate, String updatedBy, String action) {
+        List<Long> ids = resolveBulkIds(request, fromStatuses);
+        Map<Long, Long> versions = request.getVersions() != null ? request.getVersions() : Map.of();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<BulkTransitionResultDTO.Outcome> outcomes = new ArrayList<>(ids.size());
+
+        for (int from = 0; from < ids.size(); from += bulkChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + bulkChunkSize, ids.size()));
+            try {
+                outcomes.addAll(transactionTemplate.execute(tx -> transitionChunk(
+                        chunk, versions, fromStatuses, status, scheduledDate, completedDate, updatedBy, action)));
+            } catch (DataAccessException e) {
+                for (Long id : chunk) {
+                    outcomes.add(new BulkTransitionResultDTO.Outcome(id, false, null, "批量更新失败，请重试"));
+                }
+            }
+        }
+        return BulkTransitionResultDTO.of(outcomes);
+    }
+
+    /**
+     * 先锁定块内订单再按锁定时的状态和版本筛选，其他操作已改到目标状态的订单按冲突处理，不计为成功
+     */
+    private List<BulkTransitionResultDTO.Outcome> transitionChunk(List<Long> chunk, Map<Long, Long> versions,
+                                                                  List<ProductionOrder.OrderStatus> fromStatuses,
+                                                                  ProductionOrder.OrderStatus status, LocalDateTime scheduledDate,
+                                                                  LocalDateTime completedDate, String updatedBy, String action) {
+        Map<Long, OrderState> before = lockStates(chunk);
+        List<BulkTransitionResultDTO.Outcome> outcomes = new ArrayList<>(chunk.size());
+        List<Long> eligible = new ArrayList<>(chunk.size());
+        for (Long id : chunk) {
+            OrderState current = before.get(id);
+            Long expectedVersion = versions.get(id);
+            if (current == null) {
+                outcomes.add(new BulkTransitionResultDTO.Outcome(id, false, null, "生产订单不存在"));
+            } else if (!fromStatuses.contains(current.status())) {
+                outcomes.add(new BulkTransitionResultDTO.Outcome(id, false, current.status().name(),
+                        "当前状态为" + current.status().getDescription() + "，无法" + action));
+            } else if (expectedVersion != null && expectedVersion != current.version()) {
+                outcomes.add(new BulkTransitionResultDTO.Outcome(id, false, current.status().name(),
+                        "订单已被其他操作修改：当前版本" + current.version()));
+            } else {
+                eligible.add(id);
+                outcomes.add(new BulkTransitionResultDTO.Outcome(id, true, status.name(), null));
+            }
+        }
+
+        if (!eligible.isEmpty()) {
+            int updated = productionOrderRepository.transitionOrders(eligible, fromStatuses, status,
+                    scheduledDate, completedDate, updatedBy, LocalDateTime.now());
+            if (updated != eligible.size()) {
+                // 行已锁定仍有不符说明绕过了锁，整块回滚并报告失败
+                throw new OptimisticLockingFailureException("批量" + action + "更新行数不符");
+            }
+        }
+        return outcomes;
     }
 
-    private String generateOrderNumber() {
-        LocalDateTime now = LocalDateTime.now();
-        String dateStr = now.format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String sequence = String.format("%04d", getNextSequenceNumber());
-        return "PO" + dateStr + sequence;
+    private List<Long> resolveBulkIds(BulkOrderRequestDTO request, List<ProductionOrder.OrderStatus> fromStatuses) {
+        List<Long> ids;
+        if (request.getIds() != null && !request.getIds().isEmpty()) {
+            ids = new ArrayList<>(new LinkedHashSet<>(request.getIds()));
+        } else if (request.hasCriteria()) {
+            List<ProductionOrder.OrderStatus> statuses = request.getStatus() != null
+                    ? List.of(request.getStatus()) : fromStatuses;
+            ids = productionOrderRepository.findIdsByCriteria(statuses, request.getFranchiseId(),
+                    request.getRequiredDateFrom(), request.getRequiredDateTo(), PageRequest.of(0, MAX_BULK_SIZE + 1));
+        } else {
+            throw new BusinessException("请指定订单ID或筛选条件");
+        }
+
+        if (ids.size() > MAX_BULK_SIZE) {
+            throw new BusinessException("单次批量操作最多" + MAX_BULK_SIZE + "个订单");
+        }
+        return ids;
     }
 
-    private int getNextSequenceNumber() {
-        LocalDateTime today = LocalDateTime.now().toLocalDate().atStartOfDay();
-        LocalDateTime tomorrow = today.plusDays(1);
+    private Map<Long, OrderState> lockStates(List<Long> ids) {
+        Map<Long, OrderState> states = new HashMap<>();
+        for (Object[] row : productionOrderRepository.findStatusForUpdate(ids)) {
+            states.put(((Number) row[0]).longValue(), new OrderState(
+                    ProductionOrder.OrderStatus.valueOf((String) row[1]), ((Number) row[2]).longValue()));
+        }
+        return states;
+    }
 
-        long count = productionOrderRepository.countByStatusAndDateRange(
-                ProductionOrder.OrderStatus.PENDING, today, tomorrow);
+    private record OrderState(ProductionOrder.OrderStatus status, long version) {
+    }
 
-        return (int) count + 1;
+    public boolean existsByOrderNumber(String orderNumber) {
+        return productionOrderRepository.existsByOrderNumber(orderNumber);
     }
 
     // 统计方法
@@ -137,4 +363,7 @@ public class ProductionOrderService {
                                                      LocalDateTime startDate, LocalDateTime endDate) {
         return productionOrderRepository.sumTotalAmountByStatusAndDateRange(status, startDate, endDate);
     }
+
+    private record OrderCursor(LocalDateTime orderDate, Long id) {
+    }
 }
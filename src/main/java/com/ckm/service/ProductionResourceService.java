@@ -0,0 +1,97 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.ckm.entity.EquipmentUnit;
+import com.ckm.entity.KitchenStaff;
+import com.ckm.event.ProductionResourceChangedEvent;
+import com.ckm.repository.EquipmentUnitRepository;
+import com.ckm.repository.KitchenStaffRepository;
+import com.ckm.repository.ProductionScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 设备单元和厨房员工管理，变更后资源日历在提交时失效并在下次排程时重新加载
+ */
+@Service
+@Transactional
+public class ProductionResourceService {
+
+    private static final String EQUIPMENT_UNIT = "EQUIPMENT_UNIT";
+
+    private static final String KITCHEN_STAFF = "KITCHEN_STAFF";
+
+    @Autowired
+    private EquipmentUnitRepository equipmentUnitRepository;
+
+    @Autowired
+    private KitchenStaffRepository kitchenStaffRepository;
+
+    @Autowired
+    private ProductionScheduleRepository productionScheduleRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // ==================== 设备单元 ====================
+
+    public List<EquipmentUnit> findAllEquipmentUnits() {
+        return equipmentUnitRepository.findAll();
+    }
+
+    public Optional<EquipmentUnit> findEquipmentUnitById(Long id) {
+        return equipmentUnitRepository.findById(id);
+    }
+
+    public EquipmentUnit saveEquipmentUnit(EquipmentUnit unit) {
+        if (unit.getId() == null && equipmentUnitRepository.existsByCode(unit.getCode())) {
+            throw new RuntimeException("设备单元编码已存在: " + unit.getCode());
+        }
+
+        EquipmentUnit saved = equipmentUnitRepository.save(unit);
+        eventPublisher.publishEvent(new ProductionResourceChangedEvent(EQUIPMENT_UNIT, saved.getId()));
+        return saved;
+    }
+
+    public void deleteEquipmentUnit(Long id) {
+        equipmentUnitRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductionResourceChangedEvent(EQUIPMENT_UNIT, id));
+    }
+
+    // ==================== 厨房员工 ====================
+
+    public List<KitchenStaff> findAllStaff() {
+        return kitchenStaffRepository.findAll();
+    }
+
+    public Optional<KitchenStaff> findStaffById(Long id) {
+        return kitchenStaffRepository.findById(id);
+    }
+
+    public KitchenStaff saveStaff(KitchenStaff staff) {
+        if (staff.getId() == null && kitchenStaffRepository.existsByEmployeeNumber(staff.getEmployeeNumber())) {
+            throw new RuntimeException("员工编号已存在: " + staff.getEmployeeNumber());
+        }
+
+        KitchenStaff saved = kitchenStaffRepository.save(staff);
+        eventPublisher.publishEvent(new ProductionResourceChangedEvent(KITCHEN_STAFF, saved.getId()));
+        return saved;
+    }
+
+    /**
+     * 删除员工，已被排程引用的员工只能停用
+     */
+    public void deleteStaff(Long id) {
+        if (productionScheduleRepository.existsByStaffId(id)) {
+            throw new BusinessException("员工已有排程记录，不能删除，请改为离职状态", HttpStatus.CONFLICT);
+        }
+        kitchenStaffRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductionResourceChangedEvent(KITCHEN_STAFF, id));
+    }
+}
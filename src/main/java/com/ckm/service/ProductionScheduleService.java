@@ -1,22 +1,67 @@
 package com.ckm.service;
 
+import com.ckm.BusinessException;
+import com.ckm.dto.CursorPageDTO;
+import com.ckm.dto.ScheduleSummaryDTO;
+import com.ckm.entity.ProductionLine;
 import com.ckm.entity.ProductionSchedule;
+import com.ckm.event.FloorEvent;
+import com.ckm.repository.ProductionScheduleJdbcRepository;
 import com.ckm.repository.ProductionScheduleRepository;
+import com.ckm.scheduling.LineCalendar;
+import com.ckm.scheduling.LineTimeline;
+import com.ckm.scheduling.ProductionLineRegistry;
+import com.ckm.scheduling.ResourceCalendar;
+import com.ckm.scheduling.UtilizationCalculator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @Transactional
 public class ProductionScheduleService {
 
+    // 各流转允许的起始状态
+    private static final List<ProductionSchedule.ScheduleStatus> CONFIRMABLE = List.of(ProductionSchedule.ScheduleStatus.PLANNED);
+    private static final List<ProductionSchedule.ScheduleStatus> STARTABLE = List.of(
+            ProductionSchedule.ScheduleStatus.PLANNED, ProductionSchedule.ScheduleStatus.CONFIRMED);
+    private static final List<ProductionSchedule.ScheduleStatus> COMPLETABLE = List.of(ProductionSchedule.ScheduleStatus.IN_PROGRESS);
+
     @Autowired
     private ProductionScheduleRepository productionScheduleRepository;
 
+    @Autowired
+    private ProductionScheduleJdbcRepository productionScheduleJdbcRepository;
+
+    @Autowired
+    private ProductionLineRegistry productionLineRegistry;
+
+    @Autowired
+    private SequenceAllocator sequenceAllocator;
+
+    @Autowired
+    private LineCalendar lineCalendar;
+
+    @Autowired
+    private ResourceCalendar resourceCalendar;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     public List<ProductionSchedule> findAll() {
         return productionScheduleRepository.findAll();
     }
@@ -25,20 +70,69 @@ public class ProductionScheduleService {
         return productionScheduleRepository.findById(id);
     }
 
+    /**
+     * 按排程日期、开始时间顺序游标分页查询排程列表
+     */
+    public CursorPageDTO<ScheduleSummaryDTO> findSchedulePage(String cursor, Integer limit, boolean withTotal) {
+        int size = CursorPageDTO.normalizeLimit(limit);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<ScheduleSummaryDTO> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = productionScheduleRepository.findSchedulePage(page);
+        } else {
+            ScheduleCursor after = CursorPageDTO.decodeCursor(cursor, 3, keys -> new ScheduleCursor(
+                    LocalDateTime.parse(keys[0]), LocalDateTime.parse(keys[1]), Long.valueOf(keys[2])));
+            rows = productionScheduleRepository.findSchedulePageAfter(after.scheduledDate(), after.startTime(), after.id(), page);
+        }
+
+        Long total = withTotal ? productionScheduleRepository.count() : null;
+        return CursorPageDTO.of(rows, size, schedule -> CursorPageDTO.encodeCursor(
+                schedule.getScheduledDate(), schedule.getStartTime(), schedule.getId()), total);
+    }
+
     public ProductionSchedule save(ProductionSchedule schedule) {
         // 生成排程编号
         if (schedule.getScheduleNumber() == null) {
-            schedule.setScheduleNumber(generateScheduleNumber());
+            schedule.setScheduleNumber(sequenceAllocator.next(SequenceAllocator.SCHEDULE_PREFIX));
         }
 
         // 验证排程不冲突
         validateScheduleConflict(schedule);
+        assignProductionLineIds(List.of(schedule));
+
+        ProductionSchedule saved = productionScheduleRepository.save(schedule);
+        lineCalendar.upsert(saved);
+        resourceCalendar.upsertAll(List.of(saved));
+        return saved;
+    }
+
+    /**
+     * 批量保存排程（JDBC批处理一次写入）
+     * 写入前一次查询批次时间范围内的已有排程，在内存中校验批次与已有排程、批次内部都不冲突
+     */
+    public List<ProductionSchedule> saveAll(List<ProductionSchedule> schedules) {
+        validateScheduleConflicts(schedules);
+        assignProductionLineIds(schedules);
+
+        // 整批一次预留编号
+        List<ProductionSchedule> unnumbered = schedules.stream()
+                .filter(schedule -> schedule.getScheduleNumber() == null)
+                .toList();
+        List<String> numbers = sequenceAllocator.next(SequenceAllocator.SCHEDULE_PREFIX, unnumbered.size());
+        for (int i = 0; i < unnumbered.size(); i++) {
+            unnumbered.get(i).setScheduleNumber(numbers.get(i));
+        }
 
-        return productionScheduleRepository.save(schedule);
+        productionScheduleJdbcRepository.insertAll(schedules);
+        lineCalendar.upsertAll(schedules);
+        resourceCalendar.upsertAll(schedules);
+        return schedules;
     }
 
     public void deleteById(Long id) {
         productionScheduleRepository.deleteById(id);
+        lineCalendar.remove(id);
+        resourceCalendar.remove(id);
     }
 
     public List<ProductionSchedule> findByScheduledDate(LocalDateTime scheduledDate) {
@@ -63,52 +157,46 @@ public class ProductionScheduleService {
                 fromDate);
     }
 
-    public ProductionSchedule confirmSchedule(Long scheduleId, String confirmedBy) {
-        ProductionSchedule schedule = productionScheduleRepository.findById(scheduleId)
-                .orElseThrow(() -> new RuntimeException("生产排程不存在"));
-
-        schedule.setStatus(ProductionSchedule.ScheduleStatus.CONFIRMED);
-        schedule.setUpdatedBy(confirmedBy);
-        return productionScheduleRepository.save(schedule);
+    public ProductionSchedule confirmSchedule(Long scheduleId, Long expectedVersion, String confirmedBy) {
+        return transition(scheduleId, expectedVersion, CONFIRMABLE, ProductionSchedule.ScheduleStatus.CONFIRMED, confirmedBy, "确认", "SCHEDULE_CONFIRMED");
     }
 
-    public ProductionSchedule startSchedule(Long scheduleId, String startedBy) {
-        ProductionSchedule schedule = productionScheduleRepository.findById(scheduleId)
-                .orElseThrow(() -> new RuntimeException("生产排程不存在"));
+    public ProductionSchedule startSchedule(Long scheduleId, Long expectedVersion, String startedBy) {
+        return transition(scheduleId, expectedVersion, STARTABLE, ProductionSchedule.ScheduleStatus.IN_PROGRESS, startedBy, "开始", "SCHEDULE_STARTED");
+    }
 
-        schedule.setStatus(ProductionSchedule.ScheduleStatus.IN_PROGRESS);
-        schedule.setUpdatedBy(startedBy);
-        return productionScheduleRepository.save(schedule);
+    public ProductionSchedule completeSchedule(Long scheduleId, Long expectedVersion, String completedBy) {
+        return transition(scheduleId, expectedVersion, COMPLETABLE, ProductionSchedule.ScheduleStatus.COMPLETED, completedBy, "完成", "SCHEDULE_COMPLETED");
     }
 
-    public ProductionSchedule completeSchedule(Long scheduleId, String completedBy) {
-        ProductionSchedule schedule = productionScheduleRepository.findById(scheduleId)
+    /**
+     * 按状态和版本守卫的单条更新，成功后重新读取排程并同步生产线日历，提交后推送到现场看板
+     * 更新语句不清空持久化上下文，重新读取后刷新该排程，避免拿到本事务早先加载的旧状态
+     */
+    private ProductionSchedule transition(Long scheduleId, Long expectedVersion,
+                                          List<ProductionSchedule.ScheduleStatus> fromStatuses,
+                                          ProductionSchedule.ScheduleStatus status, String updatedBy, String action,
+                                          String eventType) {
+        int updated = productionScheduleRepository.transitionSchedule(scheduleId, fromStatuses, expectedVersion,
+                status, updatedBy, LocalDateTime.now());
+        ProductionSchedule current = productionScheduleRepository.findById(scheduleId)
                 .orElseThrow(() -> new RuntimeException("生产排程不存在"));
-
-        schedule.setStatus(ProductionSchedule.ScheduleStatus.COMPLETED);
-        schedule.setUpdatedBy(completedBy);
-        return productionScheduleRepository.save(schedule);
+        if (updated == 0) {
+            throw new BusinessException("生产排程无法" + action + "：当前状态为" + current.getStatus().getDescription()
+                    + "，版本" + current.getVersion(), HttpStatus.CONFLICT);
+        }
+        entityManager.refresh(current);
+        lineCalendar.upsert(current);
+        resourceCalendar.upsertAll(List.of(current));
+        eventPublisher.publishEvent(new FloorEvent(eventType, scheduleId, current.getStatus().name(), current.getVersion(),
+                updatedBy, current.getUpdatedAt()));
+        return current;
     }
 
     public boolean existsByScheduleNumber(String scheduleNumber) {
         return productionScheduleRepository.existsByScheduleNumber(scheduleNumber);
     }
 
-    private String generateScheduleNumber() {
-        LocalDateTime now = LocalDateTime.now();
-        String dateStr = now.format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String sequence = String.format("%04d", getNextSequenceNumber());
-        return "PS" + dateStr + sequence;
-    }
-
-    private int getNextSequenceNumber() {
-        LocalDateTime today = LocalDateTime.now().toLocalDate().atStartOfDay();
-        LocalDateTime tomorrow = today.plusDays(1);
-
-        long count = productionScheduleRepository.findSchedulesInDateRange(today, tomorrow).size();
-        return (int) count + 1;
-    }
-
     private void validateScheduleConflict(ProductionSchedule schedule) {
         List<ProductionSchedule> conflicts = productionScheduleRepository.findOverlappingSchedules(
                 schedule.getProductionLine(),
@@ -122,9 +210,50 @@ public class ProductionScheduleService {
                 .toList();
 
         if (!conflicts.isEmpty()) {
-            throw new RuntimeException("生产排程时间冲突：生产线 " + schedule.getProductionLine() +
+            throw new BusinessException("生产排程时间冲突：生产线 " + schedule.getProductionLine() +
                     " 在 " + schedule.getScheduledDate() + " " +
-                    schedule.getStartTime() + " - " + schedule.getEndTime() + " 已有排程");
+                    schedule.getStartTime() + " - " + schedule.getEndTime() + " 已有排程", HttpStatus.CONFLICT);
+        }
+    }
+
+    /**
+     * 按生产线名称补齐生产线ID，生产线改名时据此同步排程上的名称
+     * 从生产线注册表的内存快照中查找，批量保存不再逐个名称查询数据库
+     */
+    private void assignProductionLineIds(List<ProductionSchedule> schedules) {
+        Map<String, Long> ids = new HashMap<>();
+        for (ProductionSchedule schedule : schedules) {
+            String name = schedule.getProductionLine();
+            if (name != null) {
+                schedule.setProductionLineId(ids.computeIfAbsent(name, key ->
+                        productionLineRegistry.findByName(key).map(ProductionLine::getId).orElse(null)));
+            }
+        }
+    }
+
+    private void validateScheduleConflicts(List<ProductionSchedule> schedules) {
+        if (schedules.isEmpty()) {
+            return;
+        }
+        LocalDateTime from = schedules.get(0).getStartTime();
+        LocalDateTime to = schedules.get(0).getEndTime();
+        for (ProductionSchedule schedule : schedules) {
+            from = schedule.getStartTime().isBefore(from) ? schedule.getStartTime() : from;
+            to = schedule.getEndTime().isAfter(to) ? schedule.getEndTime() : to;
+        }
+
+        Map<String, LineTimeline> timelines = new HashMap<>();
+        for (UtilizationCalculator.Occupancy occupancy : findOccupancyInRange(from, to)) {
+            timelines.computeIfAbsent(occupancy.productionLine(), LineTimeline::new)
+                    .reserve(occupancy.startTime(), occupancy.endTime());
+        }
+        for (ProductionSchedule schedule : schedules) {
+            LineTimeline timeline = timelines.computeIfAbsent(schedule.getProductionLine(), LineTimeline::new);
+            if (!timeline.isFree(schedule.getStartTime(), schedule.getEndTime())) {
+                throw new BusinessException("生产排程时间冲突：生产线 " + schedule.getProductionLine() +
+                        " 在 " + schedule.getStartTime() + " - " + schedule.getEndTime() + " 已有排程", HttpStatus.CONFLICT);
+            }
+            timeline.reserve(schedule.getStartTime(), schedule.getEndTime());
         }
     }
 
@@ -133,4 +262,17 @@ public class ProductionScheduleService {
                                                LocalDateTime startDate, LocalDateTime endDate) {
         return productionScheduleRepository.getAverageCapacityUtilization(status, startDate, endDate);
     }
+
+    /**
+     * 查询时间范围内未取消排程的生产线占用时段（只取计算利用率所需的列）
+     */
+    public List<UtilizationCalculator.Occupancy> findOccupancyInRange(LocalDateTime startTime, LocalDateTime endTime) {
+        return productionScheduleRepository.findOccupancyInRange(startTime, endTime, ProductionSchedule.ScheduleStatus.CANCELLED)
+                .stream()
+                .map(row -> new UtilizationCalculator.Occupancy((String) row[0], (LocalDateTime) row[1], (LocalDateTime) row[2]))
+                .toList();
+    }
+
+    private record ScheduleCursor(LocalDateTime scheduledDate, LocalDateTime startTime, Long id) {
+    }
 }
@@ -1,18 +1,43 @@
 package com.ckm.service;
 
+import com.ckm.BusinessException;
+import com.ckm.dto.ConsolidationResultDTO;
+import com.ckm.dto.LineUtilizationDTO;
+import com.ckm.dto.ScheduleConflictDTO;
+import com.ckm.dto.ScheduleSimulationDTO;
 import com.ckm.entity.*;
+import com.ckm.scheduling.LineCalendar;
+import com.ckm.scheduling.LineTimeline;
+import com.ckm.scheduling.ListScheduler;
+import com.ckm.scheduling.OrderConsolidator;
+import com.ckm.scheduling.ProductionLineRegistry;
+import com.ckm.scheduling.ResourceCalendar;
+import com.ckm.scheduling.ResourcePlan;
+import com.ckm.scheduling.ScheduleConflictAnalyzer;
+import com.ckm.scheduling.ScheduleOptimizer;
+import com.ckm.scheduling.ScheduleSimulator;
+import com.ckm.scheduling.UtilizationCalculator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ProductionSchedulingService {
 
+    // 排程窗口：从开始时间起向后加载的天数
+    private static final int SCHEDULING_HORIZON_DAYS = 2;
+
     @Autowired
     private ProductionOrderService productionOrderService;
 
@@ -25,124 +50,116 @@ public class ProductionSchedulingService {
     @Autowired
     private ProductionStepService productionStepService;
 
-    /**
-     * 自动生成生产排程
-     */
-    public List<ProductionSchedule> autoScheduleOrders(List<Long> orderIds, LocalDateTime startDate) {
-        List<ProductionOrder> orders = orderIds.stream()
-                .map(id -> productionOrderService.findById(id))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .filter(order -> order.getStatus() == ProductionOrder.OrderStatus.APPROVED)
-                .sorted((a, b) -> {
-                    // 按优先级和截止日期排序
-                    if (a.getPriority() != b.getPriority()) {
-                        return b.getPriority().ordinal() - a.getPriority().ordinal();
-                    }
-                    return a.getRequiredDate().compareTo(b.getRequiredDate());
-                })
-                .collect(Collectors.toList());
-
-        List<ProductionSchedule> schedules = new ArrayList<>();
-        LocalDateTime currentTime = startDate;
-
-        for (ProductionOrder order : orders) {
-            ProductionSchedule schedule = createScheduleForOrder(order, currentTime);
-            if (schedule != null) {
-                schedules.add(schedule);
-                // 更新订单状态
-                productionOrderService.scheduleOrder(order.getId(), schedule.getScheduledDate(), "系统自动排程");
-
-                // 计算下一个时间段
-                currentTime = calculateNextScheduleTime(schedule);
-            }
-        }
+    @Autowired
+    private LineCalendar lineCalendar;
 
-        return schedules;
-    }
+    @Autowired
+    private ResourceCalendar resourceCalendar;
 
-    /**
-     * 为单个订单创建排程
-     */
-    private ProductionSchedule createScheduleForOrder(ProductionOrder order, LocalDateTime proposedTime) {
-        // 获取生产标准信息
-        ProductionStandard standard = order.getProductionStandard();
-        if (standard == null) {
-            return null;
-        }
+    @Autowired
+    private ScheduleConflictAnalyzer scheduleConflictAnalyzer;
 
-        // 查找可用生产线
-        String productionLine = findAvailableProductionLine(proposedTime, standard.getCookingTime());
+    @Autowired
+    private ListScheduler listScheduler;
 
-        if (productionLine == null) {
-            // 如果当前时间段不可用，尝试下一个可用时间段
-            proposedTime = findNextAvailableTimeSlot(proposedTime, standard.getCookingTime());
-            productionLine = findAvailableProductionLine(proposedTime, standard.getCookingTime());
-        }
+    @Autowired
+    private ProductionLineRegistry productionLineRegistry;
 
-        if (productionLine == null) {
-            return null; // 无法安排
-        }
+    @Autowired
+    private UtilizationCalculator utilizationCalculator;
 
-        // 创建排程
-        ProductionSchedule schedule = ProductionSchedule.builder()
-                .scheduledDate(proposedTime)
-                .startTime(proposedTime)
-                .endTime(proposedTime.plusMinutes(standard.getCookingTime()))
-                .productionLine(productionLine)
-                .equipment(standard.getEquipmentRequired())
-                .assignedStaff("待分配")
-                .status(ProductionSchedule.ScheduleStatus.PLANNED)
-                .capacityUtilization(calculateCapacityUtilization(standard.getCookingTime()))
-                .notes("系统自动排程 - " + order.getOrderNumber())
-                .createdBy("系统")
-                .updatedBy("系统")
-                .build();
+    @Autowired
+    private OrderConsolidator orderConsolidator;
 
-        return productionScheduleService.save(schedule);
-    }
+    @Autowired
+    private ScheduleSimulator scheduleSimulator;
 
-    /**
-     * 查找可用生产线
-     */
-    private String findAvailableProductionLine(LocalDateTime time, Integer durationMinutes) {
-        // 模拟生产线列表（实际应该从配置或数据库获取）
-        List<String> productionLines = Arrays.asList("生产线A", "生产线B", "生产线C");
+    @Autowired
+    private ScheduleOptimizer scheduleOptimizer;
 
-        LocalDateTime endTime = time.plusMinutes(durationMinutes);
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-        for (String line : productionLines) {
-            // 检查时间冲突
-            List<ProductionSchedule> conflicts = productionScheduleService.findByProductionLineAndDate(line, time.toLocalDate());
+    @Autowired
+    private StepTemplateService stepTemplateService;
 
-            boolean hasConflict = conflicts.stream().anyMatch(schedule ->
-                schedule.getStatus() != ProductionSchedule.ScheduleStatus.CANCELLED &&
-                schedule.isOverlapping(createTempSchedule(line, time, endTime))
-            );
+    // 要求完成时间相差在此范围内的订单可合并生产
+    @Value("${ckm.consolidation.window-hours:4}")
+    private int consolidationWindowHours = 4;
 
-            if (!hasConflict) {
-                return line;
-            }
-        }
+    // 利用率按分钟位图逐日计算，单次统计的天数有上限（含首尾两天）
+    @Value("${ckm.utilization.max-range-days:90}")
+    private int utilizationMaxRangeDays = 90;
 
-        return null;
+    /**
+     * 自动生成生产排程
+     * 一次查询订单及生产标准，在内存中按优先级排入各生产线并做限时优化，
+     * 之后才开启事务批量更新订单状态并为完成流转的订单批量写入排程，优化期间不持有事务和行锁
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ProductionSchedule> autoScheduleOrders(List<Long> orderIds, LocalDateTime startDate) {
+        List<ProductionOrder> orders = productionOrderService.findApprovedWithStandard(orderIds);
+        if (orders.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 生产时长按各步骤历史实际工时的分位数估算，样本不足时用标准烹饪时间
+        stepTemplateService.estimatePlanningMinutes(orders);
+
+        // 一次性加载排程窗口内的生产线、设备单元和员工占用，后续查找空闲时段不再访问数据库
+        LineCalendar.Snapshot calendar = lineCalendar.load(startDate, startDate.plusDays(SCHEDULING_HORIZON_DAYS));
+        ResourcePlan resources = resourceCalendar.load(startDate, startDate.plusDays(SCHEDULING_HORIZON_DAYS));
+
+        List<ProductionLine> lines = productionLineRegistry.getActiveLines();
+        Map<String, LineTimeline> baseline = calendar.timelines(lines.stream().map(ProductionLine::getName).toList());
+        List<ListScheduler.Assignment> assignments = listScheduler.schedule(orders, lines, calendar, startDate, resources.copy());
+        // 在贪心结果上做限时局部搜索，减少空档和延误
+        assignments = scheduleOptimizer.improve(assignments, lines, baseline, resources, startDate, calendar.getWindowEnd());
+
+        Map<Long, LocalDateTime> scheduledDates = new LinkedHashMap<>();
+        for (ListScheduler.Assignment assignment : assignments) {
+            scheduledDates.put(assignment.order().getId(), assignment.startTime());
+        }
+        List<ListScheduler.Assignment> planned = assignments;
+        return new TransactionTemplate(transactionManager).execute(tx -> {
+            // 先更新订单状态：只为完成流转的订单写入排程，期间被取消或已变更的订单不生成排程
+            Set<Long> scheduled = productionOrderService.markScheduled(scheduledDates, "系统自动排程");
+
+            List<ProductionSchedule> schedules = new ArrayList<>(scheduled.size());
+            for (ListScheduler.Assignment assignment : planned) {
+                if (scheduled.contains(assignment.order().getId())) {
+                    schedules.add(createScheduleForOrder(assignment));
+                }
+            }
+            // 写入前按数据库中的占用再校验一次，优化期间其他请求写入的冲突排程会使本次整体回滚
+            productionScheduleService.saveAll(schedules);
+            return schedules;
+        });
     }
 
     /**
-     * 查找下一个可用时间段
+     * 根据分配结果构建订单排程
      */
-    private LocalDateTime findNextAvailableTimeSlot(LocalDateTime currentTime, Integer durationMinutes) {
-        // 尝试接下来的几个时间段
-        LocalDateTime testTime = currentTime.plusHours(1);
-
-        for (int i = 0; i < 24; i++) { // 最多尝试24小时
-            if (findAvailableProductionLine(testTime, durationMinutes) != null) {
-                return testTime;
-            }
-            testTime = testTime.plusHours(1);
-        }
+    private ProductionSchedule createScheduleForOrder(ListScheduler.Assignment assignment) {
+        ProductionOrder order = assignment.order();
+        ProductionStandard standard = order.getProductionStandard();
+        ResourcePlan.Reservation reservation = assignment.resources();
 
-        return currentTime.plusDays(1).withHour(8); // 次日早上8点
+        return ProductionSchedule.builder()
+                .productionOrder(order)
+                .scheduledDate(assignment.startTime())
+                .startTime(assignment.startTime())
+                .endTime(assignment.endTime())
+                .productionLine(assignment.productionLine())
+                .equipment(standard.getEquipmentRequired())
+                .equipmentUnits(reservation != null ? reservation.unitCodesText() : null)
+                .staffId(reservation != null ? reservation.staffId() : null)
+                .assignedStaff(reservation != null && reservation.staffName() != null ? reservation.staffName() : "待分配")
+                .status(ProductionSchedule.ScheduleStatus.PLANNED)
+                .capacityUtilization(calculateCapacityUtilization(standard.getCookingTime()))
+                .notes("系统自动排程 - " + order.getOrderNumber())
+                .createdBy("系统")
+                .updatedBy("系统")
+                .build();
     }
 
     /**
@@ -155,24 +172,68 @@ public class ProductionSchedulingService {
     }
 
     /**
-     * 计算下一个排程时间
+     * 合并已批准订单生成生产批次
+     * 同一生产标准、特殊要求一致且要求完成时间相近的订单合并为按生产线批次上限切分的批次，
+     * 已分配过批次的订单不再参与合并，也不再参与自动排程。
+     * 参与合并的订单先加行锁，并发的合并或自动排程须等本次写入分配记录后再判断
      */
-    private LocalDateTime calculateNextScheduleTime(ProductionSchedule schedule) {
-        // 在当前排程结束后15分钟开始下一个
-        return schedule.getEndTime().plusMinutes(15);
-    }
+    public ConsolidationResultDTO consolidateOrders(List<Long> orderIds, String consolidatedBy) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        Set<Long> locked = productionOrderService.lockUnallocatedApproved(distinctIds);
+        List<ProductionOrder> orders = locked.isEmpty() ? List.of()
+                : productionOrderService.findApprovedWithStandard(new ArrayList<>(locked));
+
+        List<OrderConsolidator.ConsolidatedBatch> consolidated = orderConsolidator.consolidate(
+                orders, productionLineRegistry.getActiveLines(), Duration.ofHours(consolidationWindowHours));
+
+        List<ProductionBatch> batches = new ArrayList<>(consolidated.size());
+        for (OrderConsolidator.ConsolidatedBatch group : consolidated) {
+            batches.add(createConsolidatedBatch(group, consolidatedBy));
+        }
+        productionBatchService.saveAll(batches);
+
+        Set<Long> included = new HashSet<>();
+        List<ConsolidationResultDTO.Batch> views = new ArrayList<>(batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            ProductionBatch batch = batches.get(i);
+            OrderConsolidator.ConsolidatedBatch group = consolidated.get(i);
+            List<ConsolidationResultDTO.Allocation> allocations = new ArrayList<>(group.allocations().size());
+            for (OrderConsolidator.Allocation allocation : group.allocations()) {
+                ProductionOrder order = allocation.order();
+                included.add(order.getId());
+                allocations.add(new ConsolidationResultDTO.Allocation(order.getId(), order.getOrderNumber(), allocation.quantity()));
+            }
+            ProductionStandard standard = group.productionStandard();
+            views.add(new ConsolidationResultDTO.Batch(batch.getId(), batch.getBatchNumber(), standard.getId(),
+                    standard.getDishName(), group.quantity(), group.requiredDate(), group.priority().name(), allocations));
+        }
 
-    /**
-     * 创建临时排程用于冲突检查
-     */
-    private ProductionSchedule createTempSchedule(String productionLine, LocalDateTime startTime, LocalDateTime endTime) {
-        return ProductionSchedule.builder()
-                .productionLine(productionLine)
-                .startTime(startTime)
-                .endTime(endTime)
+        return ConsolidationResultDTO.builder()
+                .orderCount(included.size())
+                .batchCount(batches.size())
+                .skippedOrderIds(distinctIds.stream().filter(id -> !included.contains(id)).toList())
+                .batches(views)
                 .build();
     }
 
+    private ProductionBatch createConsolidatedBatch(OrderConsolidator.ConsolidatedBatch group, String consolidatedBy) {
+        ProductionBatch batch = new ProductionBatch();
+        // 批次关联其中最早要求完成的订单，全部来源订单见分配记录
+        batch.setProductionOrder(group.allocations().get(0).order());
+        batch.setPlannedQuantity(group.quantity());
+        batch.setStatus(ProductionBatch.BatchStatus.PLANNED);
+        batch.setCreatedBy(consolidatedBy);
+        batch.setUpdatedBy(consolidatedBy);
+        for (OrderConsolidator.Allocation allocation : group.allocations()) {
+            batch.getAllocations().add(BatchAllocation.builder()
+                    .productionBatch(batch)
+                    .productionOrder(allocation.order())
+                    .quantity(allocation.quantity())
+                    .build());
+        }
+        return batch;
+    }
+
     /**
      * 优化现有排程
      */
@@ -196,46 +257,98 @@ public class ProductionSchedulingService {
      * 检查排程是否包含紧急订单
      */
     private boolean hasUrgentOrder(ProductionSchedule schedule) {
-        // 这里需要关联到具体的订单逻辑
-        return false; // 简化实现
+        ProductionOrder order = schedule.getProductionOrder();
+        return order != null && order.getPriority() == ProductionOrder.Priority.URGENT;
     }
 
     /**
-     * 获取排程冲突报告
+     * 排程模拟
+     * 以当前全部已批准订单和排程窗口内的生产线占用为快照，并行试算各策略并按评分排名，结果不落库。
+     * 快照直接从数据库读取，不加载也不修改共享的生产线日历和资源日历
+     *
+     * @param strategies 策略名称，为空时运行全部策略
      */
-    public List<String> getScheduleConflicts(LocalDateTime date) {
-        List<String> conflicts = new ArrayList<>();
-        List<ProductionSchedule> schedules = productionScheduleService.findByScheduledDate(date);
-
-        for (int i = 0; i < schedules.size(); i++) {
-            for (int j = i + 1; j < schedules.size(); j++) {
-                ProductionSchedule s1 = schedules.get(i);
-                ProductionSchedule s2 = schedules.get(j);
-
-                if (s1.getProductionLine().equals(s2.getProductionLine()) && s1.isOverlapping(s2)) {
-                    conflicts.add(String.format("冲突：%s 和 %s 在生产线 %s 时间重叠",
-                            s1.getScheduleNumber(), s2.getScheduleNumber(), s1.getProductionLine()));
-                }
-            }
+    public List<ScheduleSimulationDTO> simulateSchedules(LocalDateTime startDate, List<String> strategies) {
+        List<ProductionOrder> orders = productionOrderService.findAllApprovedWithStandard();
+        stepTemplateService.estimatePlanningMinutes(orders);
+        List<ProductionLine> lines = productionLineRegistry.getActiveLines();
+        LineCalendar.Snapshot calendar = lineCalendar.read(startDate, startDate.plusDays(SCHEDULING_HORIZON_DAYS));
+        ResourcePlan resources = resourceCalendar.read(startDate, startDate.plusDays(SCHEDULING_HORIZON_DAYS));
+        Map<String, LineTimeline> baseline = calendar.timelines(lines.stream().map(ProductionLine::getName).toList());
+
+        List<ScheduleSimulator.Candidate> candidates = scheduleSimulator.simulate(orders, lines, baseline,
+                resources, startDate, calendar.getWindowEnd(), strategies);
+
+        List<ScheduleSimulationDTO> results = new ArrayList<>(candidates.size());
+        for (ScheduleSimulator.Candidate candidate : candidates) {
+            List<ScheduleSimulationDTO.Assignment> assignments = candidate.assignments().stream()
+                    .map(assignment -> new ScheduleSimulationDTO.Assignment(assignment.order().getId(),
+                            assignment.order().getOrderNumber(), assignment.productionLine(),
+                            assignment.startTime(), assignment.endTime(), assignment.order().getRequiredDate()))
+                    .toList();
+            results.add(ScheduleSimulationDTO.builder()
+                    .rank(results.size() + 1)
+                    .strategy(candidate.strategy())
+                    .description(candidate.description())
+                    .makespanMinutes(candidate.makespanMinutes())
+                    .totalLatenessMinutes(candidate.totalLatenessMinutes())
+                    .lateOrders(candidate.lateOrders())
+                    .idleMinutes(candidate.idleMinutes())
+                    .changeovers(candidate.changeovers())
+                    .scheduledOrders(assignments.size())
+                    .unscheduledOrders(candidate.unscheduledOrders())
+                    .score(candidate.score())
+                    .assignments(assignments)
+                    .build());
         }
-
-        return conflicts;
+        return results;
     }
 
     /**
-     * 获取产能利用率报告
+     * 获取排程冲突报告
      */
-    public Map<String, Double> getCapacityUtilizationReport(LocalDateTime startDate, LocalDateTime endDate) {
-        Map<String, Double> report = new HashMap<>();
+    public List<ScheduleConflictDTO> getScheduleConflicts(LocalDateTime date) {
+        LocalDateTime dayStart = date.toLocalDate().atStartOfDay();
+        return getScheduleConflicts(dayStart, dayStart.plusDays(1));
+    }
 
-        List<String> productionLines = Arrays.asList("生产线A", "生产线B", "生产线C");
+    /**
+     * 获取时间范围内的排程冲突报告
+     */
+    public List<ScheduleConflictDTO> getScheduleConflicts(LocalDateTime startDate, LocalDateTime endDate) {
+        return scheduleConflictAnalyzer.analyze(productionScheduleService.findSchedulesInDateRange(startDate, endDate));
+    }
 
-        for (String line : productionLines) {
-            Double avgUtilization = productionScheduleService.getAverageCapacityUtilization(
-                    ProductionSchedule.ScheduleStatus.COMPLETED, startDate, endDate);
-            report.put(line, avgUtilization != null ? avgUtilization : 0.0);
+    /**
+     * 获取产能利用率报告：各生产线在时间范围内班次忙碌分钟占比
+     */
+    public Map<String, Double> getCapacityUtilizationReport(LocalDateTime startDate, LocalDateTime endDate) {
+        Map<String, int[]> totals = new LinkedHashMap<>();
+        for (LineUtilizationDTO day : getLineUtilizationReport(startDate.toLocalDate(), endDate.toLocalDate())) {
+            int[] total = totals.computeIfAbsent(day.getProductionLine(), line -> new int[2]);
+            total[0] += day.getBusyMinutes();
+            total[1] += day.getShiftMinutes();
         }
 
+        Map<String, Double> report = new LinkedHashMap<>();
+        totals.forEach((line, total) ->
+                report.put(line, total[1] == 0 ? 0.0 : Math.round(total[0] * 10000.0 / total[1]) / 100.0));
         return report;
     }
+
+    /**
+     * 获取各生产线逐日利用率（忙碌、空闲、重叠分钟数及占比）
+     */
+    public List<LineUtilizationDTO> getLineUtilizationReport(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new BusinessException("结束日期不能早于开始日期");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= utilizationMaxRangeDays) {
+            throw new BusinessException("统计范围不能超过" + utilizationMaxRangeDays + "天");
+        }
+        List<UtilizationCalculator.Occupancy> occupancies = productionScheduleService.findOccupancyInRange(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        return utilizationCalculator.calculate(
+                occupancies, productionLineRegistry.getActiveLines(), startDate, endDate);
+    }
 }
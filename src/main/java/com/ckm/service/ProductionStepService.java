@@ -1,22 +1,75 @@
 package com.ckm.service;
 
+import com.ckm.BusinessException;
+import com.ckm.dto.StaffAssignmentResultDTO;
+import com.ckm.dto.TransitionResultDTO;
+import com.ckm.entity.KitchenStaff;
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionSchedule;
 import com.ckm.entity.ProductionStep;
+import com.ckm.event.FloorEvent;
+import com.ckm.repository.KitchenStaffRepository;
+import com.ckm.repository.ProductionBatchRepository;
+import com.ckm.repository.ProductionStepJdbcRepository;
 import com.ckm.repository.ProductionStepRepository;
+import com.ckm.scheduling.ResourceCalendar;
+import com.ckm.scheduling.ResourcePlan;
+import com.ckm.scheduling.StaffAssigner;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class ProductionStepService {
 
+    // 各流转允许的起始状态
+    private static final List<ProductionStep.StepStatus> STARTABLE = List.of(ProductionStep.StepStatus.PENDING);
+    private static final List<ProductionStep.StepStatus> SKIPPABLE = List.of(ProductionStep.StepStatus.PENDING);
+    private static final List<ProductionStep.StepStatus> FAILABLE = List.of(ProductionStep.StepStatus.IN_PROGRESS);
+
+    // 人员分配读取的资源计划天数，覆盖跨过午夜的步骤
+    private static final int STAFF_PLAN_DAYS = 2;
+
     @Autowired
     private ProductionStepRepository productionStepRepository;
 
+    @Autowired
+    private ProductionStepJdbcRepository productionStepJdbcRepository;
+
+    @Autowired
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Autowired
+    private KitchenStaffRepository kitchenStaffRepository;
+
+    @Autowired
+    private StaffAssigner staffAssigner;
+
+    @Autowired
+    private ResourceCalendar resourceCalendar;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BatchCostService batchCostService;
+
+    @Autowired
+    private StepDurationStatsService stepDurationStatsService;
+
     public List<ProductionStep> findAll() {
         return productionStepRepository.findAll();
     }
@@ -31,11 +84,20 @@ public class ProductionStepService {
             step.setPlannedStartTime(LocalDateTime.now());
         }
 
-        return productionStepRepository.save(step);
+        // 直接保存可能任意修改状态，保存后重新统计所属批次的计数
+        ProductionStep saved = productionStepRepository.save(step);
+        if (saved.getProductionBatch() != null) {
+            productionBatchRepository.recountStepCounters(List.of(saved.getProductionBatch().getId()));
+        }
+        return saved;
     }
 
     public void deleteById(Long id) {
-        productionStepRepository.deleteById(id);
+        productionStepRepository.findById(id).ifPresent(step -> {
+            Long batchId = step.getProductionBatch().getId();
+            productionStepRepository.delete(step);
+            productionBatchRepository.recountStepCounters(List.of(batchId));
+        });
     }
 
     public List<ProductionStep> findByProductionBatchId(Long batchId) {
@@ -46,93 +108,199 @@ public class ProductionStepService {
         return productionStepRepository.findByStatusOrderByPlannedStartTimeAsc(status);
     }
 
-    public ProductionStep startStep(Long stepId, String assignedStaff, String equipment, String startedBy) {
-        ProductionStep step = productionStepRepository.findById(stepId)
-                .orElseThrow(() -> new RuntimeException("生产步骤不存在"));
-
-        if (!step.canStart()) {
-            throw new RuntimeException("步骤无法开始");
+    /**
+     * 为当天待开始且未分配人员的步骤自动分配员工，按技能、出勤班次和工时均衡计算后一次批量写入
+     */
+    public StaffAssignmentResultDTO autoAssignStaff(LocalDate date, String assignedBy) {
+        List<ProductionStep> steps = productionStepRepository.findStepsInDateRange(
+                date.atStartOfDay(), date.plusDays(1).atStartOfDay().minusNanos(1));
+        List<KitchenStaff> staff = kitchenStaffRepository.findWithShiftsByStatus(KitchenStaff.StaffStatus.ACTIVE);
+
+        // 班次和排程占用与自动排程读自同一份资源计划；步骤所属批次的排程就是这些步骤本身的工作，其负责人占用不重复计算
+        ResourcePlan resources = resourceCalendar.read(date.atStartOfDay(), date.plusDays(STAFF_PLAN_DAYS).atStartOfDay());
+        Set<Long> batchIds = new HashSet<>();
+        steps.forEach(step -> batchIds.add(step.getProductionBatch().getId()));
+        if (!batchIds.isEmpty()) {
+            for (ProductionSchedule schedule : productionBatchRepository.findStaffedSchedulesByBatchIdIn(batchIds)) {
+                resources.release(null, schedule.getStaffId(), schedule.getStartTime(), schedule.getEndTime());
+            }
         }
+        StaffAssigner.Result result = staffAssigner.assign(steps, staff, resources);
+
+        Map<Long, KitchenStaff> staffById = new HashMap<>();
+        staff.forEach(member -> staffById.put(member.getId(), member));
+        Map<Long, KitchenStaff> assignedStaff = new LinkedHashMap<>();
+        List<StaffAssignmentResultDTO.Assignment> assignments = result.assignments().stream()
+                .map(assignment -> {
+                    assignedStaff.put(assignment.step().getId(), staffById.get(assignment.staffId()));
+                    return new StaffAssignmentResultDTO.Assignment(assignment.step().getId(),
+                            assignment.step().getStepName(), assignment.staffId(), assignment.staffName());
+                })
+                .toList();
+        int updated = productionStepJdbcRepository.assignStaff(assignedStaff, assignedBy);
+
+        return StaffAssignmentResultDTO.builder()
+                .date(date)
+                .stepCount(steps.size())
+                .assignedCount(assignments.size())
+                .updatedCount(updated)
+                .unassignedStepIds(result.unassigned().stream().map(ProductionStep::getId).toList())
+                .staffLoadMinutes(result.loadMinutes())
+                .assignments(assignments)
+                .build();
+    }
 
-        step.setStatus(ProductionStep.StepStatus.IN_PROGRESS);
-        step.setAssignedStaff(assignedStaff);
-        step.setEquipment(equipment);
-        step.setActualStartTime(LocalDateTime.now());
-        step.setUpdatedBy(startedBy);
-        return productionStepRepository.save(step);
+    /**
+     * 开始步骤，单条语句完成状态校验和更新
+     *
+     * @param expectedVersion 期望版本，为空时只校验状态
+     */
+    public TransitionResultDTO startStep(Long stepId, Long expectedVersion, String assignedStaff, String equipment, String startedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = productionStepRepository.startStep(stepId, STARTABLE, expectedVersion,
+                ProductionStep.StepStatus.IN_PROGRESS, assignedStaff, resolveStaffId(assignedStaff), equipment, startedBy, now);
+        if (updated == 0) {
+            throw conflict(stepId, "开始");
+        }
+        adjustCounters(stepId, ProductionStep.StepStatus.PENDING, ProductionStep.StepStatus.IN_PROGRESS);
+        return published("STEP_STARTED", transitioned(stepId, expectedVersion, ProductionStep.StepStatus.IN_PROGRESS, now), startedBy);
     }
 
-    public ProductionStep completeStep(Long stepId, Integer actualDuration, ProductionStep.QualityResult qualityResult, String notes, String completedBy) {
-        ProductionStep step = productionStepRepository.findById(stepId)
-                .orElseThrow(() -> new RuntimeException("生产步骤不存在"));
+    /**
+     * 完成步骤，单条语句完成状态校验和更新
+     * 先锁定步骤行读取原质检结果，并发登记的质检结果要等本事务提交，批次的质检计数按锁定时的结果调整
+     *
+     * @param expectedVersion 期望版本，为空时只校验状态
+     * @param actualDuration  实际工时（分钟），为空时按实际开始时间到现在计算，与离线同步一致
+     */
+    public TransitionResultDTO completeStep(Long stepId, Long expectedVersion, Integer actualDuration,
+                                            ProductionStep.QualityResult qualityResult, String notes, String completedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        ProductionStep.QualityResult previousQuality = productionStepRepository.findQualityResultForUpdate(stepId)
+                .map(ProductionStep.QualityResult::valueOf)
+                .orElse(null);
+        int updated = productionStepRepository.completeStep(stepId, expectedVersion, actualDuration,
+                qualityResult != null ? qualityResult.name() : null, notes, completedBy, now);
+        if (updated == 0) {
+            throw conflict(stepId, "完成");
+        }
+        productionBatchRepository.adjustStepCounters(stepId,
+                ProductionBatch.StepCounters.of(ProductionStep.StepStatus.COMPLETED, qualityResult)
+                        .minus(ProductionBatch.StepCounters.of(ProductionStep.StepStatus.IN_PROGRESS, previousQuality)));
+        batchCostService.applyCompletedSteps(List.of(stepId));
+        stepDurationStatsService.recordCompletedSteps(List.of(stepId));
+        return published("STEP_COMPLETED",
+                transitioned(stepId, expectedVersion, ProductionStep.StepStatus.COMPLETED, now), completedBy);
+    }
 
-        if (!step.canComplete()) {
-            throw new RuntimeException("步骤无法完成");
+    /**
+     * 跳过尚未开始的步骤
+     */
+    public TransitionResultDTO skipStep(Long stepId, Long expectedVersion, String reason, String skippedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = productionStepRepository.transitionStep(stepId, SKIPPABLE, expectedVersion,
+                ProductionStep.StepStatus.SKIPPED, reason, null, skippedBy, now);
+        if (updated == 0) {
+            throw conflict(stepId, "跳过");
         }
+        adjustCounters(stepId, ProductionStep.StepStatus.PENDING, ProductionStep.StepStatus.SKIPPED);
+        return published("STEP_SKIPPED", transitioned(stepId, expectedVersion, ProductionStep.StepStatus.SKIPPED, now), skippedBy);
+    }
 
-        step.setStatus(ProductionStep.StepStatus.COMPLETED);
-        step.setActualDurationMinutes(actualDuration);
-        step.setCompletedTime(LocalDateTime.now());
-        step.setQualityResult(qualityResult);
-        step.setNotes(notes);
-        step.setUpdatedBy(completedBy);
-        return productionStepRepository.save(step);
+    /**
+     * 将进行中的步骤标记为失败
+     */
+    public TransitionResultDTO failStep(Long stepId, Long expectedVersion, String reason, String failedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = productionStepRepository.transitionStep(stepId, FAILABLE, expectedVersion,
+                ProductionStep.StepStatus.FAILED, null, reason, failedBy, now);
+        if (updated == 0) {
+            throw conflict(stepId, "标记失败");
+        }
+        adjustCounters(stepId, ProductionStep.StepStatus.IN_PROGRESS, ProductionStep.StepStatus.FAILED);
+        return published("STEP_FAILED", transitioned(stepId, expectedVersion, ProductionStep.StepStatus.FAILED, now), failedBy);
     }
 
-    public ProductionStep skipStep(Long stepId, String reason, String skippedBy) {
+    public ProductionStep updateQualityResult(Long stepId, ProductionStep.QualityResult qualityResult, String inspector) {
         ProductionStep step = productionStepRepository.findById(stepId)
                 .orElseThrow(() -> new RuntimeException("生产步骤不存在"));
 
-        step.setStatus(ProductionStep.StepStatus.SKIPPED);
-        step.setNotes(reason);
-        step.setUpdatedBy(skippedBy);
-        return productionStepRepository.save(step);
+        ProductionBatch.StepCounters before = ProductionBatch.StepCounters.of(step.getStatus(), step.getQualityResult());
+        step.setQualityResult(qualityResult);
+        step.setUpdatedBy(inspector);
+        ProductionStep saved = productionStepRepository.save(step);
+        productionBatchRepository.adjustStepCounters(stepId,
+                ProductionBatch.StepCounters.of(saved.getStatus(), qualityResult).minus(before));
+        return saved;
     }
 
-    public ProductionStep failStep(Long stepId, String reason, String failedBy) {
-        ProductionStep step = productionStepRepository.findById(stepId)
-                .orElseThrow(() -> new RuntimeException("生产步骤不存在"));
+    /**
+     * 手工填写的负责人按姓名对应员工，找不到或有重名时为空
+     */
+    private Long resolveStaffId(String staffName) {
+        if (staffName == null) {
+            return null;
+        }
+        List<Long> ids = kitchenStaffRepository.findIdsByName(staffName);
+        return ids.size() == 1 ? ids.get(0) : null;
+    }
 
-        step.setStatus(ProductionStep.StepStatus.FAILED);
-        step.setIssues(reason);
-        step.setUpdatedBy(failedBy);
-        return productionStepRepository.save(step);
+    /**
+     * 状态流转后在同一事务内调整所属批次的计数，质检结果不变
+     */
+    private void adjustCounters(Long stepId, ProductionStep.StepStatus from, ProductionStep.StepStatus to) {
+        productionBatchRepository.adjustStepCounters(stepId,
+                ProductionBatch.StepCounters.of(to, null).minus(ProductionBatch.StepCounters.of(from, null)));
     }
 
-    public ProductionStep updateQualityResult(Long stepId, ProductionStep.QualityResult qualityResult, String inspector) {
-        ProductionStep step = productionStepRepository.findById(stepId)
-                .orElseThrow(() -> new RuntimeException("生产步骤不存在"));
+    /**
+     * 流转结果，指定了期望版本时流转语句写入的即期望版本+1，不再回查版本
+     */
+    private TransitionResultDTO transitioned(Long stepId, Long expectedVersion, ProductionStep.StepStatus status, LocalDateTime now) {
+        Long version = expectedVersion != null
+                ? Long.valueOf(expectedVersion + 1)
+                : productionStepRepository.findVersionById(stepId).orElse(null);
+        return TransitionResultDTO.of(stepId, status, version, now);
+    }
 
-        step.setQualityResult(qualityResult);
-        step.setUpdatedBy(inspector);
-        return productionStepRepository.save(step);
+    /**
+     * 流转提交后推送到现场看板
+     */
+    private TransitionResultDTO published(String type, TransitionResultDTO result, String actor) {
+        eventPublisher.publishEvent(FloorEvent.of(type, result, actor));
+        return result;
+    }
+
+    /**
+     * 流转未生效时查询当前状态，区分步骤不存在和并发冲突
+     */
+    private BusinessException conflict(Long stepId, String action) {
+        ProductionStep current = productionStepRepository.findById(stepId)
+                .orElseThrow(() -> new RuntimeException("生产步骤不存在"));
+        return new BusinessException("生产步骤无法" + action + "：当前状态为" + current.getStatus().getDescription()
+                + "，版本" + current.getVersion(), HttpStatus.CONFLICT);
     }
 
-    // 业务逻辑方法
+    // 业务逻辑方法，读取批次上随步骤流转维护的计数，不加载步骤
     public boolean canBatchStart(Long batchId) {
-        List<ProductionStep> steps = findByProductionBatchId(batchId);
-        return steps.stream().allMatch(step -> step.getStatus() == ProductionStep.StepStatus.PENDING);
+        return stepCounters(batchId).isUntouched();
     }
 
     public boolean isBatchCompleted(Long batchId) {
-        List<ProductionStep> steps = findByProductionBatchId(batchId);
-        return steps.stream().allMatch(step -> step.isCompleted() || step.getStatus() == ProductionStep.StepStatus.SKIPPED);
+        return stepCounters(batchId).isFinished();
     }
 
     public boolean hasBatchQualityIssues(Long batchId) {
-        List<ProductionStep> steps = findByProductionBatchId(batchId);
-        return steps.stream().anyMatch(step -> step.getQualityResult() == ProductionStep.QualityResult.FAIL);
+        return stepCounters(batchId).qualityFailed() > 0;
     }
 
     public Double getBatchProgress(Long batchId) {
-        List<ProductionStep> steps = findByProductionBatchId(batchId);
-        if (steps.isEmpty()) return 0.0;
-
-        long completedSteps = steps.stream()
-                .filter(step -> step.isCompleted() || step.getStatus() == ProductionStep.StepStatus.SKIPPED)
-                .count();
+        return stepCounters(batchId).progress();
+    }
 
-        return (double) completedSteps / steps.size() * 100.0;
+    private ProductionBatch.StepCounters stepCounters(Long batchId) {
+        return productionBatchRepository.findStepCountersById(batchId)
+                .orElse(ProductionBatch.StepCounters.ZERO);
     }
 
     // 统计方法
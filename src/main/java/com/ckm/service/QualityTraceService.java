@@ -1,8 +1,11 @@
 package com.ckm.service;
 
+import com.ckm.dto.CursorPageDTO;
+import com.ckm.dto.QualityTraceSummaryDTO;
 import com.ckm.entity.QualityTrace;
 import com.ckm.repository.QualityTraceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -23,6 +26,25 @@ public class QualityTraceService {
         return qualityTraceRepository.findById(id);
     }
 
+    /**
+     * 按生产日期倒序游标分页查询追溯记录
+     */
+    public CursorPageDTO<QualityTraceSummaryDTO> findTracePage(String cursor, Integer limit, boolean withTotal) {
+        int size = CursorPageDTO.normalizeLimit(limit);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<QualityTraceSummaryDTO> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = qualityTraceRepository.findTracePage(page);
+        } else {
+            TraceCursor after = CursorPageDTO.decodeCursor(cursor, 2,
+                    keys -> new TraceCursor(LocalDate.parse(keys[0]), Long.valueOf(keys[1])));
+            rows = qualityTraceRepository.findTracePageAfter(after.productionDate(), after.id(), page);
+        }
+
+        Long total = withTotal ? qualityTraceRepository.count() : null;
+        return CursorPageDTO.of(rows, size, trace -> CursorPageDTO.encodeCursor(trace.getProductionDate(), trace.getId()), total);
+    }
+
     public List<QualityTrace> findByBatchNumber(String batchNumber) {
         return qualityTraceRepository.findByBatchNumber(batchNumber);
     }
@@ -94,4 +116,7 @@ public class QualityTraceService {
     public List<QualityTrace> findByProductionDateBetween(LocalDate startDate, LocalDate endDate) {
         return qualityTraceRepository.findByProductionDateBetween(startDate, endDate);
     }
+
+    private record TraceCursor(LocalDate productionDate, Long id) {
+    }
 }
@@ -0,0 +1,243 @@
+package com.ckm.service;
+
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionSchedule;
+import com.ckm.event.BatchPausedEvent;
+import com.ckm.event.OrdersCancelledEvent;
+import com.ckm.event.ProductionLineDownEvent;
+import com.ckm.repository.ProductionBatchRepository;
+import com.ckm.repository.ProductionScheduleRepository;
+import com.ckm.scheduling.LineCalendar;
+import com.ckm.scheduling.LineTimeline;
+import com.ckm.scheduling.ProductionLineRegistry;
+import com.ckm.scheduling.RepairPlanner;
+import com.ckm.scheduling.ResourceCalendar;
+import com.ckm.scheduling.ResourcePlan;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 排程局部修复
+ * 订单取消、批次暂停、生产线停机提交后，只重排受影响生产线从扰动点到当天结束的未开始排程，
+ * 只有时段或生产线发生变化的排程会被更新
+ */
+@Slf4j
+@Service
+@Transactional
+public class ScheduleRepairService {
+
+    // 可重排的排程状态，已开始的排程不动
+    private static final List<ProductionSchedule.ScheduleStatus> REPAIRABLE = List.of(
+            ProductionSchedule.ScheduleStatus.PLANNED, ProductionSchedule.ScheduleStatus.CONFIRMED);
+
+    // 重排后允许顺延到的天数
+    private static final int REPAIR_HORIZON_DAYS = 2;
+
+    private static final String REPAIRED_BY = "系统局部重排";
+
+    @Autowired
+    private ProductionScheduleRepository productionScheduleRepository;
+
+    @Autowired
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Autowired
+    private LineCalendar lineCalendar;
+
+    @Autowired
+    private ResourceCalendar resourceCalendar;
+
+    @Autowired
+    private ProductionLineRegistry productionLineRegistry;
+
+    @Autowired
+    private RepairPlanner repairPlanner;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 取消订单的未开始排程，并让同一生产线后续排程前移
+     */
+    public RepairPlanner.Result repairCancelledOrders(Collection<Long> orderIds, LocalDateTime from) {
+        List<ProductionSchedule> cancelled = productionScheduleRepository.findByProductionOrderIdInAndStatusIn(orderIds, REPAIRABLE);
+        if (cancelled.isEmpty()) {
+            return new RepairPlanner.Result(List.of(), List.of(), List.of());
+        }
+        List<Long> ids = cancelled.stream().map(ProductionSchedule::getId).toList();
+        RepairPlanner.Result result = repair(lines(cancelled), RepairPlanner.Disruption.cancelled(ids), from, latestStart(cancelled, from));
+
+        // 扰动时间之前的排程不在修复窗口内，同样取消
+        List<ProductionSchedule> changed = apply(result);
+        for (ProductionSchedule schedule : cancelled) {
+            if (schedule.getStatus() != ProductionSchedule.ScheduleStatus.CANCELLED) {
+                schedule.setStatus(ProductionSchedule.ScheduleStatus.CANCELLED);
+                schedule.setUpdatedBy(REPAIRED_BY);
+                changed.add(schedule);
+            }
+        }
+        lineCalendar.upsertAll(changed);
+        resourceCalendar.upsertAll(changed);
+        return result;
+    }
+
+    /**
+     * 暂停批次对应的未开始排程挪到生产线队尾，其后的排程前移
+     */
+    public RepairPlanner.Result repairPausedBatch(Long batchId, LocalDateTime from) {
+        ProductionBatch batch = productionBatchRepository.findById(batchId)
+                .orElseThrow(() -> new RuntimeException("生产批次不存在"));
+        List<ProductionSchedule> paused = new ArrayList<>();
+        if (batch.getProductionSchedule() != null) {
+            if (REPAIRABLE.contains(batch.getProductionSchedule().getStatus())) {
+                paused.add(batch.getProductionSchedule());
+            }
+        } else {
+            paused.addAll(productionScheduleRepository.findByProductionOrderIdInAndStatusIn(
+                    List.of(batch.getProductionOrder().getId()), REPAIRABLE));
+        }
+        if (paused.isEmpty()) {
+            return new RepairPlanner.Result(List.of(), List.of(), List.of());
+        }
+        RepairPlanner.Result result = repair(lines(paused),
+                RepairPlanner.Disruption.deferred(paused.stream().map(ProductionSchedule::getId).toList()),
+                from, latestStart(paused, from));
+        List<ProductionSchedule> changed = apply(result);
+        lineCalendar.upsertAll(changed);
+        resourceCalendar.upsertAll(changed);
+        return result;
+    }
+
+    /**
+     * 停机生产线当天剩余的未开始排程转到其他具备所需设备的生产线
+     */
+    public RepairPlanner.Result repairLineDown(String productionLine, LocalDateTime from) {
+        RepairPlanner.Result result = repair(Set.of(productionLine), RepairPlanner.Disruption.lineDown(productionLine), from, from);
+        List<ProductionSchedule> changed = apply(result);
+        lineCalendar.upsertAll(changed);
+        resourceCalendar.upsertAll(changed);
+        return result;
+    }
+
+    // ==================== 事件监听（提交后在独立事务中修复，失败不影响原操作） ====================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onOrdersCancelled(OrdersCancelledEvent event) {
+        runRepair("订单取消", () -> repairCancelledOrders(event.orderIds(), event.cancelledAt()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onBatchPaused(BatchPausedEvent event) {
+        runRepair("批次暂停", () -> repairPausedBatch(event.batchId(), event.pausedAt()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onProductionLineDown(ProductionLineDownEvent event) {
+        runRepair("生产线停机", () -> repairLineDown(event.productionLine(), event.downAt()));
+    }
+
+    private void runRepair(String trigger, Supplier<RepairPlanner.Result> repair) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        long started = System.nanoTime();
+        try {
+            RepairPlanner.Result result = transactionTemplate.execute(tx -> repair.get());
+            log.info("Schedule repair after {}: {} moved, {} cancelled, {} unplaced in {} ms", trigger,
+                    result.moves().size(), result.removed().size(), result.unplaced().size(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            // 修复失败时保留原排程，可再次触发或重新自动排程
+            log.warn("Schedule repair after {} failed: {}", trigger, e.getMessage());
+        }
+    }
+
+    /**
+     * 读取受影响生产线从from到修复窗口结束的排程并计算修复方案
+     * 生产线和资源占用读入本次修复专用的快照，不移动共享日历的窗口
+     *
+     * @param latestStart 被扰动排程中最晚的开始时间，修复窗口截止到该日结束
+     */
+    private RepairPlanner.Result repair(Collection<String> lines, RepairPlanner.Disruption disruption,
+                                        LocalDateTime from, LocalDateTime latestStart) {
+        LocalDateTime windowTo = latestStart.toLocalDate().plusDays(1).atStartOfDay();
+        LocalDateTime horizon = windowTo.plusDays(REPAIR_HORIZON_DAYS);
+        LineCalendar.Snapshot calendar = lineCalendar.read(from, horizon);
+        ResourcePlan resources = resourceCalendar.read(from, horizon);
+
+        List<ProductionLine> activeLines = productionLineRegistry.getActiveLines();
+        Set<String> names = new LinkedHashSet<>(lines);
+        activeLines.forEach(line -> names.add(line.getName()));
+        Map<String, LineTimeline> timelines = calendar.timelines(names);
+
+        List<ProductionSchedule> window = productionScheduleRepository.findRepairWindow(lines, REPAIRABLE, from, windowTo);
+        return repairPlanner.repair(window, disruption, activeLines, timelines, resources,
+                from, calendar.getWindowEnd());
+    }
+
+    /**
+     * 把修复方案写回排程，返回发生变化的排程；只有被修改的实体会在提交时更新
+     */
+    private List<ProductionSchedule> apply(RepairPlanner.Result result) {
+        List<ProductionSchedule> changed = new ArrayList<>();
+        for (RepairPlanner.Move move : result.moves()) {
+            ProductionSchedule schedule = move.schedule();
+            schedule.setProductionLine(move.productionLine());
+            productionLineRegistry.findByName(move.productionLine())
+                    .ifPresent(line -> schedule.setProductionLineId(line.getId()));
+            schedule.setStartTime(move.startTime());
+            schedule.setEndTime(move.endTime());
+            schedule.setScheduledDate(move.startTime());
+            if (move.resources() != null) {
+                schedule.setEquipmentUnits(move.resources().unitCodesText());
+                schedule.setStaffId(move.resources().staffId());
+                if (move.resources().staffName() != null) {
+                    schedule.setAssignedStaff(move.resources().staffName());
+                }
+            }
+            schedule.setUpdatedBy(REPAIRED_BY);
+            changed.add(schedule);
+        }
+        for (ProductionSchedule schedule : result.removed()) {
+            schedule.setStatus(ProductionSchedule.ScheduleStatus.CANCELLED);
+            schedule.setUpdatedBy(REPAIRED_BY);
+            changed.add(schedule);
+        }
+        return changed;
+    }
+
+    private static Set<String> lines(List<ProductionSchedule> schedules) {
+        Set<String> lines = new LinkedHashSet<>();
+        schedules.forEach(schedule -> lines.add(schedule.getProductionLine()));
+        return lines;
+    }
+
+    private static LocalDateTime latestStart(List<ProductionSchedule> schedules, LocalDateTime from) {
+        LocalDateTime latest = from;
+        for (ProductionSchedule schedule : schedules) {
+            if (schedule.getStartTime().isAfter(latest)) {
+                latest = schedule.getStartTime();
+            }
+        }
+        return latest;
+    }
+}
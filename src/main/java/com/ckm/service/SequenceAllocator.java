@@ -0,0 +1,110 @@
+package com.ckm.service;
+
+import com.ckm.repository.NumberSequenceJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 业务编号分配器
+ * 编号格式为前缀 + 日期 + 四位以上序号（如PO202403010001），序号按前缀和日期独立递增。
+ * 每次从序列表预留一个号段，号段内用原子计数分配，只有号段用完时才访问数据库；
+ * 多节点各自持有不同号段，编号不重复但不保证连续
+ */
+@Service
+public class SequenceAllocator {
+
+    public static final String ORDER_PREFIX = "PO";
+
+    public static final String BATCH_PREFIX = "PB";
+
+    public static final String SCHEDULE_PREFIX = "PS";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Autowired
+    private NumberSequenceJdbcRepository numberSequenceJdbcRepository;
+
+    @Value("${ckm.sequence.block-size:20}")
+    private int blockSize = 20;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    // 按前缀加锁换号段，不同前缀互不等待
+    private final Map<String, Object> prefixLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 分配当天的下一个编号
+     */
+    public String next(String prefix) {
+        String sequenceKey = prefix + LocalDate.now().format(DATE_FORMAT);
+        return format(sequenceKey, nextValue(sequenceKey));
+    }
+
+    /**
+     * 批量分配当天的count个编号，直接预留一个独立号段，只访问一次数据库
+     */
+    public List<String> next(String prefix, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        String sequenceKey = prefix + LocalDate.now().format(DATE_FORMAT);
+        long first = numberSequenceJdbcRepository.reserve(sequenceKey, count);
+        List<String> numbers = new ArrayList<>(count);
+        for (long value = first; value < first + count; value++) {
+            numbers.add(format(sequenceKey, value));
+        }
+        return numbers;
+    }
+
+    private long nextValue(String sequenceKey) {
+        while (true) {
+            Block block = blocks.get(sequenceKey);
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    return value;
+                }
+            }
+            String prefix = sequenceKey.substring(0, sequenceKey.length() - 8);
+            synchronized (prefixLocks.computeIfAbsent(prefix, key -> new Object())) {
+                // 其他线程可能已换好新号段
+                Block current = blocks.get(sequenceKey);
+                if (current == block) {
+                    long first = numberSequenceJdbcRepository.reserve(sequenceKey, blockSize);
+                    // 跨天后旧日期的号段不再使用
+                    blocks.keySet().removeIf(key -> !key.equals(sequenceKey)
+                            && key.regionMatches(0, sequenceKey, 0, sequenceKey.length() - 8));
+                    blocks.put(sequenceKey, new Block(first, first + blockSize));
+                }
+            }
+        }
+    }
+
+    private String format(String sequenceKey, long value) {
+        return sequenceKey + String.format("%04d", value);
+    }
+
+    /**
+     * 已预留的号段[next, end)
+     */
+    private static final class Block {
+
+        private final AtomicLong next;
+
+        private final long end;
+
+        private Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.ckm.service;
+
+import com.ckm.dto.StepDurationStatsDTO;
+import com.ckm.repository.StepDurationJdbcRepository;
+import com.ckm.scheduling.DurationSketch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 步骤工时统计
+ * 按"生产标准+步骤序号"和设备两个维度在内存中维护实际工时的分位数草图，步骤完成的事务提交后计入。
+ * 各节点定期把两次快照之间的本地增量合并进数据库，再以合并结果和其他节点此间更新过的草图替换本地草图，
+ * 多个节点的样本因此最终一致。
+ * 步骤计划和排程直接读取内存中的分位数，不扫描历史步骤
+ */
+@Slf4j
+@Service
+@Transactional
+public class StepDurationStatsService {
+
+    public static final String STANDARD_STEP = "STANDARD_STEP";
+
+    public static final String EQUIPMENT = "EQUIPMENT";
+
+    @Autowired
+    private StepDurationJdbcRepository stepDurationJdbcRepository;
+
+    // 样本数达到此值后才用分位数代替标准中的计划时长
+    @Value("${ckm.step-stats.min-samples:20}")
+    private int minSamples = 20;
+
+    @Value("${ckm.step-stats.planning-quantile:0.5}")
+    private double planningQuantile = 0.5;
+
+    // 按更新时间读取其他节点的草图时向前多读的分钟数，容忍节点间的时钟偏差和提交晚于更新时间的事务
+    private static final int REFRESH_OVERLAP_MINUTES = 5;
+
+    private final Map<SketchKey, Entry> sketches = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    // 上次从数据库读取草图的时间
+    private volatile LocalDateTime refreshedAt;
+
+    /**
+     * 计入已完成步骤的实际工时，当前事务提交后生效，回滚时不计入
+     */
+    public void recordCompletedSteps(Collection<Long> stepIds) {
+        List<StepDurationJdbcRepository.StepDuration> durations = stepDurationJdbcRepository.findCompletedDurations(stepIds);
+        if (durations.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> record(durations));
+    }
+
+    /**
+     * 步骤的计划时长：样本足够时取配置的分位数，否则为空，由调用方使用标准中的时长
+     */
+    public OptionalInt plannedMinutes(Long standardId, int stepNumber) {
+        ensureLoaded();
+        Entry entry = sketches.get(SketchKey.standardStep(standardId, stepNumber));
+        if (entry == null) {
+            return OptionalInt.empty();
+        }
+        synchronized (entry) {
+            if (entry.total.getCount() < minSamples) {
+                return OptionalInt.empty();
+            }
+            return OptionalInt.of(Math.max(entry.total.quantile(planningQuantile), 1));
+        }
+    }
+
+    /**
+     * 生产标准各步骤的工时分位数，按步骤序号排列
+     */
+    public List<StepDurationStatsDTO> getStandardStats(Long standardId) {
+        ensureLoaded();
+        String prefix = standardId + ":";
+        return sketches.entrySet().stream()
+                .filter(e -> e.getKey().dimension().equals(STANDARD_STEP) && e.getKey().key().startsWith(prefix))
+                .sorted(Comparator.comparingInt(e -> Integer.parseInt(e.getKey().key().substring(prefix.length()))))
+                .map(e -> toDTO(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    public Optional<StepDurationStatsDTO> getEquipmentStats(String equipment) {
+        ensureLoaded();
+        SketchKey key = SketchKey.equipment(equipment);
+        Entry entry = key != null ? sketches.get(key) : null;
+        return entry != null ? Optional.of(toDTO(key, entry)) : Optional.empty();
+    }
+
+    /**
+     * 把本地增量合并进数据库，并以合并结果替换本地草图；上次读取后其他节点合并过的草图一并读回，
+     * 本节点没有新样本的键也能看到其他节点的样本
+     * 按键的顺序加锁，多个节点同时快照时不会互相死锁；事务回滚时增量退回，下次快照重试
+     *
+     * @return 合并的草图数
+     */
+    @Scheduled(initialDelayString = "${ckm.step-stats.snapshot-interval-ms:60000}",
+            fixedDelayString = "${ckm.step-stats.snapshot-interval-ms:60000}")
+    public int snapshot() {
+        ensureLoaded();
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<SketchKey> keys = new ArrayList<>(sketches.keySet());
+        keys.sort(null);
+        Map<SketchKey, DurationSketch> deltas = new HashMap<>();
+        for (SketchKey key : keys) {
+            Entry entry = entry(key);
+            synchronized (entry) {
+                if (!entry.pending.isEmpty()) {
+                    deltas.put(key, entry.pending);
+                    entry.pending = new DurationSketch();
+                }
+            }
+        }
+
+        Map<SketchKey, DurationSketch> merged = new HashMap<>();
+        try {
+            for (SketchKey key : keys) {
+                DurationSketch delta = deltas.get(key);
+                if (delta != null) {
+                    merged.put(key, stepDurationJdbcRepository.merge(key.dimension(), key.key(), delta));
+                }
+            }
+            for (StepDurationJdbcRepository.Snapshot snapshot
+                    : stepDurationJdbcRepository.findUpdatedSince(refreshedAt.minusMinutes(REFRESH_OVERLAP_MINUTES))) {
+                SketchKey key = new SketchKey(snapshot.dimension(), snapshot.key());
+                if (!merged.containsKey(key)) {
+                    DurationSketch sketch = decode(snapshot);
+                    if (sketch != null) {
+                        merged.put(key, sketch);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            restore(deltas);
+            throw e;
+        }
+        afterCompletion(() -> {
+            merged.forEach((key, sketch) -> {
+                Entry entry = entry(key);
+                synchronized (entry) {
+                    // 快照期间新计入的样本仍在pending中
+                    entry.total = sketch;
+                    entry.total.merge(entry.pending);
+                }
+            });
+            refreshedAt = startedAt;
+        }, () -> restore(deltas));
+        return deltas.size();
+    }
+
+    /**
+     * 从全部已完成步骤重建草图，替换数据库和本地的内容
+     * 重建期间其他节点尚未快照的增量会丢失，但这些步骤已提交，也包含在重建读取的历史中
+     *
+     * @return 重建的草图数
+     */
+    public int rebuild() {
+        Map<SketchKey, DurationSketch> rebuilt = new HashMap<>();
+        stepDurationJdbcRepository.forEachCompletedDuration(duration -> {
+            for (SketchKey key : SketchKey.of(duration)) {
+                rebuilt.computeIfAbsent(key, k -> new DurationSketch()).record(duration.minutes());
+            }
+        });
+        stepDurationJdbcRepository.deleteAll();
+        List<SketchKey> keys = new ArrayList<>(rebuilt.keySet());
+        keys.sort(null);
+        for (SketchKey key : keys) {
+            stepDurationJdbcRepository.merge(key.dimension(), key.key(), rebuilt.get(key));
+        }
+        LocalDateTime rebuiltAt = LocalDateTime.now();
+        afterCommit(() -> {
+            synchronized (this) {
+                sketches.clear();
+                rebuilt.forEach((key, sketch) -> sketches.put(key, new Entry(sketch)));
+                refreshedAt = rebuiltAt;
+                loaded = true;
+            }
+        });
+        log.info("Rebuilt {} step duration sketches from history", rebuilt.size());
+        return rebuilt.size();
+    }
+
+    private void restore(Map<SketchKey, DurationSketch> deltas) {
+        deltas.forEach((key, delta) -> {
+            Entry entry = entry(key);
+            synchronized (entry) {
+                entry.pending.merge(delta);
+            }
+        });
+    }
+
+    private void record(List<StepDurationJdbcRepository.StepDuration> durations) {
+        ensureLoaded();
+        for (StepDurationJdbcRepository.StepDuration duration : durations) {
+            for (SketchKey key : SketchKey.of(duration)) {
+                Entry entry = entry(key);
+                synchronized (entry) {
+                    entry.total.record(duration.minutes());
+                    entry.pending.record(duration.minutes());
+                }
+            }
+        }
+    }
+
+    // 重建后键可能已不在本地，按空草图补上
+    private Entry entry(SketchKey key) {
+        return sketches.computeIfAbsent(key, k -> new Entry(new DurationSketch()));
+    }
+
+    /**
+     * 首次使用时载入数据库中的草图
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            refreshedAt = LocalDateTime.now();
+            for (StepDurationJdbcRepository.Snapshot snapshot : stepDurationJdbcRepository.findAll()) {
+                DurationSketch sketch = decode(snapshot);
+                if (sketch != null) {
+                    sketches.put(new SketchKey(snapshot.dimension(), snapshot.key()), new Entry(sketch));
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    private static DurationSketch decode(StepDurationJdbcRepository.Snapshot snapshot) {
+        try {
+            return DurationSketch.fromBytes(snapshot.sketch());
+        } catch (IllegalArgumentException e) {
+            log.warn("Skipping step duration sketch {}/{}: {}", snapshot.dimension(), snapshot.key(), e.getMessage());
+            return null;
+        }
+    }
+
+    private StepDurationStatsDTO toDTO(SketchKey key, Entry entry) {
+        synchronized (entry) {
+            DurationSketch sketch = entry.total;
+            return StepDurationStatsDTO.builder()
+                    .dimension(key.dimension())
+                    .key(key.key())
+                    .sampleCount(sketch.getCount())
+                    .meanMinutes(sketch.getMean())
+                    .p50(sketch.quantile(0.5))
+                    .p90(sketch.quantile(0.9))
+                    .p99(sketch.quantile(0.99))
+                    .build();
+        }
+    }
+
+    private static void afterCommit(Runnable onCommit) {
+        afterCompletion(onCommit, () -> {
+        });
+    }
+
+    /**
+     * 在当前事务结束后执行，没有事务时立即按提交处理
+     */
+    private static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommit.run();
+                } else {
+                    onRollback.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 草图的键，按维度和键排序
+     */
+    private record SketchKey(String dimension, String key) implements Comparable<SketchKey> {
+
+        static SketchKey standardStep(Long standardId, int stepNumber) {
+            return new SketchKey(STANDARD_STEP, standardId + ":" + stepNumber);
+        }
+
+        static SketchKey equipment(String equipment) {
+            return equipment != null && !equipment.isBlank() ? new SketchKey(EQUIPMENT, equipment.trim()) : null;
+        }
+
+        static List<SketchKey> of(StepDurationJdbcRepository.StepDuration duration) {
+            List<SketchKey> keys = new ArrayList<>(2);
+            if (duration.standardId() != null) {
+                keys.add(standardStep(duration.standardId(), duration.stepNumber()));
+            }
+            SketchKey equipment = equipment(duration.equipment());
+            if (equipment != null) {
+                keys.add(equipment);
+            }
+            return keys;
+        }
+
+        @Override
+        public int compareTo(SketchKey other) {
+            int result = dimension.compareTo(other.dimension);
+            return result != 0 ? result : key.compareTo(other.key);
+        }
+    }
+
+    /**
+     * total为当前全部样本，pending为上次快照后本节点新计入的样本
+     */
+    private static final class Entry {
+
+        private DurationSketch total;
+
+        private DurationSketch pending = new DurationSketch();
+
+        Entry(DurationSketch total) {
+            this.total = total;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.ckm.service;
+
+import com.ckm.BusinessException;
+import com.ckm.dto.StepJournalRequestDTO;
+import com.ckm.dto.StepJournalResultDTO;
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionStep;
+import com.ckm.event.FloorEvent;
+import com.ckm.repository.KitchenStaffRepository;
+import com.ckm.repository.ProductionStepJdbcRepository;
+import com.ckm.repository.StepJournalJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 离线步骤事件同步
+ * 现场平板断网期间记录的开始、完成、跳过、失败事件重连后一次提交，按提交顺序在内存中逐个校验和流转，
+ * 最后在一个事务内批量写回步骤、批次计数、完成步骤的成本和事件记录，完成步骤的工时在提交后计入工时统计。
+ * 不满足流转条件的事件单独驳回，不影响其余事件；已同步过的事件ID按重复处理，平板可放心重发整个队列
+ */
+@Service
+@Transactional
+public class StepJournalService {
+
+    private static final int MAX_EVENT_ID_LENGTH = 64;
+
+    @Autowired
+    private ProductionStepJdbcRepository productionStepJdbcRepository;
+
+    @Autowired
+    private StepJournalJdbcRepository stepJournalJdbcRepository;
+
+    @Autowired
+    private KitchenStaffRepository kitchenStaffRepository;
+
+    @Autowired
+    private BatchCostService batchCostService;
+
+    @Autowired
+    private StepDurationStatsService stepDurationStatsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${ckm.journal.max-events:500}")
+    private int maxEvents = 500;
+
+    public StepJournalResultDTO sync(StepJournalRequestDTO request, String syncedBy) {
+        List<StepJournalRequestDTO.Event> events = request.getEvents();
+        validate(events);
+
+        Set<String> eventIds = new LinkedHashSet<>();
+        Set<Long> stepIds = new LinkedHashSet<>();
+        Set<String> staffNames = new HashSet<>();
+        for (StepJournalRequestDTO.Event event : events) {
+            eventIds.add(event.eventId());
+            stepIds.add(event.stepId());
+            if (event.assignedStaff() != null) {
+                staffNames.add(event.assignedStaff());
+            }
+        }
+        Map<String, Long> staffIds = resolveStaffIds(staffNames);
+        // 事件ID到处理结果，包含之前同步过的和本次已处理的事件
+        Map<String, String> results = new HashMap<>(stepJournalJdbcRepository.findResults(eventIds));
+        Map<Long, ProductionStep> steps = new HashMap<>();
+        Map<Long, Long> loadedVersions = new HashMap<>();
+        Map<Long, ProductionBatch.StepCounters> loadedCounters = new HashMap<>();
+        for (ProductionStep step : productionStepJdbcRepository.findDetachedByIds(stepIds)) {
+            steps.put(step.getId(), step);
+            loadedVersions.put(step.getId(), step.getVersion());
+            loadedCounters.put(step.getId(), ProductionBatch.StepCounters.of(step.getStatus(), step.getQualityResult()));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> changed = new LinkedHashSet<>();
+        List<StepJournalResultDTO.Outcome> outcomes = new ArrayList<>(events.size());
+        List<StepJournalJdbcRepository.Entry> journal = new ArrayList<>(events.size());
+        List<FloorEvent> floorEvents = new ArrayList<>();
+        for (StepJournalRequestDTO.Event event : events) {
+            ProductionStep step = steps.get(event.stepId());
+            String previous = results.get(event.eventId());
+            if (previous != null) {
+                // 重发的事件返回原处理结果和步骤当前的状态，平板据此更新本地记录
+                outcomes.add(new StepJournalResultDTO.Outcome(event.eventId(), event.stepId(), StepJournalResultDTO.DUPLICATE,
+                        step != null ? step.getStatus().name() : null, step != null ? step.getVersion() : null,
+                        "事件已同步过，原处理结果为" + previous));
+                continue;
+            }
+            String rejection = step == null ? "生产步骤不存在" : rejection(step, event);
+            String result;
+            if (rejection == null) {
+                String actor = event.operator() != null ? event.operator() : syncedBy;
+                LocalDateTime occurredAt = apply(step, event, actor, now, staffIds);
+                changed.add(step.getId());
+                floorEvents.add(new FloorEvent(floorEventType(event.action()), step.getId(), step.getStatus().name(),
+                        step.getVersion(), actor, occurredAt));
+                result = StepJournalResultDTO.APPLIED;
+            } else {
+                result = StepJournalResultDTO.REJECTED;
+            }
+            results.put(event.eventId(), result);
+            outcomes.add(new StepJournalResultDTO.Outcome(event.eventId(), event.stepId(), result,
+                    step != null ? step.getStatus().name() : null, step != null ? step.getVersion() : null, rejection));
+            journal.add(new StepJournalJdbcRepository.Entry(event.eventId(), event.stepId(), event.action().name(),
+                    result, event.clientTime()));
+        }
+
+        write(changed, steps, loadedVersions, loadedCounters);
+        try {
+            stepJournalJdbcRepository.insertAll(request.getDeviceId(), journal, syncedBy);
+        } catch (DuplicateKeyException e) {
+            // 同一批事件被并发重发，另一请求已先记录，本次回滚，重发时按重复返回
+            throw new BusinessException("事件正在由其他请求同步，请稍后重新同步", HttpStatus.CONFLICT);
+        }
+        floorEvents.forEach(eventPublisher::publishEvent);
+        return StepJournalResultDTO.of(outcomes);
+    }
+
+    /**
+     * 平板填写的负责人按姓名对应员工，找不到或有重名的姓名不在结果中
+     */
+    private Map<String, Long> resolveStaffIds(Set<String> names) {
+        Map<String, Long> staffIds = new HashMap<>();
+        if (names.isEmpty()) {
+            return staffIds;
+        }
+        Set<String> duplicated = new HashSet<>();
+        for (Object[] row : kitchenStaffRepository.findIdsByNameIn(names)) {
+            if (staffIds.put((String) row[0], (Long) row[1]) != null) {
+                duplicated.add((String) row[0]);
+            }
+        }
+        staffIds.keySet().removeAll(duplicated);
+        return staffIds;
+    }
+
+    private void validate(List<StepJournalRequestDTO.Event> events) {
+        if (events == null || events.isEmpty()) {
+            throw new BusinessException("同步事件不能为空");
+        }
+        if (events.size() > maxEvents) {
+            throw new BusinessException("单次同步的事件数不能超过" + maxEvents);
+        }
+        for (StepJournalRequestDTO.Event event : events) {
+            if (event == null || event.eventId() == null || event.eventId().isBlank()
+                    || event.stepId() == null || event.action() == null) {
+                throw new BusinessException("事件ID、步骤ID和动作不能为空");
+            }
+            if (event.eventId().length() > MAX_EVENT_ID_LENGTH) {
+                throw new BusinessException("事件ID不能超过" + MAX_EVENT_ID_LENGTH + "个字符");
+            }
+        }
+    }
+
+    /**
+     * 按当前（含本次已应用事件后的）状态校验事件，可以应用时返回空
+     */
+    private String rejection(ProductionStep step, StepJournalRequestDTO.Event event) {
+        if (event.version() != null && !event.version().equals(step.getVersion())) {
+            return "版本不一致：当前版本" + step.getVersion();
+        }
+        boolean allowed = switch (event.action()) {
+            case START, SKIP -> step.canStart();
+            case COMPLETE, FAIL -> step.canComplete();
+        };
+        if (!allowed) {
+            return "当前状态为" + step.getStatus().getDescription() + "，无法" + actionName(event.action());
+        }
+        return null;
+    }
+
+    /**
+     * 在内存中流转步骤，字段变化与单条流转接口一致；事件时间取平板时间，晚于服务器时间时按服务器时间
+     *
+     * @return 事件发生时间
+     */
+    private LocalDateTime apply(ProductionStep step, StepJournalRequestDTO.Event event, String actor, LocalDateTime now,
+                                Map<String, Long> staffIds) {
+        LocalDateTime occurredAt = event.clientTime() != null && event.clientTime().isBefore(now) ? event.clientTime() : now;
+        switch (event.action()) {
+            case START -> {
+                step.setStatus(ProductionStep.StepStatus.IN_PROGRESS);
+                if (event.assignedStaff() != null) {
+                    step.setAssignedStaff(event.assignedStaff());
+                    step.setStaffId(staffIds.get(event.assignedStaff()));
+                }
+                if (event.equipment() != null) {
+                    step.setEquipment(event.equipment());
+                }
+                step.setActualStartTime(occurredAt);
+            }
+            case COMPLETE -> {
+                step.setStatus(ProductionStep.StepStatus.COMPLETED);
+                step.setActualDurationMinutes(event.actualDuration() != null
+                        ? event.actualDuration() : elapsedMinutes(step.getActualStartTime(), occurredAt));
+                step.setCompletedTime(occurredAt);
+                step.setQualityResult(event.qualityResult());
+                step.setNotes(event.notes());
+            }
+            case SKIP -> {
+                step.setStatus(ProductionStep.StepStatus.SKIPPED);
+                if (event.reason() != null) {
+                    step.setNotes(event.reason());
+                }
+            }
+            case FAIL -> {
+                step.setStatus(ProductionStep.StepStatus.FAILED);
+                if (event.reason() != null) {
+                    step.setIssues(event.reason());
+                }
+            }
+        }
+        step.setUpdatedBy(actor);
+        step.setUpdatedAt(now);
+        step.setVersion(step.getVersion() + 1);
+        return occurredAt;
+    }
+
+    /**
+     * 批量写回有变化的步骤，按读取时的版本守卫；期间有并发修改时整个同步回滚，由平板重发
+     */
+    private void write(Set<Long> changed, Map<Long, ProductionStep> steps, Map<Long, Long> loadedVersions,
+                       Map<Long, ProductionBatch.StepCounters> loadedCounters) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<ProductionStep> updates = new ArrayList<>(changed.size());
+        Map<Long, ProductionBatch.StepCounters> deltas = new LinkedHashMap<>();
+        for (Long stepId : changed) {
+            ProductionStep step = steps.get(stepId);
+            updates.add(step);
+            deltas.merge(step.getProductionBatch().getId(),
+                    ProductionBatch.StepCounters.of(step.getStatus(), step.getQualityResult()).minus(loadedCounters.get(stepId)),
+                    ProductionBatch.StepCounters::plus);
+        }
+        if (productionStepJdbcRepository.updateSynced(updates, loadedVersions) != updates.size()) {
+            throw new BusinessException("生产步骤已被其他操作修改，请重新同步", HttpStatus.CONFLICT);
+        }
+        productionStepJdbcRepository.adjustCounters(deltas);
+        // 已完成的步骤不会再流转，本次写回状态为已完成的步骤都是在本次同步中完成的
+        List<Long> completed = updates.stream()
+                .filter(step -> step.getStatus() == ProductionStep.StepStatus.COMPLETED)
+                .map(ProductionStep::getId)
+                .toList();
+        batchCostService.applyCompletedSteps(completed);
+        stepDurationStatsService.recordCompletedSteps(completed);
+    }
+
+    private static Integer elapsedMinutes(LocalDateTime start, LocalDateTime end) {
+        if (start == null) {
+            return null;
+        }
+        return (int) Math.max(Duration.between(start, end).toMinutes(), 0);
+    }
+
+    private static String floorEventType(StepJournalRequestDTO.Action action) {
+        return switch (action) {
+            case START -> "STEP_STARTED";
+            case COMPLETE -> "STEP_COMPLETED";
+            case SKIP -> "STEP_SKIPPED";
+            case FAIL -> "STEP_FAILED";
+        };
+    }
+
+    private static String actionName(StepJournalRequestDTO.Action action) {
+        return switch (action) {
+            case START -> "开始";
+            case COMPLETE -> "完成";
+            case SKIP -> "跳过";
+            case FAIL -> "标记失败";
+        };
+    }
+}
@@ -0,0 +1,176 @@
+package com.ckm.service;
+
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.entity.ProductionStep;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 生产标准编译出的步骤模板
+ * preparationSteps每行（或以分号分隔的每段）为一个步骤，格式为"名称|时长|设备|质检点|说明"，
+ * 时长以外各项均可省略，行首的"1."、"1、"等序号会被去掉。
+ * 未写时长的步骤平分标准烹饪时间扣除已写时长后的剩余部分；最后一个步骤未写质检点时沿用标准的质量标准。
+ * 没有准备步骤的标准生成一个使用标准烹饪时间和所需设备的烹饪步骤
+ */
+public final class StepTemplate {
+
+    private static final Pattern SEGMENT_SEPARATOR = Pattern.compile("\\r?\\n|[;；]");
+
+    private static final Pattern LEADING_NUMBER = Pattern.compile("^\\s*\\d+\\s*[.、)）:：]\\s*");
+
+    private static final Pattern MINUTES = Pattern.compile("^\\s*(\\d{1,6})");
+
+    private static final int STEP_NAME_LENGTH = 200;
+
+    private static final int EQUIPMENT_LENGTH = 100;
+
+    private static final int CHECKPOINTS_LENGTH = 500;
+
+    private final List<Step> steps;
+
+    private final int totalMinutes;
+
+    private StepTemplate(List<Step> steps) {
+        this.steps = List.copyOf(steps);
+        this.totalMinutes = steps.isEmpty() ? 0 : steps.get(steps.size() - 1).offsetMinutes() + steps.get(steps.size() - 1).durationMinutes();
+    }
+
+    public static StepTemplate compile(ProductionStandard standard) {
+        int cookingTime = standard.getCookingTime() != null ? Math.max(standard.getCookingTime(), 1) : 1;
+        List<String[]> parsed = new ArrayList<>();
+        if (standard.getPreparationSteps() != null) {
+            for (String segment : SEGMENT_SEPARATOR.split(standard.getPreparationSteps())) {
+                String text = LEADING_NUMBER.matcher(segment).replaceFirst("").trim();
+                if (!text.isEmpty()) {
+                    parsed.add(text.split("\\|", 5));
+                }
+            }
+        }
+        if (parsed.isEmpty()) {
+            return new StepTemplate(List.of(new Step(1, "烹饪制作", standard.getDishName(), 0, cookingTime,
+                    truncate(standard.getEquipmentRequired(), EQUIPMENT_LENGTH),
+                    truncate(standard.getQualityStandards(), CHECKPOINTS_LENGTH))));
+        }
+
+        Integer[] minutes = new Integer[parsed.size()];
+        int specified = 0;
+        int unspecified = 0;
+        for (int i = 0; i < parsed.size(); i++) {
+            minutes[i] = parseMinutes(field(parsed.get(i), 1));
+            if (minutes[i] != null) {
+                specified += minutes[i];
+            } else {
+                unspecified++;
+            }
+        }
+        int remaining = Math.max(cookingTime - specified, unspecified);
+
+        List<Step> steps = new ArrayList<>(parsed.size());
+        int offset = 0;
+        int shared = 0;
+        for (int i = 0; i < parsed.size(); i++) {
+            String[] fields = parsed.get(i);
+            int duration;
+            if (minutes[i] != null) {
+                duration = minutes[i];
+            } else {
+                // 余数分给靠前的步骤，合计正好等于剩余时间
+                duration = remaining / unspecified + (shared < remaining % unspecified ? 1 : 0);
+                shared++;
+            }
+            String name = field(fields, 0) != null ? field(fields, 0) : "步骤" + (i + 1);
+            String instructions = field(fields, 4);
+            String checkpoints = field(fields, 3);
+            if (checkpoints == null && i == parsed.size() - 1) {
+                checkpoints = standard.getQualityStandards();
+            }
+            steps.add(new Step(i + 1, truncate(name, STEP_NAME_LENGTH), instructions != null ? instructions : name,
+                    offset, duration, truncate(field(fields, 2), EQUIPMENT_LENGTH), truncate(checkpoints, CHECKPOINTS_LENGTH)));
+            offset += duration;
+        }
+        return new StepTemplate(steps);
+    }
+
+    /**
+     * 按给定时长重排各步骤的开始偏移，时长都未变化时返回当前模板
+     */
+    public StepTemplate withDurations(ToIntFunction<Step> durations) {
+        List<Step> adjusted = new ArrayList<>(steps.size());
+        boolean changed = false;
+        int offset = 0;
+        for (Step step : steps) {
+            int duration = Math.max(durations.applyAsInt(step), 1);
+            changed |= duration != step.durationMinutes();
+            adjusted.add(new Step(step.stepNumber(), step.name(), step.instructions(), offset, duration,
+                    step.equipment(), step.qualityCheckpoints()));
+            offset += duration;
+        }
+        return changed ? new StepTemplate(adjusted) : this;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    public int getTotalMinutes() {
+        return totalMinutes;
+    }
+
+    /**
+     * 按模板为批次生成待开始的步骤，计划开始时间从start起依次相接
+     */
+    public List<ProductionStep> expand(ProductionBatch batch, LocalDateTime start, String createdBy) {
+        List<ProductionStep> expanded = new ArrayList<>(steps.size());
+        for (Step step : steps) {
+            expanded.add(ProductionStep.builder()
+                    .productionBatch(batch)
+                    .stepNumber(step.stepNumber())
+                    .stepName(step.name())
+                    .instructions(step.instructions())
+                    .plannedDurationMinutes(step.durationMinutes())
+                    .plannedStartTime(start.plusMinutes(step.offsetMinutes()))
+                    .equipment(step.equipment())
+                    .qualityCheckpoints(step.qualityCheckpoints())
+                    .status(ProductionStep.StepStatus.PENDING)
+                    .qualityResult(step.qualityCheckpoints() != null
+                            ? ProductionStep.QualityResult.PENDING : ProductionStep.QualityResult.NOT_REQUIRED)
+                    .createdBy(createdBy)
+                    .updatedBy(createdBy)
+                    .build());
+        }
+        return expanded;
+    }
+
+    private static String field(String[] fields, int index) {
+        if (index >= fields.length) {
+            return null;
+        }
+        String value = fields[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer parseMinutes(String value) {
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = MINUTES.matcher(value);
+        return matcher.find() ? Math.max(Integer.parseInt(matcher.group(1)), 1) : null;
+    }
+
+    private static String truncate(String value, int length) {
+        return value != null && value.length() > length ? value.substring(0, length) : value;
+    }
+
+    /**
+     * 模板中的一个步骤，offsetMinutes为相对批次开始时间的计划开始偏移
+     */
+    public record Step(int stepNumber, String name, String instructions, int offsetMinutes, int durationMinutes,
+                       String equipment, String qualityCheckpoints) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.ckm.service;
+
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.entity.ProductionStep;
+import com.ckm.repository.ProductionStepJdbcRepository;
+import com.ckm.repository.ProductionStepRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 步骤模板展开
+ * 生产标准按ID和最后修改时间编译一次后缓存，标准修改后修改时间变化，下次使用时重新编译。
+ * 新建批次的步骤由模板展开后一次JDBC批量插入；样本足够的步骤按历史实际工时的分位数计划时长
+ */
+@Service
+public class StepTemplateService {
+
+    private static final int MAX_TEMPLATES = 1000;
+
+    @Autowired
+    private ProductionStepJdbcRepository productionStepJdbcRepository;
+
+    @Autowired
+    private ProductionStepRepository productionStepRepository;
+
+    @Autowired
+    private StepDurationStatsService stepDurationStatsService;
+
+    private final Cache<TemplateKey, StepTemplate> templates = Caffeine.newBuilder()
+            .maximumSize(MAX_TEMPLATES)
+            .build();
+
+    public StepTemplate templateFor(ProductionStandard standard) {
+        if (standard.getId() == null) {
+            return StepTemplate.compile(standard);
+        }
+        return templates.get(new TemplateKey(standard.getId(), standard.getUpdatedAt()), key -> StepTemplate.compile(standard));
+    }
+
+    /**
+     * 按工时统计调整计划时长后的模板，样本不足的步骤沿用标准中的时长
+     */
+    public StepTemplate plannedTemplateFor(ProductionStandard standard) {
+        return planned(templateFor(standard), standard);
+    }
+
+    /**
+     * 为订单的生产标准设置排程用的生产时长，即按工时统计调整后各步骤计划时长之和；
+     * 没有步骤的样本足够时不设置，仍按标准烹饪时间排程
+     */
+    public void estimatePlanningMinutes(Collection<ProductionOrder> orders) {
+        Set<ProductionStandard> estimated = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ProductionOrder order : orders) {
+            ProductionStandard standard = order.getProductionStandard();
+            if (standard == null || standard.getCookingTime() == null || !estimated.add(standard)) {
+                continue;
+            }
+            StepTemplate template = templateFor(standard);
+            StepTemplate planned = planned(template, standard);
+            standard.setPlanningMinutes(planned != template ? planned.getTotalMinutes() : null);
+        }
+    }
+
+    /**
+     * 为已保存的批次按其订单的生产标准生成步骤并批量插入，计划开始时间从批次开始时间起排
+     * 插入后按批次重新读取步骤放入steps集合，读到的步骤受持久化上下文管理，级联保存时不会重复插入；
+     * 新步骤均为待开始，批次上的步骤总数同步累加
+     *
+     * @return 插入的步骤数
+     */
+    public int materializeSteps(List<ProductionBatch> batches) {
+        List<ProductionStep> steps = new ArrayList<>();
+        List<ProductionBatch> expanded = new ArrayList<>();
+        for (ProductionBatch batch : batches) {
+            ProductionOrder order = batch.getProductionOrder();
+            if (order == null || order.getProductionStandard() == null) {
+                continue;
+            }
+            LocalDateTime start = batch.getStartTime() != null ? batch.getStartTime() : LocalDateTime.now();
+            steps.addAll(plannedTemplateFor(order.getProductionStandard()).expand(batch, start, batch.getCreatedBy()));
+            expanded.add(batch);
+        }
+        if (steps.isEmpty()) {
+            return 0;
+        }
+        productionStepJdbcRepository.insertAll(steps);
+
+        Map<Long, List<ProductionStep>> stepsByBatch = productionStepRepository
+                .findByProductionBatchIdInOrderByStepNumberAsc(expanded.stream().map(ProductionBatch::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(step -> step.getProductionBatch().getId()));
+        for (ProductionBatch batch : expanded) {
+            List<ProductionStep> batchSteps = stepsByBatch.getOrDefault(batch.getId(), new ArrayList<>());
+            batch.setSteps(batchSteps);
+            batch.setStepTotal(batchSteps.size());
+        }
+        return steps.size();
+    }
+
+    private StepTemplate planned(StepTemplate template, ProductionStandard standard) {
+        if (standard.getId() == null) {
+            return template;
+        }
+        return template.withDurations(step -> stepDurationStatsService
+                .plannedMinutes(standard.getId(), step.stepNumber())
+                .orElse(step.durationMinutes()));
+    }
+
+    private record TemplateKey(Long standardId, LocalDateTime updatedAt) {
+    }
+}
@@ -1,8 +1,11 @@
 package com.ckm.service;
 
+import com.ckm.dto.CursorPageDTO;
+import com.ckm.dto.SupplierSummaryDTO;
 import com.ckm.entity.Supplier;
 import com.ckm.repository.SupplierRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
@@ -23,6 +26,26 @@ public class SupplierService {
         return supplierRepository.findById(id);
     }
 
+    /**
+     * 按名称顺序游标分页查询供应商
+     */
+    public CursorPageDTO<SupplierSummaryDTO> findSupplierPage(String cursor, Integer limit, boolean withTotal) {
+        int size = CursorPageDTO.normalizeLimit(limit);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<SupplierSummaryDTO> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = supplierRepository.findSupplierPage(page);
+        } else {
+            // 名称可能含分隔符，编码时放在最后
+            SupplierCursor after = CursorPageDTO.decodeCursor(cursor, 2,
+                    keys -> new SupplierCursor(keys[1], Long.valueOf(keys[0])));
+            rows = supplierRepository.findSupplierPageAfter(after.name(), after.id(), page);
+        }
+
+        Long total = withTotal ? supplierRepository.count() : null;
+        return CursorPageDTO.of(rows, size, supplier -> CursorPageDTO.encodeCursor(supplier.getId(), supplier.getName()), total);
+    }
+
     public List<Supplier> findByCategory(String category) {
         return supplierRepository.findByCategory(category);
     }
@@ -115,4 +138,7 @@ public class SupplierService {
     public List<Supplier> findAllByOrderByRatingDesc() {
         return supplierRepository.findAllByOrderByRatingDesc();
     }
+
+    private record SupplierCursor(String name, Long id) {
+    }
 }
@@ -0,0 +1,12 @@
+-- ===========================================
+-- IDEMPOTENCY KEYS TABLE（ckm.idempotency.store=jdbc时使用）
+-- ===========================================
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(200) PRIMARY KEY,
+    fingerprint BIGINT NOT NULL,
+    result VARCHAR(100),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+
+    INDEX idx_expires_at (expires_at)
+);
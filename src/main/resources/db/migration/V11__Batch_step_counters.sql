@@ -0,0 +1,19 @@
+-- ===========================================
+-- BATCH STEP COUNTERS
+-- ===========================================
+-- 批次步骤计数，随步骤流转在同一事务内更新
+ALTER TABLE production_batches ADD COLUMN step_total INT NOT NULL DEFAULT 0;
+ALTER TABLE production_batches ADD COLUMN steps_in_progress INT NOT NULL DEFAULT 0;
+ALTER TABLE production_batches ADD COLUMN steps_completed INT NOT NULL DEFAULT 0;
+ALTER TABLE production_batches ADD COLUMN steps_skipped INT NOT NULL DEFAULT 0;
+ALTER TABLE production_batches ADD COLUMN steps_failed INT NOT NULL DEFAULT 0;
+ALTER TABLE production_batches ADD COLUMN steps_quality_failed INT NOT NULL DEFAULT 0;
+
+-- 按现有步骤回填
+UPDATE production_batches SET
+    step_total = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id),
+    steps_in_progress = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.status = 'IN_PROGRESS'),
+    steps_completed = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.status = 'COMPLETED'),
+    steps_skipped = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.status = 'SKIPPED'),
+    steps_failed = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.status = 'FAILED'),
+    steps_quality_failed = (SELECT COUNT(*) FROM production_steps s WHERE s.production_batch_id = production_batches.id AND s.quality_result = 'FAIL');
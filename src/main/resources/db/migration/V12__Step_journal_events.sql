@@ -0,0 +1,17 @@
+-- ===========================================
+-- STEP JOURNAL EVENTS TABLE
+-- ===========================================
+-- 现场平板离线记录的步骤事件，按客户端生成的事件ID去重，重复同步的事件不再处理
+CREATE TABLE step_journal_events (
+    event_id VARCHAR(64) PRIMARY KEY,
+    device_id VARCHAR(100),
+    production_step_id BIGINT NOT NULL,
+    action VARCHAR(20) NOT NULL,
+    result VARCHAR(20) NOT NULL,
+    client_time TIMESTAMP,
+    synced_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    synced_by VARCHAR(100),
+
+    INDEX idx_production_step_id (production_step_id),
+    INDEX idx_synced_at (synced_at)
+);
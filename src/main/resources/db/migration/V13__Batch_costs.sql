@@ -0,0 +1,43 @@
+-- ===========================================
+-- BATCH COSTS
+-- ===========================================
+-- 人工和设备的小时费率，未设置时使用ckm.cost下的默认费率
+ALTER TABLE kitchen_staff ADD COLUMN hourly_rate DECIMAL(10,2);
+ALTER TABLE equipment_units ADD COLUMN hourly_rate DECIMAL(10,2);
+
+-- 批次领用的食材批次，单价为领用时供应商的合同价
+CREATE TABLE batch_material_usages (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    production_batch_id BIGINT NOT NULL,
+    supplier_id BIGINT NOT NULL,
+    quality_trace_id BIGINT,
+    lot_number VARCHAR(50),
+    ingredient_name VARCHAR(100),
+    quantity DECIMAL(12,3) NOT NULL,
+    unit_price DECIMAL(10,2) NOT NULL,
+    cost DECIMAL(12,2) NOT NULL,
+    used_at TIMESTAMP NOT NULL,
+    created_by VARCHAR(100),
+
+    FOREIGN KEY (production_batch_id) REFERENCES production_batches(id),
+    FOREIGN KEY (supplier_id) REFERENCES suppliers(id),
+
+    INDEX idx_production_batch_id (production_batch_id),
+    INDEX idx_used_at (used_at)
+);
+
+-- 按日、生产标准、加盟店预先汇总的成本，随批次成本增量更新
+CREATE TABLE cost_rollups (
+    cost_date DATE NOT NULL,
+    production_standard_id BIGINT NOT NULL,
+    franchise_id BIGINT NOT NULL,
+    material_cost DECIMAL(14,2) NOT NULL DEFAULT 0,
+    labor_cost DECIMAL(14,2) NOT NULL DEFAULT 0,
+    overhead_cost DECIMAL(14,2) NOT NULL DEFAULT 0,
+    total_cost DECIMAL(14,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (cost_date, production_standard_id, franchise_id),
+    INDEX idx_production_standard_id (production_standard_id),
+    INDEX idx_franchise_id (franchise_id)
+);
@@ -0,0 +1,14 @@
+-- ===========================================
+-- STEP DURATION SKETCHES
+-- ===========================================
+-- 步骤实际工时的分位数草图，按"生产标准ID:步骤序号"和设备两个维度保存，
+-- 各节点定期把本地增量合并进来，sketch为DurationSketch的序列化结果
+CREATE TABLE step_duration_sketches (
+    dimension VARCHAR(20) NOT NULL,
+    sketch_key VARCHAR(150) NOT NULL,
+    sample_count BIGINT NOT NULL,
+    sketch VARBINARY(4096) NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (dimension, sketch_key)
+);
@@ -0,0 +1,12 @@
+-- ===========================================
+-- PRODUCTION SCHEDULES: 按ID引用生产线
+-- production_line保留为显示名称，生产线改名时按production_line_id同步
+-- ===========================================
+ALTER TABLE production_schedules
+    ADD COLUMN production_line_id BIGINT AFTER production_line;
+
+UPDATE production_schedules
+SET production_line_id = (SELECT pl.id FROM production_lines pl WHERE pl.name = production_schedules.production_line);
+
+ALTER TABLE production_schedules
+    ADD CONSTRAINT fk_schedule_production_line FOREIGN KEY (production_line_id) REFERENCES production_lines(id);
@@ -0,0 +1,24 @@
+-- ===========================================
+-- NUMBER SEQUENCES: 按已有编号初始化序列
+-- 编号为前缀 + 日期 + 序号，每个前缀和日期从已用的最大序号之后继续分配
+-- ===========================================
+INSERT INTO number_sequences (sequence_key, next_value, updated_at)
+SELECT LEFT(order_number, 10), MAX(CAST(SUBSTRING(order_number, 11) AS UNSIGNED)) + 1, CURRENT_TIMESTAMP
+FROM production_orders
+WHERE order_number REGEXP '^PO[0-9]{12,}$'
+GROUP BY LEFT(order_number, 10)
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO number_sequences (sequence_key, next_value, updated_at)
+SELECT LEFT(batch_number, 10), MAX(CAST(SUBSTRING(batch_number, 11) AS UNSIGNED)) + 1, CURRENT_TIMESTAMP
+FROM production_batches
+WHERE batch_number REGEXP '^PB[0-9]{12,}$'
+GROUP BY LEFT(batch_number, 10)
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
+
+INSERT INTO number_sequences (sequence_key, next_value, updated_at)
+SELECT LEFT(schedule_number, 10), MAX(CAST(SUBSTRING(schedule_number, 11) AS UNSIGNED)) + 1, CURRENT_TIMESTAMP
+FROM production_schedules
+WHERE schedule_number REGEXP '^PS[0-9]{12,}$'
+GROUP BY LEFT(schedule_number, 10)
+ON DUPLICATE KEY UPDATE next_value = GREATEST(next_value, VALUES(next_value));
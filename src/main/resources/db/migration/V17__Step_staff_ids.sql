@@ -0,0 +1,12 @@
+-- ===========================================
+-- PRODUCTION STEPS: 按ID引用负责员工
+-- assigned_staff保留为显示名称，自动分配和人员占用按staff_id计算；同名员工无法区分，不回填
+-- ===========================================
+ALTER TABLE production_steps
+    ADD COLUMN staff_id BIGINT AFTER assigned_staff,
+    ADD CONSTRAINT fk_step_staff FOREIGN KEY (staff_id) REFERENCES kitchen_staff(id) ON DELETE SET NULL;
+
+UPDATE production_steps
+SET staff_id = (SELECT k.id FROM kitchen_staff k WHERE k.name = production_steps.assigned_staff)
+WHERE assigned_staff IS NOT NULL
+  AND (SELECT COUNT(*) FROM kitchen_staff k WHERE k.name = production_steps.assigned_staff) = 1;
@@ -0,0 +1,5 @@
+-- ===========================================
+-- PRODUCTION BATCHES: 步骤计数对账只检查未结束和最近更新的批次
+-- 计数随步骤流转以原生语句累加，updated_at随之刷新，按更新时间即可找到步骤有变化的批次
+-- ===========================================
+CREATE INDEX idx_production_batches_updated_at ON production_batches(updated_at);
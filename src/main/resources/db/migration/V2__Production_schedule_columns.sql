@@ -0,0 +1,38 @@
+-- ===========================================
+-- PRODUCTION SCHEDULES: 补齐实体字段，支持批量排程写入
+-- 新列先允许为空，按已有数据回填后再加非空和唯一约束，已有数据的库也能迁移
+-- ===========================================
+ALTER TABLE production_schedules
+    ADD COLUMN schedule_number VARCHAR(50) AFTER id,
+    ADD COLUMN scheduled_date TIMESTAMP NULL AFTER production_order_id,
+    ADD COLUMN production_line VARCHAR(100) AFTER end_time,
+    ADD COLUMN equipment VARCHAR(100) AFTER production_line,
+    ADD COLUMN assigned_staff VARCHAR(100) AFTER equipment,
+    ADD COLUMN capacity_utilization DECIMAL(5,2) AFTER status,
+    MODIFY COLUMN status ENUM('SCHEDULED', 'PLANNED', 'CONFIRMED', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED') NOT NULL DEFAULT 'PLANNED';
+
+-- 原SCHEDULED状态对应新的PLANNED，未排生产线的历史排程记为未分配
+UPDATE production_schedules
+SET schedule_number = CONCAT('PS', id),
+    scheduled_date = start_time,
+    production_line = '未分配',
+    end_time = COALESCE(end_time, start_time),
+    status = CASE WHEN status = 'SCHEDULED' THEN 'PLANNED' ELSE status END,
+    notes = LEFT(notes, 500);
+
+ALTER TABLE production_schedules
+    MODIFY COLUMN schedule_number VARCHAR(50) NOT NULL,
+    MODIFY COLUMN scheduled_date TIMESTAMP NOT NULL,
+    MODIFY COLUMN production_line VARCHAR(100) NOT NULL,
+    MODIFY COLUMN end_time TIMESTAMP NOT NULL,
+    MODIFY COLUMN status ENUM('PLANNED', 'CONFIRMED', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED') NOT NULL DEFAULT 'PLANNED',
+    MODIFY COLUMN notes VARCHAR(500),
+    ADD UNIQUE INDEX uk_schedule_number (schedule_number),
+    ADD INDEX idx_line_start_time (production_line, start_time),
+    ADD INDEX idx_scheduled_date (scheduled_date);
+
+-- ===========================================
+-- PRODUCTION ORDERS: 增加已排程、生产中状态
+-- ===========================================
+ALTER TABLE production_orders
+    MODIFY COLUMN status ENUM('PENDING', 'APPROVED', 'SCHEDULED', 'IN_PRODUCTION', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED') NOT NULL DEFAULT 'PENDING';
@@ -0,0 +1,37 @@
+-- ===========================================
+-- PRODUCTION LINES TABLE
+-- ===========================================
+CREATE TABLE production_lines (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    code VARCHAR(50) NOT NULL UNIQUE,
+    name VARCHAR(100) NOT NULL UNIQUE,
+    capacity_per_hour INT NOT NULL,
+    supported_equipment VARCHAR(500),
+    sort_order INT NOT NULL DEFAULT 0,
+    status ENUM('ACTIVE', 'MAINTENANCE', 'INACTIVE') NOT NULL DEFAULT 'ACTIVE',
+    notes VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    INDEX idx_status_sort (status, sort_order)
+);
+
+-- ===========================================
+-- PRODUCTION LINE SHIFTS TABLE
+-- ===========================================
+CREATE TABLE production_line_shifts (
+    production_line_id BIGINT NOT NULL,
+    day_of_week VARCHAR(20),
+    start_time TIME NOT NULL,
+    end_time TIME NOT NULL,
+
+    FOREIGN KEY (production_line_id) REFERENCES production_lines(id) ON DELETE CASCADE,
+
+    INDEX idx_production_line_id (production_line_id)
+);
+
+-- 原有的三条生产线，未配置班次即全天可用
+INSERT INTO production_lines (code, name, capacity_per_hour, sort_order) VALUES
+('LINE-A', '生产线A', 120, 1),
+('LINE-B', '生产线B', 120, 2),
+('LINE-C', '生产线C', 120, 3);
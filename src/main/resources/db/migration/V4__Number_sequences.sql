@@ -0,0 +1,8 @@
+-- ===========================================
+-- NUMBER SEQUENCES TABLE
+-- ===========================================
+CREATE TABLE number_sequences (
+    sequence_key VARCHAR(50) PRIMARY KEY,
+    next_value BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
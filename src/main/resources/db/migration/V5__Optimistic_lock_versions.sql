@@ -0,0 +1,7 @@
+-- ===========================================
+-- OPTIMISTIC LOCK VERSIONS
+-- ===========================================
+ALTER TABLE production_orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE production_schedules ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE production_batches ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE production_steps ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
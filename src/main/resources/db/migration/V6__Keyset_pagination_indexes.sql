@@ -0,0 +1,6 @@
+-- ===========================================
+-- 游标分页索引
+-- InnoDB二级索引隐含主键列，订单(order_date / status, order_date)、质量追溯(production_date)
+-- 和供应商(name)的已有索引即可支撑按(排序列, id)翻页；排程还需要start_time列
+-- ===========================================
+CREATE INDEX idx_production_schedules_date_start ON production_schedules(scheduled_date, start_time);
@@ -0,0 +1,24 @@
+-- ===========================================
+-- PRODUCTION LINES: 单批次最大产量，为空表示不限
+-- ===========================================
+ALTER TABLE production_lines
+    ADD COLUMN max_batch_quantity INT AFTER supported_equipment;
+
+UPDATE production_lines SET max_batch_quantity = 200 WHERE code IN ('LINE-A', 'LINE-B', 'LINE-C');
+
+-- ===========================================
+-- BATCH ALLOCATIONS TABLE: 合并批次与来源订单的数量对应
+-- ===========================================
+CREATE TABLE batch_allocations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    production_batch_id BIGINT NOT NULL,
+    production_order_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    FOREIGN KEY (production_batch_id) REFERENCES production_batches(id) ON DELETE CASCADE,
+    FOREIGN KEY (production_order_id) REFERENCES production_orders(id),
+
+    INDEX idx_production_batch_id (production_batch_id),
+    INDEX idx_production_order_id (production_order_id)
+);
@@ -0,0 +1,39 @@
+-- ===========================================
+-- EQUIPMENT UNITS TABLE
+-- ===========================================
+CREATE TABLE equipment_units (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    code VARCHAR(50) NOT NULL UNIQUE,
+    name VARCHAR(100) NOT NULL,
+    equipment_type VARCHAR(50) NOT NULL,
+    production_line VARCHAR(100),
+    status ENUM('ACTIVE', 'MAINTENANCE', 'INACTIVE') NOT NULL DEFAULT 'ACTIVE',
+    notes VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    INDEX idx_status (status)
+);
+
+-- ===========================================
+-- KITCHEN STAFF TABLE
+-- ===========================================
+CREATE TABLE kitchen_staff (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    employee_number VARCHAR(50) NOT NULL UNIQUE,
+    name VARCHAR(100) NOT NULL,
+    skills VARCHAR(500),
+    status ENUM('ACTIVE', 'ON_LEAVE', 'INACTIVE') NOT NULL DEFAULT 'ACTIVE',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+
+    INDEX idx_status (status)
+);
+
+-- ===========================================
+-- PRODUCTION SCHEDULES: 占用的设备单元和负责员工
+-- ===========================================
+ALTER TABLE production_schedules
+    ADD COLUMN equipment_units VARCHAR(200) AFTER assigned_staff,
+    ADD COLUMN staff_id BIGINT AFTER equipment_units,
+    ADD CONSTRAINT fk_schedule_staff FOREIGN KEY (staff_id) REFERENCES kitchen_staff(id);
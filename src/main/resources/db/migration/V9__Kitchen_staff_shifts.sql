@@ -0,0 +1,16 @@
+-- ===========================================
+-- KITCHEN STAFF SHIFTS TABLE
+-- ===========================================
+CREATE TABLE kitchen_staff_shifts (
+    kitchen_staff_id BIGINT NOT NULL,
+    day_of_week VARCHAR(20),
+    start_time TIME NOT NULL,
+    end_time TIME NOT NULL,
+
+    FOREIGN KEY (kitchen_staff_id) REFERENCES kitchen_staff(id) ON DELETE CASCADE,
+
+    INDEX idx_kitchen_staff_id (kitchen_staff_id)
+);
+
+-- 按计划时间查找当天步骤
+CREATE INDEX idx_production_steps_planned_start ON production_steps(planned_start_time);
@@ -1,22 +1,27 @@
 package com.ckm;
 
+import com.ckm.dto.CostRollupDTO;
 import com.ckm.entity.QualityTrace;
-import com.ckm.entity.Supplier;
+import com.ckm.repository.BatchCostJdbcRepository;
 import com.ckm.repository.QualityTraceRepository;
-import com.ckm.repository.SupplierRepository;
 import com.ckm.service.AnalyticsService;
+import com.ckm.service.BatchCostService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 class AnalyticsServiceTest {
@@ -25,7 +30,7 @@ class AnalyticsServiceTest {
     private QualityTraceRepository qualityTraceRepository;
 
     @Mock
-    private SupplierRepository supplierRepository;
+    private BatchCostService batchCostService;
 
     @InjectMocks
     private AnalyticsService analyticsService;
@@ -37,12 +42,14 @@ class AnalyticsServiceTest {
 
     @Test
     void testGetCostAnalysis() {
-        // 准备测试数据
-        Supplier supplier1 = new Supplier("测试供应商1", "蔬菜", "A级", 10.0, 2);
-        Supplier supplier2 = new Supplier("测试供应商2", "肉类", "A级", 20.0, 3);
-        List<Supplier> suppliers = Arrays.asList(supplier1, supplier2);
-
-        when(supplierRepository.findAll()).thenReturn(suppliers);
+        // 准备测试数据：今天和5天前各有一天的汇总成本
+        LocalDate today = LocalDate.now();
+        when(batchCostService.getRollups(any(), any(), eq(BatchCostJdbcRepository.Dimension.DAY))).thenReturn(List.of(
+                rollup(today.minusDays(5), "8.00", "1.50", "0.50"),
+                rollup(today, "12.00", "6.00", "2.00")));
+        when(batchCostService.getMaterialCostByCategory(any(), any())).thenReturn(Map.of(
+                "蔬菜", new BigDecimal("10.00"), "肉类", new BigDecimal("10.00")));
+        when(batchCostService.getCostPerUnit(any(), any())).thenReturn(new BigDecimal("12.98"));
 
         // 执行测试
         Map<String, Object> result = analyticsService.getCostAnalysis();
@@ -62,7 +69,21 @@ class AnalyticsServiceTest {
         @SuppressWarnings("unchecked")
         Map<String, Double> costByCategory = (Map<String, Double>) result.get("costByCategory");
         assertEquals(10.0, costByCategory.get("蔬菜"));
-        assertEquals(20.0, costByCategory.get("肉类"));
+        assertEquals(10.0, costByCategory.get("肉类"));
+
+        // 验证趋势取自汇总数据，没有成本的日期为0
+        @SuppressWarnings("unchecked")
+        Map<String, Double> costTrend = (Map<String, Double>) result.get("costTrend");
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MM-dd");
+        assertEquals(30, costTrend.size());
+        assertEquals(20.0, costTrend.get(today.format(formatter)));
+        assertEquals(10.0, costTrend.get(today.minusDays(5).format(formatter)));
+        assertEquals(0.0, costTrend.get(today.minusDays(1).format(formatter)));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> costMetrics = (Map<String, Object>) result.get("costMetrics");
+        assertEquals(12.98, costMetrics.get("costPerUnit"));
+        assertEquals(10.0, (Double) costMetrics.get("costVariance"), 0.01);
     }
 
     @Test
@@ -118,4 +139,16 @@ class AnalyticsServiceTest {
         assertEquals(1L, statusStats.get("PASSED"));
         assertEquals(1L, statusStats.get("IN_PROGRESS"));
     }
+
+    private static CostRollupDTO rollup(LocalDate date, String material, String labor, String overhead) {
+        BigDecimal total = new BigDecimal(material).add(new BigDecimal(labor)).add(new BigDecimal(overhead));
+        return CostRollupDTO.builder()
+                .dimension("DAY")
+                .key(date.toString())
+                .materialCost(new BigDecimal(material))
+                .laborCost(new BigDecimal(labor))
+                .overheadCost(new BigDecimal(overhead))
+                .totalCost(total)
+                .build();
+    }
 }
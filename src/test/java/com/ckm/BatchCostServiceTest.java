@@ -0,0 +1,136 @@
+package com.ckm;
+
+import com.ckm.dto.MaterialUsageDTO;
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.QualityTrace;
+import com.ckm.entity.Supplier;
+import com.ckm.repository.BatchCostJdbcRepository;
+import com.ckm.repository.ProductionBatchRepository;
+import com.ckm.repository.QualityTraceRepository;
+import com.ckm.repository.SupplierRepository;
+import com.ckm.service.BatchCostService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchCostServiceTest {
+
+    private static final LocalDateTime COMPLETED_AT = LocalDateTime.of(2024, 3, 1, 10, 30);
+
+    @Mock
+    private BatchCostJdbcRepository batchCostJdbcRepository;
+
+    @Mock
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Mock
+    private SupplierRepository supplierRepository;
+
+    @Mock
+    private QualityTraceRepository qualityTraceRepository;
+
+    @InjectMocks
+    private BatchCostService batchCostService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(batchCostJdbcRepository.findOrigins(any())).thenReturn(Map.of(10L, new BatchCostJdbcRepository.BatchOrigin(5L, 7L)));
+        when(productionBatchRepository.existsById(10L)).thenReturn(true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCompletedStepAddsLaborAndEquipmentCost() {
+        // 准备测试数据：90分钟，员工费率40元/小时，设备未设置费率按默认12元/小时
+        when(batchCostJdbcRepository.findCompletedStepCosts(List.of(1L))).thenReturn(List.of(
+                new BatchCostJdbcRepository.StepCost(1L, 10L, 90, COMPLETED_AT, "蒸烤箱", new BigDecimal("40.00"), null)));
+
+        // 执行测试
+        batchCostService.applyCompletedSteps(List.of(1L));
+
+        // 验证结果
+        ProductionBatch.CostBreakdown expected = new ProductionBatch.CostBreakdown(BigDecimal.ZERO, new BigDecimal("60.00"), new BigDecimal("18.00"));
+        ArgumentCaptor<Map<Long, ProductionBatch.CostBreakdown>> batchDeltas = ArgumentCaptor.forClass(Map.class);
+        verify(batchCostJdbcRepository).adjustBatchCosts(batchDeltas.capture());
+        assertEquals(expected, batchDeltas.getValue().get(10L));
+
+        ArgumentCaptor<Map<BatchCostJdbcRepository.RollupKey, ProductionBatch.CostBreakdown>> rollups = ArgumentCaptor.forClass(Map.class);
+        verify(batchCostJdbcRepository).adjustRollups(rollups.capture());
+        assertEquals(expected, rollups.getValue().get(new BatchCostJdbcRepository.RollupKey(LocalDate.of(2024, 3, 1), 5L, 7L)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testConsolidatedBatchCostIsSplitByAllocatedQuantity() {
+        // 准备测试数据：合并批次三个加盟店各分配10份
+        Supplier supplier = new Supplier("测试供应商", "蔬菜", "A级", 10.0, 2);
+        supplier.setId(3L);
+        when(supplierRepository.findById(3L)).thenReturn(Optional.of(supplier));
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(7L, 10);
+        quantities.put(8L, 10);
+        quantities.put(9L, 10);
+        when(batchCostJdbcRepository.findAllocationQuantities(any())).thenReturn(Map.of(10L, quantities));
+        MaterialUsageDTO usage = MaterialUsageDTO.builder()
+                .supplierId(3L)
+                .quantity(BigDecimal.ONE)
+                .usedAt(COMPLETED_AT)
+                .build();
+
+        // 执行测试
+        MaterialUsageDTO result = batchCostService.recordMaterialUsage(10L, usage, "admin");
+
+        // 验证结果：舍入差额计入最后一个加盟店
+        assertEquals(new BigDecimal("10.00"), result.getCost());
+        ArgumentCaptor<Map<BatchCostJdbcRepository.RollupKey, ProductionBatch.CostBreakdown>> rollups = ArgumentCaptor.forClass(Map.class);
+        verify(batchCostJdbcRepository).adjustRollups(rollups.capture());
+        LocalDate day = COMPLETED_AT.toLocalDate();
+        assertEquals(new BigDecimal("3.33"), rollups.getValue().get(new BatchCostJdbcRepository.RollupKey(day, 5L, 7L)).material());
+        assertEquals(new BigDecimal("3.33"), rollups.getValue().get(new BatchCostJdbcRepository.RollupKey(day, 5L, 8L)).material());
+        assertEquals(new BigDecimal("3.34"), rollups.getValue().get(new BatchCostJdbcRepository.RollupKey(day, 5L, 9L)).material());
+    }
+
+    @Test
+    void testFailedLotCannotBeUsed() {
+        // 准备测试数据
+        Supplier supplier = new Supplier("测试供应商", "肉类", "A级", 20.0, 3);
+        supplier.setId(3L);
+        when(supplierRepository.findById(3L)).thenReturn(Optional.of(supplier));
+        QualityTrace lot = new QualityTrace();
+        lot.setId(4L);
+        lot.setBatchNumber("LOT-001");
+        lot.setStatus(QualityTrace.QualityStatus.FAILED);
+        when(qualityTraceRepository.findById(4L)).thenReturn(Optional.of(lot));
+        MaterialUsageDTO usage = MaterialUsageDTO.builder()
+                .supplierId(3L)
+                .qualityTraceId(4L)
+                .quantity(new BigDecimal("2.5"))
+                .build();
+
+        // 执行测试
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> batchCostService.recordMaterialUsage(10L, usage, "admin"));
+
+        // 验证结果
+        assertTrue(ex.getMessage().contains("LOT-001"));
+        verify(batchCostJdbcRepository, never()).insertMaterialUsage(any());
+    }
+}
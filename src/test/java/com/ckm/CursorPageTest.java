@@ -0,0 +1,53 @@
+package com.ckm;
+
+import com.ckm.dto.CursorPageDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPageTest {
+
+    @Test
+    void testCursorRoundTrip() {
+        // 准备测试数据：名称中含有分隔符
+        String cursor = CursorPageDTO.encodeCursor(LocalDateTime.of(2024, 3, 1, 8, 0), 42L, "鲜|蔬");
+
+        // 执行测试
+        String[] keys = CursorPageDTO.decodeCursor(cursor, 3, (String[] parts) -> parts);
+
+        // 验证结果
+        assertEquals(LocalDateTime.of(2024, 3, 1, 8, 0), LocalDateTime.parse(keys[0]));
+        assertEquals("42", keys[1]);
+        assertEquals("鲜|蔬", keys[2]);
+    }
+
+    @Test
+    void testMalformedCursorIsRejected() {
+        // 准备测试数据
+        String cursor = CursorPageDTO.encodeCursor(LocalDateTime.of(2024, 3, 1, 8, 0), 42L);
+
+        // 执行测试并验证结果
+        assertThrows(BusinessException.class, () -> CursorPageDTO.decodeCursor("not*base64", 2, (String[] parts) -> parts));
+        assertThrows(BusinessException.class, () -> CursorPageDTO.decodeCursor(cursor, 2, parts -> LocalDate.parse(parts[0])));
+        assertThrows(BusinessException.class, () -> CursorPageDTO.normalizeLimit(CursorPageDTO.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void testExtraRowSignalsNextPage() {
+        // 执行测试：查询多取一条
+        CursorPageDTO<Integer> page = CursorPageDTO.of(List.of(1, 2, 3, 4), 3, i -> "c" + i, null);
+        CursorPageDTO<Integer> last = CursorPageDTO.of(List.of(5), 3, i -> "c" + i, 5L);
+
+        // 验证结果
+        assertEquals(List.of(1, 2, 3), page.getItems());
+        assertEquals("c3", page.getNext());
+        assertTrue(page.isHasMore());
+        assertNull(page.getTotal());
+        assertNull(last.getNext());
+        assertEquals(5L, last.getTotal());
+    }
+}
@@ -0,0 +1,173 @@
+package com.ckm;
+
+import com.ckm.dto.EquipmentUtilizationDTO;
+import com.ckm.entity.EquipmentUnit;
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ShiftWindow;
+import com.ckm.repository.EquipmentTimelineJdbcRepository;
+import com.ckm.repository.EquipmentUnitRepository;
+import com.ckm.scheduling.EquipmentDirectory;
+import com.ckm.scheduling.EquipmentTimeline;
+import com.ckm.scheduling.ProductionLineRegistry;
+import com.ckm.scheduling.ShiftCalendar;
+import com.ckm.service.EquipmentTimelineService;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EquipmentTimelineServiceTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Test
+    void testDirectoryNormalizesFreeTextEquipment() {
+        // 准备测试数据：两台同类型的蒸烤箱和一台炒锅
+        EquipmentDirectory directory = EquipmentDirectory.of(List.of(
+                unit("OV-01", "1号蒸烤箱", "蒸烤箱", "热厨线"),
+                unit("OV-02", "2号蒸烤箱", "蒸烤箱", null),
+                unit("WK-01", "炒锅", "炒锅", "热厨线")));
+
+        // 执行测试
+        EquipmentDirectory.Entry byCode = directory.resolve(" ｏｖ－０１ ");
+        EquipmentDirectory.Entry byName = directory.resolve("2号 蒸烤箱");
+        EquipmentDirectory.Entry group = directory.resolve("蒸烤箱");
+        EquipmentDirectory.Entry single = directory.resolve("炒锅");
+        EquipmentDirectory.Entry unknown = directory.resolve("  电子秤 ");
+
+        // 验证结果
+        assertEquals("OV-01", byCode.id());
+        assertEquals("热厨线", byCode.productionLine());
+        assertEquals("OV-02", byName.id());
+        assertEquals("蒸烤箱", group.id());
+        assertEquals(2, group.capacity());
+        assertEquals("WK-01", single.id());
+        assertFalse(unknown.registered());
+        assertEquals("电子秤", unknown.name());
+        assertEquals(1, unknown.capacity());
+    }
+
+    @Test
+    void testTimelineSplitsBusyTimeAcrossShiftsAndListsIdleWindows() {
+        // 准备测试数据：上午、下午两个时段，一段忙碌跨过午休
+        List<ShiftCalendar.Window> windows = List.of(
+                new ShiftCalendar.Window(DAY.withHour(8), DAY.withHour(12)),
+                new ShiftCalendar.Window(DAY.withHour(13), DAY.withHour(17)));
+        EquipmentTimeline timeline = new EquipmentTimeline(entry(1), windows, 30, 10);
+
+        // 执行测试
+        timeline.add(1L, DAY.withHour(9), DAY.withHour(10));
+        timeline.add(2L, DAY.withHour(9).withMinute(30), DAY.withHour(11));
+        timeline.add(3L, DAY.withHour(11).withMinute(30), DAY.withHour(14));
+        timeline.add(4L, DAY.withHour(16).withMinute(50), DAY.withHour(18));
+        EquipmentUtilizationDTO report = timeline.finish();
+
+        // 验证结果：上午忙碌150分钟，下午忙碌70分钟，午休和下班后的60+60分钟为班次外
+        assertEquals(4, report.getStepCount());
+        assertEquals(480, report.getShiftMinutes());
+        assertEquals(150 + 70, report.getBusyMinutes());
+        assertEquals(120, report.getOffShiftMinutes());
+        assertEquals(45.83, report.getBusyPercent());
+        EquipmentUtilizationDTO.Shift morning = report.getShifts().get(0);
+        assertEquals(List.of(new EquipmentUtilizationDTO.Window(DAY.withHour(8), DAY.withHour(9)),
+                new EquipmentUtilizationDTO.Window(DAY.withHour(11), DAY.withHour(11).withMinute(30))), morning.idleWindows());
+        EquipmentUtilizationDTO.Shift afternoon = report.getShifts().get(1);
+        assertEquals(List.of(new EquipmentUtilizationDTO.Window(DAY.withHour(14), DAY.withHour(16).withMinute(50))),
+                afternoon.idleWindows());
+        // 单台设备上步骤1、2重叠30分钟
+        assertEquals(1, report.getViolationCount());
+        assertEquals(new EquipmentUtilizationDTO.Violation(2L, 1L, DAY.withHour(9).withMinute(30), DAY.withHour(10)),
+                report.getViolations().get(0));
+        assertEquals(30, report.getOverlapMinutes());
+        assertEquals(1, morning.violationCount());
+        assertThrows(IllegalArgumentException.class, () -> timeline.add(5L, DAY.withHour(8), DAY.withHour(9)));
+    }
+
+    @Test
+    void testTimelineAllowsConcurrentUseUpToCapacity() {
+        // 准备测试数据：两台同类设备组成的设备组
+        EquipmentTimeline timeline = new EquipmentTimeline(entry(2),
+                List.of(new ShiftCalendar.Window(DAY.withHour(8), DAY.withHour(18))), 30, 1);
+
+        // 执行测试
+        timeline.add(1L, DAY.withHour(8), DAY.withHour(12));
+        timeline.add(2L, DAY.withHour(9), DAY.withHour(11));
+        timeline.add(3L, DAY.withHour(10), DAY.withHour(13));
+        timeline.add(4L, DAY.withHour(10).withMinute(30), DAY.withHour(11).withMinute(30));
+        EquipmentUtilizationDTO report = timeline.finish();
+
+        // 验证结果：10点到11点三个步骤同时占用，10:30后四个；超出容量的时段为10:00-11:30
+        assertEquals(2, report.getViolationCount());
+        assertEquals(1, report.getViolations().size());
+        assertEquals(new EquipmentUtilizationDTO.Violation(3L, 1L, DAY.withHour(10), DAY.withHour(11)),
+                report.getViolations().get(0));
+        assertEquals(90, report.getOverlapMinutes());
+        assertEquals(300, report.getBusyMinutes());
+    }
+
+    @Test
+    void testServiceStreamsStepsIntoNormalizedEquipmentTimelines() {
+        // 准备测试数据：热厨线8点到16点开工，步骤设备文本写法各异
+        EquipmentUnitRepository unitRepository = mock(EquipmentUnitRepository.class);
+        when(unitRepository.findAll(any(Sort.class))).thenReturn(List.of(
+                unit("OV-01", "蒸烤箱", "蒸烤箱", "热厨线"),
+                unit("WK-01", "炒锅", "炒锅", null)));
+        ProductionLine line = ProductionLine.builder().name("热厨线").shifts(new ArrayList<>(List.of(
+                ShiftWindow.builder().startTime(LocalTime.of(8, 0)).endTime(LocalTime.of(16, 0)).build()))).build();
+        List<EquipmentTimelineJdbcRepository.StepUsage> usages = List.of(
+                // 前一天开始、当天9点完成的步骤只计范围内的部分
+                new EquipmentTimelineJdbcRepository.StepUsage(1L, "ov-01", "COMPLETED", DAY.minusHours(2), DAY.withHour(9), null),
+                new EquipmentTimelineJdbcRepository.StepUsage(2L, "蒸烤箱、炒锅", "COMPLETED", DAY.withHour(10), null, 60),
+                new EquipmentTimelineJdbcRepository.StepUsage(3L, "电子秤", "SKIPPED", DAY.withHour(11), null, null));
+        EquipmentTimelineService service = new EquipmentTimelineService();
+        ReflectionTestUtils.setField(service, "equipmentUnitRepository", unitRepository);
+        ReflectionTestUtils.setField(service, "productionLineRegistry", new ProductionLineRegistry() {
+            @Override
+            public List<ProductionLine> getActiveLines() {
+                return List.of(line);
+            }
+        });
+        ReflectionTestUtils.setField(service, "equipmentTimelineJdbcRepository", new EquipmentTimelineJdbcRepository() {
+            @Override
+            public void forEachUsage(LocalDateTime from, LocalDateTime to, Consumer<StepUsage> consumer) {
+                usages.forEach(consumer);
+            }
+        });
+
+        // 执行测试
+        List<EquipmentUtilizationDTO> report = service.getTimelines(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 1));
+
+        // 验证结果：没有结束时间的跳过步骤不计入
+        assertEquals(List.of("OV-01", "WK-01"), report.stream().map(EquipmentUtilizationDTO::getEquipment).toList());
+        EquipmentUtilizationDTO oven = report.get(0);
+        assertEquals(2, oven.getStepCount());
+        assertEquals(480, oven.getShiftMinutes());
+        assertEquals(60 + 60, oven.getBusyMinutes());
+        assertEquals(480, oven.getOffShiftMinutes());
+        EquipmentUtilizationDTO wok = report.get(1);
+        assertEquals(1, wok.getStepCount());
+        assertEquals(60, wok.getBusyMinutes());
+        assertThrows(BusinessException.class,
+                () -> service.getTimelines(LocalDate.of(2024, 3, 2), LocalDate.of(2024, 3, 1)));
+    }
+
+    private static EquipmentUnit unit(String code, String name, String type, String productionLine) {
+        return EquipmentUnit.builder().code(code).name(name).equipmentType(type).productionLine(productionLine)
+                .status(EquipmentUnit.UnitStatus.ACTIVE).build();
+    }
+
+    private static EquipmentDirectory.Entry entry(int capacity) {
+        return new EquipmentDirectory.Entry("EQ", "设备", null, capacity, true);
+    }
+}
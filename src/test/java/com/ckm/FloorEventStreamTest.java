@@ -0,0 +1,161 @@
+package com.ckm;
+
+import com.ckm.event.FloorEvent;
+import com.ckm.service.FloorEventStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FloorEventStreamTest {
+
+    private FloorEventStream floorEventStream;
+
+    @BeforeEach
+    void setUp() {
+        floorEventStream = new RecordingStream();
+        ReflectionTestUtils.setField(floorEventStream, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(floorEventStream, "bufferSize", 4);
+        ReflectionTestUtils.setField(floorEventStream, "maxClients", 2);
+        floorEventStream.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        floorEventStream.shutdown();
+    }
+
+    @Test
+    void testSubscriberReceivesEventsPublishedAfterSubscribing() throws InterruptedException {
+        // 准备测试数据
+        floorEventStream.publish(event("BATCH_STARTED", 1L));
+        RecordingEmitter emitter = (RecordingEmitter) floorEventStream.subscribe(null);
+
+        // 执行测试
+        floorEventStream.publish(event("STEP_STARTED", 7L));
+
+        // 验证结果
+        String received = emitter.next();
+        assertTrue(received.contains("id:2\n"));
+        assertTrue(received.contains("event:STEP_STARTED\n"));
+        assertTrue(received.contains("\"entityId\":7"));
+        assertNull(emitter.poll());
+    }
+
+    @Test
+    void testResumeFromLastEventId() throws InterruptedException {
+        // 准备测试数据
+        floorEventStream.publish(event("BATCH_STARTED", 1L));
+        floorEventStream.publish(event("STEP_STARTED", 2L));
+        floorEventStream.publish(event("STEP_COMPLETED", 2L));
+
+        // 执行测试
+        RecordingEmitter emitter = (RecordingEmitter) floorEventStream.subscribe(1L);
+
+        // 验证结果
+        assertTrue(emitter.next().contains("event:STEP_STARTED\n"));
+        assertTrue(emitter.next().contains("event:STEP_COMPLETED\n"));
+        assertNull(emitter.poll());
+    }
+
+    @Test
+    void testClientBehindBufferIsReset() throws InterruptedException {
+        // 准备测试数据：缓冲只保留最近4个事件
+        for (long i = 1; i <= 6; i++) {
+            floorEventStream.publish(event("STEP_STARTED", i));
+        }
+
+        // 执行测试
+        RecordingEmitter emitter = (RecordingEmitter) floorEventStream.subscribe(1L);
+        floorEventStream.publish(event("BATCH_COMPLETED", 9L));
+
+        // 验证结果
+        String reset = emitter.next();
+        assertTrue(reset.contains("event:reset\n"));
+        assertTrue(reset.contains("id:6\n"));
+        assertTrue(emitter.next().contains("event:BATCH_COMPLETED\n"));
+    }
+
+    @Test
+    void testClientAheadOfStreamIsReset() throws InterruptedException {
+        // 准备测试数据：重启后只发布了2个事件，客户端带着重启前的编号5重连
+        floorEventStream.publish(event("BATCH_STARTED", 1L));
+        floorEventStream.publish(event("STEP_STARTED", 2L));
+
+        // 执行测试
+        RecordingEmitter emitter = (RecordingEmitter) floorEventStream.subscribe(5L);
+        floorEventStream.publish(event("STEP_COMPLETED", 2L));
+
+        // 验证结果
+        String reset = emitter.next();
+        assertTrue(reset.contains("event:reset\n"));
+        assertTrue(reset.contains("id:2\n"));
+        assertTrue(emitter.next().contains("id:3\n"));
+    }
+
+    @Test
+    void testClientLimit() {
+        // 准备测试数据
+        floorEventStream.subscribe(null);
+        floorEventStream.subscribe(null);
+
+        // 执行测试
+        BusinessException ex = assertThrows(BusinessException.class, () -> floorEventStream.subscribe(null));
+
+        // 验证结果
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatus());
+        assertEquals(2, floorEventStream.getClientCount());
+    }
+
+    private static FloorEvent event(String type, Long entityId) {
+        return new FloorEvent(type, entityId, "IN_PROGRESS", 1L, "admin", LocalDateTime.of(2024, 1, 1, 8, 0));
+    }
+
+    private static class RecordingStream extends FloorEventStream {
+
+        @Override
+        protected SseEmitter newEmitter(long timeoutMillis) {
+            return new RecordingEmitter();
+        }
+    }
+
+    /**
+     * 记录推送内容的SseEmitter，不依赖Servlet响应
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                text.append(data.getData());
+            }
+            if (!text.toString().startsWith(":")) {
+                sent.add(text.toString());
+            }
+        }
+
+        String next() throws InterruptedException {
+            String text = sent.poll(5, TimeUnit.SECONDS);
+            assertNotNull(text);
+            return text;
+        }
+
+        String poll() throws InterruptedException {
+            return sent.poll(200, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ckm;
+
+import com.ckm.service.IdempotencyService;
+import com.ckm.service.LocalIdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private final IdempotencyService idempotencyService = new IdempotencyService();
+
+    // 模拟已保存的结果
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        LocalIdempotencyStore store = new LocalIdempotencyStore();
+        store.init();
+        ReflectionTestUtils.setField(idempotencyService, "idempotencyStore", store);
+        ReflectionTestUtils.setField(idempotencyService, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void testRetryReplaysOriginalResultWithoutExecuting() {
+        // 准备测试数据
+        Map<String, Object> request = Map.of("quantity", 10, "dish", "宫保鸡丁");
+
+        // 执行测试：同一个键提交两次
+        IdempotencyService.Outcome<String> first = submit("key-1", request);
+        IdempotencyService.Outcome<String> retry = submit("key-1", request);
+
+        // 验证结果：只执行一次，重试返回首次结果
+        assertEquals(1, executions.get());
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.value(), retry.value());
+    }
+
+    @Test
+    void testSameKeyWithDifferentRequestIsRejected() {
+        // 准备测试数据
+        submit("key-1", Map.of("quantity", 10));
+
+        // 执行测试 & 验证结果
+        BusinessException exception = assertThrows(BusinessException.class, () -> submit("key-1", Map.of("quantity", 20)));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, exception.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testFailedRequestCanBeRetried() {
+        // 准备测试数据：首次处理失败
+        Map<String, Object> request = Map.of("quantity", 10);
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("orders", "key-1", request,
+                () -> {
+                    throw new IllegalStateException("数据库不可用");
+                }, value -> value, id -> id));
+
+        // 执行测试
+        IdempotencyService.Outcome<String> retry = submit("key-1", request);
+
+        // 验证结果：失败的请求不登记结果，重试正常执行
+        assertFalse(retry.replayed());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testConcurrentDuplicateIsRejectedWhileInFlight() {
+        // 准备测试数据
+        Map<String, Object> request = Map.of("quantity", 10);
+
+        // 执行测试：首次请求处理过程中收到重试
+        BusinessException inFlight = assertThrows(BusinessException.class, () ->
+                idempotencyService.execute("orders", "key-1", request, () -> submit("key-1", request).value(),
+                        value -> value, id -> id));
+
+        // 验证结果
+        assertEquals(HttpStatus.CONFLICT, inFlight.getStatus());
+        assertEquals(0, executions.get());
+        // 首次请求失败后键已释放，可以重新提交
+        assertFalse(submit("key-1", request).replayed());
+    }
+
+    private IdempotencyService.Outcome<String> submit(String key, Object request) {
+        return idempotencyService.execute("orders", key, request,
+                () -> "order-" + executions.incrementAndGet(), value -> value, id -> id);
+    }
+}
@@ -0,0 +1,160 @@
+package com.ckm;
+
+import com.ckm.entity.ProductionSchedule;
+import com.ckm.repository.ProductionScheduleRepository;
+import com.ckm.scheduling.LineCalendar;
+import com.ckm.scheduling.LineTimeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class LineCalendarTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Mock
+    private ProductionScheduleRepository productionScheduleRepository;
+
+    @InjectMocks
+    private LineCalendar lineCalendar;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testFindFirstFreeSlotSkipsOccupiedIntervals() {
+        // 准备测试数据：生产线A 8:00-9:00、9:30-10:00 已占用，生产线B 8:00-10:30 已占用
+        List<ProductionSchedule> schedules = Arrays.asList(
+                schedule(1L, "生产线A", 8, 0, 9, 0, ProductionSchedule.ScheduleStatus.PLANNED),
+                schedule(2L, "生产线A", 9, 30, 10, 0, ProductionSchedule.ScheduleStatus.CONFIRMED),
+                schedule(3L, "生产线B", 8, 0, 10, 30, ProductionSchedule.ScheduleStatus.PLANNED));
+        when(productionScheduleRepository.findLineBookingsInRange(any(), any(), any())).thenReturn(rows(schedules));
+
+        lineCalendar.load(DAY, DAY.plusDays(1));
+
+        // 执行测试：30分钟的时段可以放进A线的9:00-9:30空档
+        Optional<LineCalendar.Slot> slot = lineCalendar.findFirstFreeSlot(
+                List.of("生产线A", "生产线B"), DAY.withHour(8), 30);
+
+        // 验证结果
+        assertTrue(slot.isPresent());
+        assertEquals("生产线A", slot.get().productionLine());
+        assertEquals(DAY.withHour(9), slot.get().startTime());
+
+        // 45分钟放不进空档，A线10:00与B线10:30中选更早的
+        Optional<LineCalendar.Slot> longer = lineCalendar.findFirstFreeSlot(
+                List.of("生产线A", "生产线B"), DAY.withHour(8), 45);
+        assertEquals("生产线A", longer.get().productionLine());
+        assertEquals(DAY.withHour(10), longer.get().startTime());
+    }
+
+    @Test
+    void testSchedulesStartedBeforeWindowAreLoadedAndUpdatesAreApplied() {
+        // 准备测试数据：查询排除已取消的排程，前一天22:00开工、跨零点的排程仍占用生产线
+        ProductionSchedule overnight = ProductionSchedule.builder()
+                .id(3L)
+                .productionLine("生产线A")
+                .startTime(DAY.minusHours(2))
+                .endTime(DAY.withHour(2))
+                .status(ProductionSchedule.ScheduleStatus.IN_PROGRESS)
+                .build();
+        when(productionScheduleRepository.findLineBookingsInRange(
+                eq(DAY), eq(DAY.plusDays(1)), eq(ProductionSchedule.ScheduleStatus.CANCELLED)))
+                .thenReturn(rows(List.of(overnight)));
+
+        lineCalendar.load(DAY, DAY.plusDays(1));
+
+        // 窗口开始前开工的排程按相交区间加载
+        assertFalse(lineCalendar.isFree("生产线A", DAY.withHour(1), DAY.withHour(3)));
+        // 未占用的时段空闲
+        assertTrue(lineCalendar.isFree("生产线A", DAY.withHour(9), DAY.withHour(10)));
+
+        // 新保存的排程同步进日历
+        lineCalendar.upsert(schedule(2L, "生产线A", 9, 0, 10, 0, ProductionSchedule.ScheduleStatus.PLANNED));
+        assertFalse(lineCalendar.isFree("生产线A", DAY.withHour(9).withMinute(30), DAY.withHour(11)));
+
+        // 排程移动后旧时段释放
+        lineCalendar.upsert(schedule(2L, "生产线A", 14, 0, 15, 0, ProductionSchedule.ScheduleStatus.CONFIRMED));
+        assertTrue(lineCalendar.isFree("生产线A", DAY.withHour(9), DAY.withHour(10)));
+        assertFalse(lineCalendar.isFree("生产线A", DAY.withHour(14), DAY.withHour(14).withMinute(30)));
+    }
+
+    @Test
+    void testNoSlotBeyondLoadedWindow() {
+        when(productionScheduleRepository.findLineBookingsInRange(any(), any(), any())).thenReturn(List.of());
+
+        lineCalendar.load(DAY, DAY.withHour(10));
+
+        assertTrue(lineCalendar.findFirstFreeSlot(List.of("生产线A"), DAY.withHour(9).withMinute(30), 60).isEmpty());
+        assertTrue(lineCalendar.findFirstFreeSlot(List.of("生产线A"), DAY.withHour(9), 60).isPresent());
+    }
+
+    @Test
+    void testLoadReturnsIsolatedSnapshotAndOnlyExtendsSharedWindow() {
+        // 准备测试数据：第一次加载当天A线8:00-9:00的排程，第二次加载次日时没有排程
+        when(productionScheduleRepository.findLineBookingsInRange(any(), any(), any())).thenReturn(
+                rows(List.of(schedule(1L, "生产线A", 8, 0, 9, 0, ProductionSchedule.ScheduleStatus.PLANNED))), List.of());
+
+        // 执行测试
+        LineCalendar.Snapshot snapshot = lineCalendar.load(DAY, DAY.plusDays(1));
+        snapshot.timelines(List.of("生产线A")).get("生产线A").reserve(DAY.withHour(9), DAY.withHour(10));
+        lineCalendar.upsert(schedule(2L, "生产线A", 10, 0, 11, 0, ProductionSchedule.ScheduleStatus.PLANNED));
+        lineCalendar.load(DAY.plusDays(1), DAY.plusDays(2));
+
+        // 验证结果：快照不受副本上的试排和共享日历后续变更影响
+        LineTimeline lineA = snapshot.timelines(List.of("生产线A")).get("生产线A");
+        assertTrue(lineA.isFree(DAY.withHour(9), DAY.withHour(11)));
+        assertFalse(lineA.isFree(DAY.withHour(8), DAY.withHour(9)));
+        assertEquals(DAY.plusDays(1), snapshot.getWindowEnd());
+        // 次日的加载扩展共享窗口，当天的排程仍在
+        assertFalse(lineCalendar.isFree("生产线A", DAY.withHour(10), DAY.withHour(11)));
+        assertEquals(DAY.withHour(9), lineCalendar.findFirstFreeSlot(List.of("生产线A"), DAY.withHour(8), 60).get().startTime());
+        assertTrue(lineCalendar.covers(DAY, DAY.plusDays(2)));
+    }
+
+    @Test
+    void testReadDoesNotTouchSharedCalendar() {
+        // 准备测试数据
+        when(productionScheduleRepository.findLineBookingsInRange(any(), any(), any())).thenReturn(
+                rows(List.of(schedule(1L, "生产线A", 8, 0, 9, 0, ProductionSchedule.ScheduleStatus.PLANNED))));
+
+        // 执行测试
+        LineCalendar.Snapshot snapshot = lineCalendar.read(DAY, DAY.plusDays(1));
+
+        // 验证结果：只有快照包含排程，共享日历仍未加载
+        assertFalse(snapshot.timelines(List.of("生产线A")).get("生产线A").isFree(DAY.withHour(8), DAY.withHour(9)));
+        assertFalse(lineCalendar.covers(DAY, DAY.plusDays(1)));
+    }
+
+    private List<Object[]> rows(List<ProductionSchedule> schedules) {
+        return schedules.stream()
+                .map(s -> new Object[]{s.getId(), s.getProductionLine(), s.getStartTime(), s.getEndTime()})
+                .toList();
+    }
+
+    private ProductionSchedule schedule(Long id, String line, int startHour, int startMinute,
+                                        int endHour, int endMinute, ProductionSchedule.ScheduleStatus status) {
+        return ProductionSchedule.builder()
+                .id(id)
+                .productionLine(line)
+                .scheduledDate(DAY.withHour(startHour).withMinute(startMinute))
+                .startTime(DAY.withHour(startHour).withMinute(startMinute))
+                .endTime(DAY.withHour(endHour).withMinute(endMinute))
+                .status(status)
+                .build();
+    }
+}
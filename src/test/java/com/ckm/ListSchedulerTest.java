@@ -0,0 +1,138 @@
+package com.ckm;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.entity.ShiftWindow;
+import com.ckm.scheduling.LineCalendar;
+import com.ckm.scheduling.LineTimeline;
+import com.ckm.scheduling.ListScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListSchedulerTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private static final List<ProductionLine> LINES = List.of(line("生产线A", null), line("生产线B", null));
+
+    private final ListScheduler listScheduler = new ListScheduler();
+
+    @Test
+    void testUrgentOrdersAreScheduledFirstAcrossLines() {
+        // 准备测试数据：A线8:00-9:00已占用
+        LineTimeline lineA = new LineTimeline("生产线A");
+        lineA.add(100L, DAY.withHour(8), DAY.withHour(9));
+        LineCalendar.Snapshot calendar = calendar(lineA, new LineTimeline("生产线B"), DAY.withHour(18));
+
+        List<ProductionOrder> orders = List.of(
+                order(1L, ProductionOrder.Priority.NORMAL, DAY.plusDays(2), 60),
+                order(2L, ProductionOrder.Priority.URGENT, DAY.plusDays(3), 60),
+                order(3L, ProductionOrder.Priority.NORMAL, DAY.plusDays(1), 60));
+
+        // 执行测试
+        List<ListScheduler.Assignment> assignments = listScheduler.schedule(orders, LINES, calendar, DAY.withHour(8));
+
+        // 验证结果：紧急订单优先占用B线8:00，其次按要求完成日期排序
+        assertEquals(3, assignments.size());
+        assertEquals(2L, assignments.get(0).order().getId());
+        assertEquals("生产线B", assignments.get(0).productionLine());
+        assertEquals(DAY.withHour(8), assignments.get(0).startTime());
+
+        assertEquals(3L, assignments.get(1).order().getId());
+        assertEquals("生产线A", assignments.get(1).productionLine());
+        assertEquals(DAY.withHour(9), assignments.get(1).startTime());
+
+        // B线留出换线间隔后9:15可开工，A线需等到10:15
+        assertEquals(1L, assignments.get(2).order().getId());
+        assertEquals("生产线B", assignments.get(2).productionLine());
+        assertEquals(DAY.withHour(9).withMinute(15), assignments.get(2).startTime());
+    }
+
+    @Test
+    void testOrdersBeyondWindowAreSkipped() {
+        // 准备测试数据：窗口只够安排一个120分钟的订单
+        LineCalendar.Snapshot calendar = calendar(new LineTimeline("生产线A"), new LineTimeline("生产线B"), DAY.withHour(10));
+
+        List<ProductionOrder> orders = new ArrayList<>();
+        orders.add(order(1L, ProductionOrder.Priority.HIGH, DAY.plusDays(1), 120));
+        orders.add(order(2L, ProductionOrder.Priority.NORMAL, DAY.plusDays(1), 150));
+        ProductionOrder withoutStandard = order(3L, ProductionOrder.Priority.URGENT, DAY.plusDays(1), 30);
+        withoutStandard.setProductionStandard(null);
+        orders.add(withoutStandard);
+
+        // 执行测试
+        List<ListScheduler.Assignment> assignments = listScheduler.schedule(orders, LINES, calendar, DAY.withHour(8));
+
+        // 验证结果
+        assertEquals(1, assignments.size());
+        assertEquals(1L, assignments.get(0).order().getId());
+    }
+
+    @Test
+    void testShiftWindowsAndEquipmentAreRespected() {
+        // 准备测试数据：A线只有炒锅，B线有烤箱但只在10:00-12:00开工
+        ProductionLine lineA = line("生产线A", "炒锅");
+        ProductionLine lineB = line("生产线B", "炒锅,烤箱");
+        lineB.setShifts(List.of(ShiftWindow.builder()
+                .startTime(LocalTime.of(10, 0))
+                .endTime(LocalTime.of(12, 0))
+                .build()));
+        LineCalendar.Snapshot calendar = calendar(new LineTimeline("生产线A"), new LineTimeline("生产线B"), DAY.withHour(18));
+
+        ProductionOrder roast = order(1L, ProductionOrder.Priority.URGENT, DAY.plusDays(1), 90);
+        roast.getProductionStandard().setEquipmentRequired("烤箱");
+        ProductionOrder secondRoast = order(2L, ProductionOrder.Priority.NORMAL, DAY.plusDays(1), 60);
+        secondRoast.getProductionStandard().setEquipmentRequired("烤箱");
+        // 按产能每小时120份，240份需要120分钟
+        ProductionOrder stirFry = order(3L, ProductionOrder.Priority.HIGH, DAY.plusDays(1), 30);
+        stirFry.getProductionStandard().setEquipmentRequired("炒锅");
+        stirFry.setQuantity(240);
+
+        // 执行测试
+        List<ListScheduler.Assignment> assignments = listScheduler.schedule(
+                List.of(roast, secondRoast, stirFry), List.of(lineA, lineB), calendar, DAY.withHour(8));
+
+        // 验证结果：烤箱订单只能排在B线班次内，第二个放不进剩余的15分钟
+        assertEquals(2, assignments.size());
+        assertEquals("生产线B", assignments.get(0).productionLine());
+        assertEquals(DAY.withHour(10), assignments.get(0).startTime());
+        assertEquals(3L, assignments.get(1).order().getId());
+        assertEquals("生产线A", assignments.get(1).productionLine());
+        assertEquals(DAY.withHour(10), assignments.get(1).endTime());
+    }
+
+    private static LineCalendar.Snapshot calendar(LineTimeline lineA, LineTimeline lineB, LocalDateTime windowEnd) {
+        return new LineCalendar.Snapshot(DAY, windowEnd, List.of(lineA, lineB));
+    }
+
+    private static ProductionLine line(String name, String supportedEquipment) {
+        return ProductionLine.builder()
+                .name(name)
+                .code(name)
+                .capacityPerHour(120)
+                .supportedEquipment(supportedEquipment)
+                .status(ProductionLine.LineStatus.ACTIVE)
+                .build();
+    }
+
+    private ProductionOrder order(Long id, ProductionOrder.Priority priority, LocalDateTime requiredDate, int cookingTime) {
+        ProductionStandard standard = new ProductionStandard();
+        standard.setCookingTime(cookingTime);
+
+        ProductionOrder order = new ProductionOrder();
+        order.setId(id);
+        order.setOrderNumber("PO" + id);
+        order.setPriority(priority);
+        order.setRequiredDate(requiredDate);
+        order.setStatus(ProductionOrder.OrderStatus.APPROVED);
+        order.setProductionStandard(standard);
+        return order;
+    }
+}
@@ -0,0 +1,94 @@
+package com.ckm;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.scheduling.OrderConsolidator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderConsolidatorTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private final OrderConsolidator orderConsolidator = new OrderConsolidator();
+
+    @Test
+    void testOrdersAreMergedAndSplitByBatchCapacity() {
+        // 准备测试数据：同一菜品三家门店上午订单，单批次上限200份
+        ProductionStandard rice = standard(1L, null);
+        List<ProductionOrder> orders = List.of(
+                order(1L, rice, 120, DAY.withHour(9), ProductionOrder.Priority.NORMAL, null),
+                order(2L, rice, 150, DAY.withHour(10), ProductionOrder.Priority.URGENT, " "),
+                order(3L, rice, 30, DAY.withHour(11), ProductionOrder.Priority.NORMAL, null));
+
+        // 执行测试
+        List<OrderConsolidator.ConsolidatedBatch> batches = orderConsolidator.consolidate(
+                orders, List.of(line(200, null)), Duration.ofHours(4));
+
+        // 验证结果：300份切成200 + 100，订单2拆到两个批次
+        assertEquals(2, batches.size());
+        assertEquals(200, batches.get(0).quantity());
+        assertEquals(ProductionOrder.Priority.URGENT, batches.get(0).priority());
+        assertEquals(2, batches.get(0).allocations().size());
+        assertEquals(80, batches.get(0).allocations().get(1).quantity());
+        assertEquals(100, batches.get(1).quantity());
+        assertEquals(2L, batches.get(1).allocations().get(0).order().getId());
+        assertEquals(70, batches.get(1).allocations().get(0).quantity());
+    }
+
+    @Test
+    void testWindowInstructionsAndEquipmentSeparateGroups() {
+        // 准备测试数据
+        ProductionStandard rice = standard(1L, null);
+        ProductionStandard roast = standard(2L, "烤箱");
+        List<ProductionOrder> orders = List.of(
+                order(1L, rice, 50, DAY.withHour(8), ProductionOrder.Priority.NORMAL, null),
+                order(2L, rice, 50, DAY.withHour(13), ProductionOrder.Priority.NORMAL, null),
+                order(3L, rice, 50, DAY.withHour(8), ProductionOrder.Priority.NORMAL, "少盐"),
+                order(4L, roast, 50, DAY.withHour(8), ProductionOrder.Priority.NORMAL, null));
+
+        // 执行测试：只有炒锅线，烤制订单无法合并
+        List<OrderConsolidator.ConsolidatedBatch> batches = orderConsolidator.consolidate(
+                orders, List.of(line(null, "炒锅")), Duration.ofHours(4));
+
+        // 验证结果：超出窗口和特殊要求不同的订单各自成批
+        assertEquals(3, batches.size());
+        assertTrue(batches.stream().noneMatch(batch -> batch.productionStandard() == roast));
+        assertEquals(DAY.withHour(13), batches.get(2).requiredDate());
+    }
+
+    private static ProductionLine line(Integer maxBatchQuantity, String supportedEquipment) {
+        return ProductionLine.builder()
+                .name("生产线A")
+                .capacityPerHour(120)
+                .maxBatchQuantity(maxBatchQuantity)
+                .supportedEquipment(supportedEquipment)
+                .status(ProductionLine.LineStatus.ACTIVE)
+                .build();
+    }
+
+    private static ProductionStandard standard(Long id, String equipmentRequired) {
+        ProductionStandard standard = new ProductionStandard();
+        standard.setId(id);
+        standard.setEquipmentRequired(equipmentRequired);
+        return standard;
+    }
+
+    private static ProductionOrder order(Long id, ProductionStandard standard, int quantity, LocalDateTime requiredDate,
+                                         ProductionOrder.Priority priority, String specialInstructions) {
+        ProductionOrder order = new ProductionOrder();
+        order.setId(id);
+        order.setProductionStandard(standard);
+        order.setQuantity(quantity);
+        order.setRequiredDate(requiredDate);
+        order.setPriority(priority);
+        order.setSpecialInstructions(specialInstructions);
+        return order;
+    }
+}
@@ -0,0 +1,211 @@
+package com.ckm;
+
+import com.ckm.dto.OrderImportResultDTO;
+import com.ckm.entity.Franchise;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.repository.FranchiseRepository;
+import com.ckm.repository.ProductionOrderJdbcRepository;
+import com.ckm.repository.ProductionStandardRepository;
+import com.ckm.service.OrderImportReader;
+import com.ckm.service.OrderImportService;
+import com.ckm.service.SequenceAllocator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+class OrderImportServiceTest {
+
+    @Mock
+    private FranchiseRepository franchiseRepository;
+
+    @Mock
+    private ProductionStandardRepository productionStandardRepository;
+
+    @Mock
+    private ProductionOrderJdbcRepository productionOrderJdbcRepository;
+
+    @Mock
+    private SequenceAllocator sequenceAllocator;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private OrderImportService orderImportService;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private final AtomicLong nextNumber = new AtomicLong(1);
+
+    // 每次insertAll调用写入的订单
+    private final List<List<ProductionOrder>> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(orderImportService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(orderImportService, "chunkSize", 2);
+
+        Franchise franchise = new Franchise("东城店", "张经理", "13800000000", "东城区");
+        franchise.setId(1L);
+        ProductionStandard standard = new ProductionStandard();
+        standard.setId(7L);
+        standard.setDishName("宫保鸡丁");
+        when(franchiseRepository.findAll()).thenReturn(List.of(franchise));
+        when(productionStandardRepository.findAll()).thenReturn(List.of(standard));
+        when(sequenceAllocator.next(eq(SequenceAllocator.ORDER_PREFIX), anyInt())).thenAnswer(invocation -> {
+            List<String> numbers = new ArrayList<>();
+            for (int i = 0; i < invocation.getArgument(1, Integer.class); i++) {
+                numbers.add("PO" + nextNumber.getAndIncrement());
+            }
+            return numbers;
+        });
+        doAnswer(invocation -> {
+            List<ProductionOrder> orders = invocation.getArgument(0);
+            if (orders.stream().anyMatch(order -> "DUP".equals(order.getOrderNumber()))) {
+                throw new IllegalStateException("订单编号重复");
+            }
+            orders.forEach(order -> order.setId(nextId.getAndIncrement()));
+            inserted.add(List.copyOf(orders));
+            return null;
+        }).when(productionOrderJdbcRepository).insertAll(anyList());
+    }
+
+    @Test
+    void testImportCsvReportsBadLinesAndKeepsGoing() {
+        // 准备测试数据
+        String csv = String.join("\n",
+                "franchise,standard,quantity,unit_price,required_date,priority,notes",
+                "1,宫保鸡丁,10,12.50,2026-11-01T10:00,HIGH,\"少辣, 分装\"",
+                "东城店,7,3,20,2026-11-02,,",
+                "不存在的店,7,3,20,2026-11-02,,",
+                "1,7,0,20,2026-11-02,,",
+                "1,7,5,abc,2026-11-02,,",
+                "1,7,4,8,2026-11-03 08:30,URGENT,\"引号未闭合");
+
+        // 执行测试
+        OrderImportResultDTO result = orderImportService.importOrders(stream(csv), OrderImportReader.Format.CSV, "importer");
+
+        // 验证结果
+        assertEquals(6, result.getTotalLines());
+        assertEquals(2, result.getImportedCount());
+        assertEquals(4, result.getFailedCount());
+        assertFalse(result.isErrorsTruncated());
+        assertEquals(List.of(4, 5, 6, 7), result.getErrors().stream().map(OrderImportResultDTO.LineError::line).toList());
+        assertTrue(result.getErrors().get(0).message().contains("加盟店不存在"));
+
+        List<ProductionOrder> orders = inserted.get(0);
+        assertEquals(2, orders.size());
+        ProductionOrder first = orders.get(0);
+        assertEquals(7L, first.getProductionStandard().getId());
+        assertEquals(new BigDecimal("125.00"), first.getTotalAmount());
+        assertEquals(ProductionOrder.Priority.HIGH, first.getPriority());
+        assertEquals("少辣, 分装", first.getNotes());
+        assertEquals("PO1", first.getOrderNumber());
+        assertEquals("importer", first.getCreatedBy());
+        ProductionOrder second = orders.get(1);
+        assertEquals(1L, second.getFranchise().getId());
+        assertEquals(LocalDateTime.of(2026, 11, 2, 0, 0), second.getRequiredDate());
+        assertEquals(ProductionOrder.Priority.NORMAL, second.getPriority());
+    }
+
+    @Test
+    void testImportNdjsonSplitsFailedChunk() {
+        // 准备测试数据
+        String ndjson = String.join("\n",
+                "{\"franchise\": {\"id\": 1}, \"productionStandard\": {\"id\": 7}, \"quantity\": 2, \"unitPrice\": 9.9, \"requiredDate\": \"2026-11-01T09:00:00\"}",
+                "",
+                "{\"franchiseId\": 1, \"dishName\": \"宫保鸡丁\", \"quantity\": 1, \"unitPrice\": \"5\", \"requiredDate\": \"2026-11-01\", \"orderNumber\": \"DUP\"}",
+                "not json",
+                "{\"franchise\": \"东城店\", \"standard\": \"宫保鸡丁\", \"quantity\": 4, \"unitPrice\": 3, \"requiredDate\": \"2026-11-01\"}");
+
+        // 执行测试
+        OrderImportResultDTO result = orderImportService.importOrders(stream(ndjson), OrderImportReader.Format.NDJSON, "importer");
+
+        // 验证结果
+        assertEquals(4, result.getTotalLines());
+        assertEquals(2, result.getImportedCount());
+        assertEquals(2, result.getFailedCount());
+        assertEquals(3, result.getErrors().get(0).line());
+        assertTrue(result.getErrors().get(0).message().contains("订单编号重复"));
+        assertEquals(4, result.getErrors().get(1).line());
+        // 第一批整批失败后对半拆分重试，第一行单独写入；最后一行自成一批
+        assertEquals(2, inserted.size());
+        assertEquals(new BigDecimal("19.8"), inserted.get(0).get(0).getTotalAmount());
+        assertEquals(new BigDecimal("12"), inserted.get(1).get(0).getTotalAmount());
+    }
+
+    @Test
+    void testSplitRetriesAreCapped() {
+        // 准备测试数据：8行一批，第7行编号重复，只允许一次拆分
+        ReflectionTestUtils.setField(orderImportService, "chunkSize", 8);
+        ReflectionTestUtils.setField(orderImportService, "maxRetryTransactions", 2);
+        StringBuilder csv = new StringBuilder("franchise,standard,quantity,unitPrice,requiredDate,orderNumber\n");
+        for (int i = 1; i <= 8; i++) {
+            csv.append("1,7,1,1,2026-11-01,").append(i == 7 ? "DUP" : "").append('\n');
+        }
+
+        // 执行测试
+        OrderImportResultDTO result = orderImportService.importOrders(stream(csv.toString()), OrderImportReader.Format.CSV, "importer");
+
+        // 验证结果：前半批写入，后半批不再拆分整体记为失败
+        assertEquals(4, result.getImportedCount());
+        assertEquals(4, result.getFailedCount());
+        assertEquals(List.of(6, 7, 8, 9), result.getErrors().stream().map(OrderImportResultDTO.LineError::line).toList());
+        assertEquals(1, inserted.size());
+    }
+
+    @Test
+    void testErrorReportIsCapped() {
+        // 准备测试数据
+        ReflectionTestUtils.setField(orderImportService, "maxReportedErrors", 2);
+        StringBuilder csv = new StringBuilder("franchise,standard,quantity,unitPrice,requiredDate\n");
+        for (int i = 0; i < 5; i++) {
+            csv.append("99,7,1,1,2026-11-01\n");
+        }
+
+        // 执行测试
+        OrderImportResultDTO result = orderImportService.importOrders(stream(csv.toString()), OrderImportReader.Format.CSV, "importer");
+
+        // 验证结果
+        assertEquals(5, result.getFailedCount());
+        assertEquals(2, result.getErrors().size());
+        assertTrue(result.isErrorsTruncated());
+        assertTrue(inserted.isEmpty());
+    }
+
+    @Test
+    void testFormatInferredFromFilename() {
+        // 执行测试 & 验证结果
+        assertEquals(OrderImportReader.Format.NDJSON, OrderImportService.formatOf(null, "orders.ndjson"));
+        assertEquals(OrderImportReader.Format.CSV, OrderImportService.formatOf("", "orders.csv"));
+        assertEquals(OrderImportReader.Format.NDJSON, OrderImportService.formatOf("ndjson", "orders.csv"));
+        assertThrows(BusinessException.class, () -> OrderImportService.formatOf("xml", "orders.xml"));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
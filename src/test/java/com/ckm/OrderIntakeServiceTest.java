@@ -0,0 +1,142 @@
+package com.ckm;
+
+import com.ckm.dto.OrderIntakeTicketDTO;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.repository.ProductionOrderJdbcRepository;
+import com.ckm.service.OrderIntakeService;
+import com.ckm.service.SequenceAllocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeServiceTest {
+
+    @Mock
+    private ProductionOrderJdbcRepository productionOrderJdbcRepository;
+
+    @Mock
+    private SequenceAllocator sequenceAllocator;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private OrderIntakeService orderIntakeService;
+
+    // 模拟数据库生成的主键
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    // 放行写入线程
+    private final CountDownLatch writable = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(orderIntakeService, "queueCapacity", 3);
+        ReflectionTestUtils.setField(orderIntakeService, "writerCount", 1);
+        ReflectionTestUtils.setField(orderIntakeService, "batchSize", 10);
+        when(sequenceAllocator.next(eq(SequenceAllocator.ORDER_PREFIX), anyInt())).thenAnswer(invocation -> {
+            List<String> numbers = new ArrayList<>();
+            for (int i = 0; i < invocation.getArgument(1, Integer.class); i++) {
+                numbers.add("PO" + nextId.get() + "-" + i);
+            }
+            return numbers;
+        });
+        doAnswer(invocation -> {
+            writable.await(5, TimeUnit.SECONDS);
+            List<ProductionOrder> orders = invocation.getArgument(0);
+            orders.forEach(order -> order.setId(nextId.getAndIncrement()));
+            return null;
+        }).when(productionOrderJdbcRepository).insertAll(anyList());
+        orderIntakeService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writable.countDown();
+        orderIntakeService.shutdown();
+    }
+
+    @Test
+    void testOverloadIsRejectedWithRetryAfter() {
+        // 准备测试数据：写入线程被阻塞，队列上限3个订单
+        orderIntakeService.submit(List.of(order(), order()), "franchise");
+
+        // 执行测试 & 验证结果：再提交2个订单超过上限，返回429
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> orderIntakeService.submit(List.of(order(), order()), "franchise"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+        assertTrue(exception.getRetryAfterSeconds() >= 1);
+        assertEquals(2, orderIntakeService.getQueuedOrders());
+    }
+
+    @Test
+    void testQueuedSubmissionsAreWrittenAndTicketCompletes() throws InterruptedException {
+        // 准备测试数据
+        OrderIntakeTicketDTO first = orderIntakeService.submit(List.of(order()), "franchise");
+        OrderIntakeTicketDTO second = orderIntakeService.submit(List.of(order(), order()), "franchise");
+        assertEquals("QUEUED", first.getStatus());
+
+        // 执行测试：放行写入线程
+        writable.countDown();
+        OrderIntakeTicketDTO completed = await(second.getTicketId());
+
+        // 验证结果：两次提交都写入，队列释放
+        assertEquals("COMPLETED", completed.getStatus());
+        assertEquals(2, completed.getOrderIds().size());
+        assertEquals(2, completed.getOrderNumbers().size());
+        assertEquals("COMPLETED", await(first.getTicketId()).getStatus());
+        assertEquals(0, orderIntakeService.getQueuedOrders());
+    }
+
+    @Test
+    void testInvalidOrderIsRejectedBeforeQueueing() {
+        // 准备测试数据
+        ProductionOrder invalid = order();
+        invalid.setQuantity(0);
+
+        // 执行测试 & 验证结果
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> orderIntakeService.submit(List.of(invalid), "franchise"));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        assertEquals(0, orderIntakeService.getQueuedOrders());
+    }
+
+    private OrderIntakeTicketDTO await(String ticketId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            OrderIntakeTicketDTO ticket = orderIntakeService.findTicket(ticketId).orElseThrow();
+            if (!"QUEUED".equals(ticket.getStatus())) {
+                return ticket;
+            }
+            Thread.sleep(50);
+        }
+        return fail("受理凭据未完成");
+    }
+
+    private static ProductionOrder order() {
+        ProductionOrder order = new ProductionOrder();
+        order.setQuantity(10);
+        order.setRequiredDate(LocalDateTime.now().plusDays(1));
+        return order;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ckm;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.event.ProductionLineChangedEvent;
+import com.ckm.repository.ProductionLineRepository;
+import com.ckm.scheduling.ProductionLineRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductionLineRegistryTest {
+
+    @Mock
+    private ProductionLineRepository productionLineRepository;
+
+    @InjectMocks
+    private ProductionLineRegistry productionLineRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testLinesAreLoadedOnceUntilChanged() {
+        // 准备测试数据
+        ProductionLine lineA = ProductionLine.builder()
+                .id(1L)
+                .code("LINE-A")
+                .name("生产线A")
+                .capacityPerHour(120)
+                .status(ProductionLine.LineStatus.ACTIVE)
+                .build();
+        ProductionLine lineB = ProductionLine.builder()
+                .id(2L)
+                .code("LINE-B")
+                .name("生产线B")
+                .capacityPerHour(80)
+                .status(ProductionLine.LineStatus.ACTIVE)
+                .build();
+        when(productionLineRepository.findWithShiftsByStatus(ProductionLine.LineStatus.ACTIVE))
+                .thenReturn(List.of(lineA, lineB));
+
+        // 执行测试：多次读取只查询一次数据库
+        assertEquals(List.of("生产线A", "生产线B"), productionLineRegistry.getActiveLineNames());
+        assertEquals(80, productionLineRegistry.findByName("生产线B").get().getCapacityPerHour());
+        assertTrue(productionLineRegistry.getShiftCalendar("生产线A").isAlwaysOpen());
+        verify(productionLineRepository, times(1)).findWithShiftsByStatus(ProductionLine.LineStatus.ACTIVE);
+
+        // 配置变更后重新加载
+        when(productionLineRepository.findWithShiftsByStatus(ProductionLine.LineStatus.ACTIVE))
+                .thenReturn(List.of(lineA));
+        productionLineRegistry.onProductionLineChanged(new ProductionLineChangedEvent(2L));
+
+        // 验证结果
+        assertEquals(List.of("生产线A"), productionLineRegistry.getActiveLineNames());
+        assertTrue(productionLineRegistry.findByName("生产线B").isEmpty());
+        verify(productionLineRepository, times(2)).findWithShiftsByStatus(ProductionLine.LineStatus.ACTIVE);
+    }
+}
@@ -0,0 +1,126 @@
+package com.ckm;
+
+import com.ckm.dto.BulkOrderRequestDTO;
+import com.ckm.dto.BulkTransitionResultDTO;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.repository.ProductionOrderRepository;
+import com.ckm.service.ProductionOrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductionOrderBulkTest {
+
+    @Mock
+    private ProductionOrderRepository productionOrderRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ProductionOrderService productionOrderService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testBulkApproveReportsPerOrderOutcome() {
+        // 准备测试数据：1待审批，2已批准，3不存在，重复的ID只处理一次
+        List<Object[]> states = new ArrayList<>();
+        states.add(new Object[]{1L, "PENDING", 0L});
+        states.add(new Object[]{2L, "APPROVED", 1L});
+        when(productionOrderRepository.findStatusForUpdate(List.of(1L, 2L, 3L))).thenReturn(states);
+        when(productionOrderRepository.transitionOrders(eq(List.of(1L)), anyList(), eq(ProductionOrder.OrderStatus.APPROVED),
+                any(), any(), eq("admin"), any())).thenReturn(1);
+
+        // 执行测试
+        BulkTransitionResultDTO result = productionOrderService.bulkApprove(
+                BulkOrderRequestDTO.builder().ids(List.of(1L, 2L, 3L, 1L)).build(), "admin");
+
+        // 验证结果
+        assertEquals(3, result.getRequested());
+        assertEquals(1, result.getSucceeded());
+        assertTrue(result.getOutcomes().get(0).success());
+        assertEquals("APPROVED", result.getOutcomes().get(1).status());
+        assertFalse(result.getOutcomes().get(1).success());
+        assertEquals("生产订单不存在", result.getOutcomes().get(2).message());
+    }
+
+    @Test
+    void testOrderAlreadyMovedToTargetStatusIsAConflict() {
+        // 准备测试数据：调用方看到两个订单都是已批准的版本2，锁定前订单2已被其他操作排程
+        List<Object[]> states = new ArrayList<>();
+        states.add(new Object[]{1L, "APPROVED", 2L});
+        states.add(new Object[]{2L, "SCHEDULED", 3L});
+        when(productionOrderRepository.findStatusForUpdate(List.of(1L, 2L))).thenReturn(states);
+        when(productionOrderRepository.transitionOrders(eq(List.of(1L)), anyList(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        // 执行测试
+        BulkTransitionResultDTO result = productionOrderService.bulkSchedule(BulkOrderRequestDTO.builder()
+                .ids(List.of(1L, 2L))
+                .versions(Map.of(1L, 2L, 2L, 2L))
+                .scheduledDate(LocalDateTime.of(2024, 3, 1, 8, 0))
+                .build(), "admin");
+
+        // 验证结果
+        assertEquals(1, result.getSucceeded());
+        assertFalse(result.getOutcomes().get(1).success());
+        assertEquals("SCHEDULED", result.getOutcomes().get(1).status());
+    }
+
+    @Test
+    void testStaleVersionIsNotTransitioned() {
+        // 准备测试数据：调用方看到的订单2是版本1，当前已是版本2
+        List<Object[]> states = new ArrayList<>();
+        states.add(new Object[]{1L, "APPROVED", 4L});
+        states.add(new Object[]{2L, "APPROVED", 2L});
+        when(productionOrderRepository.findStatusForUpdate(List.of(1L, 2L))).thenReturn(states);
+        when(productionOrderRepository.transitionOrders(eq(List.of(1L)), anyList(), any(), any(), any(), any(), any())).thenReturn(1);
+
+        // 执行测试
+        BulkTransitionResultDTO result = productionOrderService.bulkCancel(BulkOrderRequestDTO.builder()
+                .ids(List.of(1L, 2L))
+                .versions(Map.of(1L, 4L, 2L, 1L))
+                .build(), "admin");
+
+        // 验证结果
+        assertTrue(result.getOutcomes().get(0).success());
+        assertFalse(result.getOutcomes().get(1).success());
+        assertEquals("订单已被其他操作修改：当前版本2", result.getOutcomes().get(1).message());
+        verify(productionOrderRepository).transitionOrders(eq(List.of(1L)), anyList(), eq(ProductionOrder.OrderStatus.CANCELLED),
+                any(), any(), eq("admin"), any());
+    }
+
+    @Test
+    void testBulkScheduleRequiresScheduledDate() {
+        // 执行测试
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> productionOrderService.bulkSchedule(BulkOrderRequestDTO.builder().ids(List.of(1L)).build(), "admin"));
+
+        // 验证结果
+        assertEquals("批量排程必须指定排程日期", ex.getMessage());
+        verify(productionOrderRepository, never()).transitionOrders(anyList(), anyList(), any(), any(), any(), any(), any());
+    }
+}
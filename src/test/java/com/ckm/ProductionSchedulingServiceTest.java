@@ -0,0 +1,78 @@
+package com.ckm;
+
+import com.ckm.dto.LineUtilizationDTO;
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ShiftWindow;
+import com.ckm.scheduling.ProductionLineRegistry;
+import com.ckm.scheduling.UtilizationCalculator;
+import com.ckm.service.ProductionScheduleService;
+import com.ckm.service.ProductionSchedulingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductionSchedulingServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    private final ProductionScheduleService productionScheduleService = mock(ProductionScheduleService.class);
+
+    private final ProductionLineRegistry productionLineRegistry = mock(ProductionLineRegistry.class);
+
+    private final ProductionSchedulingService productionSchedulingService = new ProductionSchedulingService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productionSchedulingService, "productionScheduleService", productionScheduleService);
+        ReflectionTestUtils.setField(productionSchedulingService, "productionLineRegistry", productionLineRegistry);
+        ReflectionTestUtils.setField(productionSchedulingService, "utilizationCalculator", new UtilizationCalculator());
+    }
+
+    @Test
+    void testNinetyDayReportOverTwentyLinesIsAccepted() {
+        // 准备测试数据：20条生产线，班次8:00-16:00
+        List<ProductionLine> lines = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            lines.add(ProductionLine.builder()
+                    .name("生产线" + i)
+                    .code("LINE-" + i)
+                    .capacityPerHour(120)
+                    .shifts(List.of(ShiftWindow.builder()
+                            .startTime(LocalTime.of(8, 0))
+                            .endTime(LocalTime.of(16, 0))
+                            .build()))
+                    .build());
+        }
+        when(productionLineRegistry.getActiveLines()).thenReturn(lines);
+        when(productionScheduleService.findOccupancyInRange(any(), any())).thenReturn(List.of());
+
+        // 执行测试：含首尾共90天
+        List<LineUtilizationDTO> report = productionSchedulingService.getLineUtilizationReport(DAY, DAY.plusDays(89));
+
+        // 验证结果
+        assertEquals(20 * 90, report.size());
+        assertEquals(480, report.get(report.size() - 1).getShiftMinutes());
+    }
+
+    @Test
+    void testRangeLimitsAreBusinessErrors() {
+        // 超过90天
+        BusinessException tooLong = assertThrows(BusinessException.class,
+                () -> productionSchedulingService.getLineUtilizationReport(DAY, DAY.plusDays(90)));
+        assertEquals("统计范围不能超过90天", tooLong.getMessage());
+
+        // 结束日期早于开始日期
+        assertThrows(BusinessException.class,
+                () -> productionSchedulingService.getLineUtilizationReport(DAY, DAY.minusDays(1)));
+    }
+}
@@ -0,0 +1,190 @@
+package com.ckm;
+
+import com.ckm.dto.TransitionResultDTO;
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionStep;
+import com.ckm.event.FloorEvent;
+import com.ckm.repository.KitchenStaffRepository;
+import com.ckm.repository.ProductionBatchRepository;
+import com.ckm.repository.ProductionStepRepository;
+import com.ckm.service.BatchCostService;
+import com.ckm.service.ProductionStepService;
+import com.ckm.service.StepDurationStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductionStepServiceTest {
+
+    @Mock
+    private ProductionStepRepository productionStepRepository;
+
+    @Mock
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Mock
+    private KitchenStaffRepository kitchenStaffRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BatchCostService batchCostService;
+
+    @Mock
+    private StepDurationStatsService stepDurationStatsService;
+
+    @InjectMocks
+    private ProductionStepService productionStepService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testStartStepReturnsNextVersionWithoutReloading() {
+        // 准备测试数据：指定期望版本时流转语句写入的即期望版本+1
+        when(productionStepRepository.startStep(eq(1L), anyList(), eq(3L), eq(ProductionStep.StepStatus.IN_PROGRESS),
+                eq("张三"), eq(7L), eq("炒锅"), eq("admin"), any())).thenReturn(1);
+        when(kitchenStaffRepository.findIdsByName("张三")).thenReturn(List.of(7L));
+
+        // 执行测试
+        TransitionResultDTO result = productionStepService.startStep(1L, 3L, "张三", "炒锅", "admin");
+
+        // 验证结果
+        assertEquals("IN_PROGRESS", result.getStatus());
+        assertEquals(4L, result.getVersion());
+        verify(productionStepRepository, never()).findById(any());
+        verify(productionStepRepository, never()).findVersionById(any());
+        ArgumentCaptor<FloorEvent> event = ArgumentCaptor.forClass(FloorEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("STEP_STARTED", event.getValue().type());
+        assertEquals(4L, event.getValue().version());
+        assertEquals("admin", event.getValue().actor());
+    }
+
+    @Test
+    void testStaleVersionIsReportedAsConflict() {
+        // 准备测试数据：并发请求已将步骤推进到进行中
+        ProductionStep current = new ProductionStep();
+        current.setId(1L);
+        current.setStatus(ProductionStep.StepStatus.IN_PROGRESS);
+        current.setVersion(4L);
+        when(productionStepRepository.startStep(eq(1L), anyList(), eq(3L), any(), any(), any(), any(), anyString(), any()))
+                .thenReturn(0);
+        when(productionStepRepository.findById(1L)).thenReturn(Optional.of(current));
+
+        // 执行测试
+        BusinessException ex = assertThrows(BusinessException.class,
+                () -> productionStepService.startStep(1L, 3L, null, null, "admin"));
+
+        // 验证结果
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        assertTrue(ex.getMessage().contains("版本4"));
+    }
+
+    @Test
+    void testMissingStepIsNotAConflict() {
+        // 准备测试数据
+        when(productionStepRepository.transitionStep(eq(9L), anyList(), any(), any(), any(), any(), anyString(), any()))
+                .thenReturn(0);
+        when(productionStepRepository.findById(9L)).thenReturn(Optional.empty());
+
+        // 执行测试
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> productionStepService.skipStep(9L, null, "无需该步骤", "admin"));
+
+        // 验证结果
+        assertEquals("生产步骤不存在", ex.getMessage());
+    }
+
+    @Test
+    void testTransitionsAdjustBatchCounters() {
+        // 准备测试数据：进行中的步骤此前已登记质检不合格，完成时改为合格
+        when(productionStepRepository.startStep(eq(1L), anyList(), any(), any(), any(), any(), any(), anyString(), any())).thenReturn(1);
+        when(productionStepRepository.findQualityResultForUpdate(2L)).thenReturn(Optional.of("FAIL"));
+        when(productionStepRepository.completeStep(eq(2L), any(), any(), any(), any(), anyString(), any())).thenReturn(1);
+        when(productionStepRepository.transitionStep(eq(3L), anyList(), any(), eq(ProductionStep.StepStatus.FAILED),
+                any(), any(), anyString(), any())).thenReturn(1);
+
+        // 执行测试
+        productionStepService.startStep(1L, null, null, null, "admin");
+        productionStepService.completeStep(2L, null, 12, ProductionStep.QualityResult.PASS, null, "admin");
+        productionStepService.failStep(3L, null, "设备故障", "admin");
+
+        // 验证结果
+        verify(productionBatchRepository).adjustStepCounters(1L, new ProductionBatch.StepCounters(0, 1, 0, 0, 0, 0));
+        verify(productionBatchRepository).adjustStepCounters(2L, new ProductionBatch.StepCounters(0, -1, 1, 0, 0, -1));
+        verify(productionBatchRepository).adjustStepCounters(3L, new ProductionBatch.StepCounters(0, -1, 0, 0, 1, 0));
+        verify(batchCostService).applyCompletedSteps(List.of(2L));
+        verify(stepDurationStatsService).recordCompletedSteps(List.of(2L));
+    }
+
+    @Test
+    void testCompleteWithoutDurationLeavesElapsedTimeToStatement() {
+        // 准备测试数据：完成时未填写工时，也未指定期望版本
+        when(productionStepRepository.completeStep(eq(2L), any(), any(), any(), any(), anyString(), any())).thenReturn(1);
+        when(productionStepRepository.findVersionById(2L)).thenReturn(Optional.of(5L));
+
+        // 执行测试
+        TransitionResultDTO result = productionStepService.completeStep(
+                2L, null, null, ProductionStep.QualityResult.PASS, null, "admin");
+
+        // 验证结果：工时由完成语句按实际开始时间计算，版本在流转后回查
+        verify(productionStepRepository).completeStep(eq(2L), isNull(), isNull(), eq("PASS"), any(), anyString(), any());
+        assertEquals(5L, result.getVersion());
+    }
+
+    @Test
+    void testConflictLeavesCountersUntouched() {
+        // 准备测试数据
+        ProductionStep current = new ProductionStep();
+        current.setStatus(ProductionStep.StepStatus.COMPLETED);
+        current.setVersion(2L);
+        when(productionStepRepository.transitionStep(eq(4L), anyList(), any(), any(), any(), any(), anyString(), any()))
+                .thenReturn(0);
+        when(productionStepRepository.findById(4L)).thenReturn(Optional.of(current));
+
+        // 执行测试
+        assertThrows(BusinessException.class, () -> productionStepService.skipStep(4L, null, null, "admin"));
+
+        // 验证结果
+        verify(productionBatchRepository, never()).adjustStepCounters(any(), any());
+    }
+
+    @Test
+    void testBatchProgressReadsCounters() {
+        // 准备测试数据：10个步骤中4个完成、1个跳过、1个进行中且有质检不合格
+        when(productionBatchRepository.findStepCountersById(5L)).thenReturn(
+                Optional.of(new ProductionBatch.StepCounters(10, 1, 4, 1, 0, 1)));
+        when(productionBatchRepository.findStepCountersById(6L)).thenReturn(Optional.empty());
+
+        // 执行测试 & 验证结果
+        assertEquals(50.0, productionStepService.getBatchProgress(5L));
+        assertFalse(productionStepService.isBatchCompleted(5L));
+        assertFalse(productionStepService.canBatchStart(5L));
+        assertTrue(productionStepService.hasBatchQualityIssues(5L));
+        assertEquals(0.0, productionStepService.getBatchProgress(6L));
+        assertTrue(productionStepService.canBatchStart(6L));
+        verify(productionStepRepository, never()).findByProductionBatchIdOrderByStepNumberAsc(any());
+    }
+}
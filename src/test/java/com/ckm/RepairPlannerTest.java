@@ -0,0 +1,129 @@
+package com.ckm;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionSchedule;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.scheduling.LineTimeline;
+import com.ckm.scheduling.RepairPlanner;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepairPlannerTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private final RepairPlanner repairPlanner = new RepairPlanner();
+
+    @Test
+    void testLaterSchedulesShiftLeftAfterCancellation() {
+        // 准备测试数据：A线8:00起三个60分钟排程，之间留有换线间隔
+        ProductionSchedule first = schedule(1L, "生产线A", 1L, DAY.withHour(8), 60, null);
+        ProductionSchedule second = schedule(2L, "生产线A", 2L, DAY.withHour(9).withMinute(15), 60, null);
+        ProductionSchedule third = schedule(3L, "生产线A", 3L, DAY.withHour(10).withMinute(30), 60, null);
+        List<ProductionSchedule> window = List.of(first, second, third);
+        Map<String, LineTimeline> timelines = timelines(window, "生产线A");
+
+        // 执行测试：7:00取消第一个排程
+        RepairPlanner.Result result = repairPlanner.repair(window, RepairPlanner.Disruption.cancelled(List.of(1L)),
+                List.of(line("生产线A", null)), timelines, DAY.withHour(7), DAY.plusDays(1));
+
+        // 验证结果：后两个排程依次前移，没有无关改动
+        assertEquals(List.of(first), result.removed());
+        assertEquals(2, result.moves().size());
+        assertEquals(DAY.withHour(8), result.moves().get(0).startTime());
+        assertEquals(DAY.withHour(9).withMinute(15), result.moves().get(1).startTime());
+        assertTrue(result.unplaced().isEmpty());
+    }
+
+    @Test
+    void testPausedScheduleIsDeferredBehindRemainingWork() {
+        // 准备测试数据：暂停的排程在中间，之前的排程不受影响
+        ProductionSchedule first = schedule(1L, "生产线A", 1L, DAY.withHour(8), 60, null);
+        ProductionSchedule paused = schedule(2L, "生产线A", 2L, DAY.withHour(9).withMinute(15), 60, null);
+        ProductionSchedule third = schedule(3L, "生产线A", 2L, DAY.withHour(10).withMinute(30), 30, null);
+        List<ProductionSchedule> window = List.of(first, paused, third);
+        Map<String, LineTimeline> timelines = timelines(window, "生产线A");
+
+        // 执行测试
+        RepairPlanner.Result result = repairPlanner.repair(window, RepairPlanner.Disruption.deferred(List.of(2L)),
+                List.of(line("生产线A", null)), timelines, DAY.withHour(9), DAY.plusDays(1));
+
+        // 验证结果：第三个排程补到9:15，暂停的排程同一标准无需换线，紧接其后
+        assertEquals(2, result.moves().size());
+        RepairPlanner.Move moved = result.moves().get(0);
+        assertEquals(3L, moved.schedule().getId());
+        assertEquals(DAY.withHour(9).withMinute(15), moved.startTime());
+        RepairPlanner.Move deferred = result.moves().get(1);
+        assertEquals(2L, deferred.schedule().getId());
+        assertEquals(DAY.withHour(9).withMinute(45), deferred.startTime());
+        assertEquals(DAY.withHour(10).withMinute(45), deferred.endTime());
+    }
+
+    @Test
+    void testBreakdownMovesRemainingWorkToLinesWithEquipment() {
+        // 准备测试数据：A线10:00停机，B线没有烤箱，C线10:00-11:00已有排程
+        ProductionSchedule started = schedule(1L, "生产线A", 1L, DAY.withHour(9), 60, "烤箱");
+        ProductionSchedule roast = schedule(2L, "生产线A", 1L, DAY.withHour(10).withMinute(15), 60, "烤箱");
+        ProductionSchedule existing = schedule(3L, "生产线C", 2L, DAY.withHour(10), 60, null);
+        List<ProductionSchedule> window = List.of(roast);
+        Map<String, LineTimeline> timelines = timelines(List.of(started, roast, existing), "生产线A", "生产线B", "生产线C");
+
+        // 执行测试
+        RepairPlanner.Result result = repairPlanner.repair(window, RepairPlanner.Disruption.lineDown("生产线A"),
+                List.of(line("生产线A", "烤箱"), line("生产线B", "炒锅"), line("生产线C", "炒锅,烤箱")),
+                timelines, DAY.withHour(10), DAY.plusDays(1));
+
+        // 验证结果：转到C线已有排程之后
+        assertEquals(1, result.moves().size());
+        assertEquals("生产线C", result.moves().get(0).productionLine());
+        assertEquals(DAY.withHour(11), result.moves().get(0).startTime());
+        assertFalse(timelines.get("生产线C").isFree(DAY.withHour(11), DAY.withHour(12)));
+    }
+
+    private static Map<String, LineTimeline> timelines(List<ProductionSchedule> schedules, String... lines) {
+        Map<String, LineTimeline> timelines = new LinkedHashMap<>();
+        for (String line : lines) {
+            timelines.put(line, new LineTimeline(line));
+        }
+        for (ProductionSchedule schedule : schedules) {
+            timelines.get(schedule.getProductionLine()).add(schedule.getId(), schedule.getStartTime(), schedule.getEndTime());
+        }
+        return timelines;
+    }
+
+    private static ProductionLine line(String name, String supportedEquipment) {
+        return ProductionLine.builder()
+                .name(name)
+                .code(name)
+                .capacityPerHour(120)
+                .supportedEquipment(supportedEquipment)
+                .status(ProductionLine.LineStatus.ACTIVE)
+                .build();
+    }
+
+    private static ProductionSchedule schedule(Long id, String line, Long standardId, LocalDateTime start,
+                                               int minutes, String equipment) {
+        ProductionStandard standard = new ProductionStandard();
+        standard.setId(standardId);
+        ProductionOrder order = new ProductionOrder();
+        order.setId(id);
+        order.setProductionStandard(standard);
+        return ProductionSchedule.builder()
+                .id(id)
+                .productionOrder(order)
+                .productionLine(line)
+                .scheduledDate(start)
+                .startTime(start)
+                .endTime(start.plusMinutes(minutes))
+                .equipment(equipment)
+                .status(ProductionSchedule.ScheduleStatus.PLANNED)
+                .build();
+    }
+}
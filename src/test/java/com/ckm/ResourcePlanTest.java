@@ -0,0 +1,151 @@
+package com.ckm;
+
+import com.ckm.entity.EquipmentUnit;
+import com.ckm.entity.KitchenStaff;
+import com.ckm.entity.ShiftWindow;
+import com.ckm.scheduling.OccupancyBitmap;
+import com.ckm.scheduling.ResourcePlan;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourcePlanTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Test
+    void testBitmapAcrossWordBoundary() {
+        // 准备测试数据：占用跨越第一个64位字边界的60~70分钟
+        OccupancyBitmap bitmap = new OccupancyBitmap(24 * 60);
+
+        // 执行测试
+        bitmap.occupy(60, 70);
+
+        // 验证结果
+        assertTrue(bitmap.isFree(0, 60));
+        assertFalse(bitmap.isFree(63, 65));
+        assertTrue(bitmap.isFree(70, 200));
+        assertEquals(70, bitmap.nextFreeRun(50, 15));
+        assertEquals(10, bitmap.occupiedMinutes());
+
+        bitmap.release(60, 64);
+        assertEquals(50, bitmap.nextFreeRun(50, 14));
+        assertEquals(70, bitmap.nextFreeRun(55, 10));
+        assertEquals(6, bitmap.occupiedMinutes());
+    }
+
+    @Test
+    void testEarliestStartWaitsForOccupiedUnitAndStaff() {
+        // 准备测试数据：唯一的烤箱8:00~9:00已占用，唯一会用烤箱的员工8:00~10:00已占用
+        ResourcePlan plan = ResourcePlan.of(List.of(unit("OVEN-1", "烤箱", null)),
+                List.of(staff(1L, "张三", "烤箱,搅拌机")), DAY, DAY.plusDays(1));
+        plan.book("OVEN-1", null, DAY.withHour(8), DAY.withHour(9));
+        plan.book(null, 1L, DAY.withHour(8), DAY.withHour(10));
+
+        // 执行测试
+        LocalDateTime start = plan.earliestStart("烤箱", "生产线A", DAY.withHour(8), 30, DAY.withHour(20));
+
+        // 验证结果：等到设备和员工同时空闲
+        assertEquals(DAY.withHour(10), start);
+        ResourcePlan.Reservation reservation = plan.reserve("烤箱", "生产线A", start, start.plusMinutes(30));
+        assertNotNull(reservation);
+        assertEquals("OVEN-1", reservation.unitCodesText());
+        assertEquals(1L, reservation.staffId());
+    }
+
+    @Test
+    void testUnqualifiedStaffCannotBeAssigned() {
+        // 准备测试数据：员工只会操作搅拌机
+        ResourcePlan plan = ResourcePlan.of(List.of(unit("OVEN-1", "烤箱", null)),
+                List.of(staff(1L, "李四", "搅拌机")), DAY, DAY.plusDays(1));
+
+        // 执行测试 & 验证结果
+        assertNull(plan.earliestStart("烤箱", "生产线A", DAY.withHour(8), 30, DAY.withHour(20)));
+        assertNull(plan.reserve("烤箱", "生产线A", DAY.withHour(8), DAY.withHour(9)));
+        // 没有登记设备单元的类型不受限制
+        assertEquals(DAY.withHour(8), plan.earliestStart("搅拌机", "生产线A", DAY.withHour(8), 30, DAY.withHour(20)));
+    }
+
+    @Test
+    void testSharedUnitIsNotDoubleBookedAcrossLines() {
+        // 准备测试数据：共用的真空包装机，A线专用烤箱
+        ResourcePlan plan = ResourcePlan.of(
+                List.of(unit("PACK-1", "真空包装机", null), unit("OVEN-A", "烤箱", "生产线A")),
+                List.of(), DAY, DAY.plusDays(1));
+
+        // 执行测试
+        ResourcePlan.Reservation lineA = plan.reserve("真空包装机", "生产线A", DAY.withHour(8), DAY.withHour(9));
+        ResourcePlan.Reservation lineB = plan.reserve("真空包装机", "生产线B", DAY.withHour(8).withMinute(30),
+                DAY.withHour(9).withMinute(30));
+
+        // 验证结果：B线要等A线用完，且不能使用A线专用的烤箱
+        assertNotNull(lineA);
+        assertNull(lineB);
+        assertEquals(DAY.withHour(9),
+                plan.earliestStart("真空包装机", "生产线B", DAY.withHour(8).withMinute(30), 60, DAY.withHour(20)));
+        assertNull(plan.earliestStart("烤箱", "生产线B", DAY.withHour(8), 60, DAY.withHour(20)));
+    }
+
+    @Test
+    void testStaffIsOnlyBookedWithinShifts() {
+        // 准备测试数据：员工只上10:00~14:00的班
+        KitchenStaff member = staff(1L, "王五", "烤箱");
+        member.setShifts(List.of(ShiftWindow.builder().startTime(LocalTime.of(10, 0)).endTime(LocalTime.of(14, 0)).build()));
+        ResourcePlan plan = ResourcePlan.of(List.of(), List.of(member), DAY, DAY.plusDays(1));
+
+        // 执行测试
+        LocalDateTime start = plan.earliestStart("烤箱", "生产线A", DAY.withHour(8), 60, DAY.withHour(20));
+
+        // 验证结果：班次外不能排，班次内剩余不足时没有可用时段
+        assertEquals(DAY.withHour(10), start);
+        assertNull(plan.reserve("烤箱", "生产线A", DAY.withHour(9), DAY.withHour(10)));
+        assertNull(plan.earliestStart("烤箱", "生产线A", DAY.withHour(13).withMinute(30), 60, DAY.withHour(20)));
+        assertNotNull(plan.reserve("烤箱", "生产线A", DAY.withHour(13), DAY.withHour(14)));
+    }
+
+    @Test
+    void testReleasingOverlappingBookingKeepsOtherSchedule() {
+        // 准备测试数据：历史数据中两个排程重叠占用同一台烤箱和同一名员工，8:00~10:00与9:00~11:00
+        ResourcePlan plan = ResourcePlan.of(List.of(unit("OVEN-1", "烤箱", null)),
+                List.of(staff(1L, "张三", "烤箱")), DAY, DAY.plusDays(1));
+        plan.book("OVEN-1", 1L, DAY.withHour(8), DAY.withHour(10));
+        plan.book("OVEN-1", 1L, DAY.withHour(9), DAY.withHour(11));
+
+        // 执行测试：修复时释放第一个排程
+        plan.release("OVEN-1", 1L, DAY.withHour(8), DAY.withHour(10));
+
+        // 验证结果：只有第一个排程独占的8:00~9:00空出，9:00~11:00仍被第二个排程占用
+        assertTrue(plan.isStaffFree(1L, DAY.withHour(8), DAY.withHour(9)));
+        assertFalse(plan.isStaffFree(1L, DAY.withHour(9), DAY.withHour(10)));
+        assertNull(plan.reserve("烤箱", "生产线A", DAY.withHour(9).withMinute(30), DAY.withHour(10)));
+        assertEquals(DAY.withHour(11), plan.copy().earliestStart("烤箱", "生产线A", DAY.withHour(8), 90, DAY.withHour(20)));
+
+        // 释放第二个排程后全部空闲
+        plan.release("OVEN-1", 1L, DAY.withHour(9), DAY.withHour(11));
+        assertNotNull(plan.reserve("烤箱", "生产线A", DAY.withHour(8), DAY.withHour(11)));
+    }
+
+    private static EquipmentUnit unit(String code, String type, String productionLine) {
+        return EquipmentUnit.builder()
+                .code(code)
+                .name(code)
+                .equipmentType(type)
+                .productionLine(productionLine)
+                .status(EquipmentUnit.UnitStatus.ACTIVE)
+                .build();
+    }
+
+    private static KitchenStaff staff(Long id, String name, String skills) {
+        return KitchenStaff.builder()
+                .id(id)
+                .employeeNumber("E" + id)
+                .name(name)
+                .skills(skills)
+                .status(KitchenStaff.StaffStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.ckm;
+
+import com.ckm.dto.ScheduleConflictDTO;
+import com.ckm.entity.ProductionSchedule;
+import com.ckm.scheduling.ScheduleConflictAnalyzer;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleConflictAnalyzerTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private final ScheduleConflictAnalyzer analyzer = new ScheduleConflictAnalyzer();
+
+    @Test
+    void testOverlapRegionsAreReportedPerLine() {
+        // 准备测试数据：A线上1与2重叠、2与3重叠，4与3首尾相接；B线上5、6、7同时占用
+        List<ProductionSchedule> schedules = Arrays.asList(
+                schedule(1L, "生产线A", 8, 0, 9, 0, ProductionSchedule.ScheduleStatus.PLANNED),
+                schedule(2L, "生产线A", 8, 30, 9, 30, ProductionSchedule.ScheduleStatus.PLANNED),
+                schedule(3L, "生产线A", 9, 15, 10, 0, ProductionSchedule.ScheduleStatus.CONFIRMED),
+                schedule(4L, "生产线A", 10, 0, 11, 0, ProductionSchedule.ScheduleStatus.PLANNED),
+                schedule(5L, "生产线B", 8, 0, 9, 0, ProductionSchedule.ScheduleStatus.PLANNED),
+                schedule(6L, "生产线B", 8, 0, 9, 0, ProductionSchedule.ScheduleStatus.PLANNED),
+                schedule(7L, "生产线B", 8, 10, 8, 20, ProductionSchedule.ScheduleStatus.PLANNED));
+
+        // 执行测试
+        List<ScheduleConflictDTO> conflicts = analyzer.analyze(schedules);
+
+        // 验证结果：按重叠开始时间排序
+        assertEquals(3, conflicts.size());
+
+        ScheduleConflictDTO lineB = conflicts.get(0);
+        assertEquals("生产线B", lineB.getProductionLine());
+        assertEquals(List.of(5L, 6L, 7L), lineB.getScheduleIds());
+        assertEquals(60, lineB.getOverlapMinutes());
+        assertEquals(3, lineB.getMaxConcurrent());
+
+        ScheduleConflictDTO first = conflicts.get(1);
+        assertEquals("生产线A", first.getProductionLine());
+        assertEquals(List.of(1L, 2L), first.getScheduleIds());
+        assertEquals(DAY.withHour(8).withMinute(30), first.getOverlapStart());
+        assertEquals(DAY.withHour(9), first.getOverlapEnd());
+        assertEquals(30, first.getOverlapMinutes());
+
+        ScheduleConflictDTO second = conflicts.get(2);
+        assertEquals(List.of(2L, 3L), second.getScheduleIds());
+        assertEquals(15, second.getOverlapMinutes());
+    }
+
+    @Test
+    void testCancelledSchedulesAreIgnored() {
+        List<ProductionSchedule> schedules = Arrays.asList(
+                schedule(1L, "生产线A", 8, 0, 9, 0, ProductionSchedule.ScheduleStatus.PLANNED),
+                schedule(2L, "生产线A", 8, 30, 9, 30, ProductionSchedule.ScheduleStatus.CANCELLED));
+
+        assertTrue(analyzer.analyze(schedules).isEmpty());
+    }
+
+    private ProductionSchedule schedule(Long id, String line, int startHour, int startMinute,
+                                        int endHour, int endMinute, ProductionSchedule.ScheduleStatus status) {
+        return ProductionSchedule.builder()
+                .id(id)
+                .scheduleNumber("PS" + id)
+                .productionLine(line)
+                .scheduledDate(DAY)
+                .startTime(DAY.withHour(startHour).withMinute(startMinute))
+                .endTime(DAY.withHour(endHour).withMinute(endMinute))
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.ckm;
+
+import com.ckm.entity.KitchenStaff;
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.scheduling.LineTimeline;
+import com.ckm.scheduling.ListScheduler;
+import com.ckm.scheduling.ResourcePlan;
+import com.ckm.scheduling.ScheduleOptimizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleOptimizerTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private final ScheduleOptimizer scheduleOptimizer = new ScheduleOptimizer();
+
+    @BeforeEach
+    void setUp() {
+        // 不按订单数缩放，只有两三个订单时按单计算的预算不够冷启动的线程池完成搜索
+        ReflectionTestUtils.setField(scheduleOptimizer, "timeBudgetMillis", 200L);
+        ReflectionTestUtils.setField(scheduleOptimizer, "budgetPerOrderMillis", 0L);
+        ReflectionTestUtils.setField(scheduleOptimizer, "restarts", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduleOptimizer.shutdown();
+    }
+
+    @Test
+    void testShortUrgentDueDateIsMovedAheadOfLongOrder() {
+        // 准备测试数据：贪心按优先级先排长订单，导致交期早的短订单延误
+        ProductionOrder longOrder = order(1L, standard(1L, 240, null), DAY.plusDays(2));
+        ProductionOrder shortOrder = order(2L, standard(2L, 30, null), DAY.withHour(8).withMinute(30));
+        List<ListScheduler.Assignment> greedy = List.of(
+                new ListScheduler.Assignment(longOrder, "生产线A", DAY.withHour(8), DAY.withHour(12)),
+                new ListScheduler.Assignment(shortOrder, "生产线A", DAY.withHour(12).withMinute(15), DAY.withHour(12).withMinute(45)));
+
+        // 执行测试
+        List<ListScheduler.Assignment> improved = scheduleOptimizer.improve(greedy, List.of(line("生产线A", null)),
+                Map.of(), DAY.withHour(8), DAY.withHour(20));
+
+        // 验证结果：短订单先做按时完成，长订单换线后开工
+        assertEquals(2, improved.size());
+        assertEquals(2L, improved.get(0).order().getId());
+        assertEquals(DAY.withHour(8).withMinute(30), improved.get(0).endTime());
+        assertEquals(1L, improved.get(1).order().getId());
+        assertEquals(DAY.withHour(8).withMinute(45), improved.get(1).startTime());
+    }
+
+    @Test
+    void testOccupiedSlotsAndEquipmentAreRespected() {
+        // 准备测试数据：B线8:00-10:00已有排程，烤箱订单只能在B线生产
+        LineTimeline lineB = new LineTimeline("生产线B");
+        lineB.add(100L, DAY.withHour(8), DAY.withHour(10));
+        ProductionOrder roast = order(1L, standard(1L, 60, "烤箱"), DAY.withHour(9));
+        ProductionOrder stirFry = order(2L, standard(2L, 60, "炒锅"), DAY.withHour(12));
+        List<ListScheduler.Assignment> greedy = List.of(
+                new ListScheduler.Assignment(stirFry, "生产线A", DAY.withHour(8), DAY.withHour(9)),
+                new ListScheduler.Assignment(roast, "生产线B", DAY.withHour(10), DAY.withHour(11)));
+
+        // 执行测试
+        List<ListScheduler.Assignment> improved = scheduleOptimizer.improve(greedy,
+                List.of(line("生产线A", "炒锅"), line("生产线B", "炒锅,烤箱")),
+                Map.of("生产线B", lineB), DAY.withHour(8), DAY.withHour(20));
+
+        // 验证结果：已是最优方案，原样返回
+        assertSame(greedy, improved);
+    }
+
+    @Test
+    void testMovesThatDoubleBookStaffAreRejected() {
+        // 准备测试数据：只有一名员工，两条生产线不能同时开工
+        ResourcePlan resources = ResourcePlan.of(List.of(), List.of(KitchenStaff.builder().id(1L).name("张三")
+                .employeeNumber("E1").status(KitchenStaff.StaffStatus.ACTIVE).build()), DAY, DAY.plusDays(1));
+        ProductionOrder longOrder = order(1L, standard(1L, 240, null), DAY.plusDays(2));
+        ProductionOrder shortOrder = order(2L, standard(2L, 30, null), DAY.withHour(8).withMinute(30));
+        List<ListScheduler.Assignment> greedy = List.of(
+                new ListScheduler.Assignment(longOrder, "生产线A", DAY.withHour(8), DAY.withHour(12)),
+                new ListScheduler.Assignment(shortOrder, "生产线A", DAY.withHour(12).withMinute(15), DAY.withHour(12).withMinute(45)));
+
+        // 执行测试
+        List<ListScheduler.Assignment> improved = scheduleOptimizer.improve(greedy,
+                List.of(line("生产线A", null), line("生产线B", null)), Map.of(), resources, DAY.withHour(8), DAY.withHour(20));
+
+        // 验证结果：没有把两单分到两条线同时开工，而是在资源允许的前提下把短订单提前
+        assertEquals(2L, improved.get(0).order().getId());
+        assertEquals(DAY.withHour(8).withMinute(30), improved.get(0).endTime());
+        assertFalse(improved.get(1).startTime().isBefore(improved.get(0).endTime()));
+        assertEquals(1L, improved.get(0).resources().staffId());
+        assertEquals(1L, improved.get(1).resources().staffId());
+    }
+
+    @Test
+    void testZeroBudgetSkipsOptimization() {
+        // 准备测试数据
+        ReflectionTestUtils.setField(scheduleOptimizer, "timeBudgetMillis", 0L);
+        ProductionOrder first = order(1L, standard(1L, 30, null), DAY.withHour(9));
+        ProductionOrder second = order(2L, standard(1L, 30, null), DAY.withHour(9));
+        List<ListScheduler.Assignment> greedy = List.of(
+                new ListScheduler.Assignment(first, "生产线A", DAY.withHour(10), DAY.withHour(10).withMinute(30)),
+                new ListScheduler.Assignment(second, "生产线A", DAY.withHour(12), DAY.withHour(12).withMinute(30)));
+
+        // 执行测试
+        List<ListScheduler.Assignment> result = scheduleOptimizer.improve(greedy, List.of(line("生产线A", null)),
+                Map.of(), DAY.withHour(8), DAY.withHour(20));
+
+        // 验证结果
+        assertSame(greedy, result);
+    }
+
+    @Test
+    void testSearchStopsOnceConverged() {
+        // 准备测试数据：总预算10秒且不按订单数缩放，已是最优的方案很快收敛
+        ReflectionTestUtils.setField(scheduleOptimizer, "timeBudgetMillis", 10_000L);
+        ReflectionTestUtils.setField(scheduleOptimizer, "budgetPerOrderMillis", 0L);
+        ProductionOrder first = order(1L, standard(1L, 30, null), DAY.withHour(9));
+        ProductionOrder second = order(2L, standard(1L, 30, null), DAY.withHour(9));
+        List<ListScheduler.Assignment> greedy = List.of(
+                new ListScheduler.Assignment(first, "生产线A", DAY.withHour(8), DAY.withHour(8).withMinute(30)),
+                new ListScheduler.Assignment(second, "生产线A", DAY.withHour(8).withMinute(30), DAY.withHour(9)));
+
+        // 执行测试
+        long started = System.nanoTime();
+        List<ListScheduler.Assignment> result = scheduleOptimizer.improve(greedy, List.of(line("生产线A", null)),
+                Map.of(), DAY.withHour(8), DAY.withHour(20));
+
+        // 验证结果
+        assertSame(greedy, result);
+        assertTrue(System.nanoTime() - started < 5_000_000_000L);
+    }
+
+    private static ProductionLine line(String name, String supportedEquipment) {
+        return ProductionLine.builder()
+                .name(name)
+                .code(name)
+                .capacityPerHour(120)
+                .supportedEquipment(supportedEquipment)
+                .status(ProductionLine.LineStatus.ACTIVE)
+                .build();
+    }
+
+    private static ProductionStandard standard(Long id, int cookingTime, String equipmentRequired) {
+        ProductionStandard standard = new ProductionStandard();
+        standard.setId(id);
+        standard.setCookingTime(cookingTime);
+        standard.setEquipmentRequired(equipmentRequired);
+        return standard;
+    }
+
+    private static ProductionOrder order(Long id, ProductionStandard standard, LocalDateTime requiredDate) {
+        ProductionOrder order = new ProductionOrder();
+        order.setId(id);
+        order.setOrderNumber("PO" + id);
+        order.setPriority(ProductionOrder.Priority.NORMAL);
+        order.setRequiredDate(requiredDate);
+        order.setStatus(ProductionOrder.OrderStatus.APPROVED);
+        order.setProductionStandard(standard);
+        return order;
+    }
+}
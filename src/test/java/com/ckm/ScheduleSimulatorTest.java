@@ -0,0 +1,125 @@
+package com.ckm;
+
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.scheduling.ChangeoverMinimizingStrategy;
+import com.ckm.scheduling.EarliestDueDateStrategy;
+import com.ckm.scheduling.ListScheduler;
+import com.ckm.scheduling.ScheduleSimulator;
+import com.ckm.scheduling.SchedulingStrategy;
+import com.ckm.scheduling.ShortestProcessingTimeStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleSimulatorTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private final ScheduleSimulator scheduleSimulator = new ScheduleSimulator();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduleSimulator, "listScheduler", new ListScheduler());
+        ReflectionTestUtils.setField(scheduleSimulator, "strategies", List.<SchedulingStrategy>of(
+                new EarliestDueDateStrategy(), new ShortestProcessingTimeStrategy(), new ChangeoverMinimizingStrategy()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduleSimulator.shutdown();
+    }
+
+    @Test
+    void testChangeoverStrategyGroupsSameStandardWithinDay() {
+        // 准备测试数据：两种标准交替出现，交期在同一天
+        ProductionStandard soup = standard(1L, 60);
+        ProductionStandard rice = standard(2L, 60);
+        List<ProductionOrder> orders = List.of(
+                order(1L, soup, DAY.plusDays(1).withHour(9)),
+                order(2L, rice, DAY.plusDays(1).withHour(10)),
+                order(3L, soup, DAY.plusDays(1).withHour(11)),
+                order(4L, rice, DAY.plusDays(2).withHour(9)));
+
+        // 执行测试
+        List<ProductionOrder> sequence = new ChangeoverMinimizingStrategy().sequence(orders);
+
+        // 验证结果：次日的rice订单不会被提前并入当天的组
+        assertEquals(List.of(1L, 3L, 2L, 4L), sequence.stream().map(ProductionOrder::getId).toList());
+    }
+
+    @Test
+    void testCandidatesAreRankedByScore() {
+        // 准备测试数据：一个长订单交期晚，三个短订单交期早，只有一条生产线
+        ProductionStandard longRecipe = standard(1L, 240);
+        ProductionStandard shortRecipe = standard(2L, 30);
+        List<ProductionOrder> orders = new ArrayList<>();
+        orders.add(order(1L, longRecipe, DAY.withHour(9)));
+        for (long id = 2; id <= 4; id++) {
+            orders.add(order(id, shortRecipe, DAY.withHour(10)));
+        }
+
+        // 执行测试
+        List<ScheduleSimulator.Candidate> candidates = scheduleSimulator.simulate(orders, List.of(line("生产线A")),
+                Map.of(), DAY.withHour(8), DAY.withHour(20), List.of("EDD", "SPT"));
+
+        // 验证结果：SPT先做短订单，延误更少，排在前面
+        assertEquals(2, candidates.size());
+        ScheduleSimulator.Candidate best = candidates.get(0);
+        assertEquals("SPT", best.strategy());
+        assertTrue(best.score() <= candidates.get(1).score());
+        assertEquals(4, best.assignments().size());
+        assertEquals(0, best.unscheduledOrders());
+        // 三个短订单连续生产无需换线，与长订单之间换线一次，留出15分钟
+        assertEquals(1, best.changeovers());
+        assertEquals(15, best.idleMinutes());
+        assertEquals(90 + 15 + 240, best.makespanMinutes());
+    }
+
+    @Test
+    void testUnknownStrategyNamesAreIgnored() {
+        // 执行测试
+        List<ScheduleSimulator.Candidate> candidates = scheduleSimulator.simulate(
+                List.of(order(1L, standard(1L, 30), DAY.withHour(12))), List.of(line("生产线A")),
+                Map.of(), DAY.withHour(8), DAY.withHour(20), List.of("UNKNOWN"));
+
+        // 验证结果
+        assertTrue(candidates.isEmpty());
+    }
+
+    private static ProductionLine line(String name) {
+        return ProductionLine.builder()
+                .name(name)
+                .code(name)
+                .capacityPerHour(120)
+                .status(ProductionLine.LineStatus.ACTIVE)
+                .build();
+    }
+
+    private static ProductionStandard standard(Long id, int cookingTime) {
+        ProductionStandard standard = new ProductionStandard();
+        standard.setId(id);
+        standard.setCookingTime(cookingTime);
+        return standard;
+    }
+
+    private static ProductionOrder order(Long id, ProductionStandard standard, LocalDateTime requiredDate) {
+        ProductionOrder order = new ProductionOrder();
+        order.setId(id);
+        order.setOrderNumber("PO" + id);
+        order.setPriority(ProductionOrder.Priority.NORMAL);
+        order.setRequiredDate(requiredDate);
+        order.setStatus(ProductionOrder.OrderStatus.APPROVED);
+        order.setProductionStandard(standard);
+        return order;
+    }
+}
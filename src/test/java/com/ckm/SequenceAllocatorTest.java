@@ -0,0 +1,93 @@
+package com.ckm;
+
+import com.ckm.repository.NumberSequenceJdbcRepository;
+import com.ckm.service.SequenceAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SequenceAllocatorTest {
+
+    @Mock
+    private NumberSequenceJdbcRepository numberSequenceJdbcRepository;
+
+    @InjectMocks
+    private SequenceAllocator sequenceAllocator;
+
+    // 模拟序列表中的下一个未分配值
+    private final AtomicLong nextValue = new AtomicLong(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(numberSequenceJdbcRepository.reserve(anyString(), anyInt()))
+                .thenAnswer(invocation -> nextValue.getAndAdd(invocation.getArgument(1, Integer.class)));
+    }
+
+    @Test
+    void testNumbersComeFromReservedBlocks() {
+        String today = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+
+        // 执行测试：默认号段20个，分配25个编号只预留两次
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            numbers.add(sequenceAllocator.next(SequenceAllocator.ORDER_PREFIX));
+        }
+
+        // 验证结果
+        assertEquals("PO" + today + "0001", numbers.get(0));
+        assertEquals("PO" + today + "0025", numbers.get(24));
+        verify(numberSequenceJdbcRepository, times(2)).reserve(eq("PO" + today), eq(20));
+
+        // 批量分配直接预留独立号段
+        List<String> bulk = sequenceAllocator.next(SequenceAllocator.SCHEDULE_PREFIX, 3);
+        assertEquals(List.of("PS" + today + "0041", "PS" + today + "0042", "PS" + today + "0043"), bulk);
+    }
+
+    @Test
+    void testConcurrentAllocationHasNoDuplicates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<String>>> futures = new ArrayList<>();
+
+        // 执行测试：8个线程各分配500个编号
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                List<String> numbers = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    numbers.add(sequenceAllocator.next(SequenceAllocator.BATCH_PREFIX));
+                }
+                return numbers;
+            }));
+        }
+
+        Set<String> unique = new HashSet<>();
+        for (Future<List<String>> future : futures) {
+            unique.addAll(future.get());
+        }
+        executor.shutdown();
+
+        // 验证结果
+        assertEquals(4000, unique.size());
+    }
+}
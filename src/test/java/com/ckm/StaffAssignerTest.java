@@ -0,0 +1,170 @@
+package com.ckm;
+
+import com.ckm.entity.KitchenStaff;
+import com.ckm.entity.ProductionStep;
+import com.ckm.entity.ShiftWindow;
+import com.ckm.scheduling.ResourcePlan;
+import com.ckm.scheduling.StaffAssigner;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaffAssignerTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private final StaffAssigner staffAssigner = new StaffAssigner();
+
+    @Test
+    void testSequentialStepsAreSpreadEvenly() {
+        // 准备测试数据：四个互不重叠的60分钟步骤，两名技能相同的员工
+        List<ProductionStep> steps = List.of(
+                step(1L, DAY.withHour(8), 60, null), step(2L, DAY.withHour(9), 60, null),
+                step(3L, DAY.withHour(10), 60, null), step(4L, DAY.withHour(11), 60, null));
+        List<KitchenStaff> staff = List.of(staff(1L, "张三", "炒锅"), staff(2L, "李四", "炒锅"));
+
+        // 执行测试
+        StaffAssigner.Result result = staffAssigner.assign(steps, staff);
+
+        // 验证结果
+        assertEquals(4, result.assignments().size());
+        assertTrue(result.unassigned().isEmpty());
+        assertEquals(120, result.loadMinutes().get(1L));
+        assertEquals(120, result.loadMinutes().get(2L));
+    }
+
+    @Test
+    void testSkillsShiftsAndFixedAssignmentsAreRespected() {
+        // 准备测试数据：张三只上早班，李四不会用烤箱，王五已手工分配了8:00的步骤
+        KitchenStaff early = staff(1L, "张三", "烤箱,炒锅");
+        early.setShifts(List.of(ShiftWindow.builder().startTime(LocalTime.of(6, 0)).endTime(LocalTime.of(10, 0)).build()));
+        List<KitchenStaff> staff = List.of(early, staff(2L, "李四", "炒锅"), staff(3L, "王五", "烤箱"));
+        ProductionStep manual = step(1L, DAY.withHour(8), 120, "烤箱");
+        manual.setAssignedStaff("王五");
+        ProductionStep oven = step(2L, DAY.withHour(11), 30, "烤箱");
+        ProductionStep overlapping = step(3L, DAY.withHour(9), 30, "烤箱");
+
+        // 执行测试
+        StaffAssigner.Result result = staffAssigner.assign(List.of(manual, oven, overlapping), staff);
+
+        // 验证结果：11:00已不在张三班次内由王五负责；9:00王五忙，只能由张三负责
+        Map<Long, String> assigned = byStep(result);
+        assertEquals(2, assigned.size());
+        assertEquals("王五", assigned.get(2L));
+        assertEquals("张三", assigned.get(3L));
+    }
+
+    @Test
+    void testBlockingStepIsHandedOverToFreeStaff() {
+        // 准备测试数据：炒锅步骤先分给了工时相同的张三，之后只有张三会用的烤箱步骤同时开始
+        List<ProductionStep> steps = List.of(step(1L, DAY.withHour(8), 60, "炒锅"), step(2L, DAY.withHour(8), 60, "烤箱"));
+        List<KitchenStaff> staff = List.of(staff(1L, "张三", "烤箱,炒锅"), staff(2L, "李四", "炒锅"));
+
+        // 执行测试
+        StaffAssigner.Result result = staffAssigner.assign(steps, staff);
+
+        // 验证结果：炒锅步骤转给李四，烤箱步骤由张三负责
+        Map<Long, String> assigned = byStep(result);
+        assertEquals("李四", assigned.get(1L));
+        assertEquals("张三", assigned.get(2L));
+        assertTrue(result.unassigned().isEmpty());
+    }
+
+    @Test
+    void testStaffWithSameNameAreTrackedById() {
+        // 准备测试数据：两名同名员工，8:00的步骤已分配给2号
+        List<KitchenStaff> staff = List.of(staff(1L, "张三", "炒锅"), staff(2L, "张三", "炒锅"));
+        ProductionStep fixed = step(1L, DAY.withHour(8), 60, "炒锅");
+        fixed.setAssignedStaff("张三");
+        fixed.setStaffId(2L);
+        ProductionStep open = step(2L, DAY.withHour(8), 60, "炒锅");
+
+        // 执行测试
+        StaffAssigner.Result result = staffAssigner.assign(List.of(fixed, open), staff);
+
+        // 验证结果：2号已被占用，新步骤分给1号
+        assertEquals(1, result.assignments().size());
+        assertEquals(1L, result.assignments().get(0).staffId());
+        assertEquals(60, result.loadMinutes().get(2L));
+    }
+
+    @Test
+    void testScheduleOccupancyFromResourcePlanIsRespected() {
+        // 准备测试数据：张三8:00-10:00负责一条排程
+        List<KitchenStaff> staff = List.of(staff(1L, "张三", "炒锅"), staff(2L, "李四", "炒锅"));
+        ResourcePlan resources = ResourcePlan.of(List.of(), staff, DAY, DAY.plusDays(1));
+        resources.book(null, 1L, DAY.withHour(8), DAY.withHour(10));
+
+        // 执行测试
+        StaffAssigner.Result result = staffAssigner.assign(List.of(step(1L, DAY.withHour(9), 30, "炒锅")), staff, resources);
+
+        // 验证结果
+        assertEquals(2L, result.assignments().get(0).staffId());
+    }
+
+    @Test
+    void testNoOverlappingAssignmentsForLargeDay() {
+        // 准备测试数据：3000个步骤、150名员工
+        List<KitchenStaff> staff = new ArrayList<>();
+        String[] skills = {"炒锅", "烤箱", "蒸柜", "炒锅,烤箱", "烤箱,蒸柜"};
+        for (int i = 0; i < 150; i++) {
+            staff.add(staff((long) i, "员工" + i, skills[i % skills.length]));
+        }
+        String[] equipment = {"炒锅", "烤箱", "蒸柜", null};
+        List<ProductionStep> steps = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            steps.add(step((long) i, DAY.withHour(6).plusMinutes((i * 7L) % (14 * 60)), 15 + i % 45, equipment[i % 4]));
+        }
+
+        // 执行测试
+        StaffAssigner.Result result = staffAssigner.assign(steps, staff);
+
+        // 验证结果：同一员工的步骤互不重叠
+        Map<String, List<ProductionStep>> byStaff = new HashMap<>();
+        result.assignments().forEach(assignment ->
+                byStaff.computeIfAbsent(assignment.staffName(), name -> new ArrayList<>()).add(assignment.step()));
+        for (List<ProductionStep> assigned : byStaff.values()) {
+            assigned.sort((a, b) -> a.getPlannedStartTime().compareTo(b.getPlannedStartTime()));
+            for (int i = 1; i < assigned.size(); i++) {
+                ProductionStep previous = assigned.get(i - 1);
+                assertFalse(assigned.get(i).getPlannedStartTime()
+                        .isBefore(previous.getPlannedStartTime().plusMinutes(previous.getPlannedDurationMinutes())));
+            }
+        }
+        assertEquals(3000, result.assignments().size() + result.unassigned().size());
+    }
+
+    private static Map<Long, String> byStep(StaffAssigner.Result result) {
+        Map<Long, String> assigned = new HashMap<>();
+        result.assignments().forEach(assignment -> assigned.put(assignment.step().getId(), assignment.staffName()));
+        return assigned;
+    }
+
+    private static ProductionStep step(Long id, LocalDateTime start, int minutes, String equipment) {
+        ProductionStep step = new ProductionStep();
+        step.setId(id);
+        step.setStepName("步骤" + id);
+        step.setPlannedStartTime(start);
+        step.setPlannedDurationMinutes(minutes);
+        step.setEquipment(equipment);
+        step.setStatus(ProductionStep.StepStatus.PENDING);
+        return step;
+    }
+
+    private static KitchenStaff staff(Long id, String name, String skills) {
+        return KitchenStaff.builder()
+                .id(id)
+                .employeeNumber("E" + id)
+                .name(name)
+                .skills(skills)
+                .status(KitchenStaff.StaffStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,182 @@
+package com.ckm;
+
+import com.ckm.dto.StepDurationStatsDTO;
+import com.ckm.repository.StepDurationJdbcRepository;
+import com.ckm.scheduling.DurationSketch;
+import com.ckm.service.StepDurationStatsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StepDurationStatsServiceTest {
+
+    @Test
+    void testSketchQuantilesStayWithinRelativeError() {
+        // 准备测试数据：1到1000分钟各一次
+        DurationSketch sketch = new DurationSketch();
+        for (int minutes = 1; minutes <= 1000; minutes++) {
+            sketch.record(minutes);
+        }
+
+        // 执行测试
+        int p50 = sketch.quantile(0.5);
+        int p90 = sketch.quantile(0.9);
+        int p99 = sketch.quantile(0.99);
+
+        // 验证结果：分桶宽度不超过值的1/32
+        assertEquals(500, p50, 500 / 32.0);
+        assertEquals(900, p90, 900 / 32.0);
+        assertEquals(990, p99, 990 / 32.0);
+        assertEquals(1000, sketch.getCount());
+        assertEquals(500.5, sketch.getMean(), 1e-9);
+    }
+
+    @Test
+    void testSketchMergeAndSerializationRoundTrip() {
+        // 准备测试数据：64分钟以内的时长按分钟精确分桶
+        DurationSketch first = new DurationSketch();
+        DurationSketch second = new DurationSketch();
+        for (int minutes : new int[]{3, 5, 7}) {
+            first.record(minutes);
+        }
+        for (int minutes : new int[]{4, 6, 200000}) {
+            second.record(minutes);
+        }
+
+        // 执行测试
+        first.merge(second);
+        DurationSketch restored = DurationSketch.fromBytes(first.toBytes());
+
+        // 验证结果
+        assertEquals(6, restored.getCount());
+        assertEquals(5, restored.quantile(0.5));
+        assertEquals(3, restored.quantile(0));
+        assertEquals(DurationSketch.MAX_MINUTES, restored.quantile(1));
+        assertNull(new DurationSketch().quantile(0.5));
+        assertThrows(IllegalArgumentException.class, () -> DurationSketch.fromBytes(new byte[]{1, 0}));
+    }
+
+    @Test
+    void testPlannedMinutesRequireEnoughSamples() {
+        // 准备测试数据
+        FakeRepository repository = new FakeRepository();
+        StepDurationStatsService service = service(repository);
+        repository.durations.add(new StepDurationJdbcRepository.StepDuration(1L, 5L, 2, "炒锅", 12));
+        repository.durations.add(new StepDurationJdbcRepository.StepDuration(2L, 5L, 2, "炒锅", 14));
+
+        // 执行测试
+        service.recordCompletedSteps(List.of(1L, 2L));
+        OptionalInt tooFew = service.plannedMinutes(5L, 2);
+        repository.durations.set(0, new StepDurationJdbcRepository.StepDuration(3L, 5L, 2, null, 16));
+        service.recordCompletedSteps(List.of(3L));
+        OptionalInt planned = service.plannedMinutes(5L, 2);
+
+        // 验证结果
+        assertTrue(tooFew.isEmpty());
+        assertEquals(OptionalInt.of(14), planned);
+        assertEquals(3, service.getStandardStats(5L).get(0).getSampleCount());
+        StepDurationStatsDTO equipment = service.getEquipmentStats("炒锅").orElseThrow();
+        assertEquals(2, equipment.getSampleCount());
+        assertEquals(12, equipment.getP50());
+        assertTrue(service.getEquipmentStats("烤箱").isEmpty());
+    }
+
+    @Test
+    void testSnapshotMergesLocalDeltaAndAdoptsStoredSketch() {
+        // 准备测试数据：数据库中已有其他节点计入的两个样本
+        FakeRepository repository = new FakeRepository();
+        DurationSketch stored = new DurationSketch();
+        stored.record(30);
+        stored.record(32);
+        repository.stored.put("STANDARD_STEP/5:1", stored);
+        StepDurationStatsService service = service(repository);
+        repository.durations.add(new StepDurationJdbcRepository.StepDuration(1L, 5L, 1, null, 10));
+
+        // 执行测试
+        service.recordCompletedSteps(List.of(1L));
+        int merged = service.snapshot();
+        int unchanged = service.snapshot();
+
+        // 验证结果
+        assertEquals(1, merged);
+        assertEquals(0, unchanged);
+        assertEquals(List.of(1L), repository.mergedCounts);
+        StepDurationStatsDTO stats = service.getStandardStats(5L).get(0);
+        assertEquals(3, stats.getSampleCount());
+        assertEquals(30, stats.getP50());
+    }
+
+    @Test
+    void testSnapshotPicksUpSketchesUpdatedByOtherNodes() {
+        // 准备测试数据：本节点载入后，其他节点合并了烤箱的样本，本节点没有烤箱的新样本
+        FakeRepository repository = new FakeRepository();
+        StepDurationStatsService service = service(repository);
+        assertTrue(service.getEquipmentStats("烤箱").isEmpty());
+        DurationSketch oven = new DurationSketch();
+        oven.record(45);
+        repository.stored.put("EQUIPMENT/烤箱", oven);
+
+        // 执行测试
+        int merged = service.snapshot();
+
+        // 验证结果
+        assertEquals(0, merged);
+        assertTrue(repository.mergedCounts.isEmpty());
+        StepDurationStatsDTO stats = service.getEquipmentStats("烤箱").orElseThrow();
+        assertEquals(1, stats.getSampleCount());
+        assertEquals(45, stats.getP50());
+    }
+
+    private static StepDurationStatsService service(FakeRepository repository) {
+        StepDurationStatsService service = new StepDurationStatsService();
+        ReflectionTestUtils.setField(service, "stepDurationJdbcRepository", repository);
+        ReflectionTestUtils.setField(service, "minSamples", 3);
+        return service;
+    }
+
+    /**
+     * 内存中的工时读取和草图存储，键为"维度/键"
+     */
+    private static class FakeRepository extends StepDurationJdbcRepository {
+
+        private final List<StepDuration> durations = new ArrayList<>();
+
+        private final Map<String, DurationSketch> stored = new HashMap<>();
+
+        private final List<Long> mergedCounts = new ArrayList<>();
+
+        @Override
+        public List<StepDuration> findCompletedDurations(Collection<Long> stepIds) {
+            return durations.stream().filter(duration -> stepIds.contains(duration.stepId())).toList();
+        }
+
+        @Override
+        public List<Snapshot> findAll() {
+            return stored.entrySet().stream()
+                    .map(e -> new Snapshot(e.getKey().split("/")[0], e.getKey().split("/")[1], e.getValue().toBytes()))
+                    .toList();
+        }
+
+        @Override
+        public List<Snapshot> findUpdatedSince(LocalDateTime since) {
+            return findAll();
+        }
+
+        @Override
+        public DurationSketch merge(String dimension, String key, DurationSketch delta) {
+            mergedCounts.add(delta.getCount());
+            DurationSketch merged = stored.computeIfAbsent(dimension + "/" + key, k -> new DurationSketch());
+            merged.merge(delta);
+            return merged.copy();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.ckm;
+
+import com.ckm.dto.StepJournalRequestDTO;
+import com.ckm.dto.StepJournalResultDTO;
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionStep;
+import com.ckm.event.FloorEvent;
+import com.ckm.repository.KitchenStaffRepository;
+import com.ckm.repository.ProductionStepJdbcRepository;
+import com.ckm.repository.StepJournalJdbcRepository;
+import com.ckm.service.BatchCostService;
+import com.ckm.service.StepDurationStatsService;
+import com.ckm.service.StepJournalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StepJournalServiceTest {
+
+    private static final LocalDateTime CLIENT_TIME = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    @Mock
+    private ProductionStepJdbcRepository productionStepJdbcRepository;
+
+    @Mock
+    private StepJournalJdbcRepository stepJournalJdbcRepository;
+
+    @Mock
+    private KitchenStaffRepository kitchenStaffRepository;
+
+    @Mock
+    private BatchCostService batchCostService;
+
+    @Mock
+    private StepDurationStatsService stepDurationStatsService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private StepJournalService stepJournalService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(stepJournalJdbcRepository.findResults(any())).thenReturn(Map.of());
+        when(productionStepJdbcRepository.updateSynced(anyList(), anyMap()))
+                .thenAnswer(invocation -> invocation.getArgument(0, List.class).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEventsAreAppliedInOrderWithOneBatchedUpdate() {
+        // 准备测试数据
+        when(productionStepJdbcRepository.findDetachedByIds(any())).thenReturn(List.of(step(1L, 3L)));
+        StepJournalRequestDTO request = request(
+                event("e1", StepJournalRequestDTO.Action.START, CLIENT_TIME, null),
+                event("e2", StepJournalRequestDTO.Action.COMPLETE, CLIENT_TIME.plusMinutes(25), ProductionStep.QualityResult.PASS));
+
+        // 执行测试
+        StepJournalResultDTO result = stepJournalService.sync(request, "tablet");
+
+        // 验证结果
+        assertEquals(2, result.getApplied());
+        assertEquals("IN_PROGRESS", result.getOutcomes().get(0).status());
+        assertEquals(4L, result.getOutcomes().get(0).version());
+        assertEquals("COMPLETED", result.getOutcomes().get(1).status());
+        assertEquals(5L, result.getOutcomes().get(1).version());
+
+        ArgumentCaptor<List<ProductionStep>> updates = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Map<Long, Long>> versions = ArgumentCaptor.forClass(Map.class);
+        verify(productionStepJdbcRepository, times(1)).updateSynced(updates.capture(), versions.capture());
+        ProductionStep updated = updates.getValue().get(0);
+        assertEquals(CLIENT_TIME, updated.getActualStartTime());
+        assertEquals(25, updated.getActualDurationMinutes());
+        assertEquals(3L, versions.getValue().get(1L));
+
+        ArgumentCaptor<Map<Long, ProductionBatch.StepCounters>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(productionStepJdbcRepository).adjustCounters(deltas.capture());
+        assertEquals(new ProductionBatch.StepCounters(0, 0, 1, 0, 0, 0), deltas.getValue().get(10L));
+        verify(eventPublisher, times(2)).publishEvent(any(FloorEvent.class));
+        verify(batchCostService).applyCompletedSteps(List.of(1L));
+        verify(stepDurationStatsService).recordCompletedSteps(List.of(1L));
+    }
+
+    @Test
+    void testEventNotAllowedInCurrentStateIsRejectedAlone() {
+        // 准备测试数据：完成事件排在开始事件之前
+        when(productionStepJdbcRepository.findDetachedByIds(any())).thenReturn(List.of(step(1L, 0L)));
+        StepJournalRequestDTO request = request(
+                event("e1", StepJournalRequestDTO.Action.COMPLETE, CLIENT_TIME, null),
+                event("e2", StepJournalRequestDTO.Action.START, CLIENT_TIME, null));
+
+        // 执行测试
+        StepJournalResultDTO result = stepJournalService.sync(request, "tablet");
+
+        // 验证结果
+        assertEquals(StepJournalResultDTO.REJECTED, result.getOutcomes().get(0).result());
+        assertTrue(result.getOutcomes().get(0).message().contains("无法完成"));
+        assertEquals(StepJournalResultDTO.APPLIED, result.getOutcomes().get(1).result());
+        assertEquals(1, result.getRejected());
+    }
+
+    @Test
+    void testResentEventsAreDuplicates() {
+        // 准备测试数据：e1已在上次同步中处理
+        when(stepJournalJdbcRepository.findResults(any())).thenReturn(Map.of("e1", StepJournalResultDTO.APPLIED));
+        ProductionStep started = step(1L, 4L);
+        started.setStatus(ProductionStep.StepStatus.IN_PROGRESS);
+        when(productionStepJdbcRepository.findDetachedByIds(any())).thenReturn(List.of(started));
+        StepJournalRequestDTO request = request(
+                event("e1", StepJournalRequestDTO.Action.START, CLIENT_TIME, null),
+                event("e2", StepJournalRequestDTO.Action.FAIL, CLIENT_TIME, null),
+                event("e2", StepJournalRequestDTO.Action.FAIL, CLIENT_TIME, null));
+
+        // 执行测试
+        StepJournalResultDTO result = stepJournalService.sync(request, "tablet");
+
+        // 验证结果
+        assertEquals(2, result.getDuplicates());
+        assertEquals(1, result.getApplied());
+        assertEquals("FAILED", result.getOutcomes().get(1).status());
+        // 重复事件带原处理结果和步骤当前的状态、版本
+        StepJournalResultDTO.Outcome resent = result.getOutcomes().get(0);
+        assertEquals("IN_PROGRESS", resent.status());
+        assertEquals(4L, resent.version());
+        assertTrue(resent.message().contains(StepJournalResultDTO.APPLIED));
+        StepJournalResultDTO.Outcome repeated = result.getOutcomes().get(2);
+        assertEquals("FAILED", repeated.status());
+        assertEquals(5L, repeated.version());
+    }
+
+    @Test
+    void testConcurrentResendIsConflict() {
+        // 准备测试数据：另一请求已先记录了同一事件
+        when(productionStepJdbcRepository.findDetachedByIds(any())).thenReturn(List.of(step(1L, 0L)));
+        doThrow(new DuplicateKeyException("Duplicate entry 'e1'"))
+                .when(stepJournalJdbcRepository).insertAll(any(), anyList(), anyString());
+
+        // 执行测试
+        BusinessException ex = assertThrows(BusinessException.class, () -> stepJournalService.sync(
+                request(event("e1", StepJournalRequestDTO.Action.START, CLIENT_TIME, null)), "tablet"));
+
+        // 验证结果
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void testConcurrentModificationRollsBackWholeSync() {
+        // 准备测试数据：读取后步骤被其他请求修改
+        when(productionStepJdbcRepository.findDetachedByIds(any())).thenReturn(List.of(step(1L, 0L)));
+        when(productionStepJdbcRepository.updateSynced(anyList(), anyMap())).thenReturn(0);
+
+        // 执行测试
+        BusinessException ex = assertThrows(BusinessException.class, () -> stepJournalService.sync(
+                request(event("e1", StepJournalRequestDTO.Action.START, CLIENT_TIME, null)), "tablet"));
+
+        // 验证结果
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+        verify(stepJournalJdbcRepository, never()).insertAll(anyString(), anyList(), anyString());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private static ProductionStep step(Long id, Long version) {
+        ProductionBatch batch = new ProductionBatch();
+        batch.setId(10L);
+        return ProductionStep.builder()
+                .id(id)
+                .productionBatch(batch)
+                .status(ProductionStep.StepStatus.PENDING)
+                .qualityResult(ProductionStep.QualityResult.PENDING)
+                .version(version)
+                .build();
+    }
+
+    private static StepJournalRequestDTO.Event event(String eventId, StepJournalRequestDTO.Action action,
+                                                     LocalDateTime clientTime, ProductionStep.QualityResult qualityResult) {
+        return new StepJournalRequestDTO.Event(eventId, 1L, action, clientTime, null, null, null, null,
+                qualityResult, null, null, null);
+    }
+
+    private static StepJournalRequestDTO request(StepJournalRequestDTO.Event... events) {
+        return StepJournalRequestDTO.builder().deviceId("tablet-1").events(List.of(events)).build();
+    }
+}
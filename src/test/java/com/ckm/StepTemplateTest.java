@@ -0,0 +1,180 @@
+package com.ckm;
+
+import com.ckm.entity.ProductionBatch;
+import com.ckm.entity.ProductionOrder;
+import com.ckm.entity.ProductionStandard;
+import com.ckm.entity.ProductionStep;
+import com.ckm.repository.ProductionStepJdbcRepository;
+import com.ckm.repository.ProductionStepRepository;
+import com.ckm.service.StepDurationStatsService;
+import com.ckm.service.StepTemplate;
+import com.ckm.service.StepTemplateService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StepTemplateTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    @Test
+    void testCompileSplitsRemainingCookingTime() {
+        // 准备测试数据：第一步写明10分钟，其余两步平分剩余的21分钟
+        ProductionStandard standard = standard(1L, 31,
+                "1. 食材准备|10|电子秤|重量准确\n2、切配加工||切菜板|刀工均匀|鸡胸肉切丁；烹饪制作|约|炒锅");
+
+        // 执行测试
+        StepTemplate template = StepTemplate.compile(standard);
+
+        // 验证结果
+        List<StepTemplate.Step> steps = template.getSteps();
+        assertEquals(3, steps.size());
+        assertEquals("食材准备", steps.get(0).name());
+        assertEquals(10, steps.get(0).durationMinutes());
+        assertEquals("电子秤", steps.get(0).equipment());
+        assertEquals(11, steps.get(1).durationMinutes());
+        assertEquals("鸡胸肉切丁", steps.get(1).instructions());
+        assertEquals(21, steps.get(2).offsetMinutes());
+        assertEquals(10, steps.get(2).durationMinutes());
+        assertEquals("色泽鲜亮", steps.get(2).qualityCheckpoints());
+        assertEquals(31, template.getTotalMinutes());
+    }
+
+    @Test
+    void testStandardWithoutPreparationStepsYieldsSingleCookingStep() {
+        // 准备测试数据
+        ProductionStandard standard = standard(1L, 25, null);
+
+        // 执行测试
+        List<StepTemplate.Step> steps = StepTemplate.compile(standard).getSteps();
+
+        // 验证结果
+        assertEquals(1, steps.size());
+        assertEquals(25, steps.get(0).durationMinutes());
+        assertEquals("炒锅", steps.get(0).equipment());
+    }
+
+    @Test
+    void testMaterializeExpandsAllBatchesInOneInsert() {
+        // 准备测试数据
+        List<List<ProductionStep>> inserted = new ArrayList<>();
+        StepTemplateService service = new StepTemplateService();
+        ReflectionTestUtils.setField(service, "productionStepJdbcRepository", new ProductionStepJdbcRepository() {
+            @Override
+            public void insertAll(List<ProductionStep> steps) {
+                inserted.add(steps);
+            }
+        });
+        ProductionStepRepository productionStepRepository = mock(ProductionStepRepository.class);
+        when(productionStepRepository.findByProductionBatchIdInOrderByStepNumberAsc(anyCollection()))
+                .thenAnswer(invocation -> inserted.get(0));
+        ReflectionTestUtils.setField(service, "productionStepRepository", productionStepRepository);
+        ReflectionTestUtils.setField(service, "stepDurationStatsService", stats(Map.of()));
+        ProductionStandard standard = standard(1L, 20, "备料|5\n烹饪|15|炒锅");
+        List<ProductionBatch> batches = List.of(batch(1L, standard), batch(2L, standard), batch(3L, null));
+
+        // 执行测试
+        int count = service.materializeSteps(batches);
+
+        // 验证结果
+        assertEquals(4, count);
+        assertEquals(1, inserted.size());
+        ProductionStep second = inserted.get(0).get(1);
+        assertEquals(2, second.getStepNumber());
+        assertEquals(START.plusMinutes(5), second.getPlannedStartTime());
+        assertEquals(ProductionStep.StepStatus.PENDING, second.getStatus());
+        assertEquals("planner", second.getCreatedBy());
+        assertSame(batches.get(1), inserted.get(0).get(2).getProductionBatch());
+        // 插入的步骤重新读取后放入各自批次
+        assertEquals(2, batches.get(0).getSteps().size());
+        assertEquals(2, batches.get(1).getStepTotal());
+        assertSame(second, batches.get(0).getSteps().get(1));
+        assertTrue(batches.get(2).getSteps().isEmpty());
+    }
+
+    @Test
+    void testObservedDurationsReplacePlannedDurations() {
+        // 准备测试数据：备料步骤的样本中位数为9分钟，烹饪步骤样本不足
+        StepTemplateService service = new StepTemplateService();
+        ReflectionTestUtils.setField(service, "stepDurationStatsService", stats(Map.of(1, 9)));
+        ProductionStandard standard = standard(1L, 20, "备料|5\n烹饪|15|炒锅");
+        ProductionStandard unobserved = standard(2L, 20, "备料|5\n烹饪|15|炒锅");
+
+        // 执行测试
+        StepTemplate planned = service.plannedTemplateFor(standard);
+        service.estimatePlanningMinutes(List.of(order(standard), order(standard), order(unobserved)));
+
+        // 验证结果
+        assertEquals(9, planned.getSteps().get(0).durationMinutes());
+        assertEquals(9, planned.getSteps().get(1).offsetMinutes());
+        assertEquals(15, planned.getSteps().get(1).durationMinutes());
+        assertEquals(24, standard.getPlanningMinutes());
+        assertEquals(20, unobserved.getPlanningMinutes());
+        assertEquals(20, standard.getCookingTime());
+    }
+
+    @Test
+    void testTemplateIsRecompiledWhenStandardChanges() {
+        // 准备测试数据
+        StepTemplateService service = new StepTemplateService();
+        ProductionStandard standard = standard(1L, 20, "备料|5\n烹饪|15");
+        StepTemplate first = service.templateFor(standard);
+
+        // 执行测试
+        StepTemplate cached = service.templateFor(standard);
+        standard.setPreparationSteps("备料|5\n腌制|30\n烹饪|15");
+        standard.setUpdatedAt(standard.getUpdatedAt().plusMinutes(1));
+        StepTemplate recompiled = service.templateFor(standard);
+
+        // 验证结果
+        assertSame(first, cached);
+        assertEquals(3, recompiled.getSteps().size());
+    }
+
+    private static ProductionStandard standard(Long id, int cookingTime, String preparationSteps) {
+        ProductionStandard standard = new ProductionStandard("宫保鸡丁", "配方", 0.5, cookingTime, "色泽鲜亮");
+        standard.setId(id);
+        standard.setPreparationSteps(preparationSteps);
+        standard.setEquipmentRequired("炒锅");
+        return standard;
+    }
+
+    /**
+     * 只有standardId为1的标准有样本，durations为步骤序号到计划时长
+     */
+    private static StepDurationStatsService stats(Map<Integer, Integer> durations) {
+        return new StepDurationStatsService() {
+            @Override
+            public OptionalInt plannedMinutes(Long standardId, int stepNumber) {
+                Integer minutes = standardId == 1L ? durations.get(stepNumber) : null;
+                return minutes != null ? OptionalInt.of(minutes) : OptionalInt.empty();
+            }
+        };
+    }
+
+    private static ProductionOrder order(ProductionStandard standard) {
+        ProductionOrder order = new ProductionOrder();
+        order.setProductionStandard(standard);
+        return order;
+    }
+
+    private static ProductionBatch batch(Long id, ProductionStandard standard) {
+        ProductionOrder order = order(standard);
+        ProductionBatch batch = new ProductionBatch();
+        batch.setId(id);
+        batch.setProductionOrder(standard != null ? order : null);
+        batch.setStartTime(START);
+        batch.setCreatedBy("planner");
+        return batch;
+    }
+}
@@ -0,0 +1,82 @@
+package com.ckm;
+
+import com.ckm.dto.LineUtilizationDTO;
+import com.ckm.entity.ProductionLine;
+import com.ckm.entity.ShiftWindow;
+import com.ckm.scheduling.UtilizationCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtilizationCalculatorTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    private final UtilizationCalculator calculator = new UtilizationCalculator();
+
+    @Test
+    void testBusyIdleAndOverlapWithinShift() {
+        // 准备测试数据：A线班次8:00-16:00
+        ProductionLine lineA = ProductionLine.builder()
+                .name("生产线A")
+                .code("LINE-A")
+                .capacityPerHour(120)
+                .shifts(List.of(ShiftWindow.builder()
+                        .startTime(LocalTime.of(8, 0))
+                        .endTime(LocalTime.of(16, 0))
+                        .build()))
+                .build();
+
+        // 8:00-10:00与9:00-11:00重叠一小时，7:00-8:00在班次外
+        List<UtilizationCalculator.Occupancy> occupancies = List.of(
+                occupancy("生产线A", 8, 10),
+                occupancy("生产线A", 9, 11),
+                occupancy("生产线A", 7, 8));
+
+        // 执行测试
+        List<LineUtilizationDTO> report = calculator.calculate(occupancies, List.of(lineA), DAY, DAY.plusDays(1));
+
+        // 验证结果
+        assertEquals(2, report.size());
+        LineUtilizationDTO first = report.get(0);
+        assertEquals(DAY, first.getDate());
+        assertEquals(480, first.getShiftMinutes());
+        assertEquals(180, first.getBusyMinutes());
+        assertEquals(300, first.getIdleMinutes());
+        assertEquals(60, first.getOverlapMinutes());
+        assertEquals(60, first.getOffShiftMinutes());
+        assertEquals(37.5, first.getBusyPercent());
+        assertEquals(62.5, first.getIdlePercent());
+        assertEquals(12.5, first.getOverlapPercent());
+
+        LineUtilizationDTO second = report.get(1);
+        assertEquals(0, second.getBusyMinutes());
+        assertEquals(100.0, second.getIdlePercent());
+    }
+
+    @Test
+    void testUnregisteredLineIsTreatedAsAlwaysOpen() {
+        // 准备测试数据：跨午夜的排程分摊到两天
+        List<UtilizationCalculator.Occupancy> occupancies = List.of(new UtilizationCalculator.Occupancy(
+                "临时线", DAY.atTime(23, 0), DAY.plusDays(1).atTime(1, 0)));
+
+        // 执行测试
+        List<LineUtilizationDTO> report = calculator.calculate(occupancies, List.of(), DAY, DAY.plusDays(1));
+
+        // 验证结果
+        assertEquals(2, report.size());
+        assertEquals(1440, report.get(0).getShiftMinutes());
+        assertEquals(60, report.get(0).getBusyMinutes());
+        assertEquals(60, report.get(1).getBusyMinutes());
+    }
+
+    private UtilizationCalculator.Occupancy occupancy(String line, int startHour, int endHour) {
+        LocalDateTime day = DAY.atStartOfDay();
+        return new UtilizationCalculator.Occupancy(line, day.withHour(startHour), day.withHour(endHour));
+    }
+}